@@ -0,0 +1,107 @@
+package org.example.benchmark;
+
+import org.example.config.StorageProperties;
+import org.example.service.MemoryStorageService;
+import org.example.service.VersionedEntry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Увеличение счётчиков при конкуренции потоков: {@code INCR} — атомарная операция хранилища,
+ * {@code CLIENT_RMW} — клиент читает значение и записывает увеличенное (get, затем set),
+ * {@code CLIENT_CAS} — клиент читает запись с версией и повторяет условную замену до успеха.
+ * Потоки увеличивают {@code keys} счётчиков; чем меньше ключей, тем выше конкуренция.
+ * В конце каждой итерации печатается доля потерянных увеличений: при {@code CLIENT_RMW} параллельные
+ * записи перетирают друг друга, у остальных вариантов потерь нет. Вызовы выполняются в одном процессе,
+ * поэтому клиентские варианты здесь не платят за два сетевых обращения на увеличение, как через REST.
+ * Запуск: mvn -Pjmh test-compile exec:exec -Djmh.args="AtomicContentionBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class AtomicContentionBenchmark {
+
+    private static final Long TTL = 3_600_000L;
+
+    @Param({"INCR", "CLIENT_RMW", "CLIENT_CAS"})
+    private String mode;
+
+    @Param({"1", "64"})
+    private int keys;
+
+    private final LongAdder increments = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private MemoryStorageService service;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        service = new MemoryStorageService(new StorageProperties());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCounters() {
+        for (int i = 0; i < keys; i++) {
+            service.set("counter" + i, "0", TTL);
+        }
+        increments.reset();
+        retries.reset();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printLostUpdates() {
+        long stored = 0;
+        for (int i = 0; i < keys; i++) {
+            stored += Long.parseLong(service.getEntry("counter" + i).value());
+        }
+        long expected = increments.sum();
+        System.out.printf("%nУвеличений: %d, в хранилище: %d, потеряно %.2f%%, повторов CAS: %d%n",
+                expected, stored, expected == 0 ? 0.0 : (expected - stored) * 100.0 / expected, retries.sum());
+    }
+
+    @Benchmark
+    public long increment(ThreadIndex index) {
+        String key = "counter" + index.next(keys);
+        increments.increment();
+        switch (mode) {
+            case "INCR" -> {
+                return service.increment(key, 1, TTL);
+            }
+            case "CLIENT_RMW" -> {
+                long value = Long.parseLong(service.getEntry(key).value()) + 1;
+                service.set(key, Long.toString(value), TTL);
+                return value;
+            }
+            default -> {
+                while (true) {
+                    VersionedEntry entry = service.getVersioned(key);
+                    long value = Long.parseLong(entry.value()) + 1;
+                    if (service.compareAndSet(key, entry.version(), Long.toString(value), TTL) != null) {
+                        return value;
+                    }
+                    retries.increment();
+                }
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadIndex {
+        private final SplittableRandom random = new SplittableRandom();
+
+        int next(int bound) {
+            return random.nextInt(bound);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.benchmark;
+
+import org.example.Main;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нагрузочный тест HTTP API: получение страницы из {@code batchSize} ключей по одному запросу
+ * {@code GET /api/storage/{key}} на ключ против одного запроса {@code POST /api/storage/_mget}.
+ * Режим SampleTime даёт распределение задержки одной страницы (p0.99 в отчёте),
+ * количество страниц в секунду — 1 / среднее время при заданном числе потоков.
+ * Запуск: mvn -Pjmh test-compile exec:exec -Djmh.args="BatchEndpointBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@Threads(8)
+public class BatchEndpointBenchmark {
+
+    @Param({"50", "500"})
+    private int batchSize;
+
+    @Param({"10000"})
+    private int keySpace;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+
+    @Setup
+    public void setup() throws IOException, InterruptedException {
+        context = SpringApplication.run(Main.class, "--server.port=0", "--logging.level.root=WARN",
+                "--storage.snapshot.file=" + System.getProperty("java.io.tmpdir") + "/batch-benchmark.json");
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/storage";
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < keySpace; i++) {
+            body.append(i == 0 ? "" : ",").append("{\"key\":\"key").append(i)
+                    .append("\",\"value\":\"value").append(i).append("\",\"ttl\":3600000}");
+        }
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/_mset"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.append(']').toString()))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 201) {
+            throw new IllegalStateException("Failed to populate storage: " + response.statusCode());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int singleKeyGets() throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int length = 0;
+        for (int i = 0; i < batchSize; i++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/key" + random.nextInt(keySpace))).GET().build();
+            length += client.send(request, HttpResponse.BodyHandlers.ofString()).body().length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public int multiGet() throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < batchSize; i++) {
+            body.append(i == 0 ? "\"key" : ",\"key").append(random.nextInt(keySpace)).append('"');
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/_mget"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.append(']').toString()))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString()).body().length();
+    }
+}
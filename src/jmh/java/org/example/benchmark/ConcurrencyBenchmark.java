@@ -0,0 +1,233 @@
+package org.example.benchmark;
+
+import org.example.Main;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Платформенные потоки Tomcat против виртуальных потоков при большом числе одновременных медленных клиентов.
+ * Каждый клиент открывает своё соединение, отправляет заголовки и половину тела запроса {@code _mget},
+ * а вторую половину — через {@code slowClientDelayMs}: всё это время запрос занимает поток обработки.
+ * Одна операция — волна из {@code connections} таких запросов; в конце каждой итерации печатаются
+ * пропускная способность (запросов в секунду) и задержки p50/p99 от начала отправки до конца ответа.
+ * <p>
+ * Режим VIRTUAL требует Java 21: -Djmh.args="ConcurrencyBenchmark -jvm /path/to/jdk-21/bin/java".
+ * Для 50k соединений нужен лимит открытых файлов больше 100k (ulimit -n): клиент и сервер работают в одном процессе.
+ * Запуск: mvn -Pjmh test-compile exec:exec -Djmh.args="ConcurrencyBenchmark -p connections=1000"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class ConcurrencyBenchmark {
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    private String threads;
+
+    @Param({"1000", "10000", "50000"})
+    private int connections;
+
+    @Param({"50"})
+    private int slowClientDelayMs;
+
+    private static final int KEYS = 1000;
+
+    private ConfigurableApplicationContext context;
+    private InetSocketAddress address;
+    private byte[] head;
+    private byte[] tail;
+    private long[] latencies;
+    private int errors;
+    private long waveNanos;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, InterruptedException {
+        boolean virtual = "VIRTUAL".equals(threads);
+        if (virtual && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("VIRTUAL mode requires Java 21, run with -jvm <jdk-21>/bin/java.");
+        }
+        context = SpringApplication.run(Main.class, "--server.port=0", "--logging.level.root=WARN",
+                "--storage.virtual-threads=" + virtual,
+                "--server.tomcat.max-connections=" + (connections + 1000),
+                "--server.tomcat.accept-count=" + connections,
+                "--storage.snapshot.file=" + System.getProperty("java.io.tmpdir") + "/concurrency-benchmark.json");
+        int port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+        address = new InetSocketAddress("localhost", port);
+
+        StringBuilder entries = new StringBuilder("[");
+        for (int i = 0; i < KEYS; i++) {
+            entries.append(i == 0 ? "" : ",").append("{\"key\":\"key").append(i)
+                    .append("\",\"value\":\"value").append(i).append("\",\"ttl\":3600000}");
+        }
+        HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/storage/_mset"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(entries.append(']').toString()))
+                .build(), HttpResponse.BodyHandlers.discarding());
+
+        String body = "[\"key1\",\"key10\",\"key100\",\"key500\",\"key999\"]";
+        String headers = "POST /api/storage/_mget HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                + "Content-Length: " + body.length() + "\r\nConnection: close\r\n\r\n";
+        head = (headers + body.substring(0, body.length() / 2)).getBytes(StandardCharsets.US_ASCII);
+        tail = body.substring(body.length() / 2).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        long[] completed = Arrays.stream(latencies).filter(latency -> latency >= 0).sorted().toArray();
+        if (completed.length == 0) {
+            System.out.printf("%n[%s, %d connections] all requests failed%n", threads, connections);
+            return;
+        }
+        System.out.printf("%n[%s, %d connections] throughput: %.0f req/s, p50: %.1f ms, p99: %.1f ms, errors: %d%n",
+                threads, connections, completed.length / (waveNanos / 1e9),
+                completed[completed.length / 2] / 1e6, completed[(int) (completed.length * 0.99)] / 1e6, errors);
+    }
+
+    @Benchmark
+    public long wave() throws IOException {
+        long start = System.nanoTime();
+        latencies = new SlowClients(address, connections, head, tail,
+                TimeUnit.MILLISECONDS.toNanos(slowClientDelayMs)).run();
+        waveNanos = System.nanoTime() - start;
+        errors = (int) Arrays.stream(latencies).filter(latency -> latency < 0).count();
+        return waveNanos;
+    }
+
+    /**
+     * Генератор нагрузки на одном селекторе: все соединения обслуживаются одним потоком,
+     * поэтому клиент не ограничивает число одновременных соединений.
+     */
+    private static final class SlowClients {
+        private final InetSocketAddress address;
+        private final int connections;
+        private final byte[] head;
+        private final byte[] tail;
+        private final long delayNanos;
+
+        SlowClients(InetSocketAddress address, int connections, byte[] head, byte[] tail, long delayNanos) {
+            this.address = address;
+            this.connections = connections;
+            this.head = head;
+            this.tail = tail;
+            this.delayNanos = delayNanos;
+        }
+
+        private final class Client {
+            final int index;
+            final SocketChannel channel;
+            ByteBuffer output;
+            final ByteBuffer input = ByteBuffer.allocate(2048);
+            long started;
+
+            Client(int index, SocketChannel channel) {
+                this.index = index;
+                this.channel = channel;
+            }
+        }
+
+        long[] run() throws IOException {
+            long[] latencies = new long[connections];
+            Arrays.fill(latencies, -1);
+            ArrayDeque<Client> delayed = new ArrayDeque<>();
+            int done = 0;
+            try (Selector selector = Selector.open()) {
+                for (int i = 0; i < connections; i++) {
+                    SocketChannel channel = SocketChannel.open();
+                    channel.configureBlocking(false);
+                    channel.connect(address);
+                    channel.register(selector, SelectionKey.OP_CONNECT, new Client(i, channel));
+                }
+                while (done < connections) {
+                    long now = System.nanoTime();
+                    while (!delayed.isEmpty() && now - delayed.peek().started >= delayNanos) {
+                        Client client = delayed.poll();
+                        client.output = ByteBuffer.wrap(tail);
+                        client.channel.keyFor(selector).interestOps(SelectionKey.OP_WRITE);
+                    }
+                    long timeout = delayed.isEmpty() ? 10
+                            : Math.max(1, TimeUnit.NANOSECONDS.toMillis(delayNanos - (now - delayed.peek().started)));
+                    selector.select(timeout);
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Client client = (Client) key.attachment();
+                        try {
+                            if (key.isConnectable() && client.channel.finishConnect()) {
+                                client.started = System.nanoTime();
+                                client.output = ByteBuffer.wrap(head);
+                                key.interestOps(SelectionKey.OP_WRITE);
+                            } else if (key.isWritable()) {
+                                client.channel.write(client.output);
+                                if (!client.output.hasRemaining()) {
+                                    if (client.output.array() == head) {
+                                        key.interestOps(0);
+                                        delayed.add(client);
+                                    } else {
+                                        key.interestOps(SelectionKey.OP_READ);
+                                    }
+                                }
+                            } else if (key.isReadable()) {
+                                int read = client.channel.read(client.input);
+                                if (read < 0 || isComplete(client.input)) {
+                                    latencies[client.index] = read < 0 && !isComplete(client.input)
+                                            ? -1 : System.nanoTime() - client.started;
+                                    key.cancel();
+                                    client.channel.close();
+                                    done++;
+                                }
+                            }
+                        } catch (IOException e) {
+                            key.cancel();
+                            client.channel.close();
+                            done++;
+                        }
+                    }
+                }
+            }
+            return latencies;
+        }
+
+        /**
+         * Ответ получен полностью: заголовки и тело длины Content-Length или последний фрагмент chunked-ответа.
+         */
+        private static boolean isComplete(ByteBuffer input) {
+            String response = new String(input.array(), 0, input.position(), StandardCharsets.US_ASCII);
+            int headerEnd = response.indexOf("\r\n\r\n");
+            if (headerEnd < 0) {
+                return false;
+            }
+            int lengthIndex = response.toLowerCase().indexOf("content-length:");
+            if (lengthIndex >= 0 && lengthIndex < headerEnd) {
+                int lineEnd = response.indexOf("\r\n", lengthIndex);
+                int length = Integer.parseInt(response.substring(lengthIndex + 15, lineEnd).trim());
+                return input.position() >= headerEnd + 4 + length;
+            }
+            return response.endsWith("0\r\n\r\n");
+        }
+    }
+}
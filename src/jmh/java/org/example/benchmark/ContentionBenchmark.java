@@ -0,0 +1,74 @@
+package org.example.benchmark;
+
+import org.example.config.StorageProperties;
+import org.example.service.MemoryStorageService;
+import org.example.service.expiry.ExpiryStats;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Смешанная нагрузка с заданной долей чтений при работающей фоновой очистке.
+ * При {@code ttl=200} записи истекают через 200 мс после записи, и очистка постоянно удаляет ключи,
+ * при {@code ttl=3600000} она только просыпается по таймеру: разница — накладные расходы очистки.
+ * Число потоков задаётся ключом -t; прогон по 1–64 потокам с общим файлом результатов выполняет {@link ContentionSweep}.
+ * Запуск: mvn -Pjmh test-compile exec:exec -Djmh.main=org.example.benchmark.ContentionSweep
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class ContentionBenchmark {
+
+    @Param({"0.5", "0.9", "0.99"})
+    private double readRatio;
+
+    @Param({"WHEEL", "SAMPLING"})
+    private StorageProperties.Expiry.Strategy expiry;
+
+    @Param({"200", "3600000"})
+    private long ttl;
+
+    @Param({"100000"})
+    private int keyCount;
+
+    private MemoryStorageService service;
+    private String[] keys;
+    private Long entryTtl;
+
+    @Setup
+    public void setup() {
+        StorageProperties properties = new StorageProperties();
+        properties.getExpiry().setStrategy(expiry);
+        properties.getExpiry().setTick(Duration.ofMillis(10));
+        service = new MemoryStorageService(properties);
+        entryTtl = ttl;
+        keys = new String[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = "key" + i;
+            service.set(keys[i], "value" + i, entryTtl);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        ExpiryStats stats = service.getExpiryStats();
+        System.out.printf("%n[%s, ttl %d ms] expired in background: %d, on read: %d%n",
+                expiry, ttl, stats.expiredBySampling() + stats.expiredByTimer(), stats.expiredOnRead());
+        service.shutdown();
+    }
+
+    @Benchmark
+    public Object mixed() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int index = random.nextInt(keyCount);
+        if (random.nextDouble() < readRatio) {
+            return service.get(keys[index]);
+        }
+        return service.set(keys[index], keys[index], entryTtl);
+    }
+}
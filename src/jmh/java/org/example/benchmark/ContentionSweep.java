@@ -0,0 +1,44 @@
+package org.example.benchmark;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Прогон бенчмарков при 1, 2, 4, ..., 64 потоках с записью всех результатов в один JSON-файл
+ * (ключ -rff, по умолчанию {@code jmh-contention.json}). Остальные ключи — как у JMH;
+ * без регулярного выражения запускается {@link ContentionBenchmark}.
+ * Запуск: mvn -Pjmh test-compile exec:exec -Djmh.main=org.example.benchmark.ContentionSweep -Djmh.args="-p readRatio=0.9"
+ */
+public class ContentionSweep {
+
+    private static final int MAX_THREADS = 64;
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions options = new CommandLineOptions(args);
+        String resultFile = options.getResult().orElse("jmh-contention.json");
+        ResultFormatType resultFormat = options.getResultFormat().orElse(ResultFormatType.JSON);
+
+        List<RunResult> results = new ArrayList<>();
+        for (int threads = 1; threads <= MAX_THREADS; threads *= 2) {
+            ChainedOptionsBuilder builder = new OptionsBuilder()
+                    .parent(options)
+                    .threads(threads);
+            if (options.getIncludes().isEmpty()) {
+                builder.include(ContentionBenchmark.class.getSimpleName());
+            }
+            results.addAll(new Runner(builder.build()).run());
+        }
+        ResultFormatFactory.getInstance(resultFormat, resultFile).writeOut(results);
+        System.out.println("Results of " + results.size() + " runs written to " + resultFile);
+    }
+}
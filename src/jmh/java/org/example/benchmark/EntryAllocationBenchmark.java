@@ -0,0 +1,84 @@
+package org.example.benchmark;
+
+import org.example.config.StorageProperties;
+import org.example.service.MemoryStorageService;
+import org.example.tuple.Tuple3;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение выделения памяти на операцию get/set для прежнего представления записи
+ * ({@code Tuple3<String, Long, Long>} с упакованными числами и разбором строк) и для {@code StorageEntry}.
+ * Запуск: mvn -Pjmh test-compile exec:exec -Djmh.args="EntryAllocationBenchmark -prof gc"
+ * (метрика gc.alloc.rate.norm — байт на операцию).
+ * <p>
+ * Запись без выделений памяти не достигнута: {@code set} создаёт саму запись и, при стратегии истечения
+ * {@code wheel}, узел колеса таймеров.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntryAllocationBenchmark {
+
+    private static final int KEYS = 1024;
+    private static final Long TTL = 600_000L;
+
+    private final String[] keys = new String[KEYS];
+    private final ConcurrentHashMap<String, Tuple3<String, Long, Long>> legacyStorage = new ConcurrentHashMap<>();
+    private MemoryStorageService service;
+    private int index;
+
+    @Setup
+    public void setup() {
+        service = new MemoryStorageService(new StorageProperties());
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "key" + i;
+            legacySet(keys[i]);
+            service.set(keys[i], "value" + i, TTL);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    private String nextKey() {
+        index = (index + 1) & (KEYS - 1);
+        return keys[index];
+    }
+
+    @Benchmark
+    public String legacyGet() {
+        String key = nextKey();
+        long currentTime = System.currentTimeMillis();
+        Tuple3<String, Long, Long> entry = legacyStorage.get(key);
+        long remainingTime = Long.parseLong(entry.ttl().toString()) - (currentTime - Long.parseLong(entry.savedTime().toString()));
+        return "Значение: " + entry.value() + "\n Оставшееся время хранения: " + remainingTime / 1000 + "с";
+    }
+
+    @Benchmark
+    public Object legacySet() {
+        return legacySet(nextKey());
+    }
+
+    private Object legacySet(String key) {
+        long selectedTTL = TTL;
+        return legacyStorage.put(key, new Tuple3<>("value", selectedTTL, System.currentTimeMillis()));
+    }
+
+    @Benchmark
+    public String get() {
+        return service.get(nextKey());
+    }
+
+    @Benchmark
+    public boolean set() {
+        return service.set(nextKey(), "value", TTL);
+    }
+}
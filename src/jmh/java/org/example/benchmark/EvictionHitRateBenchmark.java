@@ -0,0 +1,86 @@
+package org.example.benchmark;
+
+import org.example.config.StorageProperties;
+import org.example.service.CacheStats;
+import org.example.service.MemoryStorageService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Доля попаданий и пропускная способность политик вытеснения на трассе с распределением Ципфа
+ * (чтение, при промахе — запись). Доля попаданий печатается в конце каждого прогона.
+ * Запуск: mvn -Pjmh test-compile exec:exec -Djmh.args="EvictionHitRateBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class EvictionHitRateBenchmark {
+
+    @Param({"LRU", "LFU", "W_TINY_LFU"})
+    private StorageProperties.Eviction.Policy policy;
+
+    @Param({"1000"})
+    private int maxEntries;
+
+    @Param({"100000"})
+    private int keySpace;
+
+    @Param({"0.99"})
+    private double skew;
+
+    private static final Long TTL = 3_600_000L;
+
+    private MemoryStorageService service;
+    private String[] keys;
+    private double[] cdf;
+
+    @Setup
+    public void setup() {
+        StorageProperties properties = new StorageProperties();
+        properties.getEviction().setPolicy(policy);
+        properties.getEviction().setMaxEntries(maxEntries);
+        service = new MemoryStorageService(properties);
+        keys = new String[keySpace];
+        cdf = new double[keySpace];
+        double sum = 0;
+        for (int i = 0; i < keySpace; i++) {
+            keys[i] = "key" + i;
+            sum += 1 / Math.pow(i + 1, skew);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < keySpace; i++) {
+            cdf[i] /= sum;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        CacheStats stats = service.getCacheStats();
+        System.out.printf("%n[%s] hit rate: %.2f%% (hits=%d, misses=%d, evictions=%d)%n",
+                policy, stats.hitRate() * 100, stats.hits(), stats.misses(), stats.evictions());
+        service.shutdown();
+    }
+
+    @State(Scope.Thread)
+    public static class Trace {
+        private final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Benchmark
+    public Object getOrLoad(Trace trace) {
+        int index = Arrays.binarySearch(cdf, trace.random.nextDouble());
+        String key = keys[index < 0 ? Math.min(-index - 1, keySpace - 1) : index];
+        String value = service.get(key);
+        if (value == null) {
+            service.set(key, key, TTL);
+        }
+        return value;
+    }
+}
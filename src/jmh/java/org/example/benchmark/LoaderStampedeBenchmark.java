@@ -0,0 +1,95 @@
+package org.example.benchmark;
+
+import org.example.config.StorageProperties;
+import org.example.service.MemoryStorageService;
+import org.example.service.loader.CacheLoader;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Количество обращений к медленному источнику при одновременных промахах: {@code SINGLE_FLIGHT} —
+ * чтение через хранилище с загрузчиком (один вызов источника на ключ), {@code CACHE_ASIDE} — клиент
+ * сам читает источник при промахе и сохраняет значение. Записи живут {@code ttl} мс, поэтому
+ * горячие ключи регулярно истекают и все потоки одновременно получают промах.
+ * Количество вызовов источника на 1000 чтений печатается в конце каждой итерации.
+ * Запуск: mvn -Pjmh test-compile exec:exec -Djmh.args="LoaderStampedeBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(32)
+public class LoaderStampedeBenchmark {
+
+    @Param({"SINGLE_FLIGHT", "CACHE_ASIDE"})
+    private String mode;
+
+    @Param({"1", "100"})
+    private int keys;
+
+    /** Задержка источника в миллисекундах. */
+    @Param({"5"})
+    private long latency;
+
+    @Param({"200"})
+    private long ttl;
+
+    private final LongAdder backendCalls = new LongAdder();
+    private final LongAdder reads = new LongAdder();
+    private CacheLoader backend;
+    private MemoryStorageService service;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        backend = key -> {
+            backendCalls.increment();
+            Thread.sleep(latency);
+            return "value-" + key;
+        };
+        StorageProperties properties = new StorageProperties();
+        properties.getLoader().setTtl(Duration.ofMillis(ttl));
+        service = "SINGLE_FLIGHT".equals(mode)
+                ? new MemoryStorageService(properties, null, backend, null)
+                : new MemoryStorageService(properties);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCounters() {
+        backendCalls.reset();
+        reads.reset();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printCounters() {
+        long calls = backendCalls.sum();
+        long total = reads.sum();
+        System.out.printf("%nВызовов источника: %d на %d чтений (%.2f на 1000)%n",
+                calls, total, total == 0 ? 0.0 : calls * 1000.0 / total);
+    }
+
+    @Benchmark
+    public String read() throws Exception {
+        reads.increment();
+        String key = "key" + ThreadLocalRandom.current().nextInt(keys);
+        if ("SINGLE_FLIGHT".equals(mode)) {
+            return service.get(key);
+        }
+        String value = service.get(key);
+        if (value == null) {
+            value = backend.load(key);
+            service.set(key, value, ttl);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,72 @@
+package org.example.benchmark;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.example.config.StorageProperties;
+import org.example.service.MemoryStorageService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Накладные расходы метрик на операции get и set: хранилище без реестра метрик ({@code OFF})
+ * против хранилища с реестром Prometheus, в котором задержка измеряется у в среднем каждой 16-й операции
+ * (по умолчанию, {@code SAMPLED}) или у каждой операции ({@code ALL}).
+ * Запуск: mvn -Pjmh test-compile exec:exec -Djmh.args="MetricsOverheadBenchmark -t 4"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+
+    @Param({"OFF", "SAMPLED", "ALL"})
+    private String metrics;
+
+    @Param({"100000"})
+    private int keyCount;
+
+    private static final Long TTL = 3_600_000L;
+
+    private PrometheusMeterRegistry registry;
+    private MemoryStorageService service;
+    private String[] keys;
+
+    @Setup
+    public void setup() {
+        StorageProperties properties = new StorageProperties();
+        if ("ALL".equals(metrics)) {
+            properties.getMetrics().setLatencySampling(1);
+        }
+        registry = "OFF".equals(metrics) ? null : new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        service = new MemoryStorageService(properties, registry);
+        keys = new String[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = "key" + i;
+            service.set(keys[i], "value" + i, TTL);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (registry != null) {
+            System.out.printf("%n[%s] scrape size: %d bytes%n", metrics, registry.scrape().length());
+            registry.close();
+        }
+        service.shutdown();
+    }
+
+    @Benchmark
+    public String get() {
+        return service.get(keys[ThreadLocalRandom.current().nextInt(keyCount)]);
+    }
+
+    @Benchmark
+    public boolean set() {
+        int index = ThreadLocalRandom.current().nextInt(keyCount);
+        return service.set(keys[index], keys[index], TTL);
+    }
+}
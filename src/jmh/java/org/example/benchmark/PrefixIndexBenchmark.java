@@ -0,0 +1,101 @@
+package org.example.benchmark;
+
+import org.example.config.StorageProperties;
+import org.example.service.MemoryStorageService;
+import org.example.tuple.Tuple3;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запросы по префиксу ключа и цена индекса ключей при записи. Ключи имеют вид
+ * {@code tenantT:userU:sessionS} (100 арендаторов по 100 пользователей), запрос выбирает сессии одного пользователя.
+ * {@code prefix} — {@link MemoryStorageService#getByPrefix} с индексом ключей ({@code index=true}) или полным
+ * обходом хранилища ({@code index=false}); {@code getAllAndFilter} — прежний способ клиента: все записи и отбор
+ * по префиксу. {@code set} перезаписывает существующие ключи, {@code setAndRemove} добавляет и удаляет новый ключ,
+ * то есть меняет индекс дважды.
+ * Запуск: mvn -Pjmh test-compile exec:exec -Djmh.args="PrefixIndexBenchmark"
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PrefixIndexBenchmark {
+
+    private static final int TENANTS = 100;
+    private static final int USERS = 100;
+
+    @Param({"true", "false"})
+    private boolean index;
+
+    @Param({"100000", "1000000"})
+    private int entries;
+
+    private int sessions;
+    private MemoryStorageService service;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        StorageProperties properties = new StorageProperties();
+        properties.getIndex().setEnabled(index);
+        service = new MemoryStorageService(properties);
+        sessions = Math.max(1, entries / (TENANTS * USERS));
+        for (int i = 0; i < entries; i++) {
+            service.set(key(i % TENANTS, i / TENANTS % USERS, i / (TENANTS * USERS)), "value" + i, 3_600_000L);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    private static String key(int tenant, int user, int session) {
+        return "tenant" + tenant + ":user" + user + ":session" + session;
+    }
+
+    private static String userPrefix(ThreadLocalRandom random) {
+        return "tenant" + random.nextInt(TENANTS) + ":user" + random.nextInt(USERS) + ":";
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public Map<String, Tuple3<String, Long, Long>> prefix() {
+        return service.getByPrefix(userPrefix(ThreadLocalRandom.current()), 1000);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public Map<String, Tuple3<String, Long, Long>> getAllAndFilter() {
+        String prefix = userPrefix(ThreadLocalRandom.current());
+        Map<String, Tuple3<String, Long, Long>> result = new HashMap<>();
+        service.getAll().forEach((key, entry) -> {
+            if (key.startsWith(prefix)) {
+                result.put(key, entry);
+            }
+        });
+        return result;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(4)
+    public boolean set() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return service.set(key(random.nextInt(TENANTS), random.nextInt(USERS), random.nextInt(sessions)), "value", 3_600_000L);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(4)
+    public Tuple3<String, Long, Long> setAndRemove() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String key = key(random.nextInt(TENANTS), random.nextInt(USERS), sessions + random.nextInt(1_000_000));
+        service.set(key, "value", 3_600_000L);
+        return service.remove(key);
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.benchmark;
+
+import org.example.config.StorageProperties;
+import org.example.replication.ReplicationFollower;
+import org.example.replication.ReplicationLeader;
+import org.example.service.MemoryStorageService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Репликация на узлах в одном процессе (порты localhost): {@code replicationLag} — время от set на
+ * ведущем узле до появления значения на всех {@code followers} репликах, {@code readLeader} и
+ * {@code readAllNodes} — пропускная способность get только с ведущего узла и с распределением чтений
+ * по всем узлам. Узлы делят процессоры одной JVM, поэтому чтения с реплик здесь показывают накладные
+ * расходы, а не прирост; масштабирование чтений измеряется на отдельных машинах генератором
+ * {@link RespLoadGenerator}, запущенным против сервера RESP каждого узла.
+ * После заполнения печатаются задержка применения последнего пакета и количество полных передач.
+ * Запуск: mvn -Pjmh test-compile exec:exec -Djmh.args="ReplicationBenchmark"
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReplicationBenchmark {
+
+    private static final Long TTL = 3_600_000L;
+
+    @Param({"1", "2", "4"})
+    private int followers;
+
+    @Param({"100000"})
+    private int entries;
+
+    /** Интервал формирования пакетов в миллисекундах. */
+    @Param({"1", "10"})
+    private long batchInterval;
+
+    private final AtomicLong writes = new AtomicLong();
+    private MemoryStorageService[] nodes;
+    private ReplicationLeader leader;
+    private ReplicationFollower[] replicas;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, InterruptedException {
+        nodes = new MemoryStorageService[followers + 1];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new MemoryStorageService(new StorageProperties());
+        }
+        leader = new ReplicationLeader(nodes[0], new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                1000, batchInterval, 64L << 20);
+        int port = leader.start();
+        replicas = new ReplicationFollower[followers];
+        for (int i = 0; i < followers; i++) {
+            replicas[i] = new ReplicationFollower(nodes[i + 1],
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 100);
+            replicas[i].start();
+        }
+        for (int i = 0; i < entries; i++) {
+            nodes[0].set("key" + i, "value" + i, TTL);
+        }
+        for (MemoryStorageService node : nodes) {
+            while (node.get("key" + (entries - 1)) == null) {
+                Thread.sleep(1);
+            }
+        }
+        for (ReplicationFollower replica : replicas) {
+            System.out.printf("%nРеплика: пакет %d, задержка %d мс, полных передач %d%n",
+                    replica.appliedSequence(), replica.lag(), replica.fullSyncs());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (ReplicationFollower replica : replicas) {
+            replica.close();
+        }
+        leader.close();
+        for (MemoryStorageService node : nodes) {
+            node.shutdown();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Threads(1)
+    public String replicationLag() {
+        String key = "lag" + writes.incrementAndGet();
+        nodes[0].set(key, "value", TTL);
+        String value = null;
+        for (int i = 1; i < nodes.length; i++) {
+            while ((value = nodes[i].get(key)) == null) {
+                Thread.onSpinWait();
+            }
+        }
+        return value;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(8)
+    public String readLeader(ThreadIndex index) {
+        return nodes[0].get("key" + index.next(entries));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(8)
+    public String readAllNodes(ThreadIndex index) {
+        return nodes[index.next(nodes.length)].get("key" + index.next(entries));
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadIndex {
+        private final SplittableRandom random = new SplittableRandom();
+
+        int next(int bound) {
+            return random.nextInt(bound);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package org.example.benchmark;
+
+import org.example.Main;
+import org.example.resp.RespServer;
+import org.example.service.MemoryStorageService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Одни и те же операции get и set через REST ({@code MemoryStorageController}) и через сервер RESP:
+ * по одной команде на запрос и конвейером из {@value #PIPELINE} команд. Сервер запускается целиком
+ * (Tomcat и сервер RESP в одном приложении), клиенты — по соединению на поток бенчмарка.
+ * Запросы REST отправляются тем же простым клиентом поверх сокета (HTTP/1.1 с keep-alive),
+ * чтобы в результат не входили накладные расходы HTTP-клиента JDK.
+ * Запуск: mvn -Pjmh test-compile exec:exec -Djmh.args="RespBenchmark -t 8"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class RespBenchmark {
+
+    static final int PIPELINE = 16;
+    private static final int KEYS = 100_000;
+    private static final String VALUE = "v".repeat(32);
+
+    private ConfigurableApplicationContext context;
+    private int httpPort;
+    private int respPort;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = SpringApplication.run(Main.class, "--server.port=0", "--logging.level.root=WARN",
+                "--storage.resp.enabled=true", "--storage.resp.port=0",
+                "--storage.snapshot.file=" + System.getProperty("java.io.tmpdir") + "/resp-benchmark.json");
+        httpPort = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+        respPort = context.getBean(RespServer.class).getPort();
+        MemoryStorageService service = context.getBean(MemoryStorageService.class);
+        for (int i = 0; i < KEYS; i++) {
+            service.set("key:" + i, VALUE, 3_600_000L);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Соединения одного потока бенчмарка.
+     */
+    @State(Scope.Thread)
+    public static class Clients {
+        int httpPort;
+        Socket httpSocket;
+        InputStream httpIn;
+        OutputStream httpOut;
+        Socket socket;
+        InputStream in;
+        OutputStream out;
+        final ByteArrayOutputStream batch = new ByteArrayOutputStream();
+
+        @Setup(Level.Trial)
+        public void open(RespBenchmark benchmark) throws IOException {
+            httpPort = benchmark.httpPort;
+            connectHttp();
+            socket = new Socket("127.0.0.1", benchmark.respPort);
+            socket.setTcpNoDelay(true);
+            in = new BufferedInputStream(socket.getInputStream(), 64 * 1024);
+            out = socket.getOutputStream();
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            httpSocket.close();
+            socket.close();
+        }
+
+        private void connectHttp() throws IOException {
+            httpSocket = new Socket("127.0.0.1", httpPort);
+            httpSocket.setTcpNoDelay(true);
+            httpIn = new BufferedInputStream(httpSocket.getInputStream(), 64 * 1024);
+            httpOut = httpSocket.getOutputStream();
+        }
+
+        /**
+         * Запрос HTTP/1.1 по постоянному соединению; Tomcat закрывает соединение после
+         * {@code maxKeepAliveRequests} запросов, тогда соединение открывается заново.
+         *
+         * @return Код ответа
+         */
+        int http(String method, String path) throws IOException {
+            httpOut.write((method + " " + path + " HTTP/1.1\r\nHost: localhost\r\nContent-Length: 0\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            httpOut.flush();
+            String status = readLine(httpIn);
+            long length = 0;
+            boolean chunked = false;
+            boolean close = false;
+            for (String header = readLine(httpIn); !header.isEmpty(); header = readLine(httpIn)) {
+                String name = header.substring(0, header.indexOf(':')).trim();
+                if (name.equalsIgnoreCase("Content-Length")) {
+                    length = Long.parseLong(header.substring(header.indexOf(':') + 1).trim());
+                } else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                    chunked = true;
+                } else if (name.equalsIgnoreCase("Connection")) {
+                    close = header.toLowerCase().contains("close");
+                }
+            }
+            if (chunked) {
+                for (long chunk = Long.parseLong(readLine(httpIn), 16); chunk > 0; chunk = Long.parseLong(readLine(httpIn), 16)) {
+                    httpIn.skipNBytes(chunk + 2);
+                }
+                readLine(httpIn);
+            } else {
+                httpIn.skipNBytes(length);
+            }
+            if (close) {
+                httpSocket.close();
+                connectHttp();
+            }
+            return Integer.parseInt(status.substring(9, 12));
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            StringBuilder line = new StringBuilder();
+            int b;
+            while ((b = in.read()) != '\n') {
+                if (b < 0) {
+                    throw new IOException("Connection closed by server.");
+                }
+                if (b != '\r') {
+                    line.append((char) b);
+                }
+            }
+            return line.toString();
+        }
+
+        void command(String... args) {
+            ascii("*" + args.length + "\r\n");
+            for (String arg : args) {
+                ascii("$" + arg.length() + "\r\n" + arg + "\r\n");
+            }
+        }
+
+        private void ascii(String text) {
+            batch.write(text.getBytes(StandardCharsets.US_ASCII), 0, text.length());
+        }
+
+        /**
+         * Отправка накопленных команд и чтение ответов.
+         *
+         * @return Суммарная длина прочитанных значений
+         */
+        long exchange(int replies) throws IOException {
+            batch.writeTo(out);
+            out.flush();
+            batch.reset();
+            long total = 0;
+            for (int i = 0; i < replies; i++) {
+                int type = in.read();
+                long number = 0;
+                boolean negative = false;
+                int b;
+                while ((b = in.read()) != '\r') {
+                    if (b < 0) {
+                        throw new IOException("Connection closed by server.");
+                    }
+                    negative |= b == '-';
+                    number = b >= '0' && b <= '9' ? number * 10 + (b - '0') : number;
+                }
+                in.read();
+                if (type == '$' && !negative) {
+                    in.skipNBytes(number + 2);
+                    total += number;
+                }
+            }
+            return total;
+        }
+    }
+
+    private static String randomKey() {
+        return "key:" + ThreadLocalRandom.current().nextInt(KEYS);
+    }
+
+    @Benchmark
+    public int restGet(Clients clients) throws IOException {
+        return clients.http("GET", "/api/storage/" + randomKey());
+    }
+
+    @Benchmark
+    public int restSet(Clients clients) throws IOException {
+        return clients.http("POST", "/api/storage?key=" + randomKey() + "&value=" + VALUE + "&ttl=3600000");
+    }
+
+    @Benchmark
+    public long respGet(Clients clients) throws IOException {
+        clients.command("GET", randomKey());
+        return clients.exchange(1);
+    }
+
+    @Benchmark
+    public long respSet(Clients clients) throws IOException {
+        clients.command("SET", randomKey(), VALUE, "PX", "3600000");
+        return clients.exchange(1);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PIPELINE)
+    public long respPipelinedGet(Clients clients) throws IOException {
+        for (int i = 0; i < PIPELINE; i++) {
+            clients.command("GET", randomKey());
+        }
+        return clients.exchange(PIPELINE);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PIPELINE)
+    public long respPipelinedSet(Clients clients) throws IOException {
+        for (int i = 0; i < PIPELINE; i++) {
+            clients.command("SET", randomKey(), VALUE, "PX", "3600000");
+        }
+        return clients.exchange(PIPELINE);
+    }
+}
@@ -0,0 +1,186 @@
+package org.example.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Генератор нагрузки для сервера RESP: каждое соединение в своём потоке отправляет пакеты из N команд
+ * GET/SET (конвейер) и ждёт все ответы. Подходит и для сервера хранилища ({@code storage.resp.enabled=true}),
+ * и для Redis. В конце печатаются операции в секунду и задержка пакета (p50, p99).
+ * Ключи: -host, -port (6380), -connections (50), -pipeline (1), -duration в секундах (10), -keys (100000),
+ * -value-size (32), -get-ratio (0.9); ключи -rf и -rff, которые передаёт профиль jmh, игнорируются.
+ * Запуск: mvn -Pjmh test-compile exec:exec -Djmh.main=org.example.benchmark.RespLoadGenerator -Djmh.args="-pipeline 16"
+ */
+public class RespLoadGenerator {
+
+    private static final int LATENCY_SAMPLES = 100_000;
+
+    private String host = "127.0.0.1";
+    private int port = 6380;
+    private int connections = 50;
+    private int pipeline = 1;
+    private int durationSeconds = 10;
+    private int keys = 100_000;
+    private int valueSize = 32;
+    private double getRatio = 0.9;
+
+    public static void main(String[] args) throws Exception {
+        RespLoadGenerator generator = new RespLoadGenerator();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-rf", "-rff" -> i++;
+                case "-host" -> generator.host = args[++i];
+                case "-port" -> generator.port = Integer.parseInt(args[++i]);
+                case "-connections" -> generator.connections = Integer.parseInt(args[++i]);
+                case "-pipeline" -> generator.pipeline = Integer.parseInt(args[++i]);
+                case "-duration" -> generator.durationSeconds = Integer.parseInt(args[++i]);
+                case "-keys" -> generator.keys = Integer.parseInt(args[++i]);
+                case "-value-size" -> generator.valueSize = Integer.parseInt(args[++i]);
+                case "-get-ratio" -> generator.getRatio = Double.parseDouble(args[++i]);
+                default -> {
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+                }
+            }
+        }
+        generator.run();
+    }
+
+    private void run() throws Exception {
+        LongAdder operations = new LongAdder();
+        List<long[]> latencies = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        CountDownLatch ready = new CountDownLatch(connections);
+        long[] deadline = new long[1];
+        Object start = new Object();
+        for (int c = 0; c < connections; c++) {
+            long[] samples = new long[LATENCY_SAMPLES / connections + 1];
+            latencies.add(samples);
+            Thread thread = new Thread(() -> {
+                try (Socket socket = new Socket(host, port)) {
+                    socket.setTcpNoDelay(true);
+                    Client client = new Client(socket);
+                    synchronized (start) {
+                        ready.countDown();
+                        start.wait();
+                    }
+                    client.load(deadline[0], operations, samples);
+                } catch (IOException e) {
+                    System.err.println("Connection failed: " + e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "resp-load-" + c);
+            threads.add(thread);
+            thread.start();
+        }
+        ready.await();
+        long begin = System.nanoTime();
+        synchronized (start) {
+            deadline[0] = begin + durationSeconds * 1_000_000_000L;
+            start.notifyAll();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).filter(latency -> latency > 0).sorted().toArray();
+        System.out.printf("%d connections, pipeline %d: %.0f ops/s, batch latency p50 %.3f ms, p99 %.3f ms%n",
+                connections, pipeline, operations.sum() / seconds,
+                percentile(all, 0.50) / 1e6, percentile(all, 0.99) / 1e6);
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, sorted.length * percentile)];
+    }
+
+    /**
+     * Соединение генератора: пакет команд собирается в один буфер и отправляется одной записью.
+     */
+    private final class Client {
+
+        private final InputStream in;
+        private final OutputStream out;
+        private final ByteArrayOutputStream batch = new ByteArrayOutputStream();
+        private final String value = "v".repeat(valueSize);
+
+        Client(Socket socket) throws IOException {
+            this.in = new BufferedInputStream(socket.getInputStream(), 64 * 1024);
+            this.out = socket.getOutputStream();
+        }
+
+        void load(long deadline, LongAdder operations, long[] samples) throws IOException {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int sample = 0;
+            while (System.nanoTime() < deadline) {
+                batch.reset();
+                for (int i = 0; i < pipeline; i++) {
+                    String key = "key:" + random.nextInt(keys);
+                    if (random.nextDouble() < getRatio) {
+                        command("GET", key);
+                    } else {
+                        command("SET", key, value, "PX", "3600000");
+                    }
+                }
+                long started = System.nanoTime();
+                batch.writeTo(out);
+                out.flush();
+                for (int i = 0; i < pipeline; i++) {
+                    skipReply();
+                }
+                samples[sample++ % samples.length] = System.nanoTime() - started;
+                operations.add(pipeline);
+            }
+        }
+
+        private void command(String... args) {
+            ascii("*" + args.length + "\r\n");
+            for (String arg : args) {
+                byte[] bytes = arg.getBytes(StandardCharsets.UTF_8);
+                ascii("$" + bytes.length + "\r\n");
+                batch.write(bytes, 0, bytes.length);
+                ascii("\r\n");
+            }
+        }
+
+        private void ascii(String text) {
+            batch.write(text.getBytes(StandardCharsets.US_ASCII), 0, text.length());
+        }
+
+        private void skipReply() throws IOException {
+            int type = in.read();
+            long number = 0;
+            boolean negative = false;
+            int b;
+            while ((b = in.read()) != '\r') {
+                if (b < 0) {
+                    throw new IOException("Connection closed by server.");
+                }
+                if (b == '-') {
+                    negative = true;
+                } else if (b >= '0' && b <= '9') {
+                    number = number * 10 + (b - '0');
+                }
+            }
+            in.read();
+            if (type == '-') {
+                throw new IOException("Server replied with an error.");
+            }
+            if (type == '$' && !negative) {
+                in.skipNBytes(number + 2);
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.benchmark;
+
+import org.example.config.StorageProperties;
+import org.example.service.MemoryStorageService;
+import org.example.snapshot.SnapshotFormat;
+import org.example.snapshot.SnapshotWriter;
+import org.example.storage.StorageEntry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время от запуска сервиса до готовности: создание хранилища и загрузка файла состояния.
+ * Файл создаётся один раз на прогон без копии записей в памяти; 10% записей в нём уже истекли.
+ * Запуск: mvn -Pjmh test-compile exec:exec -Djmh.args="RestartBenchmark -p entries=1000000"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class RestartBenchmark {
+
+    @Param({"JSON", "BINARY"})
+    private SnapshotFormat format;
+
+    @Param({"1000000", "10000000", "50000000"})
+    private int entries;
+
+    @Param({"64"})
+    private int valueSize;
+
+    private Path file;
+    private MemoryStorageService service;
+
+    @Setup(Level.Trial)
+    public void writeSnapshot() throws IOException {
+        file = Files.createTempFile("restart", ".snapshot");
+        String valuePrefix = "x".repeat(valueSize - 8);
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, StorageEntry>> generator = new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < entries;
+            }
+
+            @Override
+            public Map.Entry<String, StorageEntry> next() {
+                int i = next++;
+                long savedTime = i % 10 == 0 ? now - 7_200_000L : now;
+                return Map.entry("key" + i, StorageEntry.of(valuePrefix + i, 3_600_000L, savedTime));
+            }
+        };
+        new SnapshotWriter(format).write(file, generator, now - 7_200_000L);
+        System.out.printf("%n[%s] snapshot: %d entries, %d MB%n", format, entries, Files.size(file) >> 20);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteSnapshot() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Setup(Level.Iteration)
+    public void gc() {
+        System.gc();
+    }
+
+    @TearDown(Level.Iteration)
+    public void stop() {
+        service.shutdown();
+        service = null;
+    }
+
+    @Benchmark
+    public Object restartToReady() {
+        StorageProperties properties = new StorageProperties();
+        properties.getSnapshot().setFile(file);
+        service = new MemoryStorageService(properties);
+        service.load();
+        return service;
+    }
+}
@@ -0,0 +1,86 @@
+package org.example.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сравнение двух JSON-файлов результатов JMH, например сохранённых для двух коммитов.
+ * Прогоны сопоставляются по имени бенчмарка, параметрам и числу потоков; изменение хуже порога
+ * (ключ -threshold, по умолчанию 10%) помечается как REGRESSION, и программа завершается с кодом 1.
+ * Без второго файла сравнивается с файлом из ключа -rff, который профиль jmh передаёт как jmh.result.
+ * Запуск: mvn -Pjmh test-compile exec:exec -Djmh.main=org.example.benchmark.ResultComparison -Djmh.args="baseline.json"
+ */
+public class ResultComparison {
+
+    public static void main(String[] args) throws IOException {
+        List<String> files = new ArrayList<>();
+        String resultFile = null;
+        double threshold = 10;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-rf" -> i++;
+                case "-rff" -> resultFile = args[++i];
+                case "-threshold" -> threshold = Double.parseDouble(args[++i]);
+                default -> files.add(args[i]);
+            }
+        }
+        if (files.size() == 1 && resultFile != null) {
+            files.add(resultFile);
+        }
+        if (files.size() != 2) {
+            System.err.println("Usage: ResultComparison <baseline.json> [current.json] [-threshold percent]");
+            System.exit(2);
+        }
+        Map<String, JsonNode> baseline = readRuns(new File(files.get(0)));
+        Map<String, JsonNode> current = readRuns(new File(files.get(1)));
+
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> run : current.entrySet()) {
+            JsonNode base = baseline.get(run.getKey());
+            JsonNode metric = run.getValue().get("primaryMetric");
+            if (base == null) {
+                System.out.printf("%-90s %14.3f %-8s (new)%n", run.getKey(),
+                        metric.get("score").asDouble(), metric.get("scoreUnit").asText());
+                continue;
+            }
+            double before = base.get("primaryMetric").get("score").asDouble();
+            double after = metric.get("score").asDouble();
+            double change = (after - before) / before * 100;
+            // Для пропускной способности больше — лучше, для времени операции — наоборот
+            boolean higherIsBetter = "thrpt".equals(run.getValue().get("mode").asText());
+            double worse = higherIsBetter ? -change : change;
+            boolean regression = worse > threshold;
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-90s %14.3f -> %14.3f %-8s %+7.1f%%%s%n", run.getKey(), before, after,
+                    metric.get("scoreUnit").asText(), change, regression ? "  REGRESSION" : "");
+        }
+        System.out.printf("%d runs compared, %d regressions above %.1f%%%n", current.size(), regressions, threshold);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, JsonNode> readRuns(File file) throws IOException {
+        Map<String, JsonNode> runs = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(run.get("benchmark").asText())
+                    .append(" t=").append(run.get("threads").asInt());
+            JsonNode params = run.get("params");
+            if (params != null) {
+                params.fields().forEachRemaining(param ->
+                        key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText()));
+            }
+            runs.put(key.toString(), run);
+        }
+        return runs;
+    }
+}
@@ -0,0 +1,142 @@
+package org.example.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.Main;
+import org.example.service.MemoryStorageService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выгрузка всего хранилища через HTTP: прежний {@code GET /api/storage} (копия хранилища в HashMap,
+ * сериализуемая целиком), потоковая выгрузка {@code GET /api/storage/_stream} в NDJSON и постраничный
+ * обход {@code GET /api/storage/_scan} страницами по 1000 записей.
+ * Одна операция — выгрузка всех записей; в конце каждой итерации печатаются время до первого байта ответа
+ * (для обхода — до первой страницы) и пиковое использование кучи относительно кучи перед запросом.
+ * Молодое поколение ограничено 64 MB, чтобы пик отражал удерживаемую запросом память, а не накопленный мусор.
+ * Запуск: mvn -Pjmh test-compile exec:exec -Djmh.args="ScanBenchmark -p entries=10000000"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Xmn64m"})
+public class ScanBenchmark {
+
+    @Param({"GET_ALL", "STREAM", "SCAN"})
+    private String endpoint;
+
+    @Param({"1000000", "10000000"})
+    private int entries;
+
+    private static final int PAGE_SIZE = 1000;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+    private List<MemoryPoolMXBean> pools;
+    private long heapBaseline;
+    private long firstByteNanos;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = SpringApplication.run(Main.class, "--server.port=0", "--logging.level.root=WARN",
+                "--storage.snapshot.file=" + System.getProperty("java.io.tmpdir") + "/scan-benchmark.json");
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/storage";
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        MemoryStorageService service = context.getBean(MemoryStorageService.class);
+        for (int i = 0; i < entries; i++) {
+            service.set("key" + i, "value" + i, 3_600_000L);
+        }
+        pools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetHeapPeak() {
+        System.gc();
+        heapBaseline = 0;
+        for (MemoryPoolMXBean pool : pools) {
+            pool.resetPeakUsage();
+            heapBaseline += pool.getUsage().getUsed();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : pools) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        System.out.printf("%n[%s, %d entries] time to first byte: %.1f ms, peak heap above baseline: %d MB%n",
+                endpoint, entries, firstByteNanos / 1e6, (peak - heapBaseline) >> 20);
+    }
+
+    @Benchmark
+    public long export() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        return switch (endpoint) {
+            case "GET_ALL" -> drain(baseUrl, start);
+            case "STREAM" -> drain(baseUrl + "/_stream", start);
+            default -> scanAll(start);
+        };
+    }
+
+    private long drain(String url, long start) throws IOException, InterruptedException {
+        HttpResponse<InputStream> response = client.send(HttpRequest.newBuilder(URI.create(url)).GET().build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            byte[] buffer = new byte[64 * 1024];
+            long total = 0;
+            int read = body.read(buffer);
+            firstByteNanos = System.nanoTime() - start;
+            while (read >= 0) {
+                total += read;
+                read = body.read(buffer);
+            }
+            return total;
+        }
+    }
+
+    private long scanAll(long start) throws IOException, InterruptedException {
+        ObjectMapper mapper = new ObjectMapper();
+        String cursor = "0";
+        long total = 0;
+        boolean first = true;
+        do {
+            String url = baseUrl + "/_scan?count=" + PAGE_SIZE + "&cursor=" + URLEncoder.encode(cursor, StandardCharsets.UTF_8);
+            HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(URI.create(url)).GET().build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            if (first) {
+                firstByteNanos = System.nanoTime() - start;
+                first = false;
+            }
+            JsonNode page = mapper.readTree(response.body());
+            total += page.get("entries").size();
+            cursor = page.get("cursor").asText();
+        } while (!cursor.equals("0"));
+        return total;
+    }
+}
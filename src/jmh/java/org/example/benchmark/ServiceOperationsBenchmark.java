@@ -0,0 +1,107 @@
+package org.example.benchmark;
+
+import org.example.config.StorageProperties;
+import org.example.service.MemoryStorageService;
+import org.example.tuple.Tuple3;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Базовые операции {@link MemoryStorageService} при разном количестве ключей и размере значений:
+ * get, set и remove — пропускная способность, getAll, dump и load — время одной операции.
+ * remove измеряется вместе с повторной вставкой удалённого ключа, чтобы количество записей не менялось;
+ * стоимость самого удаления — разница с set. Форматы файла состояния сравнивает {@link SnapshotBenchmark}.
+ * Запуск: mvn -Pjmh test-compile exec:exec -Djmh.args="ServiceOperationsBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class ServiceOperationsBenchmark {
+
+    @Param({"10000", "100000"})
+    private int keyCount;
+
+    @Param({"16", "1024"})
+    private int valueSize;
+
+    private static final Long TTL = 3_600_000L;
+
+    private Path directory;
+    private MemoryStorageService service;
+    private String[] keys;
+    private String[] values;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("service-benchmark");
+        StorageProperties properties = new StorageProperties();
+        properties.getSnapshot().setFile(directory.resolve("storage-state.json"));
+        service = new MemoryStorageService(properties);
+        String valuePrefix = "x".repeat(valueSize - 8);
+        keys = new String[keyCount];
+        values = new String[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = "key" + i;
+            values[i] = valuePrefix + String.format("%08d", i);
+            service.set(keys[i], values[i], TTL);
+        }
+        service.dump();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        service.shutdown();
+        Files.deleteIfExists(directory.resolve("storage-state.json"));
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public String get() {
+        return service.get(keys[ThreadLocalRandom.current().nextInt(keyCount)]);
+    }
+
+    @Benchmark
+    public boolean set() {
+        int index = ThreadLocalRandom.current().nextInt(keyCount);
+        return service.set(keys[index], values[index], TTL);
+    }
+
+    @Benchmark
+    public boolean remove() {
+        int index = ThreadLocalRandom.current().nextInt(keyCount);
+        service.remove(keys[index]);
+        return service.set(keys[index], values[index], TTL);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public Map<String, Tuple3<String, Long, Long>> getAll() {
+        return service.getAll();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public File dump() {
+        return service.dump();
+    }
+
+    /**
+     * Загрузка файла в заполненное хранилище: все записи файла старше хранимых,
+     * поэтому измеряется чтение, разбор и слияние без изменения хранилища.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public void load() {
+        service.load();
+    }
+}
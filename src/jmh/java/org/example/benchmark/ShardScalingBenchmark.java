@@ -0,0 +1,162 @@
+package org.example.benchmark;
+
+import org.example.service.expiry.ExpirySampler;
+import org.example.service.expiry.TimingWheel;
+import org.example.snapshot.SnapshotFormat;
+import org.example.snapshot.SnapshotLoader;
+import org.example.snapshot.SnapshotWriter;
+import org.example.storage.HeapStorageEngine;
+import org.example.storage.ShardedStorageEngine;
+import org.example.storage.StorageEngine;
+import org.example.storage.StorageEntry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Масштабирование фонового обслуживания с количеством шардов: пул обслуживания получает по потоку на шард,
+ * как {@code storage.shards = storage.maintenance-parallelism = N} в сервисе.
+ * <ul>
+ *     <li>{@code SWEEP_WHEEL}, {@code SWEEP_SAMPLING} — удаление всех записей, срок которых истёк одновременно,
+ *     колесом таймеров или выборкой; каждый шард очищается своей задачей, как в сервисе;</li>
+ *     <li>{@code DUMP_BINARY}, {@code DUMP_JSON} — параллельное сохранение шардов в один файл;</li>
+ *     <li>{@code LOAD_BINARY} — загрузка двоичного файла с разбором блоков в N потоках.</li>
+ * </ul>
+ * Прирост ограничен количеством процессоров машины: при N больше их числа время не должно расти.
+ * Запуск: mvn -Pjmh test-compile exec:exec -Djmh.args="ShardScalingBenchmark -p shards=1,4,16"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ShardScalingBenchmark {
+
+    @Param({"SWEEP_WHEEL", "SWEEP_SAMPLING", "DUMP_BINARY", "DUMP_JSON", "LOAD_BINARY"})
+    private String operation;
+
+    @Param({"1", "2", "4", "8", "16", "32"})
+    private int shards;
+
+    @Param({"1000000"})
+    private int entries;
+
+    private static final long TICK = 10;
+
+    private ForkJoinPool pool;
+    private ShardedStorageEngine storage;
+    private List<TimingWheel<String>> wheels;
+    private List<ExpirySampler<String, StorageEntry>> samplers;
+    private Path file;
+    private long deadline;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        pool = new ForkJoinPool(shards, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        storage = new ShardedStorageEngine(shards, shard -> new HeapStorageEngine());
+        file = Files.createTempFile("shard-scaling", ".dat");
+        if (operation.startsWith("DUMP") || operation.equals("LOAD_BINARY")) {
+            fill(System.currentTimeMillis(), 3_600_000L);
+            if (operation.equals("LOAD_BINARY")) {
+                new SnapshotWriter(SnapshotFormat.BINARY).write(file, storage.shardIterators(), System.currentTimeMillis(), pool);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        pool.shutdown();
+        storage.close();
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Перед каждой очисткой хранилище заполняется записями, срок которых уже истёк.
+     */
+    @Setup(Level.Invocation)
+    public void prepare() {
+        if (operation.startsWith("SWEEP")) {
+            long now = System.currentTimeMillis();
+            wheels = new ArrayList<>(shards);
+            samplers = new ArrayList<>(shards);
+            for (int i = 0; i < shards; i++) {
+                wheels.add(new TimingWheel<>(TICK, now - 1_000));
+                samplers.add(new ExpirySampler<>(20, 0.1, Long.MAX_VALUE, StorageEntry::expiresAt));
+            }
+            fill(now - 1_000, 200L);
+            deadline = now;
+        } else if (operation.equals("LOAD_BINARY")) {
+            storage.clear();
+        }
+    }
+
+    @Benchmark
+    public long maintain() throws IOException {
+        return switch (operation) {
+            case "SWEEP_WHEEL" -> perShard(shard -> {
+                long[] removed = new long[1];
+                StorageEngine engine = storage.shard(shard);
+                wheels.get(shard).advance(deadline, (key, version) -> {
+                    StorageEntry entry = engine.get(key);
+                    if (entry != null && entry.version() == version && engine.remove(key, entry)) {
+                        removed[0]++;
+                    }
+                });
+                return removed[0];
+            });
+            case "SWEEP_SAMPLING" -> perShard(shard -> {
+                StorageEngine engine = storage.shard(shard);
+                long removed = 0;
+                while (engine.size() > 0) {
+                    removed += samplers.get(shard).run(engine::iterator, engine::remove, deadline);
+                }
+                return removed;
+            });
+            case "DUMP_BINARY" -> new SnapshotWriter(SnapshotFormat.BINARY)
+                    .write(file, storage.shardIterators(), System.currentTimeMillis(), pool);
+            case "DUMP_JSON" -> new SnapshotWriter(SnapshotFormat.JSON)
+                    .write(file, storage.shardIterators(), System.currentTimeMillis(), pool);
+            default -> new SnapshotLoader(shards).load(file, System.currentTimeMillis(), storage::putIfNewer).loaded();
+        };
+    }
+
+    private void fill(long savedTime, long ttl) {
+        for (int i = 0; i < entries; i++) {
+            String key = "key" + i;
+            StorageEntry entry = StorageEntry.of("value" + i, ttl, savedTime);
+            storage.put(key, entry);
+            if (operation.equals("SWEEP_WHEEL")) {
+                wheels.get(storage.shardOf(key)).schedule(key, entry.version(), entry.expiresAt());
+            }
+        }
+    }
+
+    private long perShard(ShardTask task) {
+        List<ForkJoinTask<Long>> tasks = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            int shard = i;
+            tasks.add(pool.submit(() -> task.run(shard)));
+        }
+        long total = 0;
+        for (ForkJoinTask<Long> submitted : tasks) {
+            total += submitted.join();
+        }
+        if (total != entries) {
+            throw new IllegalStateException("Expected " + entries + " expired entries, removed " + total + ".");
+        }
+        return total;
+    }
+
+    @FunctionalInterface
+    private interface ShardTask {
+        long run(int shard);
+    }
+}
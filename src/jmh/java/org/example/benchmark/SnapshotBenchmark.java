@@ -0,0 +1,116 @@
+package org.example.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.snapshot.SnapshotFormat;
+import org.example.snapshot.SnapshotWriter;
+import org.example.storage.HeapStorageEngine;
+import org.example.storage.StorageEntry;
+import org.example.tuple.Tuple3;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сохранение состояния хранилища: прежняя запись всей копии хранилища через ObjectMapper
+ * ({@code LEGACY}) против потоковой записи в JSON и двоичном формате.
+ * Скорость записи (MB/s) и пиковое использование кучи во время одного сохранения печатаются
+ * в конце каждого прогона; объём выделенной памяти на операцию показывает профилировщик gc.
+ * Запуск: mvn -Pjmh test-compile exec:exec -Djmh.args="SnapshotBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class SnapshotBenchmark {
+
+    @Param({"LEGACY", "JSON", "BINARY"})
+    private String format;
+
+    @Param({"500000"})
+    private int entries;
+
+    @Param({"256"})
+    private int valueSize;
+
+    private HeapStorageEngine storage;
+    private Path file;
+    private long totalNanos;
+    private long totalBytes;
+
+    @Setup
+    public void setup() throws IOException {
+        storage = new HeapStorageEngine();
+        String valuePrefix = "x".repeat(valueSize - 8);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < entries; i++) {
+            storage.put("key" + i, StorageEntry.of(valuePrefix + i, 3_600_000L, now));
+        }
+        file = Files.createTempFile("snapshot", ".dat");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        long peak = measurePeakHeap();
+        System.out.printf("%n[%s] throughput: %.1f MB/s, file size: %d MB, peak heap above baseline: %d MB%n",
+                format, totalBytes / 1048576.0 / (totalNanos / 1e9), Files.size(file) >> 20, peak >> 20);
+        Files.deleteIfExists(file);
+        storage.close();
+    }
+
+    @Benchmark
+    public long dump() throws IOException {
+        long start = System.nanoTime();
+        dumpOnce();
+        totalNanos += System.nanoTime() - start;
+        totalBytes += Files.size(file);
+        return totalBytes;
+    }
+
+    private void dumpOnce() throws IOException {
+        long now = System.currentTimeMillis();
+        if ("LEGACY".equals(format)) {
+            Map<String, Tuple3<String, Long, Long>> copy = new HashMap<>();
+            storage.forEach((key, entry) -> {
+                if (entry.isLive(now)) {
+                    copy.put(key, entry.toTuple());
+                }
+            });
+            new ObjectMapper().writeValue(file.toFile(), copy);
+        } else {
+            new SnapshotWriter(SnapshotFormat.valueOf(format)).write(file, storage.iterator(), now);
+        }
+    }
+
+    /**
+     * Пиковое использование кучи во время одного сохранения относительно занятой кучи перед ним.
+     * Перед измерением выполняется полная сборка, чтобы мусор предыдущих итераций не влиял на результат.
+     */
+    private long measurePeakHeap() throws IOException {
+        List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        System.gc();
+        long baseline = 0;
+        for (MemoryPoolMXBean pool : pools) {
+            pool.resetPeakUsage();
+            baseline += pool.getUsage().getUsed();
+        }
+        dumpOnce();
+        long peak = 0;
+        for (MemoryPoolMXBean pool : pools) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        return peak - baseline;
+    }
+}
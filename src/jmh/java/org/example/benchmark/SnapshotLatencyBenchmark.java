@@ -0,0 +1,109 @@
+package org.example.benchmark;
+
+import org.example.config.StorageProperties;
+import org.example.service.MemoryStorageService;
+import org.example.service.SnapshotJob;
+import org.example.snapshot.SnapshotFormat;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Задержка операции set во время фонового сохранения состояния: {@code NONE} — без сохранения (базовый уровень),
+ * {@code FULL} — полные сохранения одно за другим, {@code INCREMENTAL} — инкрементальные сохранения
+ * изменённых ключей одно за другим. Сохранения выполняются заданиями сервиса, как при запросе
+ * {@code POST /api/storage/_dump}; перцентили задержки показывает режим SampleTime.
+ * Количество сохранений за итерацию печатается в конце каждой итерации.
+ * Запуск: mvn -Pjmh test-compile exec:exec -Djmh.args="SnapshotLatencyBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@Threads(4)
+public class SnapshotLatencyBenchmark {
+
+    @Param({"NONE", "FULL", "INCREMENTAL"})
+    private String snapshot;
+
+    @Param({"1000000"})
+    private int entries;
+
+    @Param({"BINARY"})
+    private String format;
+
+    private static final Long TTL = 3_600_000L;
+
+    private Path directory;
+    private MemoryStorageService service;
+    private Thread dumper;
+    private volatile boolean running;
+    private volatile long dumps;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("snapshot-latency");
+        StorageProperties properties = new StorageProperties();
+        properties.getSnapshot().setFormat(SnapshotFormat.valueOf(format));
+        properties.getSnapshot().setFile(directory.resolve("storage-state"));
+        service = new MemoryStorageService(properties);
+        for (int i = 0; i < entries; i++) {
+            service.set("key" + i, "value" + i, TTL);
+        }
+        service.dump();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        service.shutdown();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void startDumps() {
+        dumps = 0;
+        if ("NONE".equals(snapshot)) {
+            return;
+        }
+        boolean incremental = "INCREMENTAL".equals(snapshot);
+        running = true;
+        dumper = new Thread(() -> {
+            while (running) {
+                SnapshotJob job = service.startDump(incremental).await();
+                if (job.getStatus() != SnapshotJob.Status.COMPLETED) {
+                    throw new IllegalStateException(job.getError());
+                }
+                dumps++;
+            }
+        }, "benchmark-dumper");
+        dumper.start();
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopDumps() throws InterruptedException {
+        if (dumper != null) {
+            running = false;
+            dumper.join();
+            dumper = null;
+        }
+        System.out.println("\nСохранений за итерацию: " + dumps);
+    }
+
+    @Benchmark
+    public boolean set() {
+        int index = ThreadLocalRandom.current().nextInt(entries);
+        return service.set("key" + index, "value" + index, TTL);
+    }
+}
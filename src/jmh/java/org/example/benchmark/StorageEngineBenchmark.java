@@ -0,0 +1,75 @@
+package org.example.benchmark;
+
+import org.example.config.StorageProperties;
+import org.example.service.MemoryStorageService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.unit.DataSize;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение хранения в куче и вне кучи под смешанной нагрузкой (90% чтений, 10% записей).
+ * Паузы сборщика мусора показывает профилировщик gc (gc.count, gc.time), занятая куча
+ * после полной сборки печатается в конце каждого прогона.
+ * Запуск: mvn -Pjmh test-compile exec:exec -Djmh.args="StorageEngineBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-XX:MaxDirectMemorySize=4g"})
+@Threads(4)
+public class StorageEngineBenchmark {
+
+    @Param({"HEAP", "OFF_HEAP"})
+    private StorageProperties.Engine engine;
+
+    @Param({"200000"})
+    private int entries;
+
+    @Param({"1024"})
+    private int valueSize;
+
+    private static final Long TTL = 3_600_000L;
+
+    private MemoryStorageService service;
+    private String[] keys;
+    private String valuePrefix;
+
+    @Setup
+    public void setup() {
+        StorageProperties properties = new StorageProperties();
+        properties.setEngine(engine);
+        properties.getOffHeap().setMaxSize(DataSize.ofGigabytes(3));
+        service = new MemoryStorageService(properties);
+        valuePrefix = "x".repeat(valueSize - 8);
+        keys = new String[entries];
+        for (int i = 0; i < entries; i++) {
+            keys[i] = "key" + i;
+            service.set(keys[i], valuePrefix + i, TTL);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.gc();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.out.printf("%n[%s] heap used after GC: %d MB%n",
+                engine, memory.getHeapMemoryUsage().getUsed() >> 20);
+        service.shutdown();
+    }
+
+    @Benchmark
+    public Object mixed() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int index = random.nextInt(entries);
+        if (random.nextInt(10) == 0) {
+            return service.set(keys[index], valuePrefix + index, TTL);
+        }
+        return service.get(keys[index]);
+    }
+}
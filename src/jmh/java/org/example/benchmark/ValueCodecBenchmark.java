@@ -0,0 +1,131 @@
+package org.example.benchmark;
+
+import org.example.config.StorageProperties;
+import org.example.service.CodecStats;
+import org.example.service.MemoryStorageService;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Память и задержка get/set при компактном хранении значений: {@code NONE} — строки как есть,
+ * {@code DEFLATE} — сжатие значений не короче порога, {@code DEFLATE_DEDUP} — сжатие и дедупликация.
+ * Корпус — JSON-документы заказов с повторяющимися именами полей и справочными значениями;
+ * доля {@code duplicates} ключей хранит копию одного из небольшого набора документов.
+ * После заполнения печатаются занятая куча и счётчики кодека.
+ * Запуск: mvn -Pjmh test-compile exec:exec -Djmh.args="ValueCodecBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ValueCodecBenchmark {
+
+    private static final String[] CITIES = {"Москва", "Санкт-Петербург", "Новосибирск", "Екатеринбург", "Казань"};
+    private static final String[] STATUSES = {"NEW", "PAID", "SHIPPED", "DELIVERED", "CANCELLED"};
+    private static final Long TTL = 3_600_000L;
+
+    @Param({"NONE", "DEFLATE", "DEFLATE_DEDUP"})
+    private String codec;
+
+    @Param({"100000"})
+    private int entries;
+
+    @Param({"0.2"})
+    private double duplicates;
+
+    private MemoryStorageService service;
+    private String[] values;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        StorageProperties properties = new StorageProperties();
+        if (!"NONE".equals(codec)) {
+            properties.getCodec().setCompression(StorageProperties.Codec.Compression.DEFLATE);
+        }
+        properties.getCodec().setDeduplication("DEFLATE_DEDUP".equals(codec));
+
+        SplittableRandom random = new SplittableRandom(42);
+        String[] templates = new String[100];
+        for (int i = 0; i < templates.length; i++) {
+            templates[i] = order(i, random);
+        }
+        values = new String[entries];
+        for (int i = 0; i < entries; i++) {
+            values[i] = random.nextDouble() < duplicates
+                    ? new String(templates[random.nextInt(templates.length)].toCharArray())
+                    : order(i, random);
+        }
+
+        long before = usedHeap();
+        service = new MemoryStorageService(properties);
+        for (int i = 0; i < entries; i++) {
+            service.set("key" + i, new String(values[i].toCharArray()), TTL);
+        }
+        long used = usedHeap() - before;
+        CodecStats stats = service.getCodecStats();
+        System.out.printf("%nКуча хранилища: %d МБ%n", used >> 20);
+        if (stats != null) {
+            System.out.printf("Значения: %d КБ до кодирования, %d КБ после (сэкономлено %.1f%%), общих значений: %d%n",
+                    stats.rawSize() >> 10, stats.storedSize() >> 10, stats.savedRatio() * 100, stats.sharedValues());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    /**
+     * Занятая куча после сборки мусора. Корпус создаётся до первого замера, а хранилище заполняется
+     * копиями значений, поэтому разница — память хранилища при любом кодеке.
+     */
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static String order(int id, SplittableRandom random) {
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append("{\"orderId\":").append(id)
+                .append(",\"status\":\"").append(STATUSES[random.nextInt(STATUSES.length)])
+                .append("\",\"customer\":{\"id\":").append(random.nextInt(1_000_000))
+                .append(",\"city\":\"").append(CITIES[random.nextInt(CITIES.length)])
+                .append("\",\"segment\":\"retail\"},\"items\":[");
+        int items = 3 + random.nextInt(10);
+        for (int i = 0; i < items; i++) {
+            sb.append(i == 0 ? "" : ",")
+                    .append("{\"sku\":\"SKU-").append(random.nextInt(500))
+                    .append("\",\"quantity\":").append(1 + random.nextInt(5))
+                    .append(",\"price\":").append(random.nextInt(100_000) / 100.0)
+                    .append(",\"currency\":\"RUB\",\"warehouse\":\"MSK-1\"}");
+        }
+        return sb.append("],\"createdAt\":\"2023-08-0").append(1 + random.nextInt(9)).append("T12:00:00Z\"}").toString();
+    }
+
+    @Benchmark
+    public String get(ThreadIndex index) {
+        return service.get("key" + index.next(entries));
+    }
+
+    @Benchmark
+    public boolean set(ThreadIndex index) {
+        int i = index.next(entries);
+        return service.set("key" + i, values[i], TTL);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadIndex {
+        private final SplittableRandom random = new SplittableRandom();
+
+        int next(int bound) {
+            return random.nextInt(bound);
+        }
+    }
+}
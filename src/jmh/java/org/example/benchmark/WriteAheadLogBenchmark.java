@@ -0,0 +1,72 @@
+package org.example.benchmark;
+
+import org.example.config.StorageProperties;
+import org.example.service.MemoryStorageService;
+import org.example.snapshot.SnapshotFormat;
+import org.example.wal.FsyncPolicy;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Стоимость журнала упреждающей записи для операции set при разных политиках сброса на диск
+ * ({@code OFF} — журнал выключен). При политике {@code ALWAYS} групповая фиксация видна
+ * по росту пропускной способности с числом потоков (-t 1 против -t 8).
+ * Запуск: mvn -Pjmh test-compile exec:exec -Djmh.args="WriteAheadLogBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class WriteAheadLogBenchmark {
+
+    @Param({"OFF", "OS", "INTERVAL", "ALWAYS"})
+    private String fsync;
+
+    @Param({"100000"})
+    private int keySpace;
+
+    private static final Long TTL = 3_600_000L;
+
+    private Path directory;
+    private MemoryStorageService service;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("wal-benchmark");
+        StorageProperties properties = new StorageProperties();
+        properties.getSnapshot().setFormat(SnapshotFormat.BINARY);
+        properties.getSnapshot().setFile(directory.resolve("storage-state.bin"));
+        if (!"OFF".equals(fsync)) {
+            properties.getWal().setEnabled(true);
+            properties.getWal().setDir(directory.resolve("wal"));
+            properties.getWal().setFsync(FsyncPolicy.valueOf(fsync));
+        }
+        service = new MemoryStorageService(properties);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        service.shutdown();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean set() {
+        int index = ThreadLocalRandom.current().nextInt(keySpace);
+        return service.set("key" + index, "value" + index, TTL);
+    }
+}
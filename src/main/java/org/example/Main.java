@@ -1,11 +1,14 @@
 package org.example;
 
+import org.example.config.StorageProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.ComponentScan;
 
 @SpringBootApplication
 @ComponentScan("org.example")
+@EnableConfigurationProperties(StorageProperties.class)
 public class Main {
     public static void main(String[] args) {
         SpringApplication.run(Main.class, args);
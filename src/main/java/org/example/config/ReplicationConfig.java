@@ -0,0 +1,80 @@
+package org.example.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.replication.ReplicationFollower;
+import org.example.replication.ReplicationLeader;
+import org.example.service.MemoryStorageService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+
+/**
+ * Репликация ведущий узел — реплики ({@code storage.replication.role=leader|follower}).
+ */
+@Configuration(proxyBeanMethods = false)
+public class ReplicationConfig {
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "storage.replication", name = "role", havingValue = "leader")
+    public ReplicationLeader replicationLeader(MemoryStorageService service, StorageProperties properties,
+                                               ObjectProvider<MeterRegistry> registry) {
+        StorageProperties.Replication replication = properties.getReplication();
+        InetSocketAddress address = replication.getAddress() == null
+                ? new InetSocketAddress(replication.getPort())
+                : new InetSocketAddress(replication.getAddress(), replication.getPort());
+        ReplicationLeader leader = new ReplicationLeader(service, address, replication.getBatchSize(),
+                replication.getBatchInterval().toMillis(), replication.getBacklogSize().toBytes());
+        try {
+            leader.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to start replication leader on " + address + ".", e);
+        }
+        registry.ifAvailable(meters -> {
+            Gauge.builder("storage.replication.followers", leader, ReplicationLeader::followers)
+                    .description("Количество подключённых реплик").register(meters);
+            Gauge.builder("storage.replication.sequence", leader, ReplicationLeader::lastSequence)
+                    .description("Номер последнего пакета изменений").register(meters);
+            Gauge.builder("storage.replication.full.syncs", leader, ReplicationLeader::fullSyncs)
+                    .description("Количество передач полного состояния репликам").register(meters);
+        });
+        return leader;
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "storage.replication", name = "role", havingValue = "follower")
+    public ReplicationFollower replicationFollower(MemoryStorageService service, StorageProperties properties,
+                                                   ObjectProvider<MeterRegistry> registry) {
+        StorageProperties.Replication replication = properties.getReplication();
+        ReplicationFollower follower = new ReplicationFollower(service, leaderAddress(replication.getLeader()),
+                replication.getReconnectDelay().toMillis());
+        follower.start();
+        registry.ifAvailable(meters -> {
+            Gauge.builder("storage.replication.lag", follower, ReplicationFollower::lag)
+                    .description("Задержка репликации в миллисекундах").register(meters);
+            Gauge.builder("storage.replication.sequence", follower, ReplicationFollower::appliedSequence)
+                    .description("Номер последнего применённого пакета изменений").register(meters);
+            Gauge.builder("storage.replication.full.syncs", follower, ReplicationFollower::fullSyncs)
+                    .description("Количество полученных полных состояний").register(meters);
+        });
+        return follower;
+    }
+
+    static InetSocketAddress leaderAddress(String leader) {
+        int separator = leader == null ? -1 : leader.lastIndexOf(':');
+        if (separator <= 0 || separator == leader.length() - 1) {
+            throw new IllegalStateException("Property 'storage.replication.leader' must be set as host:port.");
+        }
+        try {
+            return InetSocketAddress.createUnresolved(leader.substring(0, separator),
+                    Integer.parseInt(leader.substring(separator + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid 'storage.replication.leader' address: " + leader + ".", e);
+        }
+    }
+}
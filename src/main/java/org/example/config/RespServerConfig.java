@@ -0,0 +1,40 @@
+package org.example.config;
+
+import org.example.resp.RespServer;
+import org.example.service.MemoryStorageService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+
+/**
+ * Сервер протокола RESP рядом с REST ({@code storage.resp.enabled=true}).
+ * Команды выполняются тем же {@link MemoryStorageService}, что и запросы REST.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "storage.resp", name = "enabled", havingValue = "true")
+public class RespServerConfig {
+
+    @Bean(destroyMethod = "close")
+    public RespServer respServer(MemoryStorageService service, StorageProperties properties) {
+        StorageProperties.Resp resp = properties.getResp();
+        InetSocketAddress address = resp.getAddress() == null
+                ? new InetSocketAddress(resp.getPort())
+                : new InetSocketAddress(resp.getAddress(), resp.getPort());
+        int ioThreads = resp.getIoThreads() > 0 ? resp.getIoThreads() : Runtime.getRuntime().availableProcessors();
+        long maxRequestSize = resp.getMaxRequestSize().toBytes();
+        if (maxRequestSize <= 0 || maxRequestSize > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Property 'storage.resp.max-request-size' must be between 1 byte and 2GB.");
+        }
+        RespServer server = new RespServer(service, address, ioThreads, (int) maxRequestSize, resp.getWorkerThreads());
+        try {
+            server.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to start RESP server on " + address + ".", e);
+        }
+        return server;
+    }
+}
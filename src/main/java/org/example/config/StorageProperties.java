@@ -0,0 +1,861 @@
+package org.example.config;
+
+import org.example.snapshot.SnapshotFormat;
+import org.example.wal.FsyncPolicy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Настройки хранилища (префикс {@code storage} в application.properties).
+ */
+@ConfigurationProperties(prefix = "storage")
+public class StorageProperties {
+
+    /**
+     * Механизм хранения записей.
+     */
+    public enum Engine {
+        /** Записи в куче ({@link java.util.concurrent.ConcurrentHashMap}). */
+        HEAP,
+        /** Значения вне кучи, в куче только индекс. */
+        OFF_HEAP
+    }
+
+    private Engine engine = Engine.HEAP;
+
+    /** Обработка HTTP-запросов в виртуальных потоках (требуется Java 21). */
+    private boolean virtualThreads;
+
+    /** Количество шардов хранилища ({@code 0} — по количеству процессоров). */
+    private int shards;
+
+    /** Количество потоков фонового обслуживания шардов ({@code 0} — по количеству процессоров). */
+    private int maintenanceParallelism;
+
+    private final Expiry expiry = new Expiry();
+
+    private final OffHeap offHeap = new OffHeap();
+
+    private final Codec codec = new Codec();
+
+    private final Eviction eviction = new Eviction();
+
+    private final Snapshot snapshot = new Snapshot();
+
+    private final Wal wal = new Wal();
+
+    private final Batch batch = new Batch();
+
+    private final Metrics metrics = new Metrics();
+
+    private final Scan scan = new Scan();
+
+    private final Index index = new Index();
+
+    private final Resp resp = new Resp();
+
+    private final Loader loader = new Loader();
+
+    private final WriteBehind writeBehind = new WriteBehind();
+
+    private final Replication replication = new Replication();
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public void setEngine(Engine engine) {
+        this.engine = engine;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public void setShards(int shards) {
+        this.shards = shards;
+    }
+
+    public int getMaintenanceParallelism() {
+        return maintenanceParallelism;
+    }
+
+    public void setMaintenanceParallelism(int maintenanceParallelism) {
+        this.maintenanceParallelism = maintenanceParallelism;
+    }
+
+    public Expiry getExpiry() {
+        return expiry;
+    }
+
+    public OffHeap getOffHeap() {
+        return offHeap;
+    }
+
+    public Codec getCodec() {
+        return codec;
+    }
+
+    public Eviction getEviction() {
+        return eviction;
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public Wal getWal() {
+        return wal;
+    }
+
+    public Batch getBatch() {
+        return batch;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public Scan getScan() {
+        return scan;
+    }
+
+    public Index getIndex() {
+        return index;
+    }
+
+    public Resp getResp() {
+        return resp;
+    }
+
+    public Loader getLoader() {
+        return loader;
+    }
+
+    public WriteBehind getWriteBehind() {
+        return writeBehind;
+    }
+
+    public Replication getReplication() {
+        return replication;
+    }
+
+    /**
+     * Настройки удаления записей с истёкшим TTL.
+     */
+    public static class Expiry {
+
+        /**
+         * Способ фонового удаления записей с истёкшим TTL.
+         */
+        public enum Strategy {
+            /** Иерархическое колесо таймеров: удаляются ровно те записи, срок которых наступил. */
+            WHEEL,
+            /** Адаптивная выборка случайных ключей (аналог active expiry в Redis), не требует памяти на каждую запись. */
+            SAMPLING
+        }
+
+        private Strategy strategy = Strategy.WHEEL;
+
+        /** Период фоновой очистки. */
+        private Duration tick = Duration.ofMillis(100);
+
+        /** Количество ключей в одной выборке. */
+        private int sampleSize = 20;
+
+        /** Доля истёкших ключей в выборке, при превышении которой выборка повторяется. */
+        private double expiredThreshold = 0.1;
+
+        /** Максимальное процессорное время одного цикла выборки. */
+        private Duration cycleBudget = Duration.ofMillis(25);
+
+        public Strategy getStrategy() {
+            return strategy;
+        }
+
+        public void setStrategy(Strategy strategy) {
+            this.strategy = strategy;
+        }
+
+        public Duration getTick() {
+            return tick;
+        }
+
+        public void setTick(Duration tick) {
+            this.tick = tick;
+        }
+
+        public int getSampleSize() {
+            return sampleSize;
+        }
+
+        public void setSampleSize(int sampleSize) {
+            this.sampleSize = sampleSize;
+        }
+
+        public double getExpiredThreshold() {
+            return expiredThreshold;
+        }
+
+        public void setExpiredThreshold(double expiredThreshold) {
+            this.expiredThreshold = expiredThreshold;
+        }
+
+        public Duration getCycleBudget() {
+            return cycleBudget;
+        }
+
+        public void setCycleBudget(Duration cycleBudget) {
+            this.cycleBudget = cycleBudget;
+        }
+    }
+
+    /**
+     * Настройки хранения значений вне кучи.
+     */
+    public static class OffHeap {
+
+        /** Размер одного сегмента памяти. */
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+        /** Максимальный объём памяти вне кучи. */
+        private DataSize maxSize = DataSize.ofGigabytes(1);
+
+        /** Файл, отображаемый в память; если не задан, используются direct ByteBuffer. */
+        private Path file;
+
+        public DataSize getSegmentSize() {
+            return segmentSize;
+        }
+
+        public void setSegmentSize(DataSize segmentSize) {
+            this.segmentSize = segmentSize;
+        }
+
+        public DataSize getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(DataSize maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public void setFile(Path file) {
+            this.file = file;
+        }
+    }
+
+    /**
+     * Настройки компактного хранения значений в куче (только для механизма {@link Engine#HEAP}).
+     * Кодек включается, если включено сжатие или дедупликация.
+     */
+    public static class Codec {
+
+        /**
+         * Алгоритм сжатия значений.
+         */
+        public enum Compression {
+            /** Без сжатия. */
+            NONE,
+            /** Deflate из {@link java.util.zip}. */
+            DEFLATE
+        }
+
+        private Compression compression = Compression.NONE;
+
+        /** Длина значения, начиная с которой оно сжимается. */
+        private DataSize compressionThreshold = DataSize.ofBytes(512);
+
+        /** Уровень сжатия Deflate от 1 (быстрее) до 9 (сильнее). */
+        private int compressionLevel = 1;
+
+        /** Хранение одинаковых значений одним экземпляром. */
+        private boolean deduplication;
+
+        /** Длина значения, начиная с которой одинаковые значения хранятся одним экземпляром. */
+        private DataSize deduplicationThreshold = DataSize.ofBytes(64);
+
+        public Compression getCompression() {
+            return compression;
+        }
+
+        public void setCompression(Compression compression) {
+            this.compression = compression;
+        }
+
+        public DataSize getCompressionThreshold() {
+            return compressionThreshold;
+        }
+
+        public void setCompressionThreshold(DataSize compressionThreshold) {
+            this.compressionThreshold = compressionThreshold;
+        }
+
+        public int getCompressionLevel() {
+            return compressionLevel;
+        }
+
+        public void setCompressionLevel(int compressionLevel) {
+            this.compressionLevel = compressionLevel;
+        }
+
+        public boolean isDeduplication() {
+            return deduplication;
+        }
+
+        public void setDeduplication(boolean deduplication) {
+            this.deduplication = deduplication;
+        }
+
+        public DataSize getDeduplicationThreshold() {
+            return deduplicationThreshold;
+        }
+
+        public void setDeduplicationThreshold(DataSize deduplicationThreshold) {
+            this.deduplicationThreshold = deduplicationThreshold;
+        }
+
+        /**
+         * @return true, если включено сжатие или дедупликация
+         */
+        public boolean isEnabled() {
+            return compression != Compression.NONE || deduplication;
+        }
+    }
+
+    /**
+     * Настройки ограничения размера хранилища.
+     * Вытеснение включается, если задано хотя бы одно ограничение.
+     */
+    public static class Eviction {
+
+        /**
+         * Политика выбора вытесняемых записей.
+         */
+        public enum Policy {
+            /** Давно не использовавшиеся записи. */
+            LRU,
+            /** Наименее часто используемые записи. */
+            LFU,
+            /** Окно LRU с допуском в основную область по частоте обращений. */
+            W_TINY_LFU
+        }
+
+        private Policy policy = Policy.W_TINY_LFU;
+
+        /** Максимальное количество записей ({@code 0} — без ограничения). */
+        private long maxEntries;
+
+        /** Максимальный суммарный размер хранимых значений в байтах ({@code null} — без ограничения). */
+        private DataSize maxBytes;
+
+        public Policy getPolicy() {
+            return policy;
+        }
+
+        public void setPolicy(Policy policy) {
+            this.policy = policy;
+        }
+
+        public long getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(long maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public DataSize getMaxBytes() {
+            return maxBytes;
+        }
+
+        public void setMaxBytes(DataSize maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+    }
+
+    /**
+     * Настройки сохранения состояния хранилища (dump/load).
+     */
+    public static class Snapshot {
+
+        /** Формат файла, создаваемого операцией dump; load определяет формат файла автоматически. */
+        private SnapshotFormat format = SnapshotFormat.JSON;
+
+        /** Файл состояния; если не задан, используется storage-state.json или storage-state.bin в зависимости от формата. */
+        private Path file;
+
+        /** Количество потоков разбора при загрузке двоичного файла ({@code 0} — по количеству процессоров). */
+        private int loadParallelism;
+
+        /** Количество заданий сохранения и загрузки, состояние которых можно запросить; самые давние удаляются. */
+        private int maxJobs = 100;
+
+        public SnapshotFormat getFormat() {
+            return format;
+        }
+
+        public void setFormat(SnapshotFormat format) {
+            this.format = format;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public void setFile(Path file) {
+            this.file = file;
+        }
+
+        public int getLoadParallelism() {
+            return loadParallelism;
+        }
+
+        public void setLoadParallelism(int loadParallelism) {
+            this.loadParallelism = loadParallelism;
+        }
+
+        public int getMaxJobs() {
+            return maxJobs;
+        }
+
+        public void setMaxJobs(int maxJobs) {
+            this.maxJobs = maxJobs;
+        }
+
+        /**
+         * @return Файл состояния с учётом значения по умолчанию для выбранного формата
+         */
+        public Path resolveFile() {
+            if (file != null) {
+                return file;
+            }
+            return Path.of(format == SnapshotFormat.BINARY ? "storage-state.bin" : "storage-state.json");
+        }
+    }
+
+    /**
+     * Настройки журнала упреждающей записи.
+     * При запуске состояние восстанавливается из файла состояния и журнала операций после него.
+     */
+    public static class Wal {
+
+        private boolean enabled;
+
+        /** Каталог сегментов журнала. */
+        private Path dir = Path.of("wal");
+
+        private FsyncPolicy fsync = FsyncPolicy.INTERVAL;
+
+        /** Интервал сброса на диск для политики {@code interval}. */
+        private Duration fsyncInterval = Duration.ofMillis(100);
+
+        /** Размер журнала, при превышении которого состояние сохраняется в файл, а журнал сокращается. */
+        private DataSize compactionThreshold = DataSize.ofMegabytes(64);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Path getDir() {
+            return dir;
+        }
+
+        public void setDir(Path dir) {
+            this.dir = dir;
+        }
+
+        public FsyncPolicy getFsync() {
+            return fsync;
+        }
+
+        public void setFsync(FsyncPolicy fsync) {
+            this.fsync = fsync;
+        }
+
+        public Duration getFsyncInterval() {
+            return fsyncInterval;
+        }
+
+        public void setFsyncInterval(Duration fsyncInterval) {
+            this.fsyncInterval = fsyncInterval;
+        }
+
+        public DataSize getCompactionThreshold() {
+            return compactionThreshold;
+        }
+
+        public void setCompactionThreshold(DataSize compactionThreshold) {
+            this.compactionThreshold = compactionThreshold;
+        }
+    }
+
+    /**
+     * Настройки пакетных операций.
+     */
+    public static class Batch {
+
+        /** Размер пакета, начиная с которого ключи обрабатываются параллельно. */
+        private int parallelThreshold = 1000;
+
+        public int getParallelThreshold() {
+            return parallelThreshold;
+        }
+
+        public void setParallelThreshold(int parallelThreshold) {
+            this.parallelThreshold = parallelThreshold;
+        }
+    }
+
+    /**
+     * Настройки метрик хранилища.
+     */
+    public static class Metrics {
+
+        /**
+         * Задержка измеряется у каждой N-й операции (в среднем): два чтения часов и запись в гистограмму
+         * сопоставимы по стоимости с самой операцией get. Счётчики операций точные при любом значении.
+         */
+        private int latencySampling = 16;
+
+        public int getLatencySampling() {
+            return latencySampling;
+        }
+
+        public void setLatencySampling(int latencySampling) {
+            this.latencySampling = latencySampling;
+        }
+    }
+
+    /**
+     * Настройки постраничного обхода хранилища.
+     */
+    public static class Scan {
+
+        /** Время, после которого курсор без обращений закрывается. */
+        private Duration cursorTimeout = Duration.ofMinutes(1);
+
+        /** Максимальное количество открытых курсоров; при превышении закрывается самый давний. */
+        private int maxCursors = 1024;
+
+        /** Максимальный размер страницы. */
+        private int maxCount = 10000;
+
+        public Duration getCursorTimeout() {
+            return cursorTimeout;
+        }
+
+        public void setCursorTimeout(Duration cursorTimeout) {
+            this.cursorTimeout = cursorTimeout;
+        }
+
+        public int getMaxCursors() {
+            return maxCursors;
+        }
+
+        public void setMaxCursors(int maxCursors) {
+            this.maxCursors = maxCursors;
+        }
+
+        public int getMaxCount() {
+            return maxCount;
+        }
+
+        public void setMaxCount(int maxCount) {
+            this.maxCount = maxCount;
+        }
+    }
+
+    /**
+     * Настройки упорядоченного индекса ключей для запросов по префиксу и диапазону.
+     */
+    public static class Index {
+
+        /**
+         * Вести индекс ключей. Без индекса запросы по префиксу и диапазону обходят всё хранилище;
+         * с индексом каждая запись и удаление ключа дополнительно обновляют индекс.
+         */
+        private boolean enabled;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    /**
+     * Настройки сервера протокола RESP (подмножество команд Redis).
+     */
+    public static class Resp {
+
+        /** Запуск сервера RESP рядом с REST. */
+        private boolean enabled;
+
+        /** Адрес, на котором принимаются соединения; если не задан — все адреса. */
+        private String address;
+
+        /** Порт сервера ({@code 0} — любой свободный порт). */
+        private int port = 6380;
+
+        /** Количество потоков ввода-вывода ({@code 0} — по количеству процессоров). */
+        private int ioThreads;
+
+        /**
+         * Максимальный размер одной команды (включая все аргументы); команда больше него отклоняется
+         * с закрытием соединения. Ограничивает и объём буфера команд одного соединения.
+         */
+        private DataSize maxRequestSize = DataSize.ofMegabytes(64);
+
+        /**
+         * Количество обработчиков команд, которые могут блокировать поток: чтений при заданном источнике
+         * значений и записей при {@code storage.wal.fsync=always}. Без таких команд пул не создаётся.
+         */
+        private int workerThreads = 16;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getAddress() {
+            return address;
+        }
+
+        public void setAddress(String address) {
+            this.address = address;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+
+        public int getIoThreads() {
+            return ioThreads;
+        }
+
+        public void setIoThreads(int ioThreads) {
+            this.ioThreads = ioThreads;
+        }
+
+        public DataSize getMaxRequestSize() {
+            return maxRequestSize;
+        }
+
+        public void setMaxRequestSize(DataSize maxRequestSize) {
+            this.maxRequestSize = maxRequestSize;
+        }
+
+        public int getWorkerThreads() {
+            return workerThreads;
+        }
+
+        public void setWorkerThreads(int workerThreads) {
+            this.workerThreads = workerThreads;
+        }
+    }
+
+    /**
+     * Настройки чтения через хранилище (используются, если задан {@link org.example.service.loader.CacheLoader}).
+     */
+    public static class Loader {
+
+        /** TTL загруженных записей; если не задан, используется TTL по умолчанию. */
+        private Duration ttl;
+
+        /**
+         * Доля TTL, после которой чтение записи запускает её фоновую перезагрузку из источника
+         * ({@code 0} — без перезагрузки). Например, при 0.8 запись с TTL 10 с, прочитанная
+         * через 8 с после сохранения, перезагружается до истечения срока.
+         */
+        private double refreshAhead;
+
+        /** Количество потоков фоновой перезагрузки. */
+        private int refreshThreads = 2;
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public double getRefreshAhead() {
+            return refreshAhead;
+        }
+
+        public void setRefreshAhead(double refreshAhead) {
+            this.refreshAhead = refreshAhead;
+        }
+
+        public int getRefreshThreads() {
+            return refreshThreads;
+        }
+
+        public void setRefreshThreads(int refreshThreads) {
+            this.refreshThreads = refreshThreads;
+        }
+    }
+
+    /**
+     * Настройки отложенной записи (используются, если задан {@link org.example.service.loader.WriteBehindSink}).
+     */
+    public static class WriteBehind {
+
+        /** Максимальное количество значений в пакете. */
+        private int batchSize = 100;
+
+        /** Интервал передачи неполных пакетов. */
+        private Duration interval = Duration.ofSeconds(1);
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+    }
+
+    /**
+     * Настройки репликации ведущий узел — реплики.
+     */
+    public static class Replication {
+
+        public enum Role {
+            /** Без репликации. */
+            NONE,
+            /** Ведущий узел: принимает записи и передаёт изменения репликам. */
+            LEADER,
+            /** Реплика: обслуживает только чтения и применяет изменения ведущего узла. */
+            FOLLOWER
+        }
+
+        private Role role = Role.NONE;
+
+        /** Адрес, на котором ведущий узел принимает реплики; если не задан — все адреса. */
+        private String address;
+
+        /** Порт ведущего узла для реплик ({@code 0} — любой свободный порт). */
+        private int port = 6390;
+
+        /** Адрес ведущего узла для реплики в виде {@code host:port}. */
+        private String leader;
+
+        /** Максимальное количество записей в пакете изменений. */
+        private int batchSize = 1000;
+
+        /** Интервал формирования пакетов изменений. */
+        private Duration batchInterval = Duration.ofMillis(10);
+
+        /**
+         * Суммарный размер пакетов, хранимых ведущим узлом для переподключения реплик без полной передачи
+         * состояния.
+         */
+        private DataSize backlogSize = DataSize.ofMegabytes(64);
+
+        /** Пауза реплики перед повторным подключением к ведущему узлу. */
+        private Duration reconnectDelay = Duration.ofSeconds(1);
+
+        public Role getRole() {
+            return role;
+        }
+
+        public void setRole(Role role) {
+            this.role = role;
+        }
+
+        public String getAddress() {
+            return address;
+        }
+
+        public void setAddress(String address) {
+            this.address = address;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+
+        public String getLeader() {
+            return leader;
+        }
+
+        public void setLeader(String leader) {
+            this.leader = leader;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public Duration getBatchInterval() {
+            return batchInterval;
+        }
+
+        public void setBatchInterval(Duration batchInterval) {
+            this.batchInterval = batchInterval;
+        }
+
+        public DataSize getBacklogSize() {
+            return backlogSize;
+        }
+
+        public void setBacklogSize(DataSize backlogSize) {
+            this.backlogSize = backlogSize;
+        }
+
+        public Duration getReconnectDelay() {
+            return reconnectDelay;
+        }
+
+        public void setReconnectDelay(Duration reconnectDelay) {
+            this.reconnectDelay = reconnectDelay;
+        }
+    }
+}
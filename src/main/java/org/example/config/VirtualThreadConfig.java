@@ -0,0 +1,46 @@
+package org.example.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Обработка HTTP-запросов в виртуальных потоках ({@code storage.virtual-threads=true}).
+ * Пул потоков Tomcat заменяется исполнителем, создающим виртуальный поток на каждый запрос,
+ * поэтому медленные клиенты не занимают ограниченный пул платформенных потоков.
+ * <p>
+ * Проект компилируется под Java 19 без {@code --enable-preview}, а в Java 19 и 20 виртуальные потоки —
+ * preview API, поэтому исполнитель создаётся через отражение; при запуске на версии, где они недоступны,
+ * приложение не стартует с понятной ошибкой.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "storage", name = "virtual-threads", havingValue = "true")
+public class VirtualThreadConfig {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadExecutorCustomizer() {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        LOGGER.info("HTTP-запросы обрабатываются в виртуальных потоках");
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException("Virtual threads require Java 21 or Java 19/20 with --enable-preview.", e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Virtual threads require Java 21 or Java 19/20 with --enable-preview.",
+                    e.getCause());
+        }
+    }
+}
@@ -1,14 +1,32 @@
 package org.example.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.service.BatchEntry;
 import org.example.service.MemoryStorageService;
+import org.example.service.ReadOnlyReplicaException;
+import org.example.service.ScanPage;
+import org.example.service.SnapshotJob;
+import org.example.service.VersionedEntry;
 import org.example.tuple.Tuple3;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -19,10 +37,14 @@ import java.util.Map;
 public class MemoryStorageController {
     private static final Logger LOGGER = LoggerFactory.getLogger(MemoryStorageController.class);
 
+    private static final String NDJSON = "application/x-ndjson";
+
     private final MemoryStorageService memoryStorageService;
+    private final ObjectMapper objectMapper;
 
-    public MemoryStorageController(MemoryStorageService memoryStorageService) {
+    public MemoryStorageController(MemoryStorageService memoryStorageService, ObjectMapper objectMapper) {
         this.memoryStorageService = memoryStorageService;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -59,6 +81,91 @@ public class MemoryStorageController {
         }
     }
 
+    /**
+     * Постраничный обход хранилища.
+     *
+     * @param cursor Курсор из предыдущей страницы; {@code 0} — начало обхода
+     * @param count  Максимальное количество записей на странице
+     * @param prefix Префикс ключа (необязательный)
+     * @param match  Шаблон ключа в стиле glob, например {@code user:*:name} (необязательный)
+     * @return Записи страницы и курсор следующей страницы; курсор {@code 0} означает конец обхода
+     */
+    @GetMapping("/_scan")
+    public ResponseEntity<ScanPage> scan(@RequestParam(name = "cursor", defaultValue = "0") String cursor,
+                                         @RequestParam(name = "count", defaultValue = "100") int count,
+                                         @RequestParam(name = "prefix", required = false) String prefix,
+                                         @RequestParam(name = "match", required = false) String match) {
+        return ResponseEntity.ok(memoryStorageService.scan(cursor, count, prefix, match));
+    }
+
+    /**
+     * Получение записей с заданным префиксом ключа в порядке возрастания ключей.
+     *
+     * @param prefix Префикс ключа, например {@code tenant:user:}
+     * @param limit  Максимальное количество записей
+     * @return Записи по порядку ключей
+     */
+    @GetMapping("/_prefix")
+    public ResponseEntity<Map<String, Tuple3<String, Long, Long>>> getByPrefix(@RequestParam("prefix") String prefix,
+                                                                               @RequestParam(name = "limit", defaultValue = "100") int limit) {
+        return ResponseEntity.ok(memoryStorageService.getByPrefix(prefix, limit));
+    }
+
+    /**
+     * Получение записей с ключами из диапазона {@code [from, to)} в порядке возрастания ключей.
+     *
+     * @param from  Нижняя граница ключа, включительно (необязательная)
+     * @param to    Верхняя граница ключа, не включительно (необязательная)
+     * @param limit Максимальное количество записей
+     * @return Записи по порядку ключей
+     */
+    @GetMapping("/_range")
+    public ResponseEntity<Map<String, Tuple3<String, Long, Long>>> getRange(@RequestParam(name = "from", required = false) String from,
+                                                                            @RequestParam(name = "to", required = false) String to,
+                                                                            @RequestParam(name = "limit", defaultValue = "100") int limit) {
+        return ResponseEntity.ok(memoryStorageService.getRange(from, to, limit));
+    }
+
+    /**
+     * Удаление всех записей с заданным префиксом ключа.
+     *
+     * @param prefix Непустой префикс ключа
+     * @return Количество удалённых записей
+     */
+    @DeleteMapping("/_prefix")
+    public ResponseEntity<Integer> removeByPrefix(@RequestParam("prefix") String prefix) {
+        return ResponseEntity.ok(memoryStorageService.removeByPrefix(prefix));
+    }
+
+    /**
+     * Потоковая выгрузка записей в формате NDJSON: по одному объекту {"key", "value", "ttl", "savedTime"}
+     * на строку. Записи пишутся в ответ по мере обхода хранилища, без промежуточной копии.
+     *
+     * @param prefix Префикс ключа (необязательный)
+     * @param match  Шаблон ключа в стиле glob (необязательный)
+     */
+    @GetMapping(value = "/_stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> stream(@RequestParam(name = "prefix", required = false) String prefix,
+                                                        @RequestParam(name = "match", required = false) String match) {
+        Iterator<Map.Entry<String, Tuple3<String, Long, Long>>> entries = memoryStorageService.liveEntries(prefix, match);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(new SerializedString("\n"));
+                while (entries.hasNext()) {
+                    Map.Entry<String, Tuple3<String, Long, Long>> entry = entries.next();
+                    generator.writeStartObject();
+                    generator.writeStringField("key", entry.getKey());
+                    generator.writeStringField("value", entry.getValue().value());
+                    generator.writeNumberField("ttl", entry.getValue().ttl());
+                    generator.writeNumberField("savedTime", entry.getValue().savedTime());
+                    generator.writeEndObject();
+                }
+                generator.writeRaw('\n');
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+
      /**
      * Сохранение значения по ключу с указанным временем жизни (TTL).
      *
@@ -71,7 +178,9 @@ public class MemoryStorageController {
     public ResponseEntity<String> set(@RequestParam("key") String key,
                                     @RequestParam("value") String value,
                                     @RequestParam(name = "ttl", required = false) Long ttl) {
-        LOGGER.debug("Сохранение значения '{}' по ключу '{}' с TTL {} мс", value, key, ttl);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Сохранение значения '{}' по ключу '{}' с TTL {} мс", value, key, ttl);
+        }
         try {
             if (memoryStorageService.set(key, value, ttl)) {
                 return ResponseEntity.status(HttpStatus.CREATED).body("Запись успешно добавлена");
@@ -103,6 +212,248 @@ public class MemoryStorageController {
         }
     }
 
+    /**
+     * Сохранение значения, только если по ключу нет записи (SETNX).
+     *
+     * @param key   Ключ, под которым необходимо сохранить значение
+     * @param value Значение
+     * @param ttl   Время жизни записи в миллисекундах (или null для использования значения по умолчанию)
+     * @return 201, если значение сохранено, или 412, если запись по ключу уже есть
+     */
+    @PostMapping("/_setnx")
+    public ResponseEntity<String> setIfAbsent(@RequestParam("key") String key,
+                                              @RequestParam("value") String value,
+                                              @RequestParam(name = "ttl", required = false) Long ttl) {
+        if (memoryStorageService.setIfAbsent(key, value, ttl)) {
+            return ResponseEntity.status(HttpStatus.CREATED).body("Запись успешно добавлена");
+        }
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body("Запись для ключа '" + key + "' уже существует");
+    }
+
+    /**
+     * Получение записи с версией для условной замены.
+     *
+     * @param key Ключ записи
+     * @return Запись с версией или 404, если ключ не найден
+     */
+    @GetMapping("/{key}/_versioned")
+    public ResponseEntity<VersionedEntry> getVersioned(@PathVariable("key") String key) {
+        VersionedEntry entry = memoryStorageService.getVersioned(key);
+        return entry == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(entry);
+    }
+
+    /**
+     * Замена значения, только если версия записи не изменилась.
+     *
+     * @param key     Ключ записи
+     * @param version Ожидаемая версия записи
+     * @param value   Новое значение
+     * @param ttl     Время жизни записи в миллисекундах (или null для использования значения по умолчанию)
+     * @return Новая запись с версией или 412, если ключ не найден или версия изменилась
+     */
+    @PostMapping("/_cas")
+    public ResponseEntity<VersionedEntry> compareAndSet(@RequestParam("key") String key,
+                                                        @RequestParam("version") long version,
+                                                        @RequestParam("value") String value,
+                                                        @RequestParam(name = "ttl", required = false) Long ttl) {
+        VersionedEntry entry = memoryStorageService.compareAndSet(key, version, value, ttl);
+        return entry == null ? ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build() : ResponseEntity.ok(entry);
+    }
+
+    /**
+     * Сохранение значения с возвратом предыдущего (GETSET).
+     *
+     * @param key   Ключ записи
+     * @param value Новое значение
+     * @param ttl   Время жизни записи в миллисекундах (или null для использования значения по умолчанию)
+     * @return Предыдущая запись или 204, если записи не было
+     */
+    @PostMapping("/_getset")
+    public ResponseEntity<Tuple3<String, Long, Long>> getAndSet(@RequestParam("key") String key,
+                                                               @RequestParam("value") String value,
+                                                               @RequestParam(name = "ttl", required = false) Long ttl) {
+        Tuple3<String, Long, Long> previous = memoryStorageService.getAndSet(key, value, ttl);
+        return previous == null ? ResponseEntity.noContent().build() : ResponseEntity.ok(previous);
+    }
+
+    /**
+     * Атомарное увеличение целого значения (INCR); отсутствующая запись создаётся со значением {@code delta}.
+     *
+     * @param key   Ключ записи
+     * @param delta Величина увеличения (по умолчанию 1)
+     * @param ttl   Время жизни создаваемой записи в миллисекундах (или null для использования значения по умолчанию)
+     * @return Новое значение или 400, если значение записи не целое число
+     */
+    @PostMapping("/{key}/_incr")
+    public ResponseEntity<Long> increment(@PathVariable("key") String key,
+                                          @RequestParam(name = "delta", defaultValue = "1") long delta,
+                                          @RequestParam(name = "ttl", required = false) Long ttl) {
+        return ResponseEntity.ok(memoryStorageService.increment(key, delta, ttl));
+    }
+
+    /**
+     * Атомарное уменьшение целого значения (DECR); отсутствующая запись создаётся со значением {@code -delta}.
+     */
+    @PostMapping("/{key}/_decr")
+    public ResponseEntity<Long> decrement(@PathVariable("key") String key,
+                                          @RequestParam(name = "delta", defaultValue = "1") long delta,
+                                          @RequestParam(name = "ttl", required = false) Long ttl) {
+        if (delta == Long.MIN_VALUE) {
+            throw new IllegalArgumentException("Parameter 'delta' is out of range.");
+        }
+        return ResponseEntity.ok(memoryStorageService.increment(key, -delta, ttl));
+    }
+
+    /**
+     * Оставшееся время жизни записи (TTL).
+     *
+     * @param key Ключ записи
+     * @return Оставшееся время жизни в миллисекундах ({@code -1}, если срок не ограничен) или 404, если ключ не найден
+     */
+    @GetMapping("/{key}/_ttl")
+    public ResponseEntity<Long> getTtl(@PathVariable("key") String key) {
+        Long ttl = memoryStorageService.getTtl(key);
+        return ttl == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(ttl);
+    }
+
+    /**
+     * Изменение TTL записи без изменения значения (EXPIRE); срок отсчитывается от текущего момента.
+     *
+     * @param key Ключ записи
+     * @param ttl Новое время жизни в миллисекундах
+     * @return 200 или 404, если ключ не найден
+     */
+    @PutMapping("/{key}/_ttl")
+    public ResponseEntity<Void> expire(@PathVariable("key") String key, @RequestParam("ttl") long ttl) {
+        return memoryStorageService.expire(key, ttl) ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Снятие ограничения срока жизни записи (PERSIST).
+     *
+     * @param key Ключ записи
+     * @return 200, если срок жизни снят, или 404, если ключ не найден или срок жизни записи не ограничен
+     */
+    @DeleteMapping("/{key}/_ttl")
+    public ResponseEntity<Void> persist(@PathVariable("key") String key) {
+        return memoryStorageService.persist(key) ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Пакетное получение записей.
+     *
+     * @param keys JSON-массив ключей
+     * @return Записи по ключам в порядке запроса; для отсутствующих ключей значение null
+     */
+    @PostMapping(value = "/_mget", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Tuple3<String, Long, Long>>> multiGet(@RequestBody List<String> keys) {
+        return ResponseEntity.ok(memoryStorageService.multiGet(keys));
+    }
+
+    /**
+     * Пакетное получение записей; тело запроса — ключи в формате NDJSON, по одной JSON-строке на строку.
+     */
+    @PostMapping(value = "/_mget", consumes = NDJSON)
+    public ResponseEntity<Map<String, Tuple3<String, Long, Long>>> multiGetStream(InputStream body) throws IOException {
+        return ResponseEntity.ok(memoryStorageService.multiGet(readValues(body, String.class)));
+    }
+
+    /**
+     * Пакетное сохранение записей со своим TTL для каждой записи.
+     *
+     * @param entries JSON-массив объектов {"key", "value", "ttl"}; ttl можно не указывать
+     * @return Результат сохранения по каждому ключу или ошибка, если TTL какой-либо записи некорректен
+     */
+    @PostMapping(value = "/_mset", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Boolean>> multiSet(@RequestBody List<BatchEntry> entries) {
+        return multiSetResponse(memoryStorageService.multiSet(entries));
+    }
+
+    /**
+     * Пакетное сохранение записей; тело запроса — объекты {"key", "value", "ttl"} в формате NDJSON.
+     */
+    @PostMapping(value = "/_mset", consumes = NDJSON)
+    public ResponseEntity<Map<String, Boolean>> multiSetStream(InputStream body) throws IOException {
+        return multiSetResponse(memoryStorageService.multiSet(readValues(body, BatchEntry.class)));
+    }
+
+    private static ResponseEntity<Map<String, Boolean>> multiSetResponse(Map<String, Boolean> result) {
+        boolean allStored = !result.containsValue(Boolean.FALSE);
+        return ResponseEntity.status(allStored ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS).body(result);
+    }
+
+    /**
+     * Пакетное удаление записей.
+     *
+     * @param keys JSON-массив ключей
+     * @return Удалённые записи по ключам в порядке запроса; для отсутствующих ключей значение null
+     */
+    @PostMapping(value = "/_mdel", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Tuple3<String, Long, Long>>> multiRemove(@RequestBody List<String> keys) {
+        return ResponseEntity.ok(memoryStorageService.multiRemove(keys));
+    }
+
+    /**
+     * Пакетное удаление записей; тело запроса — ключи в формате NDJSON.
+     */
+    @PostMapping(value = "/_mdel", consumes = NDJSON)
+    public ResponseEntity<Map<String, Tuple3<String, Long, Long>>> multiRemoveStream(InputStream body) throws IOException {
+        return ResponseEntity.ok(memoryStorageService.multiRemove(readValues(body, String.class)));
+    }
+
+    /**
+     * Запуск фонового сохранения состояния хранилища.
+     *
+     * @param incremental Сохранить только ключи, изменённые после предыдущего сохранения
+     * @return Задание (202 Accepted) с адресом для опроса состояния в заголовке Location
+     */
+    @PostMapping("/_dump")
+    public ResponseEntity<SnapshotJob> dump(@RequestParam(name = "incremental", defaultValue = "false") boolean incremental) {
+        return accepted(memoryStorageService.startDump(incremental));
+    }
+
+    /**
+     * Запуск фоновой загрузки состояния хранилища из полного файла и инкрементальных файлов после него.
+     *
+     * @return Задание (202 Accepted) с адресом для опроса состояния в заголовке Location
+     */
+    @PostMapping("/_load")
+    public ResponseEntity<SnapshotJob> load() {
+        return accepted(memoryStorageService.startLoad());
+    }
+
+    /**
+     * Состояние задания сохранения или загрузки.
+     *
+     * @param id Идентификатор задания
+     * @return Состояние и прогресс задания или 404, если задание неизвестно
+     */
+    @GetMapping("/_jobs/{id}")
+    public ResponseEntity<SnapshotJob> job(@PathVariable("id") String id) {
+        SnapshotJob job = memoryStorageService.getSnapshotJob(id);
+        return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job);
+    }
+
+    private static ResponseEntity<SnapshotJob> accepted(SnapshotJob job) {
+        return ResponseEntity.accepted().location(URI.create("/api/storage/_jobs/" + job.getId())).body(job);
+    }
+
+    /**
+     * Потоковое чтение последовательности JSON-значений без разбора всего тела в дерево.
+     * Некорректное значение (например, {@code null} вместо ключа) — ошибка клиента, а не сервиса.
+     */
+    private <T> List<T> readValues(InputStream body, Class<T> type) throws IOException {
+        List<T> values = new ArrayList<>();
+        try (MappingIterator<T> iterator = objectMapper.readerFor(type).readValues(body)) {
+            while (iterator.hasNextValue()) {
+                values.add(iterator.nextValue());
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed request body: " + e.getOriginalMessage(), e);
+        }
+        return values;
+    }
+
     /**
      * Обработка исключений, возникающих при работе с MemoryStorageService.
      *
@@ -114,6 +465,9 @@ public class MemoryStorageController {
         if (e instanceof IllegalArgumentException) {
             LOGGER.error("Ошибка обработки запроса: {}", e.getMessage());
             return ResponseEntity.badRequest().body(e.getMessage());
+        } else if (e instanceof ReadOnlyReplicaException) {
+            LOGGER.debug("Запрос на изменение реплики отклонён");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         } else {
             LOGGER.error("Внутренняя ошибка сервиса: ", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
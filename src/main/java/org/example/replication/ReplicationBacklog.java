@@ -0,0 +1,131 @@
+package org.example.replication;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Очередь закодированных пакетов изменений ведущего узла, ограниченная суммарным размером.
+ * Пакеты нумеруются подряд с 1; реплика, отставшая больше, чем хранит очередь, получает
+ * полное состояние заново.
+ * <p>
+ * Вместо мониторов используется {@link ReentrantLock}: ожидание пакетов в {@link #after(long, long)}
+ * не закрепляет виртуальный поток за платформенным.
+ */
+final class ReplicationBacklog {
+
+    /**
+     * Пакет: номер и сообщение {@link ReplicationProtocol#BATCH} целиком.
+     */
+    record Frame(long sequence, byte[] message) {
+    }
+
+    private final ArrayDeque<Frame> frames = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final long maxBytes;
+    private long bytes;
+    private long lastSequence;
+
+    ReplicationBacklog(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return Номер следующего пакета
+     */
+    long nextSequence() {
+        lock.lock();
+        try {
+            return lastSequence + 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Добавление пакета с номером {@link #nextSequence()}; самые давние пакеты сверх ограничения удаляются.
+     */
+    void append(Frame frame) {
+        lock.lock();
+        try {
+            frames.addLast(frame);
+            bytes += frame.message().length;
+            lastSequence = frame.sequence();
+            while (bytes > maxBytes && frames.size() > 1) {
+                bytes -= frames.removeFirst().message().length;
+            }
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Номер последнего пакета ({@code 0}, если пакетов ещё не было)
+     */
+    long lastSequence() {
+        lock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return true, если все пакеты после указанного номера ещё в очереди
+     */
+    boolean covers(long sequence) {
+        lock.lock();
+        try {
+            if (sequence > lastSequence) {
+                return false;
+            }
+            return sequence == lastSequence || (!frames.isEmpty() && frames.peekFirst().sequence() <= sequence + 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ожидание пакетов после указанного номера.
+     *
+     * @param sequence Номер последнего отправленного пакета
+     * @param timeout  Максимальное время ожидания в миллисекундах
+     * @return Пакеты по порядку (пустой список, если за время ожидания пакетов не появилось)
+     * или {@code null}, если часть пакетов после номера уже удалена из очереди
+     */
+    List<Frame> after(long sequence, long timeout) throws InterruptedException {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeout);
+        lock.lock();
+        try {
+            while (lastSequence <= sequence) {
+                if (remaining <= 0) {
+                    return List.of();
+                }
+                remaining = appended.awaitNanos(remaining);
+            }
+            if (!covers(sequence)) {
+                return null;
+            }
+            List<Frame> result = new ArrayList<>();
+            for (Iterator<Frame> it = frames.descendingIterator(); it.hasNext(); ) {
+                Frame frame = it.next();
+                if (frame.sequence() <= sequence) {
+                    break;
+                }
+                result.add(frame);
+            }
+            Collections.reverse(result);
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package org.example.replication;
+
+import org.example.service.MemoryStorageService;
+import org.example.tuple.Tuple3;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Реплика: получает изменения от {@link ReplicationLeader} и применяет их к {@link MemoryStorageService}.
+ * <p>
+ * На время работы хранилище переводится в режим только для чтения: операции записи клиентов
+ * отклоняются, чтения обслуживаются из локальной копии. При первом подключении и после потери
+ * позиции реплика получает полное состояние ведущего узла (ключи, которых в нём нет, удаляются)
+ * и затем пакеты изменений после него; при обрыве соединения реплика переподключается и, если
+ * ведущий узел ещё хранит пропущенные пакеты, продолжает с них без полной передачи.
+ * <p>
+ * Задержка репликации — время от формирования последнего применённого пакета на ведущем узле до его
+ * применения; между узлами она включает расхождение их часов.
+ * Остановка реплики возвращает хранилищу возможность записи (ручное назначение ведущим узлом).
+ */
+public class ReplicationFollower implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicationFollower.class);
+
+    private final MemoryStorageService service;
+    private final InetSocketAddress leader;
+    private final long reconnectDelay;
+
+    private final LongAdder appliedRecords = new LongAdder();
+    private final LongAdder fullSyncs = new LongAdder();
+
+    private volatile long runId;
+    private volatile long appliedSequence;
+    private volatile long leaderSequence;
+    private volatile long lag;
+    private volatile boolean connected;
+
+    private Thread worker;
+    private volatile Socket socket;
+    private volatile boolean closed;
+
+    /**
+     * @param service        Сервис хранилища
+     * @param leader         Адрес ведущего узла
+     * @param reconnectDelay Пауза перед повторным подключением в миллисекундах
+     */
+    public ReplicationFollower(MemoryStorageService service, InetSocketAddress leader, long reconnectDelay) {
+        this.service = service;
+        this.leader = leader;
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    /**
+     * Перевод хранилища в режим только для чтения и запуск фонового потока репликации.
+     */
+    public void start() {
+        service.setReadOnly(true);
+        worker = new Thread(this::run, "replication-follower");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * @return true, если соединение с ведущим узлом установлено и состояние получено
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * @return Номер последнего применённого пакета
+     */
+    public long appliedSequence() {
+        return appliedSequence;
+    }
+
+    /**
+     * @return Номер последнего пакета ведущего узла, известный реплике
+     */
+    public long leaderSequence() {
+        return leaderSequence;
+    }
+
+    /**
+     * @return Задержка репликации в миллисекундах ({@code 0}, если реплика применила все пакеты)
+     */
+    public long lag() {
+        return lag;
+    }
+
+    /**
+     * @return Количество применённых записей, включая записи полного состояния
+     */
+    public long appliedRecords() {
+        return appliedRecords.sum();
+    }
+
+    /**
+     * @return Количество полученных полных состояний
+     */
+    public long fullSyncs() {
+        return fullSyncs.sum();
+    }
+
+    /**
+     * Отключение от ведущего узла и возврат хранилищу возможности записи.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Socket current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                LOGGER.debug("Ошибка при закрытии соединения с ведущим узлом", e);
+            }
+        }
+        if (worker != null) {
+            worker.interrupt();
+            try {
+                worker.join(ReplicationProtocol.READ_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        connected = false;
+        service.setReadOnly(false);
+    }
+
+    private void run() {
+        while (!closed) {
+            try (Socket current = new Socket()) {
+                socket = current;
+                // Адрес разрешается при каждом подключении: ведущий узел может переехать на другой адрес
+                current.connect(new InetSocketAddress(leader.getHostString(), leader.getPort()),
+                        ReplicationProtocol.READ_TIMEOUT);
+                current.setTcpNoDelay(true);
+                current.setSoTimeout(ReplicationProtocol.READ_TIMEOUT);
+                replicate(current);
+            } catch (IOException e) {
+                if (!closed) {
+                    LOGGER.warn("Соединение с ведущим узлом {} потеряно: {}", leader, e.getMessage());
+                }
+            } finally {
+                connected = false;
+            }
+            if (!closed) {
+                try {
+                    Thread.sleep(reconnectDelay);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void replicate(Socket current) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(current.getInputStream(), 64 * 1024));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(current.getOutputStream()));
+        out.writeInt(ReplicationProtocol.MAGIC);
+        out.writeLong(runId);
+        out.writeLong(appliedSequence);
+        out.flush();
+
+        byte reply = in.readByte();
+        if (reply == ReplicationProtocol.FULL_SYNC) {
+            receiveSnapshot(in);
+        } else if (reply != ReplicationProtocol.CONTINUE) {
+            throw new IOException("Unexpected replication reply " + reply + ".");
+        } else {
+            LOGGER.info("Реплика продолжает с пакета {} ведущего узла {}", appliedSequence + 1, leader);
+        }
+        connected = true;
+        while (!closed) {
+            byte type = in.readByte();
+            switch (type) {
+                case ReplicationProtocol.BATCH -> applyBatch(in);
+                case ReplicationProtocol.HEARTBEAT -> {
+                    leaderSequence = in.readLong();
+                    in.readLong();
+                    if (appliedSequence == leaderSequence) {
+                        lag = 0;
+                    }
+                }
+                default -> throw new IOException("Unexpected replication message " + type + ".");
+            }
+        }
+    }
+
+    /**
+     * Применение полного состояния и удаление локальных ключей, которых в нём нет.
+     */
+    private void receiveSnapshot(DataInputStream in) throws IOException {
+        long leaderRunId = in.readLong();
+        Set<String> received = new HashSet<>();
+        while (true) {
+            byte type = in.readByte();
+            if (type == ReplicationProtocol.SNAPSHOT_END) {
+                break;
+            }
+            if (type != ReplicationProtocol.SNAPSHOT) {
+                throw new IOException("Unexpected replication message " + type + " in snapshot.");
+            }
+            ReplicationProtocol.readRecord(in, (key, entry) -> {
+                received.add(key);
+                service.applyReplicated(key, entry);
+                appliedRecords.increment();
+            });
+        }
+        long sequence = in.readLong();
+        List<String> stale = new ArrayList<>();
+        for (Iterator<Map.Entry<String, Tuple3<String, Long, Long>>> it = service.liveEntries(null, null); it.hasNext(); ) {
+            String key = it.next().getKey();
+            if (!received.contains(key)) {
+                stale.add(key);
+            }
+        }
+        stale.forEach(key -> service.applyReplicated(key, null));
+        runId = leaderRunId;
+        appliedSequence = sequence;
+        leaderSequence = sequence;
+        fullSyncs.increment();
+        LOGGER.info("Реплика получила полное состояние ведущего узла {}: {} записей на пакет {}, удалено {} ключей",
+                leader, received.size(), sequence, stale.size());
+    }
+
+    private void applyBatch(DataInputStream in) throws IOException {
+        long sequence = in.readLong();
+        long createdTime = in.readLong();
+        int count = in.readInt();
+        if (sequence != appliedSequence + 1) {
+            throw new IOException("Replication batch " + sequence + " does not follow " + appliedSequence + ".");
+        }
+        for (int i = 0; i < count; i++) {
+            ReplicationProtocol.readRecord(in, service::applyReplicated);
+        }
+        appliedRecords.add(count);
+        appliedSequence = sequence;
+        if (leaderSequence < sequence) {
+            leaderSequence = sequence;
+        }
+        lag = Math.max(0, System.currentTimeMillis() - createdTime);
+    }
+}
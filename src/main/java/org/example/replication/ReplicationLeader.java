@@ -0,0 +1,311 @@
+package org.example.replication;
+
+import org.example.service.MemoryStorageService;
+import org.example.storage.StorageEntry;
+import org.example.tuple.Tuple3;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ведущий узел репликации: передаёт изменения {@link MemoryStorageService} репликам по TCP.
+ * <p>
+ * Хранилище сообщает ключи изменённых записей; ключи копятся во множестве, поэтому повторные
+ * изменения ключа между пакетами передаются один раз. Фоновый поток раз в интервал забирает
+ * до {@code batchSize} ключей, читает их текущие записи (отсутствующая запись передаётся как
+ * удаление) и кодирует пакет один раз для всех реплик. Пакеты хранятся в
+ * {@link ReplicationBacklog}; каждую реплику обслуживает свой поток, который отправляет пакеты
+ * из очереди, поэтому медленная реплика не задерживает ни операции хранилища, ни другие реплики.
+ * Реплика, отставшая больше, чем хранит очередь, отключается и при переподключении получает
+ * полное состояние.
+ * <p>
+ * Передаётся состояние ключей, а не операции: пакет может содержать запись новее, чем была
+ * в момент изменения, но каждое изменение после чтения ключа попадает в один из следующих
+ * пакетов, поэтому реплики сходятся к состоянию ведущего узла.
+ */
+public class ReplicationLeader implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicationLeader.class);
+
+    private final MemoryStorageService service;
+    private final InetSocketAddress address;
+    private final int batchSize;
+    private final long batchInterval;
+    private final long runId;
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final ReplicationBacklog backlog;
+    private final Set<Socket> followers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger followerThreads = new AtomicInteger();
+
+    private final LongAdder shippedRecords = new LongAdder();
+    private final LongAdder fullSyncs = new LongAdder();
+
+    private ServerSocket server;
+    private Thread acceptor;
+    private Thread shipper;
+    private volatile boolean closed;
+
+    /**
+     * @param service       Сервис хранилища
+     * @param address       Адрес, на котором принимаются соединения реплик
+     * @param batchSize     Максимальное количество записей в пакете
+     * @param batchInterval Интервал формирования пакетов в миллисекундах
+     * @param backlogSize   Максимальный суммарный размер пакетов, хранимых для переподключения реплик, в байтах
+     */
+    public ReplicationLeader(MemoryStorageService service, InetSocketAddress address,
+                             int batchSize, long batchInterval, long backlogSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Parameter 'batchSize' must be positive.");
+        }
+        if (batchInterval <= 0) {
+            throw new IllegalArgumentException("Parameter 'batchInterval' must be positive.");
+        }
+        this.service = service;
+        this.address = address;
+        this.batchSize = batchSize;
+        this.batchInterval = batchInterval;
+        this.backlog = new ReplicationBacklog(backlogSize);
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);
+        this.runId = id;
+    }
+
+    /**
+     * Подписка на изменения хранилища, открытие порта и запуск фоновых потоков.
+     *
+     * @return Порт, на котором принимаются соединения реплик
+     */
+    public int start() throws IOException {
+        server = new ServerSocket();
+        try {
+            server.bind(address);
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+        service.setReplicationListener(dirty::add);
+        shipper = new Thread(this::ship, "replication-shipper");
+        shipper.setDaemon(true);
+        shipper.start();
+        acceptor = new Thread(this::accept, "replication-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        LOGGER.info("Ведущий узел репликации принимает реплики на {}", server.getLocalSocketAddress());
+        return getPort();
+    }
+
+    /**
+     * @return Порт, на котором принимаются соединения реплик
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * @return Номер последнего сформированного пакета
+     */
+    public long lastSequence() {
+        return backlog.lastSequence();
+    }
+
+    /**
+     * @return Количество подключённых реплик
+     */
+    public int followers() {
+        return followers.size();
+    }
+
+    /**
+     * @return Количество записей, переданных в пакетах
+     */
+    public long shippedRecords() {
+        return shippedRecords.sum();
+    }
+
+    /**
+     * @return Количество передач полного состояния репликам
+     */
+    public long fullSyncs() {
+        return fullSyncs.sum();
+    }
+
+    /**
+     * Остановка фоновых потоков и отключение реплик.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        service.setReplicationListener(null);
+        try {
+            if (server != null) {
+                server.close();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Ошибка при закрытии порта репликации", e);
+        }
+        if (shipper != null) {
+            shipper.interrupt();
+        }
+        followers.forEach(ReplicationLeader::closeQuietly);
+    }
+
+    private void accept() {
+        while (!closed) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                followers.add(socket);
+                Thread sender = new Thread(() -> serve(socket), "replication-sender-" + followerThreads.incrementAndGet());
+                sender.setDaemon(true);
+                sender.start();
+            } catch (IOException e) {
+                if (!closed) {
+                    LOGGER.error("Ошибка при приёме соединения реплики", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Формирование пакетов из накопленных ключей раз в интервал.
+     */
+    private void ship() {
+        try {
+            while (!closed) {
+                Thread.sleep(batchInterval);
+                while (!dirty.isEmpty()) {
+                    appendBatch();
+                }
+            }
+        } catch (InterruptedException e) {
+            // Ведущий узел остановлен
+        } catch (RuntimeException | IOException e) {
+            LOGGER.error("Ошибка формирования пакета репликации, передача изменений остановлена", e);
+        }
+    }
+
+    private void appendBatch() throws IOException {
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(records);
+        int count = 0;
+        for (Iterator<String> it = dirty.iterator(); it.hasNext() && count < batchSize; ) {
+            String key = it.next();
+            // Ключ удаляется до чтения записи: изменение после чтения снова добавит его в следующий пакет
+            it.remove();
+            ReplicationProtocol.writeRecord(out, key, service.replicationEntry(key));
+            count++;
+        }
+        if (count == 0) {
+            return;
+        }
+        long sequence = backlog.nextSequence();
+        ByteArrayOutputStream message = new ByteArrayOutputStream(records.size() + 21);
+        DataOutputStream header = new DataOutputStream(message);
+        header.writeByte(ReplicationProtocol.BATCH);
+        header.writeLong(sequence);
+        header.writeLong(System.currentTimeMillis());
+        header.writeInt(count);
+        records.writeTo(message);
+        backlog.append(new ReplicationBacklog.Frame(sequence, message.toByteArray()));
+        shippedRecords.add(count);
+    }
+
+    /**
+     * Обслуживание одной реплики: согласование начальной позиции и отправка пакетов.
+     */
+    private void serve(Socket socket) {
+        try (socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+            if (in.readInt() != ReplicationProtocol.MAGIC) {
+                throw new IOException("Not a replication handshake.");
+            }
+            long followerRunId = in.readLong();
+            long sequence = in.readLong();
+            if (followerRunId == runId && backlog.covers(sequence)) {
+                out.writeByte(ReplicationProtocol.CONTINUE);
+                LOGGER.info("Реплика {} продолжает с пакета {}", socket.getRemoteSocketAddress(), sequence + 1);
+            } else {
+                sequence = sendSnapshot(out);
+                LOGGER.info("Реплике {} передано полное состояние на пакет {}", socket.getRemoteSocketAddress(), sequence);
+            }
+            out.flush();
+            while (!closed) {
+                List<ReplicationBacklog.Frame> frames = backlog.after(sequence, ReplicationProtocol.HEARTBEAT_INTERVAL);
+                if (frames == null) {
+                    LOGGER.warn("Реплика {} отстала больше, чем хранит очередь пакетов, и будет отключена",
+                            socket.getRemoteSocketAddress());
+                    return;
+                }
+                if (frames.isEmpty()) {
+                    out.writeByte(ReplicationProtocol.HEARTBEAT);
+                    out.writeLong(sequence);
+                    out.writeLong(System.currentTimeMillis());
+                } else {
+                    for (ReplicationBacklog.Frame frame : frames) {
+                        out.write(frame.message());
+                        sequence = frame.sequence();
+                    }
+                }
+                out.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (SocketException e) {
+            LOGGER.debug("Соединение реплики закрыто: {}", e.getMessage());
+        } catch (IOException e) {
+            LOGGER.warn("Ошибка передачи изменений реплике {}", socket.getRemoteSocketAddress(), e);
+        } finally {
+            followers.remove(socket);
+        }
+    }
+
+    /**
+     * Передача всех живых записей. Номер пакета запоминается до обхода: изменения, сделанные во время
+     * обхода, попадают в следующие пакеты, и реплика применяет их после состояния.
+     *
+     * @return Номер пакета, с которого реплика продолжает
+     */
+    private long sendSnapshot(DataOutputStream out) throws IOException {
+        long sequence = backlog.lastSequence();
+        out.writeByte(ReplicationProtocol.FULL_SYNC);
+        out.writeLong(runId);
+        for (Iterator<Map.Entry<String, Tuple3<String, Long, Long>>> it = service.liveEntries(null, null); it.hasNext(); ) {
+            Map.Entry<String, Tuple3<String, Long, Long>> entry = it.next();
+            out.writeByte(ReplicationProtocol.SNAPSHOT);
+            ReplicationProtocol.writeRecord(out, entry.getKey(), StorageEntry.fromTuple(entry.getValue()));
+        }
+        out.writeByte(ReplicationProtocol.SNAPSHOT_END);
+        out.writeLong(sequence);
+        fullSyncs.increment();
+        return sequence;
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            LOGGER.debug("Ошибка при закрытии соединения реплики", e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.replication;
+
+import org.example.storage.StorageEntry;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Протокол репликации поверх TCP (числа — big-endian, как в {@link java.io.DataOutputStream}).
+ * <p>
+ * Реплика начинает соединение с {@link #MAGIC}, идентификатора запуска ведущего узла, от которого она
+ * получала изменения, и номера последнего применённого пакета. Если ведущий узел — тот же запуск
+ * и пакеты после этого номера ещё в очереди, он отвечает {@link #CONTINUE} и продолжает передачу
+ * с них. Иначе он отвечает {@link #FULL_SYNC} со своим идентификатором запуска, передаёт все живые
+ * записи сообщениями {@link #SNAPSHOT} и номер пакета, которому соответствует это состояние,
+ * сообщением {@link #SNAPSHOT_END}, после чего передаёт пакеты начиная со следующего.
+ * <p>
+ * Пакет изменений {@link #BATCH}: номер, время формирования на ведущем узле, количество записей
+ * и записи. Без изменений ведущий узел периодически отправляет {@link #HEARTBEAT} с номером
+ * последнего пакета и текущим временем.
+ * <p>
+ * Запись: тип ({@link #SET} или {@link #DELETE}) и ключ; для SET далее момент истечения срока
+ * жизни, TTL и значение. Строки передаются длиной в байтах и байтами UTF-8.
+ */
+final class ReplicationProtocol {
+
+    static final int MAGIC = 0x5245504C; // "REPL"
+
+    static final byte CONTINUE = 'C';
+    static final byte FULL_SYNC = 'F';
+    static final byte SNAPSHOT = 'S';
+    static final byte SNAPSHOT_END = 'E';
+    static final byte BATCH = 'B';
+    static final byte HEARTBEAT = 'H';
+
+    /** Интервал сообщений {@link #HEARTBEAT} без изменений в миллисекундах. */
+    static final long HEARTBEAT_INTERVAL = 500;
+
+    /** Время без сообщений, после которого реплика считает соединение потерянным, в миллисекундах. */
+    static final int READ_TIMEOUT = 10_000;
+
+    static final byte SET = 0;
+    static final byte DELETE = 1;
+
+    private ReplicationProtocol() {
+    }
+
+    /**
+     * @param entry Запись или {@code null} для удаления ключа
+     */
+    static void writeRecord(DataOutput out, String key, StorageEntry entry) throws IOException {
+        if (entry == null) {
+            out.writeByte(DELETE);
+            writeString(out, key);
+        } else {
+            out.writeByte(SET);
+            writeString(out, key);
+            out.writeLong(entry.expiresAt());
+            out.writeLong(entry.ttl());
+            writeString(out, entry.value());
+        }
+    }
+
+    /**
+     * Чтение записи и передача её получателю.
+     */
+    static void readRecord(DataInput in, RecordSink sink) throws IOException {
+        byte type = in.readByte();
+        String key = readString(in);
+        switch (type) {
+            case SET -> {
+                long expiresAt = in.readLong();
+                long ttl = in.readLong();
+                sink.accept(key, new StorageEntry(readString(in), expiresAt, ttl));
+            }
+            case DELETE -> sink.accept(key, null);
+            default -> throw new IOException("Unknown replication record type " + type + ".");
+        }
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Negative string length " + length + ".");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Получатель прочитанных записей.
+     */
+    @FunctionalInterface
+    interface RecordSink {
+        /**
+         * @param entry Запись или {@code null} для удаления ключа
+         */
+        void accept(String key, StorageEntry entry) throws IOException;
+    }
+}
@@ -0,0 +1,239 @@
+package org.example.resp;
+
+import org.example.service.MemoryStorageService;
+import org.example.service.ReadOnlyReplicaException;
+import org.example.service.ScanPage;
+import org.example.tuple.Tuple3;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Выполнение команд RESP над {@link MemoryStorageService}.
+ * Поддерживаются GET, SET (с PX или EX), DEL, MGET, PEXPIRE, PERSIST, PTTL, SCAN (с MATCH и COUNT),
+ * атомарные SETNX, GETSET, INCR, DECR, INCRBY и DECRBY, а также служебные PING, ECHO, QUIT и COMMAND,
+ * которые отправляют стандартные клиенты.
+ * TTL проверяется по тем же правилам, что и в REST; SET без срока использует TTL по умолчанию.
+ */
+final class RespCommands {
+
+    private static final int DEFAULT_SCAN_COUNT = 10;
+
+    private final MemoryStorageService service;
+    private final boolean blockingReads;
+    private final boolean blockingWrites;
+
+    RespCommands(MemoryStorageService service) {
+        this.service = service;
+        this.blockingReads = service.readsMayBlock();
+        this.blockingWrites = service.writesMayBlock();
+    }
+
+    /**
+     * @return true, если хотя бы одна команда может блокировать поток
+     */
+    boolean anyMayBlock() {
+        return blockingReads || blockingWrites;
+    }
+
+    /**
+     * Может ли команда надолго заблокировать поток: чтение при промахе ждёт источник значений,
+     * а запись при {@code storage.wal.fsync=always} — сброс журнала на диск.
+     *
+     * @param args Имя команды и аргументы
+     */
+    boolean mayBlock(List<String> args) {
+        if (!blockingReads && !blockingWrites) {
+            return false;
+        }
+        return switch (args.get(0).toUpperCase(Locale.ROOT)) {
+            case "GET", "MGET" -> blockingReads;
+            case "SET", "DEL", "PEXPIRE", "PERSIST", "SETNX", "GETSET", "INCR", "DECR", "INCRBY", "DECRBY" -> blockingWrites;
+            default -> false;
+        };
+    }
+
+    /**
+     * @param args Имя команды и аргументы
+     * @param out  Буфер ответов
+     * @return false, если после ответа соединение нужно закрыть
+     */
+    boolean execute(List<String> args, RespWriter out) {
+        String name = args.get(0).toUpperCase(Locale.ROOT);
+        try {
+            switch (name) {
+                case "GET" -> {
+                    if (arity(args, 2, 2, out)) {
+                        Tuple3<String, Long, Long> entry = service.getEntry(args.get(1));
+                        out.bulk(entry == null ? null : entry.value());
+                    }
+                }
+                case "SET" -> set(args, out);
+                case "DEL" -> {
+                    if (arity(args, 2, Integer.MAX_VALUE, out)) {
+                        out.integer(delete(args));
+                    }
+                }
+                case "MGET" -> {
+                    if (arity(args, 2, Integer.MAX_VALUE, out)) {
+                        List<String> keys = args.subList(1, args.size());
+                        Map<String, Tuple3<String, Long, Long>> entries = service.multiGet(keys);
+                        out.arrayHeader(keys.size());
+                        for (String key : keys) {
+                            Tuple3<String, Long, Long> entry = entries.get(key);
+                            out.bulk(entry == null ? null : entry.value());
+                        }
+                    }
+                }
+                case "PEXPIRE" -> {
+                    if (arity(args, 3, 3, out)) {
+                        out.integer(service.expire(args.get(1), parseLong(args.get(2))) ? 1 : 0);
+                    }
+                }
+                case "PERSIST" -> {
+                    if (arity(args, 2, 2, out)) {
+                        out.integer(service.persist(args.get(1)) ? 1 : 0);
+                    }
+                }
+                case "PTTL" -> {
+                    if (arity(args, 2, 2, out)) {
+                        Long ttl = service.getTtl(args.get(1));
+                        out.integer(ttl == null ? -2 : ttl);
+                    }
+                }
+                case "SETNX" -> {
+                    if (arity(args, 3, 3, out)) {
+                        out.integer(service.setIfAbsent(args.get(1), args.get(2), null) ? 1 : 0);
+                    }
+                }
+                case "GETSET" -> {
+                    if (arity(args, 3, 3, out)) {
+                        Tuple3<String, Long, Long> previous = service.getAndSet(args.get(1), args.get(2), null);
+                        out.bulk(previous == null ? null : previous.value());
+                    }
+                }
+                case "INCR", "DECR" -> {
+                    if (arity(args, 2, 2, out)) {
+                        out.integer(service.increment(args.get(1), name.equals("INCR") ? 1 : -1, null));
+                    }
+                }
+                case "INCRBY", "DECRBY" -> {
+                    if (arity(args, 3, 3, out)) {
+                        long delta = parseLong(args.get(2));
+                        if (name.equals("DECRBY") && delta == Long.MIN_VALUE) {
+                            throw new IllegalArgumentException("decrement would overflow");
+                        }
+                        out.integer(service.increment(args.get(1), name.equals("INCRBY") ? delta : -delta, null));
+                    }
+                }
+                case "SCAN" -> scan(args, out);
+                case "PING" -> {
+                    if (args.size() > 1) {
+                        out.bulk(args.get(1));
+                    } else {
+                        out.simple("PONG");
+                    }
+                }
+                case "ECHO" -> {
+                    if (arity(args, 2, 2, out)) {
+                        out.bulk(args.get(1));
+                    }
+                }
+                case "COMMAND" -> out.arrayHeader(0);
+                case "QUIT" -> {
+                    out.ok();
+                    return false;
+                }
+                default -> out.error("ERR unknown command '" + args.get(0) + "'");
+            }
+        } catch (IllegalArgumentException e) {
+            out.error("ERR " + e.getMessage());
+        } catch (ReadOnlyReplicaException e) {
+            out.error("READONLY You can't write against a read only replica.");
+        } catch (RuntimeException e) {
+            out.error("ERR " + e);
+        }
+        return true;
+    }
+
+    private void set(List<String> args, RespWriter out) {
+        if (args.size() != 3 && args.size() != 5) {
+            out.error("ERR syntax error");
+            return;
+        }
+        Long ttl = null;
+        if (args.size() == 5) {
+            String unit = args.get(3).toUpperCase(Locale.ROOT);
+            long amount = parseLong(args.get(4));
+            if (unit.equals("PX")) {
+                ttl = amount;
+            } else if (unit.equals("EX")) {
+                ttl = Math.multiplyExact(amount, 1000L);
+            } else {
+                out.error("ERR syntax error");
+                return;
+            }
+        }
+        if (service.set(args.get(1), args.get(2), ttl)) {
+            out.ok();
+        } else {
+            out.error("ERR failed to store the value");
+        }
+    }
+
+    private long delete(List<String> args) {
+        if (args.size() == 2) {
+            return service.remove(args.get(1)) == null ? 0 : 1;
+        }
+        long removed = 0;
+        for (Tuple3<String, Long, Long> entry : service.multiRemove(args.subList(1, args.size())).values()) {
+            if (entry != null) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private void scan(List<String> args, RespWriter out) {
+        if (args.size() < 2 || args.size() % 2 != 0) {
+            out.error("ERR syntax error");
+            return;
+        }
+        String match = null;
+        int count = DEFAULT_SCAN_COUNT;
+        for (int i = 2; i < args.size(); i += 2) {
+            switch (args.get(i).toUpperCase(Locale.ROOT)) {
+                case "MATCH" -> match = args.get(i + 1);
+                case "COUNT" -> count = (int) Math.min(Integer.MAX_VALUE, parseLong(args.get(i + 1)));
+                default -> {
+                    out.error("ERR syntax error");
+                    return;
+                }
+            }
+        }
+        ScanPage page = service.scan(args.get(1), count, null, match);
+        out.arrayHeader(2);
+        out.bulk(page.cursor());
+        out.arrayHeader(page.entries().size());
+        for (String key : page.entries().keySet()) {
+            out.bulk(key);
+        }
+    }
+
+    private static boolean arity(List<String> args, int min, int max, RespWriter out) {
+        if (args.size() < min || args.size() > max) {
+            out.error("ERR wrong number of arguments for '" + args.get(0).toLowerCase(Locale.ROOT) + "' command");
+            return false;
+        }
+        return true;
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("value is not an integer or out of range");
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package org.example.resp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Соединение RESP, обслуживаемое одним потоком ввода-вывода.
+ * Все команды, полученные одним чтением из сокета (конвейер), выполняются подряд, ответы копятся
+ * в {@link RespWriter} и отправляются вместе. Если клиент не успевает читать ответы, разбор
+ * приостанавливается до отправки накопленного, а чтение из сокета — до освобождения буфера команд.
+ * Буфер команд растёт удвоением по мере поступления байтов, а не сразу до объявленной в заголовке длины,
+ * поэтому короткий заголовок с огромной длиной не выделяет память; команда длиннее
+ * {@code storage.resp.max-request-size} отклоняется с закрытием соединения.
+ * <p>
+ * Команда, которая может надолго заблокировать поток (чтение с загрузкой из источника, запись с ожиданием
+ * сброса журнала), выполняется в пуле обработчиков, чтобы не задерживать остальные соединения потока
+ * ввода-вывода. Пока она выполняется, соединение не читает и не разбирает следующие команды, поэтому
+ * ответы конвейера остаются в порядке команд; ответ возвращается в поток ввода-вывода и отправляется им.
+ */
+final class RespConnection {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+    /** Объём неотправленных ответов, после которого разбор конвейера приостанавливается. */
+    private static final int MAX_PENDING_OUTPUT = 1024 * 1024;
+
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final RespCommands commands;
+    private final int maxRequestSize;
+    private final Executor worker;
+    private final Consumer<Runnable> loop;
+    private final RespWriter out = new RespWriter(BUFFER_SIZE);
+    private final List<String> args = new ArrayList<>();
+    private ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+    private boolean closing;
+    /** Команда выполняется в пуле обработчиков. */
+    private boolean suspended;
+
+    /**
+     * @param worker Пул обработчиков блокирующих команд или {@code null}, если все команды выполняются в потоке ввода-вывода
+     * @param loop   Передача действия в поток ввода-вывода соединения
+     */
+    RespConnection(SocketChannel channel, SelectionKey key, RespCommands commands, int maxRequestSize,
+                   Executor worker, Consumer<Runnable> loop) {
+        this.channel = channel;
+        this.key = key;
+        this.commands = commands;
+        this.maxRequestSize = maxRequestSize;
+        this.worker = worker;
+        this.loop = loop;
+    }
+
+    /**
+     * Обработка готовности сокета к чтению.
+     */
+    void onReadable() throws IOException {
+        int read = channel.read(in);
+        if (read < 0) {
+            close();
+            return;
+        }
+        process();
+    }
+
+    /**
+     * Обработка готовности сокета к записи: отправка накопленных ответов и продолжение разбора.
+     */
+    void onWritable() throws IOException {
+        if (out.flush(channel)) {
+            if (closing) {
+                close();
+                return;
+            }
+            process();
+        }
+    }
+
+    void close() {
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Соединение уже закрыто клиентом
+        }
+    }
+
+    private void process() throws IOException {
+        while (true) {
+            boolean incomplete = executeReceived();
+            boolean flushed = out.flush(channel);
+            if (suspended) {
+                // Ответы до блокирующей команды отправляются, пока она выполняется; новые команды не читаются.
+                key.interestOps(flushed ? 0 : SelectionKey.OP_WRITE);
+                return;
+            }
+            if (flushed && closing) {
+                close();
+                return;
+            }
+            if (!flushed) {
+                // Пока ответы не отправлены, новые команды не читаются.
+                key.interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+            if (incomplete) {
+                key.interestOps(SelectionKey.OP_READ);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Выполнение полностью полученных команд из буфера.
+     *
+     * @return true, если разбор остановлен на не полностью полученной команде,
+     * false — если он приостановлен из-за объёма неотправленных ответов
+     */
+    private boolean executeReceived() {
+        in.flip();
+        int missing = 0;
+        try {
+            while (!closing && !suspended && out.pending() < MAX_PENDING_OUTPUT) {
+                missing = RespParser.parse(in, args);
+                if (missing != 0) {
+                    break;
+                }
+                if (args.isEmpty()) {
+                    continue;
+                }
+                if (worker != null && commands.mayBlock(args)) {
+                    offload(new ArrayList<>(args));
+                } else if (!commands.execute(args, out)) {
+                    closing = true;
+                }
+            }
+        } catch (RespProtocolException e) {
+            out.error("ERR Protocol error: " + e.getMessage());
+            closing = true;
+        } finally {
+            in.compact();
+        }
+        if (missing != 0 && !closing) {
+            // Команда не короче уже полученных байтов и недостающих байтов текущего аргумента.
+            long required = in.position() + (long) Math.max(missing, 1);
+            if (required > maxRequestSize) {
+                out.error("ERR Protocol error: request is larger than " + maxRequestSize + " bytes");
+                closing = true;
+                return false;
+            }
+            if (!in.hasRemaining()) {
+                // Буфер заполнен полученными байтами: удваивается, но не больше, чем нужно команде.
+                grow((int) Math.min(in.capacity() * 2L, missing > 0 ? required : maxRequestSize));
+            }
+        } else if (in.position() == 0 && in.capacity() > BUFFER_SIZE) {
+            in = ByteBuffer.allocate(BUFFER_SIZE);
+        }
+        return missing != 0;
+    }
+
+    /**
+     * Выполнение команды в пуле обработчиков. Ответ пишется в отдельный буфер и добавляется
+     * к ответам соединения в потоке ввода-вывода.
+     */
+    private void offload(List<String> command) {
+        suspended = true;
+        try {
+            worker.execute(() -> {
+                RespWriter reply = new RespWriter(256);
+                boolean keepOpen = commands.execute(command, reply);
+                loop.accept(() -> resume(reply, keepOpen));
+            });
+        } catch (RejectedExecutionException e) {
+            suspended = false;
+            out.error("ERR server is shutting down");
+            closing = true;
+        }
+    }
+
+    /**
+     * Продолжение обработки соединения в потоке ввода-вывода после выполнения команды в пуле обработчиков.
+     */
+    private void resume(RespWriter reply, boolean keepOpen) {
+        if (!key.isValid()) {
+            return;
+        }
+        suspended = false;
+        out.append(reply);
+        if (!keepOpen) {
+            closing = true;
+        }
+        try {
+            process();
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    private void grow(int capacity) {
+        ByteBuffer larger = ByteBuffer.allocate(capacity);
+        in.flip();
+        in = larger.put(in);
+    }
+}
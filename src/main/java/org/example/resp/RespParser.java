@@ -0,0 +1,163 @@
+package org.example.resp;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Разбор команд RESP из буфера соединения: массивы bulk-строк ({@code *2\r\n$3\r\nGET\r\n$1\r\nk\r\n})
+ * и inline-команды через пробел ({@code PING\r\n}), которые отправляют telnet и redis-cli.
+ * Сначала проверяется, что команда получена целиком (по заголовкам и длинам, без декодирования),
+ * и только затем аргументы декодируются, поэтому частично полученная большая команда
+ * не разбирается заново при каждом чтении из сокета.
+ */
+final class RespParser {
+
+    /** Максимальная длина inline-команды и строки заголовка. */
+    static final int MAX_INLINE_LENGTH = 64 * 1024;
+    /** Максимальное количество аргументов команды. */
+    static final int MAX_ARGUMENTS = 1024 * 1024;
+    /**
+     * Максимальная длина bulk-строки, как {@code proto-max-bulk-len} в Redis. Команда ещё ограничена
+     * размером {@code storage.resp.max-request-size}, который проверяет соединение.
+     */
+    static final int MAX_BULK_LENGTH = 512 * 1024 * 1024;
+
+    private RespParser() {
+    }
+
+    /**
+     * Разбирает одну команду, начиная с текущей позиции буфера.
+     *
+     * @param in   Буфер в режиме чтения
+     * @param args Список, в который добавляются аргументы команды; очищается перед разбором
+     * @return Количество байтов, которых не хватает для полного заголовка или аргумента
+     * ({@code 0} — команда разобрана, позиция буфера перемещена за неё;
+     * {@code -1} — не хватает неизвестного количества байтов; позиция в обоих случаях не меняется)
+     * @throws RespProtocolException если данные не соответствуют протоколу
+     */
+    static int parse(ByteBuffer in, List<String> args) throws RespProtocolException {
+        args.clear();
+        if (!in.hasRemaining()) {
+            return -1;
+        }
+        return in.get(in.position()) == '*' ? parseArray(in, args) : parseInline(in, args);
+    }
+
+    private static int parseArray(ByteBuffer in, List<String> args) throws RespProtocolException {
+        int start = in.position();
+        int limit = in.limit();
+        int lineEnd = lineEnd(in, start);
+        if (lineEnd < 0) {
+            return -1;
+        }
+        long count = parseLong(in, start + 1, lineEnd);
+        if (count > MAX_ARGUMENTS) {
+            throw new RespProtocolException("invalid multibulk length");
+        }
+        int position = lineEnd + 2;
+        // Первый проход: команда должна быть получена целиком.
+        for (long i = 0; i < count; i++) {
+            if (position >= limit) {
+                return -1;
+            }
+            if (in.get(position) != '$') {
+                throw new RespProtocolException("expected '$', got '" + (char) in.get(position) + "'");
+            }
+            lineEnd = lineEnd(in, position);
+            if (lineEnd < 0) {
+                return -1;
+            }
+            long length = parseLong(in, position + 1, lineEnd);
+            if (length < 0 || length > MAX_BULK_LENGTH) {
+                throw new RespProtocolException("invalid bulk length");
+            }
+            long end = lineEnd + 2L + length + 2;
+            if (end > limit) {
+                return (int) Math.min(Integer.MAX_VALUE, end - limit);
+            }
+            position = (int) end;
+        }
+        // Второй проход: декодирование аргументов.
+        position = lineEnd(in, start) + 2;
+        for (long i = 0; i < count; i++) {
+            lineEnd = lineEnd(in, position);
+            int length = (int) parseLong(in, position + 1, lineEnd);
+            args.add(decode(in, lineEnd + 2, length));
+            position = lineEnd + 2 + length + 2;
+        }
+        in.position(position);
+        return 0;
+    }
+
+    private static int parseInline(ByteBuffer in, List<String> args) throws RespProtocolException {
+        int start = in.position();
+        int newline = -1;
+        for (int i = start; i < in.limit(); i++) {
+            if (in.get(i) == '\n') {
+                newline = i;
+                break;
+            }
+        }
+        if (newline < 0) {
+            if (in.limit() - start > MAX_INLINE_LENGTH) {
+                throw new RespProtocolException("too big inline request");
+            }
+            return -1;
+        }
+        int end = newline > start && in.get(newline - 1) == '\r' ? newline - 1 : newline;
+        int tokenStart = -1;
+        for (int i = start; i <= end; i++) {
+            boolean space = i == end || in.get(i) == ' ' || in.get(i) == '\t';
+            if (space && tokenStart >= 0) {
+                args.add(decode(in, tokenStart, i - tokenStart));
+                tokenStart = -1;
+            } else if (!space && tokenStart < 0) {
+                tokenStart = i;
+            }
+        }
+        in.position(newline + 1);
+        return 0;
+    }
+
+    /**
+     * @return Позиция {@code \r} в конце строки, начинающейся с {@code from}, или {@code -1}, если строка не получена
+     */
+    private static int lineEnd(ByteBuffer in, int from) throws RespProtocolException {
+        int limit = Math.min(in.limit() - 1, from + MAX_INLINE_LENGTH);
+        for (int i = from; i < limit; i++) {
+            if (in.get(i) == '\r' && in.get(i + 1) == '\n') {
+                return i;
+            }
+        }
+        if (in.limit() - from > MAX_INLINE_LENGTH) {
+            throw new RespProtocolException("too big header line");
+        }
+        return -1;
+    }
+
+    private static long parseLong(ByteBuffer in, int from, int to) throws RespProtocolException {
+        if (from == to) {
+            throw new RespProtocolException("invalid length");
+        }
+        boolean negative = in.get(from) == '-';
+        long value = 0;
+        for (int i = negative ? from + 1 : from; i < to; i++) {
+            byte digit = in.get(i);
+            if (digit < '0' || digit > '9' || value > Integer.MAX_VALUE) {
+                throw new RespProtocolException("invalid length");
+            }
+            value = value * 10 + (digit - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    private static String decode(ByteBuffer in, int from, int length) {
+        if (in.hasArray()) {
+            return new String(in.array(), in.arrayOffset() + from, length, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[length];
+        in.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,13 @@
+package org.example.resp;
+
+import java.io.IOException;
+
+/**
+ * Нарушение протокола RESP клиентом; после ответа с ошибкой соединение закрывается.
+ */
+class RespProtocolException extends IOException {
+
+    RespProtocolException(String message) {
+        super(message);
+    }
+}
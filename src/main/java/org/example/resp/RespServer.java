@@ -0,0 +1,268 @@
+package org.example.resp;
+
+import org.example.service.MemoryStorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Неблокирующий сервер подмножества протокола Redis (RESP2) поверх {@link MemoryStorageService}.
+ * Соединения распределяются по кругу между потоками ввода-вывода; каждый поток обслуживает свои
+ * соединения через собственный {@link Selector} и выполняет команды сам, без передачи в другой пул,
+ * поэтому команда не ждёт переключения потоков. Исключение — команды, которые могут блокировать поток:
+ * чтения при заданном источнике значений и записи при {@code storage.wal.fsync=always}. Они выполняются
+ * в пуле обработчиков ({@code storage.resp.worker-threads}), чтобы загрузка одного ключа или сброс журнала
+ * не задерживали остальные соединения потока ввода-вывода.
+ */
+public class RespServer implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RespServer.class);
+    /** Максимальный размер одной команды по умолчанию. */
+    public static final int DEFAULT_MAX_REQUEST_SIZE = 64 * 1024 * 1024;
+    /** Количество обработчиков блокирующих команд по умолчанию. */
+    public static final int DEFAULT_WORKER_THREADS = 16;
+
+    private final RespCommands commands;
+    private final InetSocketAddress address;
+    private final EventLoop[] loops;
+    private final int maxRequestSize;
+    private final ExecutorService workers;
+    private ServerSocketChannel server;
+    private int nextLoop;
+
+    /**
+     * @param service   Сервис хранилища
+     * @param address   Адрес, на котором принимаются соединения
+     * @param ioThreads Количество потоков ввода-вывода
+     */
+    public RespServer(MemoryStorageService service, InetSocketAddress address, int ioThreads) {
+        this(service, address, ioThreads, DEFAULT_MAX_REQUEST_SIZE, DEFAULT_WORKER_THREADS);
+    }
+
+    /**
+     * @param service        Сервис хранилища
+     * @param address        Адрес, на котором принимаются соединения
+     * @param ioThreads      Количество потоков ввода-вывода
+     * @param maxRequestSize Максимальный размер одной команды в байтах; больше неё соединение не буферизует
+     * @param workerThreads  Количество обработчиков блокирующих команд; пул создаётся, только если
+     *                       сервис может блокировать чтения или записи
+     */
+    public RespServer(MemoryStorageService service, InetSocketAddress address, int ioThreads, int maxRequestSize,
+                      int workerThreads) {
+        if (ioThreads <= 0) {
+            throw new IllegalArgumentException("Parameter 'ioThreads' must be positive.");
+        }
+        if (maxRequestSize <= 0) {
+            throw new IllegalArgumentException("Parameter 'maxRequestSize' must be positive.");
+        }
+        if (workerThreads <= 0) {
+            throw new IllegalArgumentException("Parameter 'workerThreads' must be positive.");
+        }
+        this.commands = new RespCommands(service);
+        this.address = address;
+        this.loops = new EventLoop[ioThreads];
+        this.maxRequestSize = maxRequestSize;
+        if (commands.anyMayBlock()) {
+            AtomicInteger threads = new AtomicInteger();
+            workers = Executors.newFixedThreadPool(workerThreads, r -> {
+                Thread th = new Thread(r, "resp-worker-" + threads.getAndIncrement());
+                th.setDaemon(true);
+                return th;
+            });
+        } else {
+            workers = null;
+        }
+    }
+
+    /**
+     * Открытие порта и запуск потоков ввода-вывода.
+     *
+     * @return Порт, на котором принимаются соединения
+     */
+    public int start() throws IOException {
+        server = ServerSocketChannel.open();
+        try {
+            server.bind(address, 1024);
+            server.configureBlocking(false);
+            for (int i = 0; i < loops.length; i++) {
+                loops[i] = new EventLoop(Selector.open());
+            }
+            server.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        for (int i = 0; i < loops.length; i++) {
+            Thread thread = new Thread(loops[i], "resp-io-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        LOGGER.info("Сервер RESP принимает соединения на {}", server.getLocalAddress());
+        return getPort();
+    }
+
+    /**
+     * @return Порт, на котором принимаются соединения
+     */
+    public int getPort() {
+        return ((InetSocketAddress) server.socket().getLocalSocketAddress()).getPort();
+    }
+
+    /**
+     * Остановка сервера и закрытие всех соединений.
+     */
+    @Override
+    public void close() {
+        try {
+            if (server != null) {
+                server.close();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Ошибка при закрытии порта сервера RESP", e);
+        }
+        for (EventLoop loop : loops) {
+            if (loop != null) {
+                loop.close();
+            }
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            EventLoop loop = loops[nextLoop];
+            nextLoop = (nextLoop + 1) % loops.length;
+            loop.register(channel);
+        }
+    }
+
+    /**
+     * Поток ввода-вывода со своим набором соединений.
+     */
+    private final class EventLoop implements Runnable {
+
+        private final Selector selector;
+        private final Queue<SocketChannel> accepted = new ConcurrentLinkedQueue<>();
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        EventLoop(Selector selector) {
+            this.selector = selector;
+        }
+
+        /**
+         * Передача принятого соединения потоку: регистрация в селекторе выполняется его собственным потоком.
+         */
+        void register(SocketChannel channel) {
+            accepted.add(channel);
+            selector.wakeup();
+        }
+
+        /**
+         * Выполнение действия в потоке ввода-вывода (ответ команды, выполненной в пуле обработчиков).
+         */
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        void close() {
+            try {
+                for (SelectionKey key : selector.keys()) {
+                    key.channel().close();
+                }
+                selector.close();
+            } catch (IOException | ClosedSelectorException e) {
+                LOGGER.debug("Ошибка при закрытии соединений RESP", e);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (selector.isOpen()) {
+                    selector.select();
+                    registerAccepted();
+                    runTasks();
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        try {
+                            handle(key);
+                        } catch (CancelledKeyException ignored) {
+                            // Соединение закрыто при остановке сервера во время обработки
+                        }
+                    }
+                }
+            } catch (ClosedSelectorException e) {
+                // Сервер остановлен
+            } catch (IOException e) {
+                LOGGER.error("Ошибка потока ввода-вывода сервера RESP", e);
+            }
+        }
+
+        private void registerAccepted() throws IOException {
+            SocketChannel channel;
+            while ((channel = accepted.poll()) != null) {
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                key.attach(new RespConnection(channel, key, commands, maxRequestSize, workers, this::execute));
+            }
+        }
+
+        private void runTasks() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (CancelledKeyException ignored) {
+                    // Соединение закрыто, пока команда выполнялась
+                }
+            }
+        }
+
+        private void handle(SelectionKey key) {
+            if (!key.isValid()) {
+                return;
+            }
+            if (key.isAcceptable()) {
+                try {
+                    accept();
+                } catch (IOException e) {
+                    LOGGER.warn("Ошибка при приёме соединения RESP", e);
+                }
+                return;
+            }
+            RespConnection connection = (RespConnection) key.attachment();
+            try {
+                if (key.isReadable()) {
+                    connection.onReadable();
+                } else if (key.isWritable()) {
+                    connection.onWritable();
+                }
+            } catch (IOException e) {
+                LOGGER.debug("Соединение RESP закрыто: {}", e.getMessage());
+                connection.close();
+            }
+        }
+    }
+}
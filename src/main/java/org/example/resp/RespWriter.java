@@ -0,0 +1,128 @@
+package org.example.resp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Буфер ответов соединения RESP. Ответы на конвейер команд накапливаются в одном буфере
+ * и отправляются одной записью в сокет; буфер переиспользуется и растёт только под большие ответы.
+ */
+final class RespWriter {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] NULL_BULK = "$-1\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] OK = "+OK\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final int initialCapacity;
+    private final byte[] digits = new byte[20];
+    private ByteBuffer buffer;
+
+    RespWriter(int initialCapacity) {
+        this.initialCapacity = initialCapacity;
+        this.buffer = ByteBuffer.allocate(initialCapacity);
+    }
+
+    void ok() {
+        ensure(OK.length).put(OK);
+    }
+
+    void simple(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensure(bytes.length + 3).put((byte) '+').put(bytes).put(CRLF);
+    }
+
+    void error(String message) {
+        byte[] bytes = message.replace('\r', ' ').replace('\n', ' ').getBytes(StandardCharsets.UTF_8);
+        ensure(bytes.length + 3).put((byte) '-').put(bytes).put(CRLF);
+    }
+
+    void integer(long value) {
+        header(':', value);
+    }
+
+    /**
+     * @param value Значение или {@code null} для пустой bulk-строки ({@code $-1})
+     */
+    void bulk(String value) {
+        if (value == null) {
+            ensure(NULL_BULK.length).put(NULL_BULK);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        header('$', bytes.length);
+        ensure(bytes.length + 2).put(bytes).put(CRLF);
+    }
+
+    void arrayHeader(int size) {
+        header('*', size);
+    }
+
+    /**
+     * Добавление ответов, накопленных в другом буфере.
+     */
+    void append(RespWriter other) {
+        other.buffer.flip();
+        ensure(other.buffer.remaining()).put(other.buffer);
+        other.buffer.clear();
+    }
+
+    /**
+     * @return Количество байтов, ожидающих отправки
+     */
+    int pending() {
+        return buffer.position();
+    }
+
+    /**
+     * Отправка накопленных ответов без блокировки.
+     *
+     * @return true, если все ответы отправлены
+     */
+    boolean flush(WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.write(buffer) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            buffer.compact();
+            if (buffer.position() == 0 && buffer.capacity() > initialCapacity * 16) {
+                // После большого ответа буфер возвращается к исходному размеру.
+                buffer = ByteBuffer.allocate(initialCapacity);
+            }
+        }
+    }
+
+    private void header(char type, long value) {
+        ByteBuffer out = ensure(digits.length + 3);
+        out.put((byte) type);
+        if (value < 0) {
+            out.put((byte) '-');
+            value = -value;
+        }
+        int length = 0;
+        do {
+            digits[length++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        while (length > 0) {
+            out.put(digits[--length]);
+        }
+        out.put(CRLF);
+    }
+
+    private ByteBuffer ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+            ByteBuffer larger = ByteBuffer.allocate(capacity);
+            buffer.flip();
+            buffer = larger.put(buffer);
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.service;
+
+/**
+ * Запись пакетной операции сохранения.
+ *
+ * @param key   Ключ записи
+ * @param value Значение
+ * @param ttl   Время жизни записи в миллисекундах или {@code null} для TTL по умолчанию
+ */
+public record BatchEntry(String key, String value, Long ttl) {
+}
@@ -0,0 +1,19 @@
+package org.example.service;
+
+/**
+ * Счётчики обращений к хранилищу.
+ *
+ * @param hits      Количество чтений, нашедших запись
+ * @param misses    Количество чтений, не нашедших запись
+ * @param evictions Количество записей, вытесненных при превышении ограничений хранилища
+ */
+public record CacheStats(long hits, long misses, long evictions) {
+
+    /**
+     * @return Доля успешных чтений или {@code 1.0}, если чтений не было
+     */
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+}
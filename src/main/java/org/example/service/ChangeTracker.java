@@ -0,0 +1,66 @@
+package org.example.service;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Набор ключей, изменённых после последнего сохранения состояния, для инкрементальных файлов состояния.
+ * Учёт включается первым сохранением состояния; до этого отметка изменения — одно чтение volatile-поля.
+ * Отметка не блокирует операцию: ключ добавляется в конкурентный набор, который сохранение
+ * атомарно заменяет новым и затем обходит.
+ */
+final class ChangeTracker {
+
+    private volatile Set<String> changed;
+
+    /**
+     * Отметка изменения ключа. Операция применяется к хранилищу до отметки, поэтому сохранение,
+     * прочитавшее запись по отмеченному ключу, видит это изменение. Если набор заменили во время
+     * отметки, ключ добавляется и в новый набор: старый набор мог быть уже обойдён.
+     */
+    void mark(String key) {
+        Set<String> current = changed;
+        if (current == null) {
+            return;
+        }
+        current.add(key);
+        Set<String> next = changed;
+        if (next != current) {
+            next.add(key);
+        }
+    }
+
+    /**
+     * Начало сохранения: текущий набор заменяется пустым, учёт включается, если был выключен.
+     *
+     * @return Ключи, изменённые после предыдущего сохранения, или {@code null}, если учёт был выключен
+     */
+    Set<String> reset() {
+        Set<String> current = changed;
+        changed = ConcurrentHashMap.newKeySet();
+        return current;
+    }
+
+    /**
+     * Возврат ключей неудавшегося сохранения, чтобы они вошли в следующее.
+     * Если учёт был выключен до сохранения, он снова выключается: без успешно сохранённого полного файла
+     * инкрементальное сохранение невозможно.
+     *
+     * @param keys Результат {@link #reset()}, вызванного в начале сохранения
+     */
+    void restore(Set<String> keys) {
+        if (keys == null) {
+            changed = null;
+        } else {
+            changed.addAll(keys);
+        }
+    }
+
+    /**
+     * @return Количество ключей, изменённых после последнего сохранения
+     */
+    int size() {
+        Set<String> current = changed;
+        return current == null ? 0 : current.size();
+    }
+}
@@ -0,0 +1,18 @@
+package org.example.service;
+
+/**
+ * Размер значений, хранимых в компактном виде.
+ *
+ * @param rawSize      Суммарная длина значений до сжатия и дедупликации
+ * @param storedSize   Суммарный размер данных значений после сжатия и дедупликации в байтах
+ * @param sharedValues Количество различных значений в таблице дедупликации
+ */
+public record CodecStats(long rawSize, long storedSize, int sharedValues) {
+
+    /**
+     * @return Доля памяти значений, сэкономленная кодеком, или {@code 0.0}, если значений нет
+     */
+    public double savedRatio() {
+        return rawSize == 0 ? 0.0 : 1.0 - (double) storedSize / rawSize;
+    }
+}
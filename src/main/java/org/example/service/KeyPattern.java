@@ -0,0 +1,106 @@
+package org.example.service;
+
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Фильтр ключей по префиксу и шаблону в стиле glob, как MATCH в команде SCAN Redis:
+ * {@code *} — любая последовательность символов, {@code ?} — один символ,
+ * {@code [abc]}, {@code [a-z]}, {@code [^a]} — символ из набора, {@code \} экранирует следующий символ.
+ * Шаблоны без спецсимволов и вида {@code prefix*} проверяются без регулярных выражений.
+ */
+final class KeyPattern {
+
+    private static final Predicate<String> ANY = key -> true;
+
+    private KeyPattern() {
+    }
+
+    /**
+     * @param prefix Префикс ключа или {@code null}
+     * @param match  Шаблон ключа или {@code null}
+     * @return Фильтр, пропускающий ключи, которые удовлетворяют обоим условиям
+     * @throws IllegalArgumentException если шаблон некорректен
+     */
+    static Predicate<String> compile(String prefix, String match) {
+        Predicate<String> byPattern = compile(match);
+        if (prefix == null || prefix.isEmpty()) {
+            return byPattern;
+        }
+        return byPattern == ANY ? key -> key.startsWith(prefix) : key -> key.startsWith(prefix) && byPattern.test(key);
+    }
+
+    private static Predicate<String> compile(String match) {
+        if (match == null || match.isEmpty() || match.equals("*")) {
+            return ANY;
+        }
+        int special = indexOfSpecial(match);
+        if (special < 0) {
+            return match::equals;
+        }
+        if (special == match.length() - 1 && match.charAt(special) == '*') {
+            String prefix = match.substring(0, special);
+            return key -> key.startsWith(prefix);
+        }
+        Pattern pattern = Pattern.compile(toRegex(match), Pattern.DOTALL);
+        return key -> pattern.matcher(key).matches();
+    }
+
+    private static int indexOfSpecial(String match) {
+        for (int i = 0; i < match.length(); i++) {
+            char c = match.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '\\') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String toRegex(String match) {
+        StringBuilder regex = new StringBuilder(match.length() + 16);
+        for (int i = 0; i < match.length(); i++) {
+            char c = match.charAt(i);
+            switch (c) {
+                case '*' -> regex.append(".*");
+                case '?' -> regex.append('.');
+                case '\\' -> {
+                    if (++i == match.length()) {
+                        throw new IllegalArgumentException("Invalid match pattern: " + match);
+                    }
+                    appendLiteral(regex, match.charAt(i));
+                }
+                case '[' -> {
+                    int end = match.indexOf(']', i + 2);
+                    if (end < 0) {
+                        throw new IllegalArgumentException("Invalid match pattern: " + match);
+                    }
+                    regex.append('[');
+                    int from = i + 1;
+                    if (match.charAt(from) == '^' || match.charAt(from) == '!') {
+                        regex.append('^');
+                        from++;
+                    }
+                    for (int j = from; j < end; j++) {
+                        char member = match.charAt(j);
+                        if (member == '-' && j > from && j < end - 1 || Character.isLetterOrDigit(member)) {
+                            regex.append(member);
+                        } else {
+                            regex.append('\\').append(member);
+                        }
+                    }
+                    regex.append(']');
+                    i = end;
+                }
+                default -> appendLiteral(regex, c);
+            }
+        }
+        return regex.toString();
+    }
+
+    private static void appendLiteral(StringBuilder regex, char c) {
+        if ("\\.^$|?*+()[]{}".indexOf(c) >= 0) {
+            regex.append('\\');
+        }
+        regex.append(c);
+    }
+}
@@ -1,21 +1,69 @@
 package org.example.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.example.config.StorageProperties;
+import org.example.service.eviction.EvictionPolicy;
+import org.example.service.eviction.Evictor;
+import org.example.service.eviction.LfuPolicy;
+import org.example.service.eviction.LruPolicy;
+import org.example.service.eviction.WindowTinyLfuPolicy;
+import org.example.service.expiry.ExpirySampler;
+import org.example.service.expiry.ExpiryStats;
+import org.example.service.StorageMetrics.Operation;
+import org.example.service.expiry.TimingWheel;
+import org.example.service.loader.CacheLoader;
+import org.example.service.loader.SingleFlight;
+import org.example.service.loader.WriteBehindQueue;
+import org.example.service.loader.WriteBehindSink;
+import org.example.snapshot.SnapshotChain;
+import org.example.snapshot.SnapshotLoader;
+import org.example.snapshot.SnapshotWriter;
+import org.example.storage.CompactHeapStorageEngine;
+import org.example.storage.HeapStorageEngine;
+import org.example.storage.KeyIndex;
+import org.example.storage.OffHeapStorageEngine;
+import org.example.storage.ShardedStorageEngine;
+import org.example.storage.StorageEngine;
+import org.example.storage.StorageEntry;
+import org.example.storage.ValueCodec;
 import org.example.tuple.Tuple3;
+import org.example.wal.FsyncPolicy;
+import org.example.wal.WalRecord;
+import org.example.wal.WriteAheadLog;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
 
 /**
  * Компонент, предоставляющий хранилище записей в памяти с TTL по текстовому ключу.
@@ -27,42 +75,642 @@ public class MemoryStorageService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MemoryStorageService.class);
     private static final long DEFAULT_EXPIRY_TIME = 10000L; // 10c
-    private static final String STORAGE_STATE_FILE = "storage-state.json";
+    private static final int WAL_LOCK_STRIPES = 64;
+    private static final int REMOVE_CHUNK_SIZE = 1024;
+    /**
+     * Ключи, совпадающие с путями служебных маршрутов REST API, которые перекрывают {@code GET /api/storage/{key}},
+     * {@code GET /api/storage/{key}/_ttl} или {@code DELETE /api/storage/{key}}.
+     */
+    private static final Set<String> RESERVED_KEYS = Set.of("_scan", "_stream", "_prefix", "_range", "_jobs");
+
+    private final ShardedStorageEngine storage;
+    private final ValueCodec codec;
+    /** Значения хранятся не в самих записях (вне кучи или в компактном виде). */
+    private final boolean detachedValues;
+    private final TimingWheel<String>[] expiryWheels;
+    private final ExpirySampler<String, StorageEntry>[] expirySamplers;
+    private final AtomicBoolean[] shardMaintenance;
+    private final AtomicBoolean evictorMaintenance = new AtomicBoolean();
+    private final Evictor evictor;
+    private final ScheduledExecutorService scheduler;
+    private final ForkJoinPool maintenancePool;
+    private final SnapshotWriter snapshotWriter;
+    private final SnapshotLoader snapshotLoader;
+    private final Path snapshotFile;
+    private final SnapshotChain snapshotChain;
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private final ChangeTracker changes = new ChangeTracker();
+    private final SnapshotJobs snapshotJobs;
+    private final WriteAheadLog wal;
+    /** Операции записи ждут сброса журнала на диск ({@code storage.wal.fsync=always}). */
+    private final boolean syncWrites;
+    private final ReentrantLock[] walLocks;
+    private final long compactionThreshold;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final ExecutorService compactor;
+    private final int batchParallelThreshold;
+    private final ScanCursors scanCursors;
+    private final int scanMaxCount;
+    private final CacheLoader loader;
+    private final SingleFlight<StorageEntry> loads;
+    private final long loaderTtl;
+    private final double refreshAhead;
+    private final ExecutorService refresher;
+    private final WriteBehindQueue writeBehind;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expiredOnRead = new LongAdder();
+    private final LongAdder expiredBySampling = new LongAdder();
+    private final LongAdder expiredByTimer = new LongAdder();
+    private final LongAdder sets = new LongAdder();
+    private final LongAdder removes = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private volatile Consumer<String> replicationListener;
+    private volatile boolean readOnly;
+    private final StorageMetrics metrics;
+
+    @Autowired
+    public MemoryStorageService(ObjectProvider<StorageProperties> properties, ObjectProvider<MeterRegistry> registry,
+                                ObjectProvider<CacheLoader> loader, ObjectProvider<WriteBehindSink> sink) {
+        this(properties.getIfAvailable(StorageProperties::new), registry.getIfAvailable(),
+                loader.getIfAvailable(), sink.getIfAvailable());
+    }
+
+    public MemoryStorageService(StorageProperties properties) {
+        this(properties, null);
+    }
+
+    /**
+     * @param properties Настройки хранилища
+     * @param registry   Реестр метрик или {@code null}, если метрики не собираются
+     */
+    public MemoryStorageService(StorageProperties properties, MeterRegistry registry) {
+        this(properties, registry, null, null);
+    }
+
+    /**
+     * @param properties Настройки хранилища
+     * @param registry   Реестр метрик или {@code null}, если метрики не собираются
+     * @param loader     Источник значений при промахе или {@code null}
+     * @param sink       Приёмник отложенной записи значений или {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public MemoryStorageService(StorageProperties properties, MeterRegistry registry, CacheLoader loader, WriteBehindSink sink) {
+        metrics = StorageMetrics.create(registry, properties.getMetrics().getLatencySampling());
+        codec = createCodec(properties);
+        detachedValues = properties.getEngine() == StorageProperties.Engine.OFF_HEAP || codec != null;
+        int processors = Runtime.getRuntime().availableProcessors();
+        int shards = properties.getShards() > 0 ? properties.getShards() : processors;
+        storage = new ShardedStorageEngine(shards, shard -> createShard(properties, codec, shard, shards),
+                properties.getIndex().isEnabled());
+
+        StorageProperties.Expiry expiry = properties.getExpiry();
+        long tick = expiry.getTick().toMillis();
+        long now = System.currentTimeMillis();
+        boolean wheel = expiry.getStrategy() == StorageProperties.Expiry.Strategy.WHEEL;
+        expiryWheels = wheel ? new TimingWheel[shards] : null;
+        expirySamplers = wheel ? null : new ExpirySampler[shards];
+        shardMaintenance = new AtomicBoolean[shards];
+        for (int i = 0; i < shards; i++) {
+            if (wheel) {
+                expiryWheels[i] = new TimingWheel<>(tick, now);
+            } else {
+                expirySamplers[i] = new ExpirySampler<>(expiry.getSampleSize(), expiry.getExpiredThreshold(),
+                        expiry.getCycleBudget().toNanos(), StorageEntry::expiresAt);
+            }
+            shardMaintenance[i] = new AtomicBoolean();
+        }
+        int parallelism = properties.getMaintenanceParallelism() > 0 ? properties.getMaintenanceParallelism() : processors;
+        maintenancePool = new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread th = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            th.setName("storage-maintenance-" + th.getPoolIndex());
+            th.setDaemon(true);
+            return th;
+        }, null, true);
+
+        StorageProperties.Eviction eviction = properties.getEviction();
+        long maxBytes = eviction.getMaxBytes() == null ? 0 : eviction.getMaxBytes().toBytes();
+        if (eviction.getMaxEntries() > 0 || maxBytes > 0) {
+            EvictionPolicy policy = switch (eviction.getPolicy()) {
+                case LRU -> new LruPolicy();
+                case LFU -> new LfuPolicy();
+                case W_TINY_LFU -> new WindowTinyLfuPolicy();
+            };
+            evictor = new Evictor(policy, eviction.getMaxEntries(), maxBytes, this::evictEntry, storage::footprint);
+        } else {
+            evictor = null;
+        }
+
+        batchParallelThreshold = properties.getBatch().getParallelThreshold();
+        scanCursors = new ScanCursors(properties.getScan().getCursorTimeout().toMillis(), properties.getScan().getMaxCursors());
+        scanMaxCount = properties.getScan().getMaxCount();
 
-    private ConcurrentHashMap<String, Tuple3<String, Long, Long>> storage = new ConcurrentHashMap<>();
+        StorageProperties.Loader loaderProperties = properties.getLoader();
+        this.loader = loader;
+        loads = loader == null ? null : new SingleFlight<>();
+        loaderTtl = loaderProperties.getTtl() == null ? DEFAULT_EXPIRY_TIME : resolveTtl(loaderProperties.getTtl().toMillis());
+        refreshAhead = loader == null ? 0 : loaderProperties.getRefreshAhead();
+        if (refreshAhead > 0) {
+            AtomicInteger threads = new AtomicInteger();
+            refresher = Executors.newFixedThreadPool(loaderProperties.getRefreshThreads(), r -> {
+                Thread th = new Thread(r, "storage-refresh-" + threads.getAndIncrement());
+                th.setDaemon(true);
+                return th;
+            });
+        } else {
+            refresher = null;
+        }
+        writeBehind = sink == null ? null : new WriteBehindQueue(sink,
+                properties.getWriteBehind().getBatchSize(), properties.getWriteBehind().getInterval().toMillis());
+
+        snapshotWriter = new SnapshotWriter(properties.getSnapshot().getFormat());
+        snapshotLoader = new SnapshotLoader(properties.getSnapshot().getLoadParallelism());
+        snapshotFile = properties.getSnapshot().resolveFile();
+        snapshotChain = new SnapshotChain(snapshotFile);
+        snapshotJobs = new SnapshotJobs(properties.getSnapshot().getMaxJobs());
+
+        StorageProperties.Wal walProperties = properties.getWal();
+        if (walProperties.isEnabled()) {
+            try {
+                wal = new WriteAheadLog(walProperties.getDir(), walProperties.getFsync(), walProperties.getFsyncInterval());
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to open write-ahead log.", e);
+            }
+            walLocks = new ReentrantLock[WAL_LOCK_STRIPES];
+            for (int i = 0; i < WAL_LOCK_STRIPES; i++) {
+                walLocks[i] = new ReentrantLock();
+            }
+            syncWrites = walProperties.getFsync() == FsyncPolicy.ALWAYS;
+            compactionThreshold = walProperties.getCompactionThreshold().toBytes();
+            compactor = Executors.newSingleThreadExecutor(r -> {
+                Thread th = new Thread(r, "wal-compaction");
+                th.setDaemon(true);
+                return th;
+            });
+            recover();
+        } else {
+            wal = null;
+            syncWrites = false;
+            walLocks = null;
+            compactionThreshold = 0;
+            compactor = null;
+        }
 
-    public MemoryStorageService() {
-        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
             Thread th = new Thread(r);
             th.setDaemon(true);
             return th;
         });
-        scheduler.scheduleAtFixedRate(() -> {
+        scheduler.scheduleAtFixedRate(this::scheduleMaintenance, tick, tick, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(() -> scanCursors.expireIdle(System.currentTimeMillis()), 1, 1, TimeUnit.SECONDS);
+        if (wal != null) {
+            scheduler.scheduleWithFixedDelay(this::compactLogIfNeeded, tick, tick, TimeUnit.MILLISECONDS);
+        }
+        if (registry != null) {
+            bindMeters(registry);
+        }
+    }
+
+    /**
+     * Создание кодека значений, общего для всех шардов: одинаковые значения в разных шардах
+     * хранятся одним экземпляром.
+     *
+     * @return Кодек или {@code null}, если ни сжатие, ни дедупликация не включены
+     */
+    private static ValueCodec createCodec(StorageProperties properties) {
+        StorageProperties.Codec codec = properties.getCodec();
+        if (!codec.isEnabled()) {
+            return null;
+        }
+        if (properties.getEngine() != StorageProperties.Engine.HEAP) {
+            throw new IllegalStateException("Value codec is supported only by the heap engine.");
+        }
+        boolean compression = codec.getCompression() != StorageProperties.Codec.Compression.NONE;
+        return new ValueCodec(compression ? (int) codec.getCompressionThreshold().toBytes() : 0,
+                codec.getCompressionLevel(),
+                codec.isDeduplication() ? (int) codec.getDeduplicationThreshold().toBytes() : 0);
+    }
+
+    /**
+     * Создание шарда. Память вне кучи делится между шардами поровну, у каждого шарда свой файл.
+     */
+    private static StorageEngine createShard(StorageProperties properties, ValueCodec codec, int shard, int shards) {
+        return switch (properties.getEngine()) {
+            case HEAP -> codec == null ? new HeapStorageEngine() : new CompactHeapStorageEngine(codec);
+            case OFF_HEAP -> {
+                StorageProperties.OffHeap offHeapProperties = properties.getOffHeap();
+                long maxSize = offHeapProperties.getMaxSize().toBytes() / shards;
+                long segmentSize = Math.min(offHeapProperties.getSegmentSize().toBytes(), maxSize);
+                Path file = offHeapProperties.getFile();
+                if (file != null && shards > 1) {
+                    file = file.resolveSibling(file.getFileName() + "." + shard);
+                }
+                yield new OffHeapStorageEngine(segmentSize, maxSize, file);
+            }
+        };
+    }
+
+    /**
+     * Регистрация счётчиков и датчиков. Значения читаются из счётчиков хранилища при сборе метрик,
+     * поэтому на операции хранилища регистрация не влияет.
+     */
+    private void bindMeters(MeterRegistry registry) {
+        FunctionCounter.builder("storage.gets", hits, LongAdder::sum)
+                .description("Reads of the storage").tag("result", "hit").register(registry);
+        FunctionCounter.builder("storage.gets", misses, LongAdder::sum)
+                .description("Reads of the storage").tag("result", "miss").register(registry);
+        FunctionCounter.builder("storage.sets", sets, LongAdder::sum)
+                .description("Stored entries").register(registry);
+        FunctionCounter.builder("storage.removes", removes, LongAdder::sum)
+                .description("Removed entries").register(registry);
+        FunctionCounter.builder("storage.expirations", expiredOnRead, LongAdder::sum)
+                .description("Entries removed after their TTL expired").tag("source", "read").register(registry);
+        FunctionCounter.builder("storage.expirations", expiredBySampling, LongAdder::sum)
+                .description("Entries removed after their TTL expired").tag("source", "sampling").register(registry);
+        FunctionCounter.builder("storage.expirations", expiredByTimer, LongAdder::sum)
+                .description("Entries removed after their TTL expired").tag("source", "timer").register(registry);
+        if (evictor != null) {
+            FunctionCounter.builder("storage.evictions", evictor, Evictor::evictions)
+                    .description("Entries evicted to stay within the size limits").register(registry);
+        }
+        Gauge.builder("storage.entries", storage, StorageEngine::size)
+                .description("Number of stored entries").register(registry);
+        Gauge.builder("storage.estimated.size", storage, StorageEngine::estimatedBytes)
+                .description("Estimated memory used by stored entries").baseUnit("bytes").register(registry);
+        if (codec != null) {
+            Gauge.builder("storage.codec.raw.size", codec, ValueCodec::rawSize)
+                    .description("Total length of stored values before compression and deduplication").baseUnit("bytes").register(registry);
+            Gauge.builder("storage.codec.stored.size", codec, ValueCodec::storedSize)
+                    .description("Total size of stored value data after compression and deduplication").baseUnit("bytes").register(registry);
+            Gauge.builder("storage.codec.shared.values", codec, ValueCodec::sharedValues)
+                    .description("Distinct values in the deduplication table").register(registry);
+        }
+        Gauge.builder("storage.scan.cursors", scanCursors, ScanCursors::size)
+                .description("Open scan cursors").register(registry);
+        if (storage.keyIndex() != null) {
+            Gauge.builder("storage.index.keys", storage.keyIndex(), KeyIndex::size)
+                    .description("Keys in the ordered key index").register(registry);
+        }
+        if (loads != null) {
+            FunctionCounter.builder("storage.loader.calls", loads, SingleFlight::executions)
+                    .description("Loader calls on misses and refreshes").register(registry);
+            FunctionCounter.builder("storage.loader.coalesced", loads, SingleFlight::coalesced)
+                    .description("Misses that waited for a loader call already in flight").register(registry);
+            FunctionCounter.builder("storage.loader.failures", loadFailures, LongAdder::sum)
+                    .description("Failed loader calls").register(registry);
+        }
+        if (writeBehind != null) {
+            FunctionCounter.builder("storage.write.behind.writes", writeBehind, WriteBehindQueue::written)
+                    .description("Values passed to the write-behind sink").register(registry);
+            FunctionCounter.builder("storage.write.behind.batches", writeBehind, WriteBehindQueue::batches)
+                    .description("Batches passed to the write-behind sink").register(registry);
+            FunctionCounter.builder("storage.write.behind.failures", writeBehind, WriteBehindQueue::failures)
+                    .description("Batches the write-behind sink failed to write").register(registry);
+            Gauge.builder("storage.write.behind.pending", writeBehind, WriteBehindQueue::pending)
+                    .description("Values waiting for the write-behind sink").register(registry);
+        }
+        Gauge.builder("storage.snapshot.changes", changes, ChangeTracker::size)
+                .description("Keys changed since the last state dump").register(registry);
+    }
+
+    /**
+     * Остановка фоновой очистки хранилища и заданий сохранения и загрузки состояния.
+     */
+    @PreDestroy
+    public void shutdown() {
+        snapshotJobs.shutdown();
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+        if (writeBehind != null) {
+            writeBehind.close();
+        }
+        scheduler.shutdownNow();
+        maintenancePool.shutdownNow();
+        if (wal != null) {
+            compactor.shutdownNow();
+            wal.close();
+        }
+        storage.close();
+    }
+
+    /**
+     * Восстановление состояния при запуске: загрузка цепочки файлов состояния и воспроизведение
+     * операций из журнала, записанных после неё.
+     */
+    private void recover() {
+        long start = System.nanoTime();
+        long currentTime = System.currentTimeMillis();
+        try {
+            long loaded = loadChain(currentTime, this::mergeEntry).loaded();
+            long replayed = wal.replay(record -> replay(record, currentTime));
+            LOGGER.info("Состояние хранилища восстановлено (записей из файла {}: {}, операций из журнала: {}, {} мс)",
+                    snapshotFile, loaded, replayed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException e) {
+            wal.close();
+            throw new IllegalStateException("Failed to recover storage state.", e);
+        }
+    }
+
+    /**
+     * Применение операции из журнала. Операции воспроизводятся в порядке записи,
+     * поэтому последняя операция по ключу определяет его итоговое состояние.
+     */
+    private void replay(WalRecord record, long currentTime) {
+        String key = record.key();
+        if (record.type() == WalRecord.Type.SET && record.entry().isLive(currentTime)) {
+            storage.put(key, record.entry());
+            scheduleExpiry(key, record.entry());
+            if (evictor != null) {
+                evictor.recordChange(key);
+            }
+        } else if (storage.remove(key) != null && evictor != null) {
+            evictor.recordChange(key);
+        }
+    }
+
+    /**
+     * Запуск сжатия журнала в фоне, если его размер превысил порог.
+     */
+    private void compactLogIfNeeded() {
+        if (wal.size() > compactionThreshold && compacting.compareAndSet(false, true)) {
+            compactor.execute(this::compactLog);
+        }
+    }
+
+    /**
+     * Сжатие журнала: переключение на новый сегмент, сохранение состояния хранилища в полный файл
+     * и удаление сегментов, операции которых вошли в сохранённое состояние.
+     * Операция применяется к хранилищу до записи в журнал, поэтому всё, что записано в закрытые
+     * сегменты, уже видно при обходе хранилища.
+     */
+    private void compactLog() {
+        snapshotLock.lock();
+        try {
+            long start = System.nanoTime();
+            long sizeBefore = wal.size();
+            long segment = wal.rotate();
+            Set<String> changed = changes.reset();
+            long written;
+            try {
+                written = writeBase(System.currentTimeMillis(), null);
+            } catch (IOException | RuntimeException e) {
+                changes.restore(changed);
+                throw e;
+            }
+            wal.deleteSegmentsBefore(segment);
+            LOGGER.info("Журнал сжат: {} -> {} байт, сохранено записей: {}, {} мс", sizeBefore, wal.size(), written,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException e) {
+            LOGGER.error("Ошибка при сжатии журнала", e);
+        } finally {
+            snapshotLock.unlock();
+            compacting.set(false);
+        }
+    }
+
+    /**
+     * Сохранение записи в хранилище и в журнале.
+     * Сохранение и постановка в очередь журнала выполняются под блокировкой полосы ключа,
+     * чтобы порядок операций по одному ключу в журнале совпадал с порядком в хранилище.
+     *
+     * @return Результат добавления в журнал или {@code null}, если журнал не используется
+     */
+    private WriteAheadLog.Append putLogged(String key, StorageEntry entry) {
+        if (wal == null) {
+            storage.put(key, entry);
+            return null;
+        }
+        ReentrantLock lock = walLock(key);
+        lock.lock();
+        try {
+            storage.put(key, entry);
+            return wal.append(WalRecord.set(key, entry));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock walLock(String key) {
+        int hash = key.hashCode();
+        return walLocks[(hash ^ (hash >>> 16)) & (WAL_LOCK_STRIPES - 1)];
+    }
+
+    /**
+     * Ожидание сброса операции на диск, если этого требует политика сброса журнала.
+     */
+    private static void awaitLogged(WriteAheadLog.Append append) {
+        if (append == null) {
+            return;
+        }
+        try {
+            append.await();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write to the write-ahead log.", e);
+        }
+    }
+
+    /**
+     * Запуск фонового обслуживания: каждый шард очищается отдельной задачей в общем пуле обслуживания,
+     * вытеснение выполняется отдельной задачей, так как ограничения размера общие для всех шардов.
+     * Задача не запускается, пока не завершился её предыдущий запуск, поэтому медленный шард
+     * не задерживает остальные и не накапливает очередь.
+     */
+    private void scheduleMaintenance() {
+        try {
+            for (int i = 0; i < shardMaintenance.length; i++) {
+                if (shardMaintenance[i].compareAndSet(false, true)) {
+                    int shard = i;
+                    maintenancePool.execute(() -> expireShard(shard));
+                }
+            }
+            if (evictor != null && evictorMaintenance.compareAndSet(false, true)) {
+                maintenancePool.execute(this::evict);
+            }
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("Пул обслуживания остановлен");
+        }
+    }
+
+    /**
+     * Удаление записей шарда, срок жизни которых истёк.
+     * Запись удаляется только если по ключу всё ещё хранится именно она,
+     * поэтому параллельная перезапись ключа не теряется. Колесо и выборка шарда используются
+     * только одной задачей одновременно; флаг шарда обеспечивает видимость их состояния между потоками пула.
+     */
+    private void expireShard(int shard) {
+        try {
             long current = System.currentTimeMillis();
-            for (String k : storage.keySet()) {
-                if (!storage.get(k).isLive(current)) {
-                    storage.remove(k);
+            if (expiryWheels != null) {
+                expiryWheels[shard].advance(current, (key, version) -> {
+                    if (removeScheduled(key, version)) {
+                        expiredByTimer.increment();
+                    }
+                });
+            } else {
+                StorageEngine engine = storage.shard(shard);
+                expiredBySampling.add(expirySamplers[shard].run(engine::iterator, this::removeEntry, current));
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Ошибка при удалении устаревших записей", e);
+        } finally {
+            shardMaintenance[shard].set(false);
+        }
+    }
+
+    /**
+     * Применение накопленных обращений к политике вытеснения и вытеснение записей сверх ограничений.
+     */
+    private void evict() {
+        try {
+            evictor.maintenance();
+        } catch (RuntimeException e) {
+            LOGGER.error("Ошибка при вытеснении записей", e);
+        } finally {
+            evictorMaintenance.set(false);
+        }
+    }
+
+    /**
+     * Условное удаление записи: запись удаляется, только если по ключу всё ещё хранится именно она.
+     */
+    private boolean removeEntry(String key, StorageEntry entry) {
+        if (!storage.remove(key, entry)) {
+            return false;
+        }
+        if (evictor != null) {
+            evictor.recordChange(key);
+        }
+        Consumer<String> listener = replicationListener;
+        if (listener != null) {
+            listener.accept(key);
+        }
+        return true;
+    }
+
+    /**
+     * Учёт изменения ключа для инкрементального сохранения и репликации.
+     */
+    private void changed(String key) {
+        changes.mark(key);
+        Consumer<String> listener = replicationListener;
+        if (listener != null) {
+            listener.accept(key);
+        }
+    }
+
+    /**
+     * Планирование удаления записи колесом таймеров.
+     * Колесу передаётся только версия записи: перезаписанные, удалённые и вытесненные значения
+     * не удерживаются в куче до истечения их прежнего TTL. Записи без ограничения срока жизни
+     * в колесо не попадают.
+     */
+    private void scheduleExpiry(String key, StorageEntry entry) {
+        if (expiryWheels != null && !entry.isPersistent()) {
+            expiryWheels[storage.shardOf(key)].schedule(key, entry.version(), entry.expiresAt());
+        }
+    }
+
+    /**
+     * Удаление записи, срок которой наступил по колесу таймеров: запись удаляется, только если по ключу
+     * всё ещё хранится запись той же версии.
+     */
+    private boolean removeScheduled(String key, long version) {
+        StorageEntry expected = expected(key, version);
+        return expected != null && removeEntry(key, expected);
+    }
+
+    /**
+     * Удаление записи, выбранной для вытеснения, тем же путём, что и {@link #delete(String, long)}:
+     * под блокировкой полосы журнала и с записью об удалении в журнал, без ожидания сброса на диск.
+     * Запись удаляется, только если по ключу хранится запись той версии, которую учла политика вытеснения:
+     * параллельная перезапись ключа не теряется.
+     */
+    private boolean evictEntry(EvictionPolicy.Victim victim) {
+        String key = victim.key();
+        boolean removed;
+        if (wal == null) {
+            StorageEntry expected = expected(key, victim.version());
+            removed = expected != null && storage.remove(key, expected);
+        } else {
+            ReentrantLock lock = walLock(key);
+            lock.lock();
+            try {
+                StorageEntry expected = expected(key, victim.version());
+                removed = expected != null && storage.remove(key, expected);
+                if (removed) {
+                    wal.append(WalRecord.delete(key));
                 }
+            } finally {
+                lock.unlock();
             }
-        }, 1, DEFAULT_EXPIRY_TIME/10, TimeUnit.MILLISECONDS);
+        }
+        if (removed) {
+            changed(key);
+        }
+        return removed;
+    }
+
+    /**
+     * Запись для условного удаления по версии. Записи вне кучи и в компактном виде механизм хранения
+     * сравнивает по версии сам, поэтому ему передаётся запись без значения; запись в куче перечитывается.
+     *
+     * @return Ожидаемая запись или {@code null}, если по ключу хранится запись другой версии
+     */
+    private StorageEntry expected(String key, long version) {
+        if (detachedValues) {
+            return new StorageEntry(null, 0, 0, version);
+        }
+        StorageEntry entry = storage.get(key);
+        return entry != null && entry.version() == version ? entry : null;
+    }
+
+    /**
+     * Счётчики удалённых записей с истёкшим TTL.
+     */
+    public ExpiryStats getExpiryStats() {
+        return new ExpiryStats(expiredOnRead.sum(), expiredBySampling.sum(), expiredByTimer.sum());
+    }
+
+    /**
+     * Счётчики попаданий, промахов и вытеснений.
+     */
+    public CacheStats getCacheStats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictor == null ? 0 : evictor.evictions());
+    }
+
+    /**
+     * Размер значений до и после кодирования.
+     *
+     * @return Счётчики кодека или {@code null}, если сжатие и дедупликация выключены
+     */
+    public CodecStats getCodecStats() {
+        return codec == null ? null : new CodecStats(codec.rawSize(), codec.storedSize(), codec.sharedValues());
     }
 
     /**
      * Операция чтения (get).
      * Извлекает по указанному ключу значение из хранилища.
+     * Запись с истёкшим TTL считается отсутствующей и удаляется при чтении.
      *
      * @param key ключ, по которому извлекается значение
      * @return значение, связанное с указанным ключом, или {@code null}, если ключ не найден
      * */
     public String get(String key) {
+        long start = metrics.start();
         long currentTime = System.currentTimeMillis();
 
-        Tuple3<String, Long, Long> entry = storage.get(key);
+        StorageEntry entry = lookup(key, currentTime);
+        metrics.record(Operation.GET, start);
         if (entry != null) {
-            LOGGER.debug("Извлечено значение '{}' для ключа '{}'", entry.value().toString(), key);
-            long remainingTime = Long.parseLong(entry.ttl().toString()) - (currentTime - Long.parseLong(entry.savedTime().toString()));
+            LOGGER.debug("Извлечено значение '{}' для ключа '{}'", entry.value(), key);
+            if (entry.isPersistent()) {
+                return "Значение: " + entry.value() + "\n Оставшееся время хранения: без ограничения";
+            }
+            long remainingTime = entry.expiresAt() - currentTime;
 
-            return "Значение: " + entry.value() + "\n Оставшееся время хранения: " + remainingTime / 1000 + "с";
+            return "Значение: " + entry.value() + "\n Оставшееся время хранения: " + (remainingTime + 999) / 1000 + "с";
         } else {
             LOGGER.debug("Запись для ключа '{}' не найдена", key);
             return null;
@@ -70,104 +718,1144 @@ public class MemoryStorageService {
     }
 
     /**
-     * Вывод всех элементов хранилища.
-     * */
-    public Map<String, Tuple3<String, Long, Long>> getAll() {
-        LOGGER.debug("Получение всех записей из хранилища");
-        return new HashMap<>(storage);
+     * Чтение записи по ключу без форматирования значения.
+     *
+     * @param key Ключ записи
+     * @return Запись или {@code null}, если ключ не найден или TTL записи истёк
+     */
+    public Tuple3<String, Long, Long> getEntry(String key) {
+        long start = metrics.start();
+        StorageEntry entry = lookup(key, System.currentTimeMillis());
+        metrics.record(Operation.GET, start);
+        return entry == null ? null : entry.toTuple();
     }
 
     /**
-     * Операция записи (set).
-     * Сохраняет значение под заданным ключом и параметр ttl.
-     * Если ключ уже существует, значение и ttl для этого ключа перезаписываются.
+     * Пакетная операция чтения.
+     * Большие пакеты обрабатываются параллельно.
      *
-     * @param key   ключ, под которым будет сохранено значение
-     * @param value значение, которое нужно сохранить
-     * @param ttl   время жизни записи (в миллисекундах) или {@code null} для использования TTL по умолчанию
-     * @return true, если операция была успешной, false в противном случае
+     * @param keys Ключи
+     * @return Записи по ключам в порядке запроса; для отсутствующих ключей значение {@code null}
+     * @throws IllegalArgumentException если среди ключей есть {@code null}
      */
-    public boolean set(String key, String value, Long ttl) {
+    public Map<String, Tuple3<String, Long, Long>> multiGet(List<String> keys) {
+        checkKeys(keys);
+        long start = metrics.start();
         long currentTime = System.currentTimeMillis();
+        StorageEntry[] entries = new StorageEntry[keys.size()];
+        forEachIndex(keys.size(), i -> entries[i] = lookup(keys.get(i), currentTime));
 
-        long selectedTTL;
-        if (ttl != null && checkTtlValue(ttl)) {
-            selectedTTL = ttl;
-        } else if (ttl == null) {
-            selectedTTL = DEFAULT_EXPIRY_TIME;
-        } else {
-            String errorMessage = "Parameter 'ttl' must be a positive numeric value > 100ms.";
-            LOGGER.error("Параметр ttl должен быть положительным целым числом.");
-            throw new IllegalArgumentException(errorMessage);
+        Map<String, Tuple3<String, Long, Long>> result = new LinkedHashMap<>(keys.size() * 4 / 3 + 1);
+        for (int i = 0; i < entries.length; i++) {
+            result.put(keys.get(i), entries[i] == null ? null : entries[i].toTuple());
         }
+        metrics.record(Operation.MULTI_GET, start);
+        return result;
+    }
 
-        Tuple3<String, Long, Long> entry = new Tuple3<>(value, selectedTTL, currentTime);
-        try {
-            storage.put(key, entry);
-            LOGGER.debug("Сохранено значение '{}' для ключа '{}' с TTL {} мс", value, key, selectedTTL);
-            return true;
-        } catch (Exception e) {
-            LOGGER.error("Не удалось сохранить значение '{}' для ключа '{}'.", value, key, e);
-            return false;
+    /**
+     * Проверка ключей пакета до начала обработки: ключ {@code null} иначе обнаружился бы только
+     * при обращении к хранилищу, когда часть пакета уже обработана.
+     */
+    private static void checkKeys(List<String> keys) {
+        for (String key : keys) {
+            if (key == null) {
+                throw new IllegalArgumentException("Parameter 'key' must not be null.");
+            }
         }
     }
 
     /**
-     * Операция удаления (remove).
-     * Удаляет данные, хранящиеся по переданному ключу.
-     * Возвращает данные, хранившиеся по переданному ключу или метку отсутствия данных.
-     *
-     * @param key ключ, по которому нужно удалить данные
-     * @return Tuple3 с данными, хранившимися по ключу, или null если данные не найдены
+     * Чтение записи с учётом попаданий, промахов и обращений для политики вытеснения.
+     * Если задан источник значений, при промахе запись загружается из него.
      */
-    public Tuple3<String, Long, Long> remove(String key) {
-        Tuple3<String, Long, Long> entry = storage.get(key);
+    private StorageEntry lookup(String key, long currentTime) {
+        StorageEntry entry = liveEntry(key, currentTime);
         if (entry != null) {
-            storage.remove(key);
-            LOGGER.debug("Удалено значение '{}' для ключа '{}'", entry.value(), key);
-            return entry;
+            hits.increment();
+            if (evictor != null) {
+                evictor.recordRead(key);
+            }
+            if (refreshAhead > 0 && currentTime - entry.savedTime() >= entry.ttl() * refreshAhead) {
+                loads.submit(key, () -> reload(key), refresher);
+            }
         } else {
-            LOGGER.debug("Данные по ключу '{}' не найдены", key);
-            return null;
+            misses.increment();
+            if (loader != null) {
+                entry = load(key);
+            }
         }
+        return entry;
     }
 
     /**
-     * Операция сохранения текущего состояния (dump).
-     * Сохраняет текущее состояние хранилища и возвращает его в виде загружаемого файла.
+     * Загрузка записи из источника при промахе. По ключу выполняется не более одного вызова источника,
+     * остальные обращения ждут его результата.
      *
-     * @return Загружаемый файл с текущим состоянием хранилища
-     * */
-    public File dump() {
+     * @return Загруженная запись или {@code null}, если в источнике значения нет
+     * @throws IllegalStateException если источник вернул ошибку
+     */
+    private StorageEntry load(String key) {
         try {
-            Path filePath = Paths.get(STORAGE_STATE_FILE);
-            ObjectMapper objectMapper = new ObjectMapper();
-            objectMapper.writeValue(filePath.toFile(), storage);
-
-            LOGGER.info("Текущее состояние хранилища успешно сохранено в файл: {}", filePath);
-
-            return filePath.toFile();
-        } catch (IOException e) {
-            LOGGER.error("Ошибка при сохранении текущего состояния хранилища в файл", e);
-            return null;
+            return loads.execute(key, () -> {
+                // Пока этот поток дошёл до вызова, предыдущий вызов по ключу мог уже сохранить запись.
+                StorageEntry current = liveEntry(key, System.currentTimeMillis());
+                return current != null ? current : reload(key);
+            });
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to load value for key '" + key + "'.", e);
         }
     }
 
     /**
-     * Операция загрузки состояния хранилища (load).
-     * Загружает состояние хранилища из файла, созданного операцией dump (пункт 4).
+     * Вызов источника и сохранение значения. Запись сохраняется со временем начала вызова,
+     * поэтому значение, записанное операцией set во время вызова, не перезаписывается.
+     *
+     * @return Запись, хранимая по ключу после вызова, или {@code null}, если в источнике значения нет
      */
-    public void load() {
+    private StorageEntry reload(String key) throws Exception {
+        long start = System.currentTimeMillis();
+        String value;
         try {
-            Path filePath = Paths.get(STORAGE_STATE_FILE);
-            ObjectMapper objectMapper = new ObjectMapper();
-            ConcurrentHashMap<String, Tuple3<String, Long, Long>> storedState = objectMapper.readValue(filePath.toFile(), new TypeReference<>() {});
+            value = loader.load(key);
+        } catch (Exception e) {
+            loadFailures.increment();
+            LOGGER.error("Ошибка загрузки значения для ключа '{}'", key, e);
+            throw e;
+        }
+        if (value == null) {
+            return null;
+        }
+        StorageEntry loaded = StorageEntry.of(value, loaderTtl, start);
+        WriteAheadLog.Append append = null;
+        if (wal == null) {
+            mergeEntry(key, loaded);
+        } else {
+            ReentrantLock lock = walLock(key);
+            lock.lock();
+            try {
+                if (mergeEntry(key, loaded)) {
+                    append = wal.append(WalRecord.set(key, loaded));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        awaitLogged(append);
+        StorageEntry current = liveEntry(key, System.currentTimeMillis());
+        return current != null ? current : loaded;
+    }
 
-            storage = storedState;
+    /**
+     * Возвращает запись по ключу, если её TTL ещё не истёк.
+     * Истёкшая запись удаляется, если по ключу всё ещё хранится именно она.
+     */
+    private StorageEntry liveEntry(String key, long currentTime) {
+        StorageEntry entry = storage.get(key);
+        if (entry == null || entry.isLive(currentTime)) {
+            return entry;
+        }
+        if (removeEntry(key, entry)) {
+            expiredOnRead.increment();
+        }
+        return null;
+    }
 
-            LOGGER.info("Состояние хранилища успешно загружено из файла: {}", filePath);
-        } catch (IOException e) {
-            LOGGER.error("Ошибка при загрузке состояния хранилища из файла", e);
+    /**
+     * Вывод всех элементов хранилища.
+     * */
+    public Map<String, Tuple3<String, Long, Long>> getAll() {
+        LOGGER.debug("Получение всех записей из хранилища");
+        long start = metrics.start();
+        long currentTime = System.currentTimeMillis();
+        Map<String, Tuple3<String, Long, Long>> result = new HashMap<>();
+        storage.forEach((key, entry) -> {
+            if (entry.isLive(currentTime)) {
+                result.put(key, entry.toTuple());
+            }
+        });
+        metrics.record(Operation.GET_ALL, start);
+        return result;
+    }
+
+    /**
+     * Постраничный обход хранилища, аналог команды SCAN в Redis.
+     * Обход начинается с курсора {@code "0"} и продолжается курсором из предыдущей страницы, пока не
+     * будет возвращён курсор {@code "0"}. Обход слабо согласован: запись, существовавшая всё время обхода,
+     * возвращается ровно один раз, записи, добавленные или удалённые во время обхода, могут не попасть в него.
+     * Записи с истёкшим TTL пропускаются. За один запрос просматривается не более {@code count * 10} записей,
+     * поэтому при избирательном фильтре страница может быть неполной или пустой. Если задан префикс и ведётся
+     * индекс ключей, просматриваются только ключи с префиксом, в порядке возрастания.
+     *
+     * @param cursor Курсор ({@code "0"} для начала обхода)
+     * @param count  Максимальное количество записей на странице
+     * @param prefix Префикс ключа или {@code null}
+     * @param match  Шаблон ключа в стиле glob или {@code null}; при продолжении обхода не используется
+     * @return Страница записей и курсор следующей страницы
+     * @throws IllegalArgumentException если курсор неизвестен или закрыт по таймауту, размер страницы
+     *                                  или шаблон некорректны
+     */
+    public ScanPage scan(String cursor, int count, String prefix, String match) {
+        if (count < 1 || count > scanMaxCount) {
+            throw new IllegalArgumentException("Parameter 'count' must be between 1 and " + scanMaxCount + ".");
+        }
+        long start = metrics.start();
+        long currentTime = System.currentTimeMillis();
+        boolean first = cursor == null || cursor.equals("0");
+        ScanCursors.Cursor state = first
+                ? new ScanCursors.Cursor(entries(prefix), KeyPattern.compile(prefix, match), currentTime)
+                : scanCursors.take(cursor);
+
+        Map<String, Tuple3<String, Long, Long>> page = new LinkedHashMap<>(count * 4 / 3 + 1);
+        long examineLimit = count * 10L;
+        for (long examined = 0; examined < examineLimit && page.size() < count && state.iterator.hasNext(); examined++) {
+            Map.Entry<String, StorageEntry> entry = state.iterator.next();
+            if (entry.getValue().isLive(currentTime) && state.filter.test(entry.getKey())) {
+                page.put(entry.getKey(), entry.getValue().toTuple());
+            }
+        }
+        String next = state.iterator.hasNext() ? scanCursors.put(first ? null : cursor, state, currentTime) : "0";
+        metrics.record(Operation.SCAN, start);
+        return new ScanPage(next, page);
+    }
+
+    /**
+     * Ленивый обход записей с пропуском записей с истёкшим TTL, без копирования хранилища.
+     * Обход слабо согласован, как у {@link #scan}; TTL проверяется в момент перехода к записи.
+     *
+     * @param prefix Префикс ключа или {@code null}
+     * @param match  Шаблон ключа в стиле glob или {@code null}
+     * @return Итератор пар ключ — запись
+     * @throws IllegalArgumentException если шаблон некорректен
+     */
+    public Iterator<Map.Entry<String, Tuple3<String, Long, Long>>> liveEntries(String prefix, String match) {
+        Predicate<String> filter = KeyPattern.compile(prefix, match);
+        Iterator<Map.Entry<String, StorageEntry>> iterator = entries(prefix);
+        return new Iterator<>() {
+            private Map.Entry<String, Tuple3<String, Long, Long>> next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && iterator.hasNext()) {
+                    Map.Entry<String, StorageEntry> entry = iterator.next();
+                    if (entry.getValue().isLive(System.currentTimeMillis()) && filter.test(entry.getKey())) {
+                        next = Map.entry(entry.getKey(), entry.getValue().toTuple());
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Map.Entry<String, Tuple3<String, Long, Long>> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Map.Entry<String, Tuple3<String, Long, Long>> result = next;
+                next = null;
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Обход записей для запроса с префиксом: по индексу ключей, если он ведётся, иначе по всему хранилищу.
+     */
+    private Iterator<Map.Entry<String, StorageEntry>> entries(String prefix) {
+        return prefix != null && !prefix.isEmpty() && storage.keyIndex() != null
+                ? storage.prefixIterator(prefix)
+                : storage.iterator();
+    }
+
+    /**
+     * Записи с заданным префиксом ключа в порядке возрастания ключей.
+     * С индексом ключей (настройка {@code storage.index.enabled}) просматриваются только ключи с префиксом,
+     * без индекса — всё хранилище. Записи с истёкшим TTL пропускаются.
+     *
+     * @param prefix Префикс ключа, например {@code tenant:user:}
+     * @param limit  Максимальное количество записей
+     * @return Первые {@code limit} записей по порядку ключей
+     * @throws IllegalArgumentException если префикс не задан или количество некорректно
+     */
+    public Map<String, Tuple3<String, Long, Long>> getByPrefix(String prefix, int limit) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("Parameter 'prefix' must not be null.");
+        }
+        checkLimit(limit);
+        LOGGER.debug("Получение записей по префиксу: {}", prefix);
+        return sorted(storage.keyIndex() != null ? storage.prefixIterator(prefix) : null,
+                key -> key.startsWith(prefix), limit);
+    }
+
+    /**
+     * Записи с ключами из диапазона {@code [from, to)} в порядке возрастания ключей.
+     * Ключи сравниваются как строки ({@link String#compareTo}). С индексом ключей просматривается
+     * только диапазон, без индекса — всё хранилище. Записи с истёкшим TTL пропускаются.
+     *
+     * @param from  Нижняя граница (включительно) или {@code null}
+     * @param to    Верхняя граница (не включительно) или {@code null}
+     * @param limit Максимальное количество записей
+     * @return Первые {@code limit} записей диапазона по порядку ключей
+     * @throws IllegalArgumentException если нижняя граница больше верхней или количество некорректно
+     */
+    public Map<String, Tuple3<String, Long, Long>> getRange(String from, String to, int limit) {
+        if (from != null && to != null && from.compareTo(to) > 0) {
+            throw new IllegalArgumentException("Parameter 'from' must not be greater than 'to'.");
+        }
+        checkLimit(limit);
+        LOGGER.debug("Получение записей по диапазону ключей: [{}, {})", from, to);
+        return sorted(storage.keyIndex() != null ? storage.rangeIterator(from, to) : null,
+                key -> (from == null || key.compareTo(from) >= 0) && (to == null || key.compareTo(to) < 0), limit);
+    }
+
+    private void checkLimit(int limit) {
+        if (limit < 1 || limit > scanMaxCount) {
+            throw new IllegalArgumentException("Parameter 'limit' must be between 1 and " + scanMaxCount + ".");
+        }
+    }
+
+    /**
+     * Первые {@code limit} живых записей по порядку ключей: из упорядоченного обхода по индексу или,
+     * если индекса нет, полным обходом хранилища с отбором наименьших ключей.
+     *
+     * @param indexed Обход по индексу в порядке ключей или {@code null}
+     * @param filter  Отбор ключей при полном обходе
+     */
+    private Map<String, Tuple3<String, Long, Long>> sorted(Iterator<Map.Entry<String, StorageEntry>> indexed,
+                                                           Predicate<String> filter, int limit) {
+        long start = metrics.start();
+        long currentTime = System.currentTimeMillis();
+        Map<String, Tuple3<String, Long, Long>> result = new LinkedHashMap<>(Math.min(limit, 1024) * 4 / 3 + 1);
+        if (indexed != null) {
+            while (result.size() < limit && indexed.hasNext()) {
+                Map.Entry<String, StorageEntry> entry = indexed.next();
+                if (entry.getValue().isLive(currentTime)) {
+                    result.put(entry.getKey(), entry.getValue().toTuple());
+                }
+            }
+        } else {
+            TreeMap<String, StorageEntry> smallest = new TreeMap<>();
+            storage.forEach((key, entry) -> {
+                if (entry.isLive(currentTime) && filter.test(key)
+                        && (smallest.size() < limit || key.compareTo(smallest.lastKey()) < 0)) {
+                    smallest.put(key, entry);
+                    if (smallest.size() > limit) {
+                        smallest.pollLastEntry();
+                    }
+                }
+            });
+            smallest.forEach((key, entry) -> result.put(key, entry.toTuple()));
+        }
+        metrics.record(Operation.RANGE, start);
+        return result;
+    }
+
+    /**
+     * Операция записи (set).
+     * Сохраняет значение под заданным ключом и параметр ttl.
+     * Если ключ уже существует, значение и ttl для этого ключа перезаписываются.
+     *
+     * @param key   ключ, под которым будет сохранено значение
+     * @param value значение, которое нужно сохранить
+     * @param ttl   время жизни записи (в миллисекундах) или {@code null} для использования TTL по умолчанию
+     * @return true, если операция была успешной, false в противном случае
+     * @throws IllegalArgumentException если ключ зарезервирован или TTL некорректен
+     */
+    public boolean set(String key, String value, Long ttl) {
+        checkWritable();
+        checkKey(key);
+        long start = metrics.start();
+        long currentTime = System.currentTimeMillis();
+        long selectedTTL = resolveTtl(ttl);
+
+        try {
+            awaitLogged(store(key, value, selectedTTL, currentTime));
+            metrics.record(Operation.SET, start);
+            if (LOGGER.isDebugEnabled()) {
+                // Три аргумента передаются массивом, а TTL упаковывается: без проверки уровня это выделения на каждый вызов.
+                LOGGER.debug("Сохранено значение '{}' для ключа '{}' с TTL {} мс", value, key, selectedTTL);
+            }
+            return true;
+        } catch (Exception e) {
+            LOGGER.error("Не удалось сохранить значение '{}' для ключа '{}'.", value, key, e);
+            return false;
+        }
+    }
+
+    /**
+     * Пакетная операция записи.
+     * Ключи, значения и TTL всех записей проверяются до изменения хранилища, поэтому пакет
+     * с некорректной записью не применяется целиком. Если ключ повторяется, сохраняется последнее значение.
+     * Большие пакеты обрабатываются параллельно; при журнале с политикой {@code always}
+     * ожидание сброса на диск выполняется один раз для всего пакета.
+     *
+     * @param entries Записи
+     * @return Результат сохранения по каждому ключу
+     * @throws IllegalArgumentException если у какой-либо записи нет ключа или значения, ключ зарезервирован
+     *                                  или TTL некорректен
+     */
+    public Map<String, Boolean> multiSet(List<BatchEntry> entries) {
+        checkWritable();
+        long start = metrics.start();
+        long currentTime = System.currentTimeMillis();
+        Map<String, BatchEntry> unique = new LinkedHashMap<>(entries.size() * 4 / 3 + 1);
+        for (BatchEntry entry : entries) {
+            if (entry == null || entry.key() == null) {
+                throw new IllegalArgumentException("Parameter 'key' must not be null.");
+            }
+            if (entry.value() == null) {
+                throw new IllegalArgumentException("Parameter 'value' must not be null in entry '" + entry.key() + "'.");
+            }
+            checkKey(entry.key());
+            resolveTtl(entry.ttl());
+            unique.put(entry.key(), entry);
+        }
+        BatchEntry[] batch = unique.values().toArray(new BatchEntry[0]);
+        WriteAheadLog.Append[] appends = new WriteAheadLog.Append[batch.length];
+        boolean[] stored = new boolean[batch.length];
+        forEachIndex(batch.length, i -> {
+            try {
+                appends[i] = store(batch[i].key(), batch[i].value(), resolveTtl(batch[i].ttl()), currentTime);
+                stored[i] = true;
+            } catch (RuntimeException e) {
+                LOGGER.error("Не удалось сохранить значение по ключу '{}'.", batch[i].key(), e);
+            }
+        });
+
+        Map<String, Boolean> result = new LinkedHashMap<>(batch.length * 4 / 3 + 1);
+        for (int i = 0; i < batch.length; i++) {
+            if (stored[i]) {
+                try {
+                    awaitLogged(appends[i]);
+                } catch (IllegalStateException e) {
+                    LOGGER.error("Не удалось сохранить значение по ключу '{}'.", batch[i].key(), e);
+                    stored[i] = false;
+                }
+            }
+            result.put(batch[i].key(), stored[i]);
+        }
+        metrics.record(Operation.MULTI_SET, start);
+        return result;
+    }
+
+    /**
+     * Проверка ключа создаваемой записи: запись по ключу из {@link #RESERVED_KEYS} нельзя было бы
+     * прочитать или удалить через REST API, так как запрос попал бы в служебный маршрут.
+     */
+    private static void checkKey(String key) {
+        if (key != null && RESERVED_KEYS.contains(key)) {
+            throw new IllegalArgumentException("Key '" + key + "' is reserved for a storage operation route.");
+        }
+    }
+
+    /**
+     * Проверка TTL и выбор значения по умолчанию.
+     */
+    private long resolveTtl(Long ttl) {
+        if (ttl == null) {
+            return DEFAULT_EXPIRY_TIME;
+        }
+        if (checkTtlValue(ttl)) {
+            return ttl;
+        }
+        String errorMessage = "Parameter 'ttl' must be a positive numeric value > 100ms.";
+        LOGGER.error("Параметр ttl должен быть положительным целым числом.");
+        throw new IllegalArgumentException(errorMessage);
+    }
+
+    /**
+     * Сохранение записи без ожидания сброса журнала на диск.
+     */
+    private WriteAheadLog.Append store(String key, String value, long ttl, long currentTime) {
+        StorageEntry entry = StorageEntry.of(value, ttl, currentTime);
+        WriteAheadLog.Append append = putLogged(key, entry);
+        changed(key);
+        scheduleExpiry(key, entry);
+        if (evictor != null) {
+            evictor.recordChange(key);
+        }
+        if (writeBehind != null) {
+            writeBehind.add(key, value);
+        }
+        sets.increment();
+        return append;
+    }
+
+    /**
+     * Изменение TTL записи без изменения значения (EXPIRE). Новый срок отсчитывается от текущего момента.
+     *
+     * @param key Ключ записи
+     * @param ttl Новое время жизни записи в миллисекундах
+     * @return true, если запись найдена и её TTL изменён
+     * @throws IllegalArgumentException если TTL некорректен
+     */
+    public boolean expire(String key, long ttl) {
+        checkWritable();
+        resolveTtl(ttl);
+        return update(key, (entry, currentTime) ->
+                entry == null ? null : StorageEntry.of(entry.value(), ttl, currentTime)).updated() != null;
+    }
+
+    /**
+     * Снятие ограничения срока жизни записи без изменения значения (PERSIST).
+     *
+     * @param key Ключ записи
+     * @return true, если запись найдена и её срок жизни был ограничен
+     */
+    public boolean persist(String key) {
+        checkWritable();
+        return update(key, (entry, currentTime) -> entry == null || entry.isPersistent()
+                ? null : StorageEntry.persistent(entry.value(), currentTime)).updated() != null;
+    }
+
+    /**
+     * Оставшееся время жизни записи (TTL).
+     *
+     * @param key Ключ записи
+     * @return Оставшееся время жизни в миллисекундах, {@code -1}, если срок жизни не ограничен,
+     * или {@code null}, если ключ не найден
+     */
+    public Long getTtl(String key) {
+        long currentTime = System.currentTimeMillis();
+        StorageEntry entry = liveEntry(key, currentTime);
+        if (entry == null) {
+            return null;
+        }
+        return entry.isPersistent() ? -1L : entry.expiresAt() - currentTime;
+    }
+
+    /**
+     * Чтение записи с версией для последующей условной замены.
+     *
+     * @param key Ключ записи
+     * @return Запись с версией или {@code null}, если ключ не найден
+     */
+    public VersionedEntry getVersioned(String key) {
+        long start = metrics.start();
+        StorageEntry entry = lookup(key, System.currentTimeMillis());
+        metrics.record(Operation.GET, start);
+        return entry == null ? null : VersionedEntry.of(entry);
+    }
+
+    /**
+     * Сохранение значения, только если по ключу нет живой записи (SETNX).
+     *
+     * @param key   Ключ записи
+     * @param value Значение
+     * @param ttl   Время жизни записи в миллисекундах или {@code null} для TTL по умолчанию
+     * @return true, если значение сохранено
+     * @throws IllegalArgumentException если ключ зарезервирован или TTL некорректен
+     */
+    public boolean setIfAbsent(String key, String value, Long ttl) {
+        checkWritable();
+        checkKey(key);
+        long selectedTTL = resolveTtl(ttl);
+        long start = metrics.start();
+        boolean stored = update(key, (entry, currentTime) ->
+                entry == null ? StorageEntry.of(value, selectedTTL, currentTime) : null).updated() != null;
+        metrics.record(Operation.UPDATE, start);
+        return stored;
+    }
+
+    /**
+     * Замена значения, только если версия хранимой записи совпадает с ожидаемой.
+     *
+     * @param key     Ключ записи
+     * @param version Ожидаемая версия из {@link #getVersioned(String)} или предыдущей замены
+     * @param value   Новое значение
+     * @param ttl     Время жизни записи в миллисекундах или {@code null} для TTL по умолчанию
+     * @return Новая запись с версией или {@code null}, если ключ не найден или версия изменилась
+     * @throws IllegalArgumentException если ключ зарезервирован или TTL некорректен
+     */
+    public VersionedEntry compareAndSet(String key, long version, String value, Long ttl) {
+        checkWritable();
+        checkKey(key);
+        long selectedTTL = resolveTtl(ttl);
+        long start = metrics.start();
+        StorageEntry updated = update(key, (entry, currentTime) -> entry == null || entry.version() != version
+                ? null : StorageEntry.of(value, selectedTTL, currentTime)).updated();
+        metrics.record(Operation.UPDATE, start);
+        return updated == null ? null : VersionedEntry.of(updated);
+    }
+
+    /**
+     * Увеличение целого значения записи на заданную величину (INCR/DECR). Срок жизни существующей
+     * записи сохраняется; отсутствующая запись создаётся со значением {@code delta}.
+     *
+     * @param key   Ключ записи
+     * @param delta Величина изменения (отрицательная для уменьшения)
+     * @param ttl   Время жизни создаваемой записи в миллисекундах или {@code null} для TTL по умолчанию
+     * @return Новое значение
+     * @throws IllegalArgumentException если значение записи не целое число, результат выходит за пределы
+     *                                  {@code long}, ключ зарезервирован или TTL некорректен
+     */
+    public long increment(String key, long delta, Long ttl) {
+        checkWritable();
+        checkKey(key);
+        long selectedTTL = resolveTtl(ttl);
+        long start = metrics.start();
+        StorageEntry updated = update(key, (entry, currentTime) -> {
+            if (entry == null) {
+                return StorageEntry.of(Long.toString(delta), selectedTTL, currentTime);
+            }
+            long current;
+            try {
+                current = Long.parseLong(entry.value());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Value of key '" + key + "' is not an integer.");
+            }
+            long result;
+            try {
+                result = Math.addExact(current, delta);
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("Increment of key '" + key + "' would overflow.");
+            }
+            return retained(entry, Long.toString(result), currentTime);
+        }).updated();
+        metrics.record(Operation.UPDATE, start);
+        return Long.parseLong(updated.value());
+    }
+
+    /**
+     * Сохранение значения с возвратом предыдущего (GETSET).
+     *
+     * @param key   Ключ записи
+     * @param value Новое значение
+     * @param ttl   Время жизни записи в миллисекундах или {@code null} для TTL по умолчанию
+     * @return Предыдущая запись или {@code null}, если ключ не найден
+     * @throws IllegalArgumentException если ключ зарезервирован или TTL некорректен
+     */
+    public Tuple3<String, Long, Long> getAndSet(String key, String value, Long ttl) {
+        checkWritable();
+        checkKey(key);
+        long selectedTTL = resolveTtl(ttl);
+        long start = metrics.start();
+        StorageEntry previous = update(key, (entry, currentTime) -> StorageEntry.of(value, selectedTTL, currentTime)).previous();
+        metrics.record(Operation.UPDATE, start);
+        return previous == null ? null : previous.toTuple();
+    }
+
+    /**
+     * Запись с новым значением и прежним моментом истечения срока жизни. Время сохранения — текущее,
+     * чтобы загрузка состояния не перезаписала изменённое значение.
+     */
+    private static StorageEntry retained(StorageEntry entry, String value, long currentTime) {
+        return entry.isPersistent()
+                ? StorageEntry.persistent(value, currentTime)
+                : StorageEntry.of(value, entry.expiresAt() - currentTime, currentTime);
+    }
+
+    /**
+     * Запись по ключу до атомарного изменения и после него ({@code null}, если запись не изменялась).
+     */
+    private record Update(StorageEntry previous, StorageEntry updated) {
+    }
+
+    /**
+     * Атомарное изменение записи по ключу (семантика {@link ConcurrentHashMap#compute}): функция получает
+     * живую запись или {@code null} и текущее время и возвращает новую запись или {@code null}, если
+     * изменять запись не нужно. Запись устанавливается условно, поэтому блокировка ключа на время
+     * вычисления не нужна: если ключ изменён параллельно, функция вызывается снова с новой записью.
+     */
+    private Update update(String key, BiFunction<StorageEntry, Long, StorageEntry> function) {
+        while (true) {
+            long currentTime = System.currentTimeMillis();
+            StorageEntry entry = liveEntry(key, currentTime);
+            StorageEntry updated = function.apply(entry, currentTime);
+            if (updated == null) {
+                return new Update(entry, null);
+            }
+            WriteAheadLog.Append append = null;
+            boolean installed;
+            if (wal == null) {
+                installed = install(key, entry, updated);
+            } else {
+                ReentrantLock lock = walLock(key);
+                lock.lock();
+                try {
+                    installed = install(key, entry, updated);
+                    if (installed) {
+                        append = wal.append(WalRecord.set(key, updated));
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            if (installed) {
+                changed(key);
+                scheduleExpiry(key, updated);
+                // Версия меняется и при изменении только TTL: политика вытеснения должна учесть новую версию
+                if (evictor != null) {
+                    evictor.recordChange(key);
+                }
+                // Значение не меняется только при изменении TTL: тогда новая запись ссылается на ту же строку
+                if (entry == null || entry.value() != updated.value()) {
+                    if (writeBehind != null) {
+                        writeBehind.add(key, updated.value());
+                    }
+                    sets.increment();
+                }
+                awaitLogged(append);
+                return new Update(entry, updated);
+            }
+        }
+    }
+
+    private boolean install(String key, StorageEntry expected, StorageEntry entry) {
+        return expected == null ? storage.putIfAbsent(key, entry) : storage.replace(key, expected, entry);
+    }
+
+    /**
+     * Операция удаления (remove).
+     * Удаляет данные, хранящиеся по переданному ключу.
+     * Возвращает данные, хранившиеся по переданному ключу или метку отсутствия данных.
+     *
+     * @param key ключ, по которому нужно удалить данные
+     * @return Tuple3 с данными, хранившимися по ключу, или null если данные не найдены
+     */
+    public Tuple3<String, Long, Long> remove(String key) {
+        checkWritable();
+        long start = metrics.start();
+        Removal removal = delete(key, System.currentTimeMillis());
+        awaitLogged(removal.append());
+        metrics.record(Operation.REMOVE, start);
+        StorageEntry entry = removal.entry();
+        if (entry != null) {
+            LOGGER.debug("Удалено значение '{}' для ключа '{}'", entry.value(), key);
+            return entry.toTuple();
+        } else {
+            LOGGER.debug("Данные по ключу '{}' не найдены", key);
+            return null;
+        }
+    }
+
+    /**
+     * Пакетная операция удаления.
+     * Большие пакеты обрабатываются параллельно.
+     *
+     * @param keys Ключи
+     * @return Удалённые записи по ключам в порядке запроса; для отсутствующих ключей значение {@code null}
+     * @throws IllegalArgumentException если среди ключей есть {@code null}; в этом случае ни одна запись не удаляется
+     */
+    public Map<String, Tuple3<String, Long, Long>> multiRemove(List<String> keys) {
+        checkWritable();
+        checkKeys(keys);
+        long start = metrics.start();
+        long currentTime = System.currentTimeMillis();
+        Removal[] removals = new Removal[keys.size()];
+        forEachIndex(keys.size(), i -> removals[i] = delete(keys.get(i), currentTime));
+
+        Map<String, Tuple3<String, Long, Long>> result = new LinkedHashMap<>(keys.size() * 4 / 3 + 1);
+        for (int i = 0; i < removals.length; i++) {
+            awaitLogged(removals[i].append());
+            StorageEntry entry = removals[i].entry();
+            if (entry != null || !result.containsKey(keys.get(i))) {
+                result.put(keys.get(i), entry == null ? null : entry.toTuple());
+            }
+        }
+        metrics.record(Operation.MULTI_REMOVE, start);
+        return result;
+    }
+
+    /**
+     * Удаление всех записей с заданным префиксом ключа. Ключи выбираются по индексу ключей, если он ведётся,
+     * иначе полным обходом хранилища; записи, добавленные во время удаления, могут остаться.
+     * Каждая запись удаляется, как {@link #remove}: с записью в журнал и уведомлением реплик.
+     *
+     * @param prefix Непустой префикс ключа
+     * @return Количество удалённых записей с неистёкшим TTL
+     * @throws IllegalArgumentException если префикс пустой
+     */
+    public int removeByPrefix(String prefix) {
+        if (prefix == null || prefix.isEmpty()) {
+            throw new IllegalArgumentException("Parameter 'prefix' must not be empty.");
+        }
+        checkWritable();
+        LOGGER.debug("Удаление записей по префиксу: {}", prefix);
+        long start = metrics.start();
+        long currentTime = System.currentTimeMillis();
+        // Ключи удаляются частями по мере обхода, чтобы память не зависела от количества записей с префиксом.
+        String[] keys = new String[REMOVE_CHUNK_SIZE];
+        Removal[] removals = new Removal[REMOVE_CHUNK_SIZE];
+        int removed = 0;
+        Iterator<Map.Entry<String, StorageEntry>> it = entries(prefix);
+        while (it.hasNext()) {
+            int count = 0;
+            while (count < REMOVE_CHUNK_SIZE && it.hasNext()) {
+                String key = it.next().getKey();
+                if (key.startsWith(prefix)) {
+                    keys[count++] = key;
+                }
+            }
+            forEachIndex(count, i -> removals[i] = delete(keys[i], currentTime));
+            for (int i = 0; i < count; i++) {
+                awaitLogged(removals[i].append());
+                if (removals[i].entry() != null) {
+                    removed++;
+                }
+            }
+        }
+        metrics.record(Operation.MULTI_REMOVE, start);
+        return removed;
+    }
+
+    /**
+     * Удалённая запись (или {@code null}, если записи не было или её TTL истёк) и результат добавления в журнал.
+     */
+    private record Removal(StorageEntry entry, WriteAheadLog.Append append) {
+    }
+
+    /**
+     * Удаление записи без ожидания сброса журнала на диск.
+     */
+    private Removal delete(String key, long currentTime) {
+        StorageEntry entry;
+        WriteAheadLog.Append append = null;
+        if (wal == null) {
+            entry = storage.remove(key);
+        } else {
+            ReentrantLock lock = walLock(key);
+            lock.lock();
+            try {
+                entry = storage.remove(key);
+                if (entry != null) {
+                    append = wal.append(WalRecord.delete(key));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (entry != null) {
+            changed(key);
+            if (evictor != null) {
+                evictor.recordChange(key);
+            }
+        }
+        if (entry != null && !entry.isLive(currentTime)) {
+            expiredOnRead.increment();
+            entry = null;
+        } else if (entry != null) {
+            removes.increment();
+        }
+        return new Removal(entry, append);
+    }
+
+    /**
+     * Выполнение действия для индексов {@code 0..size-1}: последовательно для небольших пакетов
+     * и параллельно в общем пуле ForkJoinPool для пакетов от {@code storage.batch.parallel-threshold}.
+     */
+    private void forEachIndex(int size, IntConsumer action) {
+        if (size >= batchParallelThreshold) {
+            IntStream.range(0, size).parallel().forEach(action);
+        } else {
+            for (int i = 0; i < size; i++) {
+                action.accept(i);
+            }
+        }
+    }
+
+    /**
+     * Операция сохранения текущего состояния (dump).
+     * Сохраняет текущее состояние хранилища в полный файл и возвращает его в виде загружаемого файла.
+     * Сохранение выполняется фоновым заданием; метод ждёт его завершения.
+     *
+     * @return Загружаемый файл с текущим состоянием хранилища или {@code null}, если сохранить не удалось
+     * @see #startDump(boolean)
+     * */
+    public File dump() {
+        SnapshotJob job = startDump(false).await();
+        return job.getStatus() == SnapshotJob.Status.COMPLETED ? snapshotFile.toFile() : null;
+    }
+
+    /**
+     * Запуск фонового сохранения состояния. Задания сохранения и загрузки выполняются по одному
+     * в отдельном потоке и не блокируют операции чтения и записи: записи пишутся в файл потоком из
+     * слабо согласованного обхода хранилища, без промежуточной копии; файл заменяется атомарно.
+     * <p>
+     * Полное сохранение кодирует шарды параллельно в пуле фонового обслуживания и удаляет инкрементальные
+     * файлы предыдущих сохранений. Инкрементальное сохранение пишет в следующий файл цепочки
+     * ({@link SnapshotChain}) только ключи, изменённые после предыдущего сохранения, а удалённые
+     * ключи — записями об удалении. Если полный файл ещё не был сохранён этим процессом,
+     * инкрементальное сохранение выполняется полным.
+     *
+     * @param incremental true для инкрементального сохранения
+     * @return Задание, состояние которого можно опрашивать по идентификатору
+     */
+    public SnapshotJob startDump(boolean incremental) {
+        return snapshotJobs.submit(SnapshotJob.Type.DUMP, incremental, this::writeSnapshot);
+    }
+
+    /**
+     * Операция загрузки состояния хранилища (load).
+     * Загружает состояние хранилища из файла, созданного операцией dump (пункт 4), и инкрементальных
+     * файлов после него. Загрузка выполняется фоновым заданием; метод ждёт его завершения.
+     *
+     * @see #startLoad()
+     */
+    public void load() {
+        startLoad().await();
+    }
+
+    /**
+     * Запуск фоновой загрузки состояния хранилища.
+     * Записи из полного файла и инкрементальных файлов после него добавляются в работающее хранилище
+     * по порядку: запись по ключу, сохранённая позже записи из файла, не перезаписывается, записи
+     * с истёкшим TTL пропускаются, записи об удалении удаляют более ранние записи по ключу.
+     * Формат каждого файла определяется автоматически.
+     *
+     * @return Задание, состояние которого можно опрашивать по идентификатору
+     */
+    public SnapshotJob startLoad() {
+        checkWritable();
+        return snapshotJobs.submit(SnapshotJob.Type.LOAD, false, this::loadSnapshot);
+    }
+
+    /**
+     * @param id Идентификатор задания
+     * @return Задание сохранения или загрузки состояния или {@code null}, если оно неизвестно
+     */
+    public SnapshotJob getSnapshotJob(String id) {
+        return snapshotJobs.get(id);
+    }
+
+    private SnapshotJobs.Outcome writeSnapshot(SnapshotJob job) throws IOException {
+        snapshotLock.lock();
+        try {
+            long start = System.nanoTime();
+            long currentTime = System.currentTimeMillis();
+            // Учёт изменённых ключей начинается до обхода хранилища, поэтому изменение,
+            // не попавшее в обход, войдёт в следующий инкрементальный файл.
+            Set<String> changed = changes.reset();
+            boolean incremental = job.isIncremental() && changed != null && Files.exists(snapshotFile);
+            job.setIncremental(incremental);
+            Path file = snapshotFile;
+            long written;
+            try {
+                if (incremental) {
+                    file = snapshotChain.nextDelta();
+                    written = writeDelta(file, changed, currentTime, job);
+                } else {
+                    written = writeBase(currentTime, job);
+                }
+            } catch (IOException | RuntimeException e) {
+                changes.restore(changed);
+                throw e;
+            }
+            metrics.record(Operation.DUMP, start);
+
+            LOGGER.info("Текущее состояние хранилища успешно сохранено в файл: {} (записей: {}, {} мс)", file, written,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return new SnapshotJobs.Outcome(file, written);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Сохранение полного файла и удаление инкрементальных файлов, которые он заменяет.
+     *
+     * @param job Задание для учёта прогресса или {@code null}
+     */
+    private long writeBase(long currentTime, SnapshotJob job) throws IOException {
+        List<Iterator<Map.Entry<String, StorageEntry>>> parts = storage.shardIterators();
+        if (job != null) {
+            job.setTotal(storage.size());
+            parts = parts.stream().map(part -> counted(part, job)).toList();
+        }
+        long written = snapshotWriter.write(snapshotFile, parts, currentTime, maintenancePool);
+        snapshotChain.deleteDeltas();
+        return written;
+    }
+
+    /**
+     * Сохранение изменённых ключей в инкрементальный файл: живая запись сохраняется как есть,
+     * отсутствующая или истёкшая — записью об удалении на момент сохранения.
+     */
+    private long writeDelta(Path file, Set<String> changed, long currentTime, SnapshotJob job) throws IOException {
+        job.setTotal(changed.size());
+        Iterator<String> keys = changed.iterator();
+        Iterator<Map.Entry<String, StorageEntry>> entries = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return keys.hasNext();
+            }
+
+            @Override
+            public Map.Entry<String, StorageEntry> next() {
+                String key = keys.next();
+                job.advance();
+                StorageEntry entry = storage.get(key);
+                return Map.entry(key, entry != null && entry.isLive(currentTime) ? entry : StorageEntry.tombstone(currentTime));
+            }
+        };
+        return snapshotWriter.write(file, entries, currentTime);
+    }
+
+    /**
+     * Обход с учётом просмотренных записей в прогрессе задания.
+     */
+    private static Iterator<Map.Entry<String, StorageEntry>> counted(Iterator<Map.Entry<String, StorageEntry>> iterator,
+                                                                     SnapshotJob job) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Map.Entry<String, StorageEntry> next() {
+                Map.Entry<String, StorageEntry> next = iterator.next();
+                job.advance();
+                return next;
+            }
+        };
+    }
+
+    private SnapshotJobs.Outcome loadSnapshot(SnapshotJob job) throws IOException {
+        // Блокировка не даёт сжатию журнала удалить инкрементальные файлы во время загрузки.
+        snapshotLock.lock();
+        try {
+            if (snapshotChain.files().isEmpty()) {
+                throw new NoSuchFileException(snapshotFile.toString());
+            }
+            long start = System.nanoTime();
+            SnapshotLoader.Result result = loadChain(System.currentTimeMillis(), (key, entry) -> {
+                if (!mergeEntry(key, entry)) {
+                    return false;
+                }
+                job.advance();
+                return true;
+            });
+            metrics.record(Operation.LOAD, start);
+
+            LOGGER.info("Состояние хранилища успешно загружено из файла: {} (загружено записей: {}, пропущено истёкших: {}, {} мс)",
+                    snapshotFile, result.loaded(), result.expired(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return new SnapshotJobs.Outcome(snapshotFile, result.loaded());
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Загрузка полного файла и инкрементальных файлов после него по порядку.
+     * Без полного файла загружаются только инкрементальные файлы.
+     */
+    private SnapshotLoader.Result loadChain(long currentTime, BiPredicate<String, StorageEntry> sink) throws IOException {
+        long loaded = 0;
+        long expired = 0;
+        for (Path file : snapshotChain.files()) {
+            SnapshotLoader.Result result = snapshotLoader.load(file, currentTime, !file.equals(snapshotChain.base()), sink);
+            loaded += result.loaded();
+            expired += result.expired();
+        }
+        return new SnapshotLoader.Result(loaded, expired);
+    }
+
+    /**
+     * Добавление загруженной записи, если по ключу не хранится более новая запись.
+     * Запись об удалении удаляет запись, сохранённую не позже неё.
+     */
+    private boolean mergeEntry(String key, StorageEntry entry) {
+        if (entry.isTombstone()) {
+            return removeOlder(key, entry.savedTime());
+        }
+        if (!storage.putIfNewer(key, entry)) {
+            return false;
+        }
+        changed(key);
+        scheduleExpiry(key, entry);
+        if (evictor != null) {
+            evictor.recordChange(key);
+        }
+        return true;
+    }
+
+    private boolean removeOlder(String key, long removedTime) {
+        while (true) {
+            StorageEntry current = storage.get(key);
+            if (current == null || current.savedTime() > removedTime) {
+                return false;
+            }
+            if (removeEntry(key, current)) {
+                changes.mark(key);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Подписка на изменения хранилища для репликации: слушатель получает ключ после каждого сохранения,
+     * удаления, изменения TTL, вытеснения и удаления записи с истёкшим TTL. Слушатель вызывается
+     * в потоке операции и не должен блокироваться.
+     *
+     * @param listener Слушатель или {@code null}, чтобы отменить подписку
+     */
+    public void setReplicationListener(Consumer<String> listener) {
+        this.replicationListener = listener;
+    }
+
+    /**
+     * Режим реплики: операции, изменяющие хранилище, отклоняются с {@link ReadOnlyReplicaException},
+     * а записи изменяются только методом {@link #applyReplicated(String, StorageEntry)}.
+     *
+     * @param readOnly true для режима реплики
+     */
+    public void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * @return true, если чтение при промахе может ждать источник значений ({@link CacheLoader})
+     */
+    public boolean readsMayBlock() {
+        return loader != null;
+    }
+
+    /**
+     * @return true, если операции записи ждут сброса журнала на диск ({@code storage.wal.fsync=always})
+     */
+    public boolean writesMayBlock() {
+        return syncWrites;
+    }
+
+    /**
+     * Чтение текущей записи для передачи на реплики, без учёта попаданий и обращений для вытеснения.
+     *
+     * @param key Ключ записи
+     * @return Запись или {@code null}, если ключ не найден или TTL записи истёк
+     */
+    public StorageEntry replicationEntry(String key) {
+        StorageEntry entry = storage.get(key);
+        return entry == null || !entry.isLive(System.currentTimeMillis()) ? null : entry;
+    }
+
+    /**
+     * Применение записи, полученной от ведущего узла. Запись сохраняется как есть, со сроком жизни
+     * ведущего узла; отсутствующая или истёкшая запись означает удаление ключа.
+     *
+     * @param key   Ключ записи
+     * @param entry Запись или {@code null} для удаления
+     */
+    public void applyReplicated(String key, StorageEntry entry) {
+        long currentTime = System.currentTimeMillis();
+        if (entry == null || !entry.isLive(currentTime)) {
+            delete(key, currentTime);
+            return;
+        }
+        putLogged(key, entry);
+        changed(key);
+        scheduleExpiry(key, entry);
+        if (evictor != null) {
+            evictor.recordChange(key);
+        }
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new ReadOnlyReplicaException();
         }
     }
 
@@ -176,8 +1864,7 @@ public class MemoryStorageService {
      *
      * @param ttl параметр ttl
      */
-    private boolean checkTtlValue(Long ttl) {
-        LOGGER.debug("Проверка ttl на числовое значение");
-        return Pattern.matches("^\\d+$", ttl.toString()) && ttl > 100;
+    private boolean checkTtlValue(long ttl) {
+        return ttl > 100;
     }
 }
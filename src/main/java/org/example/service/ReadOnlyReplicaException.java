@@ -0,0 +1,11 @@
+package org.example.service;
+
+/**
+ * Попытка изменить хранилище, работающее репликой ведущего узла.
+ */
+public class ReadOnlyReplicaException extends IllegalStateException {
+
+    public ReadOnlyReplicaException() {
+        super("Storage is a read-only replica.");
+    }
+}
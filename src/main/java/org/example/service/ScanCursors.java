@@ -0,0 +1,100 @@
+package org.example.service;
+
+import org.example.storage.StorageEntry;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * Открытые курсоры постраничного обхода. Курсор хранит слабо согласованный итератор хранилища,
+ * поэтому продолжение обхода не зависит от размера хранилища и не копирует записи.
+ * На время запроса страницы курсор изымается из таблицы, так что один курсор не используется
+ * двумя запросами одновременно. Курсоры, к которым не обращались дольше таймаута, закрываются;
+ * при превышении лимита открытых курсоров закрывается самый давний.
+ */
+final class ScanCursors {
+
+    /**
+     * Состояние обхода.
+     */
+    static final class Cursor {
+        final Iterator<Map.Entry<String, StorageEntry>> iterator;
+        final Predicate<String> filter;
+        volatile long lastAccess;
+
+        Cursor(Iterator<Map.Entry<String, StorageEntry>> iterator, Predicate<String> filter, long now) {
+            this.iterator = iterator;
+            this.filter = filter;
+            this.lastAccess = now;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Cursor> open = new ConcurrentHashMap<>();
+    private final long timeoutMillis;
+    private final int maxCursors;
+
+    ScanCursors(long timeoutMillis, int maxCursors) {
+        this.timeoutMillis = timeoutMillis;
+        this.maxCursors = maxCursors;
+    }
+
+    /**
+     * Изъятие курсора на время запроса страницы.
+     *
+     * @throws IllegalArgumentException если курсор неизвестен, закрыт по таймауту или уже используется
+     */
+    Cursor take(String id) {
+        Cursor cursor = open.remove(id);
+        if (cursor == null) {
+            throw new IllegalArgumentException("Unknown or expired scan cursor: " + id);
+        }
+        return cursor;
+    }
+
+    /**
+     * Возврат курсора после запроса страницы.
+     *
+     * @param id Идентификатор курсора или {@code null} для нового курсора
+     * @return Идентификатор курсора
+     */
+    String put(String id, Cursor cursor, long now) {
+        cursor.lastAccess = now;
+        if (id == null) {
+            if (open.size() >= maxCursors) {
+                closeOldest();
+            }
+            do {
+                id = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+            } while (id.equals("0") || open.putIfAbsent(id, cursor) != null);
+            return id;
+        }
+        open.put(id, cursor);
+        return id;
+    }
+
+    /**
+     * Закрытие курсоров, к которым не обращались дольше таймаута.
+     */
+    void expireIdle(long now) {
+        open.values().removeIf(cursor -> now - cursor.lastAccess > timeoutMillis);
+    }
+
+    int size() {
+        return open.size();
+    }
+
+    private void closeOldest() {
+        Map.Entry<String, Cursor> oldest = null;
+        for (Map.Entry<String, Cursor> entry : open.entrySet()) {
+            if (oldest == null || entry.getValue().lastAccess < oldest.getValue().lastAccess) {
+                oldest = entry;
+            }
+        }
+        if (oldest != null) {
+            open.remove(oldest.getKey(), oldest.getValue());
+        }
+    }
+}
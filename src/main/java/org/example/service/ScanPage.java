@@ -0,0 +1,14 @@
+package org.example.service;
+
+import org.example.tuple.Tuple3;
+
+import java.util.Map;
+
+/**
+ * Страница результатов постраничного обхода хранилища.
+ *
+ * @param cursor  Курсор для запроса следующей страницы; {@code "0"}, если обход завершён
+ * @param entries Записи страницы
+ */
+public record ScanPage(String cursor, Map<String, Tuple3<String, Long, Long>> entries) {
+}
@@ -0,0 +1,163 @@
+package org.example.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Фоновое сохранение или загрузка состояния хранилища.
+ * Состояние задания читается без блокировок и возвращается клиенту при опросе по идентификатору.
+ */
+public final class SnapshotJob {
+
+    /**
+     * Вид задания.
+     */
+    public enum Type {
+        DUMP, LOAD
+    }
+
+    /**
+     * Состояние задания.
+     */
+    public enum Status {
+        /** Задание ждёт завершения предыдущих заданий. */
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private final String id;
+    private final Type type;
+    private final long createdAt;
+    private final LongAdder processed = new LongAdder();
+    private final CompletableFuture<SnapshotJob> completion = new CompletableFuture<>();
+
+    private volatile boolean incremental;
+    private volatile Status status = Status.QUEUED;
+    private volatile long total = -1;
+    private volatile long entries;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile String file;
+    private volatile String error;
+
+    SnapshotJob(String id, Type type, boolean incremental, long createdAt) {
+        this.id = id;
+        this.type = type;
+        this.incremental = incremental;
+        this.createdAt = createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return true, если сохраняются только ключи, изменённые после предыдущего сохранения. Запрошенное
+     * инкрементальное сохранение выполняется полным, если полный файл ещё не был сохранён этим процессом
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return Количество обработанных записей: просмотренных при сохранении, принятых при загрузке
+     */
+    public long getProcessed() {
+        return processed.sum();
+    }
+
+    /**
+     * @return Ожидаемое количество обрабатываемых записей или {@code -1}, если оно неизвестно
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return Количество записанных или загруженных записей после завершения задания
+     */
+    public long getEntries() {
+        return entries;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * @return Записанный файл состояния (для загрузки — полный файл цепочки)
+     */
+    public String getFile() {
+        return file;
+    }
+
+    /**
+     * @return Описание ошибки, если задание завершилось неудачно
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Ожидание завершения задания.
+     *
+     * @return Это задание
+     */
+    public SnapshotJob await() {
+        return completion.join();
+    }
+
+    boolean isFinished() {
+        return completion.isDone();
+    }
+
+    void advance() {
+        processed.increment();
+    }
+
+    void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    void setTotal(long total) {
+        this.total = total;
+    }
+
+    void start(long now) {
+        startedAt = now;
+        status = Status.RUNNING;
+    }
+
+    void complete(String file, long entries, long now) {
+        this.file = file;
+        this.entries = entries;
+        finishedAt = now;
+        status = Status.COMPLETED;
+        completion.complete(this);
+    }
+
+    void fail(Throwable e, long now) {
+        error = e.toString();
+        finishedAt = now;
+        status = Status.FAILED;
+        completion.complete(this);
+    }
+}
@@ -0,0 +1,122 @@
+package org.example.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Очередь фоновых заданий сохранения и загрузки состояния.
+ * Задания выполняются по одному в отдельном потоке, поэтому одновременные запросы не пишут
+ * один и тот же файл и не ждут друг друга в потоках обработки запросов. Завершённые задания
+ * хранятся для опроса состояния; при превышении лимита удаляются самые давние из них.
+ */
+final class SnapshotJobs {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotJobs.class);
+
+    /**
+     * Тело задания.
+     */
+    @FunctionalInterface
+    interface Task {
+        /**
+         * @return Записанный или загруженный файл и количество записей
+         */
+        Outcome run(SnapshotJob job) throws IOException;
+    }
+
+    record Outcome(Path file, long entries) {
+    }
+
+    private final ConcurrentHashMap<String, SnapshotJob> jobs = new ConcurrentHashMap<>();
+    private final Queue<SnapshotJob> history = new ConcurrentLinkedQueue<>();
+    private final ExecutorService executor;
+    private final int maxJobs;
+
+    SnapshotJobs(int maxJobs) {
+        this.maxJobs = maxJobs;
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread th = new Thread(r, "storage-snapshot");
+            th.setDaemon(true);
+            return th;
+        });
+    }
+
+    /**
+     * Постановка задания в очередь.
+     *
+     * @return Задание в состоянии {@link SnapshotJob.Status#QUEUED}
+     */
+    SnapshotJob submit(SnapshotJob.Type type, boolean incremental, Task task) {
+        SnapshotJob job;
+        do {
+            job = new SnapshotJob(Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36),
+                    type, incremental, System.currentTimeMillis());
+        } while (jobs.putIfAbsent(job.getId(), job) != null);
+        history.add(job);
+        trimHistory();
+
+        SnapshotJob submitted = job;
+        try {
+            executor.execute(() -> run(submitted, task));
+        } catch (RejectedExecutionException e) {
+            submitted.fail(e, System.currentTimeMillis());
+        }
+        return submitted;
+    }
+
+    /**
+     * @return Задание или {@code null}, если оно неизвестно или уже удалено из истории
+     */
+    SnapshotJob get(String id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * Остановка потока заданий; задания, ещё не начатые к этому моменту, завершаются неудачно.
+     */
+    void shutdown() {
+        executor.shutdownNow();
+        for (SnapshotJob job : jobs.values()) {
+            if (job.getStatus() == SnapshotJob.Status.QUEUED) {
+                job.fail(new CancellationException("Storage is shut down."), System.currentTimeMillis());
+            }
+        }
+    }
+
+    private static void run(SnapshotJob job, Task task) {
+        job.start(System.currentTimeMillis());
+        try {
+            Outcome outcome = task.run(job);
+            job.complete(outcome.file().toString(), outcome.entries(), System.currentTimeMillis());
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Ошибка при выполнении задания {} ({})", job.getId(), job.getType(), e);
+            job.fail(e, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Удаление самых давних завершённых заданий сверх лимита; незавершённые задания не удаляются.
+     */
+    private void trimHistory() {
+        while (history.size() > maxJobs) {
+            SnapshotJob oldest = history.peek();
+            if (oldest == null || !oldest.isFinished()) {
+                return;
+            }
+            if (history.remove(oldest)) {
+                jobs.remove(oldest.getId(), oldest);
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Гистограммы задержек операций хранилища ({@code storage.operation}) и сохранения/загрузки
+ * состояния ({@code storage.snapshot}) с тегом {@code operation}.
+ * Гистограммы публикуются экспоненциальными интервалами, из которых Prometheus вычисляет перцентили;
+ * запись в гистограмму не блокирует и не выделяет память. Задержка операций хранилища измеряется
+ * у случайной выборки из в среднем каждой {@code storage.metrics.latency-sampling}-й операции,
+ * поэтому количество в гистограмме — число измерений, а не операций; сохранение и загрузка измеряются всегда.
+ * Без реестра метрик измерения не выполняются.
+ */
+public final class StorageMetrics {
+
+    /**
+     * Измеряемые операции.
+     */
+    public enum Operation {
+        GET, SET, UPDATE, REMOVE, MULTI_GET, MULTI_SET, MULTI_REMOVE, GET_ALL, SCAN, RANGE, DUMP, LOAD;
+
+        private boolean isSnapshot() {
+            return this == DUMP || this == LOAD;
+        }
+
+        private String tag() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    static final StorageMetrics DISABLED = new StorageMetrics(null, 1);
+
+    private final Timer[] timers;
+    private final int sampling;
+
+    private StorageMetrics(Timer[] timers, int sampling) {
+        this.timers = timers;
+        this.sampling = sampling;
+    }
+
+    /**
+     * @param registry Реестр метрик или {@code null}, если метрики не собираются
+     * @param sampling Задержка измеряется в среднем у каждой {@code sampling}-й операции
+     */
+    static StorageMetrics create(MeterRegistry registry, int sampling) {
+        if (sampling < 1) {
+            throw new IllegalArgumentException("Latency sampling must be a positive number.");
+        }
+        if (registry == null) {
+            return DISABLED;
+        }
+        Operation[] operations = Operation.values();
+        Timer[] timers = new Timer[operations.length];
+        for (Operation operation : operations) {
+            Timer.Builder builder = operation.isSnapshot()
+                    ? Timer.builder("storage.snapshot")
+                            .description("Duration of storage state dump and load")
+                            .minimumExpectedValue(Duration.ofMillis(1))
+                            .maximumExpectedValue(Duration.ofMinutes(10))
+                    : Timer.builder("storage.operation")
+                            .description("Latency of sampled storage operations")
+                            .minimumExpectedValue(Duration.ofNanos(500))
+                            .maximumExpectedValue(Duration.ofSeconds(10));
+            timers[operation.ordinal()] = builder
+                    .tag("operation", operation.tag())
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+        return new StorageMetrics(timers, sampling);
+    }
+
+    /**
+     * @return Время начала операции или 0, если операция не попала в выборку или метрики не собираются
+     */
+    long start() {
+        if (timers == null || sampling > 1 && ThreadLocalRandom.current().nextInt(sampling) != 0) {
+            return 0;
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Запись длительности операции, начатой в момент {@code start}; операции вне выборки пропускаются.
+     */
+    void record(Operation operation, long start) {
+        if (timers != null && start != 0) {
+            timers[operation.ordinal()].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.service;
+
+import org.example.storage.StorageEntry;
+
+/**
+ * Запись с версией для условной замены ({@link MemoryStorageService#compareAndSet}).
+ *
+ * @param value     Значение
+ * @param ttl       Время жизни записи в миллисекундах ({@code -1}, если срок жизни не ограничен)
+ * @param savedTime Время сохранения записи в миллисекундах
+ * @param version   Версия записи; возрастает при каждом изменении значения или TTL. Версия выдаётся узлом,
+ *                  сохранившим запись, и не переносится в файл состояния, журнал и на реплики: после
+ *                  восстановления замена с прежней версией отклоняется
+ */
+public record VersionedEntry(String value, long ttl, long savedTime, long version) {
+
+    static VersionedEntry of(StorageEntry entry) {
+        return new VersionedEntry(entry.value(), entry.isPersistent() ? -1 : entry.ttl(), entry.savedTime(), entry.version());
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.service.eviction;
+
+/**
+ * Политика вытеснения записей при достижении ограничений хранилища.
+ * Реализации не потокобезопасны: все методы вызываются {@link Evictor} под его блокировкой.
+ */
+public interface EvictionPolicy {
+
+    /**
+     * Учёт обращения к записи.
+     *
+     * @param key Ключ записи
+     */
+    void onAccess(String key);
+
+    /**
+     * Учёт добавления или перезаписи записи.
+     *
+     * @param key     Ключ записи
+     * @param weight  Вес записи (размер хранимого значения в байтах)
+     * @param version Версия записи
+     */
+    void onWrite(String key, long weight, long version);
+
+    /**
+     * Учёт удаления записи.
+     *
+     * @param key Ключ записи
+     */
+    void onRemove(String key);
+
+    /**
+     * Выбирает запись для вытеснения и перестаёт её учитывать.
+     *
+     * @return Вытесняемая запись или {@code null}, если записей нет
+     */
+    Victim evict();
+
+    /**
+     * @return Количество учитываемых записей
+     */
+    long size();
+
+    /**
+     * @return Суммарный вес учитываемых записей
+     */
+    long weight();
+
+    /**
+     * Сбрасывает состояние политики.
+     */
+    void clear();
+
+    /**
+     * Запись, выбранная для вытеснения.
+     *
+     * @param key     Ключ записи
+     * @param version Версия записи при последнем учёте изменения
+     */
+    record Victim(String key, long version) {
+    }
+}
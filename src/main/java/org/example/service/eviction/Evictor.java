@@ -0,0 +1,227 @@
+package org.example.service.eviction;
+
+import org.example.storage.StorageEngine;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Потокобезопасная обёртка над {@link EvictionPolicy}, соблюдающая ограничения на количество
+ * и суммарный вес записей.
+ * <p>
+ * Чтения не берут общую блокировку: обращения записываются в полосатые буферы с потерями
+ * (полоса выбирается по потоку, при переполнении обращение отбрасывается), записи и удаления —
+ * в общую очередь без потерь. Буферы применяются к политике под блокировкой тем потоком,
+ * которому удалось её захватить, после чего при превышении ограничений вытесняются записи.
+ * <p>
+ * Изменения попадают в очередь уже после изменения хранилища, поэтому события параллельных записи
+ * и удаления одного ключа могут прийти в обратном порядке. Событие лишь отмечает ключ как изменённый:
+ * при применении политика сверяется с текущим состоянием записи в хранилище.
+ * <p>
+ * Политика запоминает версию записи, которую видела при последней сверке. Вытесняется только запись
+ * этой версии: запись, изменённая после сверки, остаётся в хранилище, а её событие ещё в очереди.
+ */
+public class Evictor {
+
+    private static final int STRIPES = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 4);
+    private static final int READ_BUFFER_SIZE = 16;
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+    private static final int READ_DRAIN_THRESHOLD = READ_BUFFER_SIZE / 2;
+    private static final int WRITE_BUFFER_LIMIT = 1024;
+
+    private final EvictionPolicy policy;
+    private final long maxEntries;
+    private final long maxWeight;
+    private final Predicate<EvictionPolicy.Victim> remover;
+    private final Function<String, StorageEngine.Footprint> footprints;
+
+    private final ReadBuffer[] readBuffers = new ReadBuffer[STRIPES];
+    private final ConcurrentLinkedQueue<String> writeBuffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param policy     Политика вытеснения
+     * @param maxEntries Максимальное количество записей ({@code 0} — без ограничения)
+     * @param maxWeight  Максимальный суммарный вес записей ({@code 0} — без ограничения)
+     * @param remover    Удаление вытесняемой записи из хранилища, только если по ключу хранится запись
+     *                   той же версии; возвращает true, если запись была удалена
+     * @param footprints Текущие версия и размер записи в хранилище или {@code null}, если записи нет
+     */
+    public Evictor(EvictionPolicy policy, long maxEntries, long maxWeight, Predicate<EvictionPolicy.Victim> remover,
+                   Function<String, StorageEngine.Footprint> footprints) {
+        this.policy = policy;
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.remover = remover;
+        this.footprints = footprints;
+        for (int i = 0; i < STRIPES; i++) {
+            readBuffers[i] = new ReadBuffer();
+        }
+    }
+
+    /**
+     * Учёт обращения к записи. Не блокирует вызывающий поток.
+     *
+     * @param key Ключ записи
+     */
+    public void recordRead(String key) {
+        ReadBuffer buffer = readBuffers[stripe()];
+        long pending = buffer.offer(key);
+        if (pending >= READ_DRAIN_THRESHOLD) {
+            tryDrain();
+        }
+    }
+
+    /**
+     * Учёт добавления, перезаписи или удаления записи. Вызывается после изменения хранилища;
+     * версия, вес записи и её наличие определяются при применении очереди.
+     *
+     * @param key Ключ записи
+     */
+    public void recordChange(String key) {
+        writeBuffer.offer(key);
+        if (pendingWrites.incrementAndGet() >= WRITE_BUFFER_LIMIT) {
+            // Обратное давление: при всплеске записей поток дожидается применения буфера,
+            // чтобы ограничения хранилища не были превышены надолго.
+            maintenance();
+        } else {
+            tryDrain();
+        }
+    }
+
+    /**
+     * Применяет все накопленные обращения и вытесняет записи при превышении ограничений.
+     */
+    public void maintenance() {
+        lock.lock();
+        try {
+            drain();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Сбрасывает состояние политики (например, перед загрузкой состояния хранилища).
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            drain();
+            policy.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Количество вытесненных записей
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return Суммарный вес учитываемых записей
+     */
+    public long weight() {
+        lock.lock();
+        try {
+            return policy.weight();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void tryDrain() {
+        if (lock.tryLock()) {
+            try {
+                drain();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void drain() {
+        for (ReadBuffer buffer : readBuffers) {
+            buffer.drainTo(policy);
+        }
+        String key;
+        while ((key = writeBuffer.poll()) != null) {
+            pendingWrites.decrementAndGet();
+            // Последнее изменение ключа всегда ставит событие в очередь после себя, поэтому сверка
+            // с хранилищем даёт итоговое состояние независимо от порядка событий.
+            StorageEngine.Footprint footprint = footprints.apply(key);
+            if (footprint == null) {
+                policy.onRemove(key);
+            } else {
+                policy.onWrite(key, footprint.size(), footprint.version());
+            }
+        }
+        while ((maxEntries > 0 && policy.size() > maxEntries) || (maxWeight > 0 && policy.weight() > maxWeight)) {
+            EvictionPolicy.Victim victim = policy.evict();
+            if (victim == null) {
+                break;
+            }
+            if (remover.test(victim)) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private static int stripe() {
+        long id = Thread.currentThread().getId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & (STRIPES - 1);
+    }
+
+    /**
+     * Кольцевой буфер обращений одной полосы. При переполнении новые обращения отбрасываются.
+     */
+    private static final class ReadBuffer {
+        private final AtomicReferenceArray<String> buffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+        private final AtomicLong writeCounter = new AtomicLong();
+        private volatile long readCounter;
+
+        /**
+         * @return Количество обращений в буфере или {@code 0}, если обращение отброшено
+         */
+        long offer(String key) {
+            long head = readCounter;
+            long tail = writeCounter.get();
+            long size = tail - head;
+            if (size >= READ_BUFFER_SIZE || !writeCounter.compareAndSet(tail, tail + 1)) {
+                return size;
+            }
+            buffer.lazySet((int) tail & READ_BUFFER_MASK, key);
+            return size + 1;
+        }
+
+        /**
+         * Вызывается только под блокировкой {@link Evictor}.
+         */
+        void drainTo(EvictionPolicy policy) {
+            long head = readCounter;
+            long tail = writeCounter.get();
+            for (; head < tail; head++) {
+                int index = (int) head & READ_BUFFER_MASK;
+                String key = buffer.get(index);
+                if (key == null) {
+                    // Запись в ячейку ещё не завершена: продолжим при следующем применении.
+                    break;
+                }
+                buffer.lazySet(index, null);
+                policy.onAccess(key);
+            }
+            readCounter = head;
+        }
+    }
+}
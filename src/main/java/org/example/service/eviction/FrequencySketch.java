@@ -0,0 +1,98 @@
+package org.example.service.eviction;
+
+/**
+ * Приближённый счётчик частоты обращений (count-min sketch с 4-битными счётчиками).
+ * Каждое значение long хранит 16 счётчиков; частота ключа — минимум из четырёх его счётчиков.
+ * После определённого числа обращений все счётчики уменьшаются вдвое, чтобы устаревшая
+ * популярность постепенно забывалась.
+ */
+final class FrequencySketch {
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    private long[] table = new long[16];
+    private int sampleSize = 160;
+    private int additions;
+
+    /**
+     * Увеличивает размер таблицы под ожидаемое количество записей.
+     *
+     * @param capacity Ожидаемое количество записей
+     */
+    void ensureCapacity(long capacity) {
+        int size = (int) Math.min(Math.max(16, Long.highestOneBit(Math.max(1, capacity - 1)) << 1), 1 << 30);
+        if (size > table.length) {
+            table = new long[size];
+            sampleSize = 10 * size;
+            additions = 0;
+        }
+    }
+
+    /**
+     * @param key Ключ записи
+     * @return Оценка частоты обращений к ключу (от 0 до 15)
+     */
+    int frequency(String key) {
+        int hash = spread(key.hashCode());
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int offset = counterOffset(hash, i);
+            frequency = Math.min(frequency, (int) ((table[index] >>> offset) & 0xfL));
+        }
+        return frequency;
+    }
+
+    /**
+     * Учитывает обращение к ключу.
+     *
+     * @param key Ключ записи
+     */
+    void increment(String key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int offset = counterOffset(hash, i);
+            long mask = 0xfL << offset;
+            if ((table[index] & mask) != mask) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Уменьшает все счётчики вдвое.
+     */
+    private void reset() {
+        int odd = 0;
+        for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions = (additions - (odd >>> 2)) >>> 1;
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & (table.length - 1);
+    }
+
+    private static int counterOffset(int hash, int i) {
+        return (((hash >>> (i << 3)) & 3) << 2) + (i << 4) & 63;
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
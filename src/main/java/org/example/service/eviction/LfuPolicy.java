@@ -0,0 +1,177 @@
+package org.example.service.eviction;
+
+import java.util.HashMap;
+
+/**
+ * Вытеснение наименее часто используемых записей (LFU).
+ * Записи сгруппированы в списки по частоте обращений, списки упорядочены по возрастанию частоты,
+ * поэтому все операции выполняются за O(1). Среди записей с одинаковой частотой вытесняется самая старая.
+ */
+public class LfuPolicy implements EvictionPolicy {
+
+    private final HashMap<String, Node> nodes = new HashMap<>();
+    private Bucket lowest;
+    private long totalWeight;
+
+    @Override
+    public void onAccess(String key) {
+        Node node = nodes.get(key);
+        if (node != null) {
+            increment(node);
+        }
+    }
+
+    @Override
+    public void onWrite(String key, long weight, long version) {
+        Node node = nodes.get(key);
+        if (node != null) {
+            totalWeight += weight - node.weight;
+            node.weight = weight;
+            node.version = version;
+            increment(node);
+            return;
+        }
+        node = new Node(key, weight, version);
+        nodes.put(key, node);
+        totalWeight += weight;
+        Bucket first = lowest;
+        if (first == null || first.frequency != 1) {
+            first = new Bucket(1);
+            first.next = lowest;
+            if (lowest != null) {
+                lowest.prev = first;
+            }
+            lowest = first;
+        }
+        first.append(node);
+    }
+
+    @Override
+    public void onRemove(String key) {
+        Node node = nodes.remove(key);
+        if (node != null) {
+            totalWeight -= node.weight;
+            detach(node);
+        }
+    }
+
+    @Override
+    public Victim evict() {
+        if (lowest == null) {
+            return null;
+        }
+        Node victim = lowest.head;
+        nodes.remove(victim.key);
+        totalWeight -= victim.weight;
+        detach(victim);
+        return new Victim(victim.key, victim.version);
+    }
+
+    @Override
+    public long size() {
+        return nodes.size();
+    }
+
+    @Override
+    public long weight() {
+        return totalWeight;
+    }
+
+    @Override
+    public void clear() {
+        nodes.clear();
+        lowest = null;
+        totalWeight = 0;
+    }
+
+    /**
+     * Переносит запись в список со следующей частотой.
+     */
+    private void increment(Node node) {
+        Bucket current = node.bucket;
+        Bucket target = current.next;
+        if (target == null || target.frequency != current.frequency + 1) {
+            target = new Bucket(current.frequency + 1);
+            target.prev = current;
+            target.next = current.next;
+            if (current.next != null) {
+                current.next.prev = target;
+            }
+            current.next = target;
+        }
+        detach(node);
+        target.append(node);
+    }
+
+    /**
+     * Исключает запись из её списка и удаляет опустевший список.
+     */
+    private void detach(Node node) {
+        Bucket bucket = node.bucket;
+        bucket.unlink(node);
+        if (bucket.head == null) {
+            if (bucket.prev != null) {
+                bucket.prev.next = bucket.next;
+            } else {
+                lowest = bucket.next;
+            }
+            if (bucket.next != null) {
+                bucket.next.prev = bucket.prev;
+            }
+        }
+    }
+
+    private static final class Node {
+        private final String key;
+        private long weight;
+        private long version;
+        private Bucket bucket;
+        private Node prev;
+        private Node next;
+
+        private Node(String key, long weight, long version) {
+            this.key = key;
+            this.weight = weight;
+            this.version = version;
+        }
+    }
+
+    private static final class Bucket {
+        private final long frequency;
+        private Bucket prev;
+        private Bucket next;
+        private Node head;
+        private Node tail;
+
+        private Bucket(long frequency) {
+            this.frequency = frequency;
+        }
+
+        private void append(Node node) {
+            node.bucket = this;
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+        }
+
+        private void unlink(Node node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+        }
+    }
+}
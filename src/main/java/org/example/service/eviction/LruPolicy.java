@@ -0,0 +1,72 @@
+package org.example.service.eviction;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Вытеснение давно не использовавшихся записей (LRU).
+ */
+public class LruPolicy implements EvictionPolicy {
+
+    private final LinkedHashMap<String, Node> nodes = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight;
+
+    @Override
+    public void onAccess(String key) {
+        nodes.get(key);
+    }
+
+    @Override
+    public void onWrite(String key, long weight, long version) {
+        Node node = nodes.get(key);
+        if (node == null) {
+            node = new Node();
+            nodes.put(key, node);
+        }
+        totalWeight += weight - node.weight;
+        node.weight = weight;
+        node.version = version;
+    }
+
+    @Override
+    public void onRemove(String key) {
+        Node previous = nodes.remove(key);
+        if (previous != null) {
+            totalWeight -= previous.weight;
+        }
+    }
+
+    @Override
+    public Victim evict() {
+        Iterator<Map.Entry<String, Node>> eldest = nodes.entrySet().iterator();
+        if (!eldest.hasNext()) {
+            return null;
+        }
+        Map.Entry<String, Node> victim = eldest.next();
+        eldest.remove();
+        totalWeight -= victim.getValue().weight;
+        return new Victim(victim.getKey(), victim.getValue().version);
+    }
+
+    @Override
+    public long size() {
+        return nodes.size();
+    }
+
+    @Override
+    public long weight() {
+        return totalWeight;
+    }
+
+    @Override
+    public void clear() {
+        nodes.clear();
+        totalWeight = 0;
+    }
+
+    private static final class Node {
+        private long weight;
+        private long version;
+    }
+}
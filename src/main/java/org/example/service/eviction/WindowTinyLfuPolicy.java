@@ -0,0 +1,182 @@
+package org.example.service.eviction;
+
+import java.util.HashMap;
+
+/**
+ * Вытеснение по схеме W-TinyLFU.
+ * Новые записи попадают в небольшое окно LRU (около 1% суммарного веса). Запись, вытесненная из окна,
+ * становится кандидатом в основную область (сегментированный LRU: испытательный и защищённый сегменты).
+ * При вытеснении кандидат остаётся, только если по оценке {@link FrequencySketch} к нему обращались чаще,
+ * чем к самой давней записи основной области. Так редкие однократные обращения не вытесняют популярные записи.
+ */
+public class WindowTinyLfuPolicy implements EvictionPolicy {
+
+    private static final double WINDOW_SHARE = 0.01;
+    private static final double PROTECTED_SHARE = 0.8;
+
+    private final HashMap<String, Node> nodes = new HashMap<>();
+    private final FrequencySketch sketch = new FrequencySketch();
+    private final Queue window = new Queue();
+    private final Queue probation = new Queue();
+    private final Queue protectedQueue = new Queue();
+
+    @Override
+    public void onAccess(String key) {
+        sketch.increment(key);
+        Node node = nodes.get(key);
+        if (node != null) {
+            touch(node);
+        }
+    }
+
+    @Override
+    public void onWrite(String key, long weight, long version) {
+        sketch.increment(key);
+        Node node = nodes.get(key);
+        if (node != null) {
+            node.queue.weight += weight - node.weight;
+            node.weight = weight;
+            node.version = version;
+            touch(node);
+            return;
+        }
+        node = new Node(key, weight, version);
+        nodes.put(key, node);
+        window.append(node);
+        sketch.ensureCapacity(nodes.size());
+        while (window.weight > windowLimit() && window.head != window.tail) {
+            Node candidate = window.head;
+            window.unlink(candidate);
+            candidate.candidate = true;
+            probation.append(candidate);
+        }
+    }
+
+    @Override
+    public void onRemove(String key) {
+        Node node = nodes.remove(key);
+        if (node != null) {
+            node.queue.unlink(node);
+        }
+    }
+
+    @Override
+    public Victim evict() {
+        Node victim = probation.head != null ? probation.head
+                : protectedQueue.head != null ? protectedQueue.head : window.head;
+        Node candidate = probation.tail;
+        if (candidate != null && candidate.candidate && candidate != victim
+                && sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+            victim = candidate;
+        }
+        if (victim == null) {
+            return null;
+        }
+        nodes.remove(victim.key);
+        victim.queue.unlink(victim);
+        return new Victim(victim.key, victim.version);
+    }
+
+    @Override
+    public long size() {
+        return nodes.size();
+    }
+
+    @Override
+    public long weight() {
+        return window.weight + probation.weight + protectedQueue.weight;
+    }
+
+    @Override
+    public void clear() {
+        nodes.clear();
+        window.clear();
+        probation.clear();
+        protectedQueue.clear();
+    }
+
+    private long windowLimit() {
+        return Math.max(1, (long) (weight() * WINDOW_SHARE));
+    }
+
+    /**
+     * Обработка повторного обращения: запись из испытательного сегмента переводится в защищённый,
+     * при переполнении защищённого сегмента самая старая его запись возвращается в испытательный.
+     */
+    private void touch(Node node) {
+        Queue queue = node.queue;
+        queue.unlink(node);
+        node.candidate = false;
+        if (queue == probation) {
+            protectedQueue.append(node);
+            long protectedLimit = (long) ((probation.weight + protectedQueue.weight) * PROTECTED_SHARE);
+            while (protectedQueue.weight > protectedLimit && protectedQueue.head != protectedQueue.tail) {
+                Node demoted = protectedQueue.head;
+                protectedQueue.unlink(demoted);
+                probation.append(demoted);
+            }
+        } else {
+            queue.append(node);
+        }
+    }
+
+    private static final class Node {
+        private final String key;
+        private long weight;
+        private long version;
+        private Queue queue;
+        private boolean candidate;
+        private Node prev;
+        private Node next;
+
+        private Node(String key, long weight, long version) {
+            this.key = key;
+            this.weight = weight;
+            this.version = version;
+        }
+    }
+
+    /**
+     * Очередь записей в порядке обращений: в голове самая давняя запись.
+     */
+    private static final class Queue {
+        private Node head;
+        private Node tail;
+        private long weight;
+
+        private void append(Node node) {
+            node.queue = this;
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            weight += node.weight;
+        }
+
+        private void unlink(Node node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            weight -= node.weight;
+        }
+
+        private void clear() {
+            head = null;
+            tail = null;
+            weight = 0;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.example.service.expiry;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Адаптивное удаление записей с истёкшим TTL по выборкам (аналог active expiry в Redis).
+ * За один цикл берётся выборка ключей; если доля истёкших записей в ней превышает порог,
+ * берётся следующая выборка, пока не будет исчерпан бюджет времени цикла.
+ * <p>
+ * Хранилище не поддерживает произвольный доступ по индексу, поэтому выборкой служит
+ * очередной отрезок слабо согласованного итератора, который продолжается между циклами.
+ * Порядок обхода определяется хешами ключей, так что отрезки равномерно покрывают всё хранилище.
+ * Экземпляр не потокобезопасен и должен использоваться из одного потока.
+ *
+ * @param <K> Тип ключа
+ * @param <V> Тип записи
+ */
+public class ExpirySampler<K, V> {
+
+    private final int sampleSize;
+    private final double expiredThreshold;
+    private final long budgetNanos;
+    private final ToLongFunction<V> deadline;
+
+    private Iterator<Map.Entry<K, V>> cursor;
+
+    /**
+     * @param sampleSize       Количество ключей в одной выборке
+     * @param expiredThreshold Доля истёкших ключей, при превышении которой выборка повторяется
+     * @param budgetNanos      Максимальная длительность одного цикла в наносекундах
+     * @param deadline         Функция, возвращающая момент истечения срока записи в миллисекундах
+     */
+    public ExpirySampler(int sampleSize, double expiredThreshold, long budgetNanos, ToLongFunction<V> deadline) {
+        if (sampleSize <= 0) {
+            throw new IllegalArgumentException("Parameter 'sampleSize' must be positive.");
+        }
+        this.sampleSize = sampleSize;
+        this.expiredThreshold = expiredThreshold;
+        this.budgetNanos = budgetNanos;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Выполняет один цикл очистки.
+     * Запись удаляется условно, только если по ключу всё ещё хранится именно она.
+     *
+     * @param storage   Хранилище, из которого удаляются записи
+     * @param nowMillis Текущее время в миллисекундах
+     * @return Количество удалённых записей
+     */
+    public long run(ConcurrentMap<K, V> storage, long nowMillis) {
+        return run(() -> storage.entrySet().iterator(), storage::remove, nowMillis);
+    }
+
+    /**
+     * Выполняет один цикл очистки.
+     *
+     * @param entries   Источник слабо согласованных итераторов по записям хранилища
+     * @param remover   Условное удаление записи: удаляет, только если по ключу всё ещё хранится именно она
+     * @param nowMillis Текущее время в миллисекундах
+     * @return Количество удалённых записей
+     */
+    public long run(Supplier<Iterator<Map.Entry<K, V>>> entries, BiPredicate<K, V> remover, long nowMillis) {
+        long start = System.nanoTime();
+        long removed = 0;
+        while (true) {
+            int sampled = 0;
+            int expired = 0;
+            boolean restarted = false;
+            while (sampled < sampleSize) {
+                if (cursor == null || !cursor.hasNext()) {
+                    if (restarted) {
+                        break;
+                    }
+                    cursor = entries.get();
+                    restarted = true;
+                    if (!cursor.hasNext()) {
+                        break;
+                    }
+                }
+                Map.Entry<K, V> entry = cursor.next();
+                sampled++;
+                if (deadline.applyAsLong(entry.getValue()) <= nowMillis
+                        && remover.test(entry.getKey(), entry.getValue())) {
+                    expired++;
+                }
+            }
+            removed += expired;
+            if (sampled == 0 || expired <= sampled * expiredThreshold
+                    || System.nanoTime() - start >= budgetNanos) {
+                return removed;
+            }
+        }
+    }
+}
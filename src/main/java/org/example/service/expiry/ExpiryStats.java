@@ -0,0 +1,11 @@
+package org.example.service.expiry;
+
+/**
+ * Счётчики удалённых записей с истёкшим TTL.
+ *
+ * @param expiredOnRead     Удалено при чтении
+ * @param expiredBySampling Удалено фоновой выборкой
+ * @param expiredByTimer    Удалено колесом таймеров
+ */
+public record ExpiryStats(long expiredOnRead, long expiredBySampling, long expiredByTimer) {
+}
@@ -0,0 +1,180 @@
+package org.example.service.expiry;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Иерархическое колесо таймеров для удаления записей с истёкшим TTL.
+ * Колесо состоит из нескольких уровней по 64 слота: слот нулевого уровня покрывает один тик,
+ * слот каждого следующего уровня — в 64 раза больший интервал. При продвижении колеса
+ * затрагиваются только записи, срок которых наступил, и записи, переносимые с верхних уровней на нижние,
+ * поэтому стоимость очистки зависит от количества истекающих записей, а не от размера хранилища.
+ * <p>
+ * Метод {@link #schedule} потокобезопасен: новые задания попадают в неблокирующий стек
+ * (без дополнительных объектов-обёрток) и раскладываются по слотам при следующем вызове {@link #advance}.
+ * Сам {@link #advance} должен вызываться из одного потока.
+ * <p>
+ * Задание хранит только ключ, числовую метку записи (например, её версию) и срок: узел колеса —
+ * единственный объект, создаваемый при планировании, и колесо не удерживает значения записей.
+ *
+ * @param <K> Тип ключа записи
+ */
+public class TimingWheel<K> {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 6;
+    private static final long MAX_DELTA = (1L << (WHEEL_BITS * LEVELS)) - 1;
+
+    private final long tickMillis;
+    private final Node<K>[][] buckets;
+    private final AtomicReference<Node<K>> pending = new AtomicReference<>();
+
+    private long currentTick;
+    private long size;
+
+    /**
+     * @param tickMillis  Длительность одного тика в миллисекундах
+     * @param startMillis Момент времени, с которого колесо начинает отсчёт
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Parameter 'tickMillis' must be positive.");
+        }
+        this.tickMillis = tickMillis;
+        this.buckets = new Node[LEVELS][WHEEL_SIZE];
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Планирует удаление записи.
+     *
+     * @param key        Ключ записи
+     * @param stamp      Метка записи, которая должна быть удалена; передаётся обработчику вместе с ключом
+     * @param deadlineMs Момент истечения срока жизни записи в миллисекундах
+     */
+    public void schedule(K key, long stamp, long deadlineMs) {
+        Node<K> node = new Node<>(key, stamp, deadlineMs);
+        Node<K> head;
+        do {
+            head = pending.get();
+            node.next = head;
+        } while (!pending.compareAndSet(head, node));
+    }
+
+    /**
+     * Продвигает колесо до указанного момента времени и передаёт обработчику все записи,
+     * срок жизни которых истёк.
+     *
+     * @param nowMillis Текущее время в миллисекундах
+     * @param expired   Обработчик истёкших записей: получает ключ и метку записи
+     * @return Количество заданий, которые были затронуты при продвижении
+     */
+    public long advance(long nowMillis, ObjLongConsumer<K> expired) {
+        long touched = 0;
+        Node<K> node = pending.getAndSet(null);
+        while (node != null) {
+            Node<K> next = node.next;
+            node.next = null;
+            touched += place(node, expired);
+            node = next;
+        }
+
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            if (size == 0) {
+                currentTick = targetTick;
+                break;
+            }
+            currentTick++;
+            touched += cascade();
+            int slot = (int) (currentTick & WHEEL_MASK);
+            Node<K> head = buckets[0][slot];
+            buckets[0][slot] = null;
+            while (head != null) {
+                Node<K> next = head.next;
+                head.next = null;
+                size--;
+                touched += place(head, expired);
+                head = next;
+            }
+        }
+        return touched;
+    }
+
+    /**
+     * @return Количество заданий, находящихся в колесе, без учёта ещё не разложенных по слотам
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Переносит задания из слотов верхних уровней, период которых начинается на текущем тике.
+     */
+    private long cascade() {
+        int level = 0;
+        while (level + 1 < LEVELS && (currentTick & ((1L << (WHEEL_BITS * (level + 1))) - 1)) == 0) {
+            level++;
+        }
+        long touched = 0;
+        for (; level > 0; level--) {
+            int slot = (int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+            Node<K> head = buckets[level][slot];
+            buckets[level][slot] = null;
+            while (head != null) {
+                Node<K> next = head.next;
+                head.next = null;
+                size--;
+                touched += place(head, null);
+                head = next;
+            }
+        }
+        return touched;
+    }
+
+    /**
+     * Помещает задание в слот, соответствующий его сроку, либо сразу передаёт обработчику,
+     * если срок уже наступил.
+     */
+    private long place(Node<K> node, ObjLongConsumer<K> expired) {
+        long deadlineTick = Math.floorDiv(node.deadlineMs, tickMillis);
+        long delta = deadlineTick - currentTick;
+        if (delta <= 0) {
+            if (expired != null) {
+                expired.accept(node.key, node.stamp);
+                return 1;
+            }
+            // Во время переноса уровней срок наступает ровно на текущем тике: обрабатываем в слоте нулевого уровня.
+            delta = 0;
+        }
+        if (delta > MAX_DELTA) {
+            delta = MAX_DELTA;
+        }
+        long tick = currentTick + delta;
+        int level = 0;
+        while (level + 1 < LEVELS && delta >= (1L << (WHEEL_BITS * (level + 1)))) {
+            level++;
+        }
+        int slot = (int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        node.next = buckets[level][slot];
+        buckets[level][slot] = node;
+        size++;
+        return 1;
+    }
+
+    private static final class Node<K> {
+        private final K key;
+        private final long stamp;
+        private final long deadlineMs;
+        private Node<K> next;
+
+        private Node(K key, long stamp, long deadlineMs) {
+            this.key = key;
+            this.stamp = stamp;
+            this.deadlineMs = deadlineMs;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.example.service.loader;
+
+/**
+ * Источник значений для чтения через хранилище (read-through).
+ * При промахе хранилище вызывает загрузчик один раз на ключ, остальные обращения
+ * к этому ключу ждут результата того же вызова; загруженное значение сохраняется с TTL
+ * из настроек {@code storage.loader}.
+ */
+@FunctionalInterface
+public interface CacheLoader {
+
+    /**
+     * @param key Ключ записи
+     * @return Значение или {@code null}, если в источнике его нет
+     * @throws Exception если источник недоступен; ошибка передаётся всем ожидающим вызовам
+     */
+    String load(String key) throws Exception;
+}
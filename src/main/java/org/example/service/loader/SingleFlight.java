@@ -0,0 +1,98 @@
+package org.example.service.loader;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Объединение одновременных вызовов по ключу (single-flight): пока вызов по ключу выполняется,
+ * остальные обращения к этому ключу не запускают новый вызов, а получают его результат.
+ * Вызов удаляется из таблицы после завершения, поэтому результат не кешируется.
+ *
+ * @param <V> Тип результата
+ */
+public class SingleFlight<V> {
+
+    private final ConcurrentHashMap<String, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Выполнение вызова в текущем потоке или ожидание вызова, уже выполняющегося по ключу.
+     *
+     * @param key  Ключ
+     * @param call Вызов
+     * @return Результат вызова
+     * @throws Exception исключение вызова, в том числе выполненного другим потоком
+     */
+    public V execute(String key, Callable<V> call) throws Exception {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> running = calls.putIfAbsent(key, future);
+        if (running != null) {
+            coalesced.increment();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+        run(key, future, call);
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    /**
+     * Запуск вызова в переданном исполнителе, если по ключу не выполняется другой вызов.
+     *
+     * @param key      Ключ
+     * @param call     Вызов
+     * @param executor Исполнитель
+     * @return true, если вызов запущен
+     */
+    public boolean submit(String key, Callable<V> call, Executor executor) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        if (calls.putIfAbsent(key, future) != null) {
+            return false;
+        }
+        try {
+            executor.execute(() -> run(key, future, call));
+        } catch (RejectedExecutionException e) {
+            calls.remove(key, future);
+            future.completeExceptionally(e);
+            return false;
+        }
+        return true;
+    }
+
+    private void run(String key, CompletableFuture<V> future, Callable<V> call) {
+        executions.increment();
+        try {
+            future.complete(call.call());
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        } finally {
+            calls.remove(key, future);
+        }
+    }
+
+    /**
+     * @return Количество выполненных вызовов
+     */
+    public long executions() {
+        return executions.sum();
+    }
+
+    /**
+     * @return Количество обращений, получивших результат чужого вызова
+     */
+    public long coalesced() {
+        return coalesced.sum();
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.service.loader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Очередь отложенной записи в {@link WriteBehindSink}.
+ * Для каждого ключа хранится только последнее значение, поэтому повторные записи ключа между
+ * пакетами передаются приёмнику один раз. Пакеты передаются одним фоновым потоком раз в интервал
+ * или раньше, когда накопился полный пакет. Если приёмник вернул ошибку, значения пакета
+ * возвращаются в очередь (кроме ключей, записанных заново) и передаются в следующий раз.
+ */
+public class WriteBehindQueue implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindQueue.class);
+
+    private final WriteBehindSink sink;
+    private final int batchSize;
+    private final ConcurrentHashMap<String, String> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * @param sink      Приёмник
+     * @param batchSize Максимальный размер пакета
+     * @param interval  Интервал передачи неполных пакетов в миллисекундах
+     */
+    public WriteBehindQueue(WriteBehindSink sink, int batchSize, long interval) {
+        this.sink = sink;
+        this.batchSize = batchSize;
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread th = new Thread(r, "storage-write-behind");
+            th.setDaemon(true);
+            return th;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Постановка значения в очередь. Не блокирует вызывающий поток.
+     *
+     * @param key   Ключ записи
+     * @param value Значение
+     */
+    public void add(String key, String value) {
+        pending.put(key, value);
+        if (pending.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(() -> {
+                    flushRequested.set(false);
+                    flush();
+                });
+            } catch (RejectedExecutionException e) {
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * Передача всех накопленных значений пакетами; при ошибке приёмника передача прекращается до следующего раза.
+     */
+    private void flush() {
+        while (!pending.isEmpty()) {
+            Map<String, String> batch = new HashMap<>(batchSize * 4 / 3 + 1);
+            for (Iterator<String> it = pending.keySet().iterator(); it.hasNext() && batch.size() < batchSize; ) {
+                String key = it.next();
+                String value = pending.remove(key);
+                if (value != null) {
+                    batch.put(key, value);
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                sink.write(batch);
+                batches.increment();
+                written.add(batch.size());
+            } catch (Exception e) {
+                failures.increment();
+                LOGGER.error("Ошибка отложенной записи пакета из {} значений", batch.size(), e);
+                batch.forEach(pending::putIfAbsent);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return Количество значений, ожидающих передачи
+     */
+    public int pending() {
+        return pending.size();
+    }
+
+    /**
+     * @return Количество значений, переданных приёмнику
+     */
+    public long written() {
+        return written.sum();
+    }
+
+    /**
+     * @return Количество переданных пакетов
+     */
+    public long batches() {
+        return batches.sum();
+    }
+
+    /**
+     * @return Количество пакетов, которые приёмник не смог записать
+     */
+    public long failures() {
+        return failures.sum();
+    }
+
+    /**
+     * Остановка фонового потока и передача оставшихся значений.
+     */
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(10, TimeUnit.SECONDS)) {
+                LOGGER.warn("Отложенная запись не завершилась за 10 с");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+}
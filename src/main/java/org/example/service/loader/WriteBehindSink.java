@@ -0,0 +1,20 @@
+package org.example.service.loader;
+
+import java.util.Map;
+
+/**
+ * Приёмник отложенной записи (write-behind): значения, сохранённые операциями set,
+ * передаются ему пакетами в фоновом потоке.
+ */
+@FunctionalInterface
+public interface WriteBehindSink {
+
+    /**
+     * Запись пакета. Вызывается из одного потока, пакеты не пересекаются по времени.
+     *
+     * @param batch Последние значения по ключам, изменённым с момента предыдущего пакета
+     * @throws Exception если запись не удалась; значения пакета будут переданы повторно,
+     *                   если их не заменили более новые
+     */
+    void write(Map<String, String> batch) throws Exception;
+}
@@ -0,0 +1,26 @@
+package org.example.snapshot;
+
+/**
+ * Константы двоичного формата состояния хранилища.
+ * <pre>
+ * файл   := MAGIC VERSION блок* END_MAGIC количество_записей(long)
+ * блок   := BLOCK_MAGIC длина_данных(int) количество_записей(int) crc32c_данных(int) запись*
+ * запись := длина_ключа(int) ключ(UTF-8) длина_значения(int) значение(UTF-8) ttl(long) savedTime(long)
+ * </pre>
+ * Все числа записываются в порядке big-endian. Запись об удалении ключа в инкрементальном файле
+ * имеет длину значения {@link #TOMBSTONE} и не содержит байтов значения.
+ */
+final class BinarySnapshot {
+
+    static final int MAGIC = 0x4A534E50;
+    static final int VERSION = 1;
+    static final int BLOCK_MAGIC = 0x424C4B31;
+    static final int END_MAGIC = 0x454E4421;
+    static final int FILE_HEADER_SIZE = 8;
+    static final int BLOCK_HEADER_SIZE = 16;
+    static final int TRAILER_SIZE = 12;
+    static final int TOMBSTONE = -1;
+
+    private BinarySnapshot() {
+    }
+}
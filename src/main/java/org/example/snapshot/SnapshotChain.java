@@ -0,0 +1,105 @@
+package org.example.snapshot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Цепочка файлов состояния: полный файл и инкрементальные файлы, записанные после него.
+ * Инкрементальный файл содержит только ключи, изменённые после предыдущего файла цепочки, и называется
+ * по полному файлу с порядковым номером: {@code storage-state.json.delta-1}, {@code storage-state.json.delta-2}, …
+ * Файлы применяются по порядку, поэтому более поздний файл перекрывает более ранние.
+ * Новый полный файл делает инкрементальные файлы ненужными, и они удаляются.
+ */
+public class SnapshotChain {
+
+    private static final String DELTA_SUFFIX = ".delta-";
+
+    private final Path base;
+
+    /**
+     * @param base Полный файл состояния
+     */
+    public SnapshotChain(Path base) {
+        this.base = base.toAbsolutePath();
+    }
+
+    /**
+     * @return Полный файл состояния
+     */
+    public Path base() {
+        return base;
+    }
+
+    /**
+     * @return Инкрементальные файлы в порядке записи
+     * @throws IOException если каталог не удалось прочитать
+     */
+    public List<Path> deltas() throws IOException {
+        if (!Files.isDirectory(base.getParent())) {
+            return List.of();
+        }
+        String prefix = base.getFileName() + DELTA_SUFFIX;
+        try (Stream<Path> files = Files.list(base.getParent())) {
+            return files.filter(file -> sequence(file, prefix) > 0)
+                    .sorted((a, b) -> Long.compare(sequence(a, prefix), sequence(b, prefix)))
+                    .toList();
+        }
+    }
+
+    /**
+     * @return Файлы для загрузки: полный файл, если он есть, и инкрементальные файлы после него
+     * @throws IOException если каталог не удалось прочитать
+     */
+    public List<Path> files() throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (Files.exists(base)) {
+            files.add(base);
+        }
+        files.addAll(deltas());
+        return files;
+    }
+
+    /**
+     * @return Имя следующего инкрементального файла
+     * @throws IOException если каталог не удалось прочитать
+     */
+    public Path nextDelta() throws IOException {
+        List<Path> deltas = deltas();
+        long last = deltas.isEmpty() ? 0 : sequence(deltas.get(deltas.size() - 1), base.getFileName() + DELTA_SUFFIX);
+        return base.resolveSibling(base.getFileName() + DELTA_SUFFIX + (last + 1));
+    }
+
+    /**
+     * Удаление инкрементальных файлов после записи нового полного файла.
+     *
+     * @throws IOException если файл не удалось удалить
+     */
+    public void deleteDeltas() throws IOException {
+        for (Path delta : deltas()) {
+            Files.deleteIfExists(delta);
+        }
+    }
+
+    /**
+     * @return Номер инкрементального файла или {@code -1}, если файл не относится к цепочке
+     */
+    private static long sequence(Path file, String prefix) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(prefix) || name.length() == prefix.length()) {
+            return -1;
+        }
+        long sequence = 0;
+        for (int i = prefix.length(); i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9' || sequence > Long.MAX_VALUE / 10 - 1) {
+                return -1;
+            }
+            sequence = sequence * 10 + (c - '0');
+        }
+        return sequence;
+    }
+}
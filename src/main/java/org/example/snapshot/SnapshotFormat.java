@@ -0,0 +1,11 @@
+package org.example.snapshot;
+
+/**
+ * Формат файла состояния хранилища.
+ */
+public enum SnapshotFormat {
+    /** JSON-объект вида {@code {"ключ": {"value": ..., "ttl": ..., "savedTime": ...}}}. */
+    JSON,
+    /** Компактный двоичный формат: блоки записей с длинами полей и контрольной суммой CRC32C каждого блока. */
+    BINARY
+}
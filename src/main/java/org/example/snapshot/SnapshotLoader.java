@@ -0,0 +1,230 @@
+package org.example.snapshot;
+
+import org.example.storage.StorageEntry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.zip.CRC32C;
+
+/**
+ * Загрузка файла состояния в работающее хранилище.
+ * <p>
+ * Файл двоичного формата отображается в память окнами, границы которых совпадают с границами блоков;
+ * блоки проверяются по контрольной сумме и разбираются параллельно в {@link ForkJoinPool}.
+ * Файл в формате JSON разбирается последовательно потоковым парсером.
+ * Записи с истёкшим TTL пропускаются, остальные, включая записи об удалении ключа из инкрементальных
+ * файлов, передаются обработчику по одной, поэтому хранилище остаётся доступным для чтения и записи
+ * во время загрузки.
+ */
+public class SnapshotLoader {
+
+    private static final long MAX_WINDOW_SIZE = 1L << 30;
+
+    private final int parallelism;
+
+    /**
+     * @param parallelism Количество потоков разбора ({@code 0} — по количеству процессоров)
+     */
+    public SnapshotLoader(int parallelism) {
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Результат загрузки.
+     *
+     * @param loaded  Количество записей, принятых обработчиком
+     * @param expired Количество пропущенных записей с истёкшим TTL
+     */
+    public record Result(long loaded, long expired) {
+    }
+
+    /**
+     * Загружает записи из файла.
+     *
+     * @param source    Файл состояния
+     * @param nowMillis Текущее время: записи с истёкшим TTL пропускаются
+     * @param sink      Обработчик записей; возвращает true, если запись принята
+     * @return Результат загрузки
+     * @throws IOException если файл не удалось прочитать или он повреждён; записи из уже проверенных
+     *                     блоков к этому моменту могут быть переданы обработчику
+     */
+    public Result load(Path source, long nowMillis, BiPredicate<String, StorageEntry> sink) throws IOException {
+        return load(source, nowMillis, false, sink);
+    }
+
+    /**
+     * Загружает записи из полного или инкрементального файла.
+     * В инкрементальном файле запись с истёкшим TTL заменяет более ранние версии ключа, поэтому она
+     * передаётся обработчику как запись об удалении ключа на момент её сохранения и учитывается как истёкшая.
+     *
+     * @param source      Файл состояния
+     * @param nowMillis   Текущее время: записи с истёкшим TTL пропускаются
+     * @param incremental true, если файл инкрементальный
+     * @param sink        Обработчик записей; возвращает true, если запись принята
+     * @return Результат загрузки
+     * @throws IOException если файл не удалось прочитать или он повреждён
+     */
+    public Result load(Path source, long nowMillis, boolean incremental, BiPredicate<String, StorageEntry> sink)
+            throws IOException {
+        LongAdder loaded = new LongAdder();
+        LongAdder expired = new LongAdder();
+        BiConsumer<String, StorageEntry> filter = (key, entry) -> {
+            if (!entry.isTombstone() && !entry.isLive(nowMillis)) {
+                expired.increment();
+                if (incremental) {
+                    sink.test(key, StorageEntry.tombstone(entry.savedTime()));
+                }
+            } else if (sink.test(key, entry)) {
+                loaded.increment();
+            }
+        };
+        if (SnapshotReader.formatOf(source) == SnapshotFormat.BINARY) {
+            loadBinary(source, filter);
+        } else {
+            new SnapshotReader().read(source, filter);
+        }
+        return new Result(loaded.sum(), expired.sum());
+    }
+
+    private void loadBinary(Path source, BiConsumer<String, StorageEntry> filter) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            List<Block> blocks = new ArrayList<>();
+            List<MappedByteBuffer> windows = new ArrayList<>();
+            indexBlocks(channel, blocks, windows);
+
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new LoadTask(blocks, windows, 0, blocks.size(), filter));
+            } catch (UncheckedIOException e) {
+                // ForkJoinPool может перевыбросить исключение из другого потока обёрнутым в копию того же типа.
+                Throwable cause = e;
+                while (cause instanceof UncheckedIOException) {
+                    cause = cause.getCause();
+                }
+                throw cause instanceof IOException io ? io : e.getCause();
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Последовательно читает только заголовки блоков и отображает файл в память окнами
+     * не больше {@link #MAX_WINDOW_SIZE}, каждое из которых содержит целое число блоков.
+     */
+    private static void indexBlocks(FileChannel channel, List<Block> blocks, List<MappedByteBuffer> windows)
+            throws IOException {
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(BinarySnapshot.BLOCK_HEADER_SIZE);
+        readAt(channel, header.limit(BinarySnapshot.FILE_HEADER_SIZE), 0);
+        if (header.getInt(0) != BinarySnapshot.MAGIC || header.getInt(4) != BinarySnapshot.VERSION) {
+            throw new IOException("Unsupported snapshot format.");
+        }
+
+        long position = BinarySnapshot.FILE_HEADER_SIZE;
+        long windowStart = position;
+        int windowBlocks = 0;
+        long records = 0;
+        while (true) {
+            readAt(channel, header.clear().limit(4), position);
+            int magic = header.getInt(0);
+            if (magic == BinarySnapshot.END_MAGIC) {
+                readAt(channel, header.clear().limit(8), position + 4);
+                if (header.getLong(0) != records) {
+                    throw new IOException("Snapshot is truncated: expected " + header.getLong(0)
+                            + " entries, found " + records + ".");
+                }
+                break;
+            }
+            if (magic != BinarySnapshot.BLOCK_MAGIC) {
+                throw new IOException("Snapshot block header is corrupted.");
+            }
+            readAt(channel, header.clear(), position);
+            int length = header.getInt(4);
+            long end = position + BinarySnapshot.BLOCK_HEADER_SIZE + length;
+            if (length < 0 || end > size) {
+                throw new IOException("Snapshot is truncated.");
+            }
+            if (end - windowStart > MAX_WINDOW_SIZE && windowBlocks > 0) {
+                windows.add(channel.map(FileChannel.MapMode.READ_ONLY, windowStart, position - windowStart));
+                windowStart = position;
+                windowBlocks = 0;
+            }
+            blocks.add(new Block(windows.size(), (int) (position - windowStart) + BinarySnapshot.BLOCK_HEADER_SIZE,
+                    length, header.getInt(8), header.getInt(12)));
+            records += header.getInt(8);
+            windowBlocks++;
+            position = end;
+        }
+        if (windowBlocks > 0) {
+            windows.add(channel.map(FileChannel.MapMode.READ_ONLY, windowStart, position - windowStart));
+        }
+    }
+
+    private static void readAt(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Snapshot is truncated.");
+            }
+        }
+    }
+
+    /**
+     * Положение блока: номер окна, смещение данных блока в окне, размер данных,
+     * количество записей и контрольная сумма.
+     */
+    private record Block(int window, int offset, int length, int records, int checksum) {
+    }
+
+    /**
+     * Проверка и разбор диапазона блоков; диапазон делится пополам, пока не останется один блок.
+     */
+    private static final class LoadTask extends RecursiveAction {
+        private final List<Block> blocks;
+        private final List<MappedByteBuffer> windows;
+        private final int from;
+        private final int to;
+        private final BiConsumer<String, StorageEntry> filter;
+
+        LoadTask(List<Block> blocks, List<MappedByteBuffer> windows, int from, int to,
+                 BiConsumer<String, StorageEntry> filter) {
+            this.blocks = blocks;
+            this.windows = windows;
+            this.from = from;
+            this.to = to;
+            this.filter = filter;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new LoadTask(blocks, windows, from, middle, filter),
+                        new LoadTask(blocks, windows, middle, to, filter));
+                return;
+            }
+            if (to > from) {
+                Block block = blocks.get(from);
+                ByteBuffer payload = windows.get(block.window).slice(block.offset, block.length);
+                CRC32C crc = new CRC32C();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != block.checksum) {
+                    throw new UncheckedIOException(new IOException("Snapshot block checksum mismatch."));
+                }
+                SnapshotReader.readBlock(payload, block.records, filter);
+            }
+        }
+    }
+}
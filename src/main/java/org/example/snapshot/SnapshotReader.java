@@ -0,0 +1,157 @@
+package org.example.snapshot;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.example.storage.StorageEntry;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Потоковое чтение файла состояния хранилища.
+ * Формат определяется по первым байтам файла, поэтому файл любого поддерживаемого формата
+ * загружается независимо от текущей настройки формата записи.
+ */
+public class SnapshotReader {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final int INPUT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Читает записи из файла и передаёт их обработчику по мере чтения.
+     *
+     * @param source Файл состояния
+     * @param action Обработчик записей
+     * @return Количество прочитанных записей
+     * @throws IOException если файл не удалось прочитать или он повреждён
+     */
+    public long read(Path source, BiConsumer<String, StorageEntry> action) throws IOException {
+        return formatOf(source) == SnapshotFormat.BINARY ? readBinary(source, action) : readJson(source, action);
+    }
+
+    /**
+     * @param source Файл состояния
+     * @return Формат файла
+     * @throws IOException если файл не удалось прочитать
+     */
+    public static SnapshotFormat formatOf(Path source) throws IOException {
+        try (InputStream in = Files.newInputStream(source)) {
+            byte[] magic = in.readNBytes(4);
+            return magic.length == 4 && ByteBuffer.wrap(magic).getInt() == BinarySnapshot.MAGIC
+                    ? SnapshotFormat.BINARY : SnapshotFormat.JSON;
+        }
+    }
+
+    private long readJson(Path source, BiConsumer<String, StorageEntry> action) throws IOException {
+        long read = 0;
+        try (JsonParser parser = JSON_FACTORY.createParser(
+                new BufferedInputStream(Files.newInputStream(source), INPUT_BUFFER_SIZE))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Snapshot must be a JSON object.");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String key = parser.currentName();
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new IOException("Snapshot entry '" + key + "' must be a JSON object.");
+                }
+                String value = null;
+                long ttl = 0;
+                long savedTime = 0;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    switch (field) {
+                        case "value" -> value = parser.getValueAsString();
+                        case "ttl" -> ttl = parser.getLongValue();
+                        case "savedTime" -> savedTime = parser.getLongValue();
+                        default -> parser.skipChildren();
+                    }
+                }
+                action.accept(key, StorageEntry.of(value, ttl, savedTime));
+                read++;
+            }
+        }
+        return read;
+    }
+
+    private long readBinary(Path source, BiConsumer<String, StorageEntry> action) throws IOException {
+        long read = 0;
+        CRC32C crc = new CRC32C();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(source), INPUT_BUFFER_SIZE))) {
+            if (in.readInt() != BinarySnapshot.MAGIC || in.readInt() != BinarySnapshot.VERSION) {
+                throw new IOException("Unsupported snapshot format.");
+            }
+            while (true) {
+                int magic;
+                try {
+                    magic = in.readInt();
+                } catch (EOFException e) {
+                    throw new IOException("Snapshot is truncated.", e);
+                }
+                if (magic == BinarySnapshot.END_MAGIC) {
+                    long expected = in.readLong();
+                    if (expected != read) {
+                        throw new IOException("Snapshot is truncated: expected " + expected + " entries, read " + read + ".");
+                    }
+                    return read;
+                }
+                if (magic != BinarySnapshot.BLOCK_MAGIC) {
+                    throw new IOException("Snapshot block header is corrupted.");
+                }
+                int length = in.readInt();
+                int records = in.readInt();
+                int checksum = in.readInt();
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    throw new IOException("Snapshot block checksum mismatch.");
+                }
+                read += readBlock(ByteBuffer.wrap(payload), records, action);
+            }
+        }
+    }
+
+    /**
+     * Разбирает записи одного блока двоичного формата.
+     */
+    static int readBlock(ByteBuffer block, int records, BiConsumer<String, StorageEntry> action) {
+        for (int i = 0; i < records; i++) {
+            String key = readString(block);
+            String value = readString(block);
+            long ttl = block.getLong();
+            long savedTime = block.getLong();
+            action.accept(key, StorageEntry.of(value, ttl, savedTime));
+        }
+        return records;
+    }
+
+    private static String readString(ByteBuffer block) {
+        int length = block.getInt();
+        if (length == BinarySnapshot.TOMBSTONE) {
+            return null;
+        }
+        String result;
+        if (block.hasArray()) {
+            result = new String(block.array(), block.arrayOffset() + block.position(), length, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            block.get(block.position(), bytes);
+            result = new String(bytes, StandardCharsets.UTF_8);
+        }
+        block.position(block.position() + length);
+        return result;
+    }
+}
@@ -0,0 +1,455 @@
+package org.example.snapshot;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import org.example.storage.StorageEntry;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Потоковая запись состояния хранилища в файл.
+ * Записи читаются из слабо согласованного итератора по одной и сразу записываются через буферизованный
+ * канал, поэтому копия хранилища в памяти не создаётся. Файл сначала пишется во временный файл рядом
+ * с целевым, сбрасывается на диск и затем атомарно переименовывается, так что сбой во время записи
+ * не повреждает последний успешно сохранённый файл.
+ * <p>
+ * Запись об удалении ключа ({@link StorageEntry#tombstone}) сохраняется без значения: в JSON значением
+ * {@code null}, в двоичном формате длиной {@link BinarySnapshot#TOMBSTONE}. Такие записи встречаются
+ * только в инкрементальных файлах.
+ */
+public class SnapshotWriter {
+
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
+    private static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    private final SnapshotFormat format;
+    private final int blockSize;
+
+    public SnapshotWriter(SnapshotFormat format) {
+        this(format, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param format    Формат файла
+     * @param blockSize Размер блока двоичного формата в байтах
+     */
+    public SnapshotWriter(SnapshotFormat format, int blockSize) {
+        this.format = format;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Записывает живые записи в файл.
+     *
+     * @param target    Целевой файл
+     * @param entries   Слабо согласованный итератор по записям хранилища
+     * @param nowMillis Текущее время: записи с истёкшим TTL пропускаются
+     * @return Количество записанных записей
+     * @throws IOException если файл не удалось записать; предыдущий файл при этом не изменяется
+     */
+    public long write(Path target, Iterator<Map.Entry<String, StorageEntry>> entries, long nowMillis) throws IOException {
+        return writeAtomically(target, channel -> format == SnapshotFormat.JSON
+                ? writeJson(channel, entries, nowMillis)
+                : writeBinary(channel, entries, nowMillis));
+    }
+
+    /**
+     * Записывает живые записи нескольких независимых частей хранилища (шардов) в один файл параллельно.
+     * Каждая часть кодируется в своей задаче в собственные блоки (для JSON — фрагменты объекта),
+     * готовые блоки дописываются в файл под блокировкой, поэтому кодирование не ждёт записи других частей.
+     * Формат файла тот же, что у {@link #write(Path, Iterator, long)}; записи частей могут чередоваться блоками.
+     *
+     * @param target    Целевой файл
+     * @param parts     Слабо согласованные итераторы по записям частей хранилища
+     * @param nowMillis Текущее время: записи с истёкшим TTL пропускаются
+     * @param executor  Пул, в котором кодируются части
+     * @return Количество записанных записей
+     * @throws IOException если файл не удалось записать; предыдущий файл при этом не изменяется
+     */
+    public long write(Path target, List<Iterator<Map.Entry<String, StorageEntry>>> parts, long nowMillis,
+                      Executor executor) throws IOException {
+        if (parts.size() == 1) {
+            return write(target, parts.get(0), nowMillis);
+        }
+        return writeAtomically(target, channel -> {
+            ReentrantLock lock = new ReentrantLock();
+            BlockSink sink = buffers -> {
+                lock.lock();
+                try {
+                    writeFully(channel, buffers);
+                } finally {
+                    lock.unlock();
+                }
+            };
+            boolean json = format == SnapshotFormat.JSON;
+            writeFully(channel, json ? ByteBuffer.wrap(new byte[]{'{'}) : fileHeader());
+            JsonJoiner joiner = json ? new JsonJoiner(sink) : null;
+
+            List<CompletableFuture<Long>> tasks = new ArrayList<>(parts.size());
+            for (Iterator<Map.Entry<String, StorageEntry>> part : parts) {
+                tasks.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return json ? writeJsonPart(joiner, part, nowMillis) : writeBlocks(sink, part, nowMillis);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, executor));
+            }
+            long written = 0;
+            Throwable failure = null;
+            for (CompletableFuture<Long> task : tasks) {
+                try {
+                    written += task.join();
+                } catch (CompletionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                }
+            }
+            if (failure instanceof UncheckedIOException e) {
+                throw e.getCause();
+            } else if (failure instanceof RuntimeException e) {
+                throw e;
+            } else if (failure != null) {
+                throw new IllegalStateException(failure);
+            }
+            writeFully(channel, json ? ByteBuffer.wrap(new byte[]{'}'}) : trailer(written));
+            return written;
+        });
+    }
+
+    private long writeAtomically(Path target, ChannelWriter writer) throws IOException {
+        Path absolute = target.toAbsolutePath();
+        Path temp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        long written;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            written = writer.write(channel);
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        try {
+            Files.move(temp, absolute, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return written;
+    }
+
+    private long writeJson(FileChannel channel, Iterator<Map.Entry<String, StorageEntry>> entries, long nowMillis)
+            throws IOException {
+        long written = 0;
+        OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), OUTPUT_BUFFER_SIZE);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            while (entries.hasNext()) {
+                Map.Entry<String, StorageEntry> next = entries.next();
+                StorageEntry entry = next.getValue();
+                if (!isWritten(entry, nowMillis)) {
+                    continue;
+                }
+                generator.writeFieldName(next.getKey());
+                generator.writeStartObject();
+                generator.writeStringField("value", entry.value());
+                generator.writeNumberField("ttl", entry.ttl());
+                generator.writeNumberField("savedTime", entry.savedTime());
+                generator.writeEndObject();
+                written++;
+            }
+            generator.writeEndObject();
+        }
+        out.flush();
+        return written;
+    }
+
+    private long writeJsonPart(JsonJoiner joiner, Iterator<Map.Entry<String, StorageEntry>> entries, long nowMillis)
+            throws IOException {
+        long written = 0;
+        ChunkBuffer out = new ChunkBuffer(blockSize + OUTPUT_BUFFER_SIZE);
+        boolean partStart = true;
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            // Члены части пишутся внутри собственного объекта; открывающая скобка отбрасывается,
+            // а генератор сам ставит запятые между членами, в том числе в начале следующего фрагмента.
+            generator.writeStartObject();
+            generator.flush();
+            out.reset();
+            while (entries.hasNext()) {
+                Map.Entry<String, StorageEntry> next = entries.next();
+                StorageEntry entry = next.getValue();
+                if (!isWritten(entry, nowMillis)) {
+                    continue;
+                }
+                generator.writeFieldName(next.getKey());
+                generator.writeStartObject();
+                generator.writeStringField("value", entry.value());
+                generator.writeNumberField("ttl", entry.ttl());
+                generator.writeNumberField("savedTime", entry.savedTime());
+                generator.writeEndObject();
+                written++;
+                if (out.size() + generator.getOutputBuffered() >= blockSize) {
+                    generator.flush();
+                    joiner.append(out, partStart);
+                    partStart = false;
+                    out.reset();
+                }
+            }
+            generator.flush();
+            joiner.append(out, partStart);
+        }
+        return written;
+    }
+
+    private long writeBinary(FileChannel channel, Iterator<Map.Entry<String, StorageEntry>> entries, long nowMillis)
+            throws IOException {
+        writeFully(channel, fileHeader());
+        long written = writeBlocks(buffers -> writeFully(channel, buffers), entries, nowMillis);
+        writeFully(channel, trailer(written));
+        return written;
+    }
+
+    private long writeBlocks(BlockSink sink, Iterator<Map.Entry<String, StorageEntry>> entries, long nowMillis)
+            throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(BinarySnapshot.BLOCK_HEADER_SIZE);
+        ByteBuffer block = ByteBuffer.allocate(blockSize);
+        CRC32C crc = new CRC32C();
+
+        long written = 0;
+        int blockRecords = 0;
+        while (entries.hasNext()) {
+            Map.Entry<String, StorageEntry> next = entries.next();
+            StorageEntry entry = next.getValue();
+            if (!isWritten(entry, nowMillis)) {
+                continue;
+            }
+            if (!putRecord(block, next.getKey(), entry)) {
+                flushBlock(sink, header, block, blockRecords, crc);
+                blockRecords = 0;
+                if (!putRecord(block, next.getKey(), entry)) {
+                    // Запись больше блока: сохраняется отдельным блоком нужного размера.
+                    ByteBuffer oversized = ByteBuffer.allocate(recordSize(utf8Length(next.getKey()), valueLength(entry)));
+                    putRecord(oversized, next.getKey(), entry);
+                    flushBlock(sink, header, oversized, 1, crc);
+                    written++;
+                    continue;
+                }
+            }
+            blockRecords++;
+            written++;
+        }
+        flushBlock(sink, header, block, blockRecords, crc);
+        return written;
+    }
+
+    private static ByteBuffer fileHeader() {
+        return ByteBuffer.allocate(BinarySnapshot.FILE_HEADER_SIZE)
+                .putInt(BinarySnapshot.MAGIC).putInt(BinarySnapshot.VERSION).flip();
+    }
+
+    private static ByteBuffer trailer(long written) {
+        return ByteBuffer.allocate(BinarySnapshot.TRAILER_SIZE)
+                .putInt(BinarySnapshot.END_MAGIC).putLong(written).flip();
+    }
+
+    /**
+     * Кодирует запись прямо в массив блока, без промежуточных массивов байтов.
+     *
+     * @return false, если запись не поместилась в оставшееся место буфера
+     */
+    private static boolean putRecord(ByteBuffer block, String key, StorageEntry entry) {
+        int keyLength = utf8Length(key);
+        int valueLength = valueLength(entry);
+        if (block.remaining() < recordSize(keyLength, valueLength)) {
+            return false;
+        }
+        putString(block, key, keyLength);
+        if (entry.isTombstone()) {
+            block.putInt(BinarySnapshot.TOMBSTONE);
+        } else {
+            putString(block, entry.value(), valueLength);
+        }
+        block.putLong(entry.ttl()).putLong(entry.savedTime());
+        return true;
+    }
+
+    private static int recordSize(int keyLength, int valueLength) {
+        return 4 + keyLength + 4 + valueLength + 16;
+    }
+
+    private static int valueLength(StorageEntry entry) {
+        return entry.isTombstone() ? 0 : utf8Length(entry.value());
+    }
+
+    /**
+     * Записи с истёкшим TTL пропускаются; записи об удалении ключа пишутся всегда.
+     */
+    private static boolean isWritten(StorageEntry entry, long nowMillis) {
+        return entry.isTombstone() || entry.isLive(nowMillis);
+    }
+
+    private static int utf8Length(String value) {
+        int length = value.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    bytes += 1;
+                } else if (!Character.isSurrogate(c)) {
+                    bytes += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    bytes += 2;
+                    i++;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Кодирование в UTF-8; одиночные суррогаты заменяются символом '?', как в {@link String#getBytes}.
+     */
+    private static void putString(ByteBuffer block, String value, int utf8Length) {
+        block.putInt(utf8Length);
+        byte[] array = block.array();
+        int position = block.arrayOffset() + block.position();
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                array[position++] = (byte) c;
+            } else if (c < 0x800) {
+                array[position++] = (byte) (0xC0 | (c >> 6));
+                array[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    array[position++] = (byte) (0xF0 | (codePoint >> 18));
+                    array[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    array[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    array[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else {
+                    array[position++] = '?';
+                }
+            } else {
+                array[position++] = (byte) (0xE0 | (c >> 12));
+                array[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                array[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        block.position(position - block.arrayOffset());
+    }
+
+    private static void flushBlock(BlockSink sink, ByteBuffer header, ByteBuffer block, int records, CRC32C crc)
+            throws IOException {
+        if (records == 0) {
+            return;
+        }
+        block.flip();
+        crc.reset();
+        crc.update(block.duplicate());
+        header.clear().putInt(BinarySnapshot.BLOCK_MAGIC).putInt(block.remaining()).putInt(records)
+                .putInt((int) crc.getValue()).flip();
+        sink.write(header, block);
+        block.clear();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer... buffers) throws IOException {
+        ByteBuffer last = buffers[buffers.length - 1];
+        while (last.hasRemaining()) {
+            channel.write(buffers);
+        }
+    }
+
+    /**
+     * Запись в открытый временный файл.
+     */
+    @FunctionalInterface
+    private interface ChannelWriter {
+        long write(FileChannel channel) throws IOException;
+    }
+
+    /**
+     * Приёмник готовых блоков: буферы записываются целиком и подряд.
+     */
+    @FunctionalInterface
+    private interface BlockSink {
+        void write(ByteBuffer... buffers) throws IOException;
+    }
+
+    /**
+     * Буфер фрагмента JSON с доступом к массиву без копирования.
+     */
+    private static final class ChunkBuffer extends ByteArrayOutputStream {
+
+        ChunkBuffer(int size) {
+            super(size);
+        }
+
+        ByteBuffer contents() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+
+    /**
+     * Склейка фрагментов JSON разных частей в один объект: перед первым фрагментом части,
+     * если в файл уже что-то записано, ставится запятая. Следующие фрагменты той же части
+     * начинаются с запятой, поставленной генератором.
+     */
+    private static final class JsonJoiner {
+
+        private static final byte[] COMMA = {','};
+
+        private final BlockSink sink;
+        private final ReentrantLock lock = new ReentrantLock();
+        private boolean empty = true;
+
+        JsonJoiner(BlockSink sink) {
+            this.sink = sink;
+        }
+
+        void append(ChunkBuffer chunk, boolean partStart) throws IOException {
+            if (chunk.size() == 0) {
+                return;
+            }
+            lock.lock();
+            try {
+                if (partStart && !empty) {
+                    sink.write(ByteBuffer.wrap(COMMA), chunk.contents());
+                } else {
+                    sink.write(chunk.contents());
+                }
+                empty = false;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package org.example.storage;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Хранение записей в куче со значениями в компактном представлении {@link ValueCodec}:
+ * большие значения сжаты, одинаковые значения хранятся одним экземпляром. Значение
+ * восстанавливается при каждом чтении, поэтому запись, возвращаемая {@link #get(String)},
+ * каждый раз новая.
+ * <p>
+ * Как и у {@link OffHeapStorageEngine}, условные удаление и замена сравнивают версию
+ * хранимой записи с ожидаемой, не восстанавливая значение.
+ */
+public class CompactHeapStorageEngine implements StorageEngine {
+
+    /** Количество записей, по которым оценивается средний размер записи. */
+    private static final int SIZE_SAMPLE = 1024;
+
+    /**
+     * Память на запись без учёта данных значения и символов ключа: узел ConcurrentHashMap, Slot,
+     * объект String ключа, объект значения и заголовки их массивов (сжатые указатели).
+     */
+    private static final int ENTRY_OVERHEAD = 32 + 24 + 2 * 24 + 2 * 16;
+
+    private final ConcurrentHashMap<String, Slot> storage = new ConcurrentHashMap<>();
+    private final ValueCodec codec;
+
+    /**
+     * @param codec Кодек значений; может быть общим для нескольких шардов
+     */
+    public CompactHeapStorageEngine(ValueCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public StorageEntry get(String key) {
+        Slot slot = storage.get(key);
+        return slot == null ? null : read(slot);
+    }
+
+    @Override
+    public void put(String key, StorageEntry entry) {
+        Slot previous = storage.put(key, encode(entry));
+        if (previous != null) {
+            codec.release(previous.value);
+        }
+    }
+
+    @Override
+    public boolean putIfNewer(String key, StorageEntry entry) {
+        Slot slot = encode(entry);
+        while (true) {
+            Slot current = storage.putIfAbsent(key, slot);
+            if (current == null) {
+                return true;
+            }
+            if (current.expiresAt - current.ttl >= entry.savedTime()) {
+                codec.release(slot.value);
+                return false;
+            }
+            if (storage.replace(key, current, slot)) {
+                codec.release(current.value);
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public boolean putIfAbsent(String key, StorageEntry entry) {
+        Slot slot = encode(entry);
+        if (storage.putIfAbsent(key, slot) != null) {
+            codec.release(slot.value);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public StorageEntry remove(String key) {
+        Slot slot = storage.remove(key);
+        if (slot == null) {
+            return null;
+        }
+        StorageEntry entry = read(slot);
+        codec.release(slot.value);
+        return entry;
+    }
+
+    @Override
+    public boolean remove(String key, StorageEntry expected) {
+        Slot slot = storage.get(key);
+        if (slot == null || slot.version != expected.version() || !storage.remove(key, slot)) {
+            return false;
+        }
+        codec.release(slot.value);
+        return true;
+    }
+
+    @Override
+    public boolean replace(String key, StorageEntry expected, StorageEntry entry) {
+        Slot slot = storage.get(key);
+        if (slot == null || slot.version != expected.version()) {
+            return false;
+        }
+        Slot updated = encode(entry);
+        if (!storage.replace(key, slot, updated)) {
+            codec.release(updated.value);
+            return false;
+        }
+        codec.release(slot.value);
+        return true;
+    }
+
+    /**
+     * Размер — длина закодированного значения: сжатое значение не распаковывается.
+     */
+    @Override
+    public Footprint footprint(String key) {
+        Slot slot = storage.get(key);
+        return slot == null ? null : new Footprint(slot.version, ValueCodec.footprintOf(slot.value));
+    }
+
+    @Override
+    public Iterator<Map.Entry<String, StorageEntry>> iterator() {
+        Iterator<Map.Entry<String, Slot>> slots = storage.entrySet().iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return slots.hasNext();
+            }
+
+            @Override
+            public Map.Entry<String, StorageEntry> next() {
+                Map.Entry<String, Slot> slot = slots.next();
+                return new AbstractMap.SimpleImmutableEntry<>(slot.getKey(), read(slot.getValue()));
+            }
+        };
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, StorageEntry> action) {
+        storage.forEach((key, slot) -> action.accept(key, read(slot)));
+    }
+
+    @Override
+    public int size() {
+        return storage.size();
+    }
+
+    /**
+     * Средний размер записи оценивается по первым {@value #SIZE_SAMPLE} записям обхода;
+     * общие значения учитываются в каждой записи, поэтому при дедупликации оценка завышена.
+     */
+    @Override
+    public long estimatedBytes() {
+        int size = storage.size();
+        long sampled = 0;
+        long sampleBytes = 0;
+        for (Iterator<Map.Entry<String, Slot>> it = storage.entrySet().iterator(); it.hasNext() && sampled < SIZE_SAMPLE; sampled++) {
+            Map.Entry<String, Slot> entry = it.next();
+            sampleBytes += ENTRY_OVERHEAD + entry.getKey().length() + ValueCodec.sizeOf(entry.getValue().value);
+        }
+        return sampled == 0 ? 0 : sampleBytes * size / sampled;
+    }
+
+    @Override
+    public void clear() {
+        for (String key : storage.keySet()) {
+            Slot slot = storage.remove(key);
+            if (slot != null) {
+                codec.release(slot.value);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        clear();
+    }
+
+    private Slot encode(StorageEntry entry) {
+        return new Slot(codec.encode(entry.value()), entry.expiresAt(), entry.ttl(), entry.version());
+    }
+
+    private StorageEntry read(Slot slot) {
+        return new StorageEntry(codec.decode(slot.value), slot.expiresAt, slot.ttl, slot.version);
+    }
+
+    /**
+     * Хранимая запись: закодированное значение, срок жизни и версия.
+     */
+    private record Slot(Object value, long expiresAt, long ttl, long version) {
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.storage;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Хранение записей в куче на основе {@link ConcurrentHashMap}.
+ */
+public class HeapStorageEngine implements StorageEngine {
+
+    /** Количество записей, по которым оценивается средний размер записи. */
+    private static final int SIZE_SAMPLE = 1024;
+
+    /**
+     * Память на запись без учёта символов: узел ConcurrentHashMap, StorageEntry,
+     * два объекта String и заголовки их массивов (сжатые указатели).
+     */
+    private static final int ENTRY_OVERHEAD = 32 + 32 + 2 * 24 + 2 * 16;
+
+    private final ConcurrentHashMap<String, StorageEntry> storage = new ConcurrentHashMap<>();
+
+    @Override
+    public StorageEntry get(String key) {
+        return storage.get(key);
+    }
+
+    @Override
+    public void put(String key, StorageEntry entry) {
+        storage.put(key, entry);
+    }
+
+    @Override
+    public boolean putIfNewer(String key, StorageEntry entry) {
+        while (true) {
+            StorageEntry current = storage.putIfAbsent(key, entry);
+            if (current == null) {
+                return true;
+            }
+            if (current.savedTime() >= entry.savedTime()) {
+                return false;
+            }
+            if (storage.replace(key, current, entry)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public boolean putIfAbsent(String key, StorageEntry entry) {
+        return storage.putIfAbsent(key, entry) == null;
+    }
+
+    @Override
+    public StorageEntry remove(String key) {
+        return storage.remove(key);
+    }
+
+    @Override
+    public boolean remove(String key, StorageEntry expected) {
+        return storage.remove(key, expected);
+    }
+
+    @Override
+    public boolean replace(String key, StorageEntry expected, StorageEntry entry) {
+        return storage.replace(key, expected, entry);
+    }
+
+    @Override
+    public Footprint footprint(String key) {
+        StorageEntry entry = storage.get(key);
+        return entry == null ? null : new Footprint(entry.version(), ValueCodec.footprintOf(entry.value()));
+    }
+
+    @Override
+    public Iterator<Map.Entry<String, StorageEntry>> iterator() {
+        return storage.entrySet().iterator();
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, StorageEntry> action) {
+        storage.forEach(action);
+    }
+
+    @Override
+    public int size() {
+        return storage.size();
+    }
+
+    /**
+     * Средний размер записи оценивается по первым {@value #SIZE_SAMPLE} записям обхода,
+     * строки считаются однобайтовыми (compact strings).
+     */
+    @Override
+    public long estimatedBytes() {
+        int size = storage.size();
+        long sampled = 0;
+        long sampleBytes = 0;
+        for (Iterator<Map.Entry<String, StorageEntry>> it = iterator(); it.hasNext() && sampled < SIZE_SAMPLE; sampled++) {
+            Map.Entry<String, StorageEntry> entry = it.next();
+            sampleBytes += ENTRY_OVERHEAD + entry.getKey().length() + entry.getValue().value().length();
+        }
+        return sampled == 0 ? 0 : sampleBytes * size / sampled;
+    }
+
+    @Override
+    public void clear() {
+        storage.clear();
+    }
+
+    @Override
+    public void close() {
+        storage.clear();
+    }
+}
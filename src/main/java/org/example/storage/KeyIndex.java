@@ -0,0 +1,77 @@
+package org.example.storage;
+
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Упорядоченный индекс ключей хранилища для запросов по префиксу и диапазону ключей.
+ * Ключи вида {@code tenant:user:session} с общим префиксом лежат в индексе подряд, поэтому запрос
+ * по префиксу просматривает только подходящие ключи, а не всё хранилище. Индекс может содержать
+ * ключи уже удалённых записей (см. {@link ShardedStorageEngine}), но не пропускает ключи существующих;
+ * результат запроса всегда проверяется по самому хранилищу.
+ */
+public class KeyIndex {
+
+    private final ConcurrentSkipListSet<String> keys = new ConcurrentSkipListSet<>();
+
+    void add(String key) {
+        keys.add(key);
+    }
+
+    void remove(String key) {
+        keys.remove(key);
+    }
+
+    void clear() {
+        keys.clear();
+    }
+
+    /**
+     * @return Количество ключей в индексе
+     */
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * Слабо согласованное представление ключей с заданным префиксом в порядке возрастания.
+     *
+     * @param prefix Префикс ключа; пустой префикс — все ключи
+     */
+    NavigableSet<String> withPrefix(String prefix) {
+        if (prefix.isEmpty()) {
+            return keys;
+        }
+        String upper = upperBound(prefix);
+        return upper == null ? keys.tailSet(prefix, true) : keys.subSet(prefix, true, upper, false);
+    }
+
+    /**
+     * Слабо согласованное представление ключей из диапазона в порядке возрастания.
+     *
+     * @param from Нижняя граница (включительно) или {@code null}
+     * @param to   Верхняя граница (не включительно) или {@code null}
+     */
+    NavigableSet<String> range(String from, String to) {
+        if (from == null) {
+            return to == null ? keys : keys.headSet(to, false);
+        }
+        return to == null ? keys.tailSet(from, true) : keys.subSet(from, true, to, false);
+    }
+
+    /**
+     * Наименьшая строка, большая всех строк с заданным префиксом: последний символ, меньший
+     * {@code Character.MAX_VALUE}, увеличивается на единицу, а символы после него отбрасываются.
+     *
+     * @return Граница или {@code null}, если префикс состоит только из символов {@code Character.MAX_VALUE}
+     */
+    static String upperBound(String prefix) {
+        for (int i = prefix.length() - 1; i >= 0; i--) {
+            char c = prefix.charAt(i);
+            if (c != Character.MAX_VALUE) {
+                return prefix.substring(0, i) + (char) (c + 1);
+            }
+        }
+        return null;
+    }
+}
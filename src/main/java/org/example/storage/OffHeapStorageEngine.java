@@ -0,0 +1,233 @@
+package org.example.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Хранение значений вне кучи.
+ * Значения в кодировке UTF-8 хранятся в блоках {@link SlabAllocator}, а в куче остаётся только индекс:
+ * ключ и компактный дескриптор с адресом блока и сроком жизни записи. Память удалённых
+ * и истёкших записей возвращается в список свободных блоков своего класса размера.
+ * <p>
+ * Записи вне кучи не имеют собственной идентичности, поэтому условные удаление и замена
+ * сравнивают версию хранимой записи с ожидаемой.
+ */
+public class OffHeapStorageEngine implements StorageEngine {
+
+    private final ConcurrentHashMap<String, Slot> index = new ConcurrentHashMap<>();
+    private final SlabAllocator allocator;
+
+    /**
+     * @param segmentSize Размер сегмента в байтах
+     * @param maxSize     Максимальный объём памяти вне кучи в байтах
+     * @param file        Файл, отображаемый в память, или {@code null} для direct ByteBuffer
+     */
+    public OffHeapStorageEngine(long segmentSize, long maxSize, Path file) {
+        this.allocator = new SlabAllocator(segmentSize, maxSize, file);
+    }
+
+    @Override
+    public StorageEntry get(String key) {
+        while (true) {
+            Slot slot = index.get(key);
+            if (slot == null) {
+                return null;
+            }
+            StorageEntry entry = read(slot);
+            if (entry != null) {
+                return entry;
+            }
+        }
+    }
+
+    @Override
+    public void put(String key, StorageEntry entry) {
+        byte[] data = entry.value().getBytes(StandardCharsets.UTF_8);
+        long address = allocator.allocate(data);
+        Slot previous = index.put(key, new Slot(address, allocator.generation(address), data.length, entry.expiresAt(), entry.ttl(), entry.version()));
+        if (previous != null) {
+            allocator.free(previous.address);
+        }
+    }
+
+    @Override
+    public boolean putIfNewer(String key, StorageEntry entry) {
+        byte[] data = entry.value().getBytes(StandardCharsets.UTF_8);
+        long address = allocator.allocate(data);
+        Slot slot = new Slot(address, allocator.generation(address), data.length, entry.expiresAt(), entry.ttl(), entry.version());
+        while (true) {
+            Slot current = index.putIfAbsent(key, slot);
+            if (current == null) {
+                return true;
+            }
+            if (current.expiresAt - current.ttl >= entry.savedTime()) {
+                allocator.free(address);
+                return false;
+            }
+            if (index.replace(key, current, slot)) {
+                allocator.free(current.address);
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public boolean putIfAbsent(String key, StorageEntry entry) {
+        byte[] data = entry.value().getBytes(StandardCharsets.UTF_8);
+        long address = allocator.allocate(data);
+        if (index.putIfAbsent(key, new Slot(address, allocator.generation(address), data.length, entry.expiresAt(), entry.ttl(), entry.version())) != null) {
+            allocator.free(address);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public StorageEntry remove(String key) {
+        Slot slot = index.remove(key);
+        if (slot == null) {
+            return null;
+        }
+        StorageEntry entry = read(slot);
+        allocator.free(slot.address);
+        return entry;
+    }
+
+    @Override
+    public boolean remove(String key, StorageEntry expected) {
+        Slot slot = index.get(key);
+        if (slot == null || slot.version != expected.version() || !index.remove(key, slot)) {
+            return false;
+        }
+        allocator.free(slot.address);
+        return true;
+    }
+
+    @Override
+    public boolean replace(String key, StorageEntry expected, StorageEntry entry) {
+        Slot slot = index.get(key);
+        if (slot == null || slot.version != expected.version()) {
+            return false;
+        }
+        byte[] data = entry.value().getBytes(StandardCharsets.UTF_8);
+        long address = allocator.allocate(data);
+        if (!index.replace(key, slot, new Slot(address, allocator.generation(address), data.length, entry.expiresAt(), entry.ttl(), entry.version()))) {
+            allocator.free(address);
+            return false;
+        }
+        allocator.free(slot.address);
+        return true;
+    }
+
+    /**
+     * Размер — длина значения в UTF-8, сохранённая в дескрипторе: блок вне кучи не читается.
+     */
+    @Override
+    public Footprint footprint(String key) {
+        Slot slot = index.get(key);
+        return slot == null ? null : new Footprint(slot.version, slot.size);
+    }
+
+    @Override
+    public Iterator<Map.Entry<String, StorageEntry>> iterator() {
+        Iterator<Map.Entry<String, Slot>> slots = index.entrySet().iterator();
+        return new Iterator<>() {
+            private Map.Entry<String, StorageEntry> next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && slots.hasNext()) {
+                    Map.Entry<String, Slot> slot = slots.next();
+                    StorageEntry entry = read(slot.getValue());
+                    if (entry != null) {
+                        next = new AbstractMap.SimpleImmutableEntry<>(slot.getKey(), entry);
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Map.Entry<String, StorageEntry> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Map.Entry<String, StorageEntry> result = next;
+                next = null;
+                return result;
+            }
+        };
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, StorageEntry> action) {
+        index.forEach((key, slot) -> {
+            StorageEntry entry = read(slot);
+            if (entry != null) {
+                action.accept(key, entry);
+            }
+        });
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public void clear() {
+        for (String key : index.keySet()) {
+            Slot slot = index.remove(key);
+            if (slot != null) {
+                allocator.free(slot.address);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        index.clear();
+        allocator.close();
+    }
+
+    /**
+     * Оценка — размер занятых блоков вне кучи: индекс в куче не учитывается.
+     */
+    @Override
+    public long estimatedBytes() {
+        return usedBytes();
+    }
+
+    /**
+     * @return Суммарный размер занятых блоков вне кучи в байтах
+     */
+    public long usedBytes() {
+        return allocator.usedBytes();
+    }
+
+    /**
+     * @return Суммарный размер выделенных сегментов вне кучи в байтах
+     */
+    public long reservedBytes() {
+        return allocator.reservedBytes();
+    }
+
+    /**
+     * @return Запись или {@code null}, если блок был освобождён
+     */
+    private StorageEntry read(Slot slot) {
+        byte[] data = allocator.read(slot.address, slot.generation);
+        return data == null ? null : new StorageEntry(new String(data, StandardCharsets.UTF_8), slot.expiresAt, slot.ttl, slot.version);
+    }
+
+    /**
+     * Дескриптор записи в индексе: адрес и поколение блока, размер значения в байтах, срок жизни и версия записи.
+     */
+    private record Slot(long address, int generation, int size, long expiresAt, long ttl, long version) {
+    }
+}
@@ -0,0 +1,307 @@
+package org.example.storage;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+import java.util.function.IntFunction;
+
+/**
+ * Хранилище, разделённое на сегменты (шарды) по хешу ключа.
+ * Каждый шард — самостоятельный {@link StorageEngine}; операции по ключу выполняются только в его шарде,
+ * поэтому фоновое обслуживание (удаление истёкших записей, сохранение состояния) может обрабатывать
+ * шарды независимо и параллельно. Обход всех записей последовательно проходит шарды.
+ * <p>
+ * Если включён {@link KeyIndex}, каждое добавление ключа отражается в индексе после записи в шард,
+ * а удаление — после удаления из шарда с повторной проверкой шарда: ключ, записанный параллельно
+ * с удалением, из индекса не пропадает. Поэтому индекс может ненадолго содержать ключи уже удалённых
+ * записей, но не пропускает ключи существующих; такие ключи убираются из индекса при обходе по нему.
+ */
+public class ShardedStorageEngine implements StorageEngine {
+
+    private final StorageEngine[] shards;
+    private final KeyIndex index;
+
+    /**
+     * @param shardCount Количество шардов
+     * @param factory    Создание шарда по его номеру
+     */
+    public ShardedStorageEngine(int shardCount, IntFunction<StorageEngine> factory) {
+        this(shardCount, factory, false);
+    }
+
+    /**
+     * @param shardCount Количество шардов
+     * @param factory    Создание шарда по его номеру
+     * @param indexed    Вести упорядоченный индекс ключей
+     */
+    public ShardedStorageEngine(int shardCount, IntFunction<StorageEngine> factory, boolean indexed) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Parameter 'shardCount' must be positive.");
+        }
+        shards = new StorageEngine[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = factory.apply(i);
+        }
+        index = indexed ? new KeyIndex() : null;
+    }
+
+    /**
+     * @return Упорядоченный индекс ключей или {@code null}, если индекс не ведётся
+     */
+    public KeyIndex keyIndex() {
+        return index;
+    }
+
+    /**
+     * @return Количество шардов
+     */
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /**
+     * @param index Номер шарда
+     * @return Шард
+     */
+    public StorageEngine shard(int index) {
+        return shards[index];
+    }
+
+    /**
+     * Номер шарда ключа. Шард выбирается по старшим битам перемешанного хеша: ConcurrentHashMap
+     * внутри шарда раскладывает ключи по младшим битам, и ключи одного шарда не скапливаются в части корзин.
+     *
+     * @param key Ключ записи
+     * @return Номер шарда
+     */
+    public int shardOf(String key) {
+        int hash = key.hashCode() * 0x9E3779B9;
+        return (int) (((hash >>> 16) * (long) shards.length) >>> 16);
+    }
+
+    /**
+     * Слабо согласованные итераторы по записям каждого шарда.
+     */
+    public List<Iterator<Map.Entry<String, StorageEntry>>> shardIterators() {
+        List<Iterator<Map.Entry<String, StorageEntry>>> iterators = new ArrayList<>(shards.length);
+        for (StorageEngine shard : shards) {
+            iterators.add(shard.iterator());
+        }
+        return iterators;
+    }
+
+    /**
+     * Обход записей с заданным префиксом ключа в порядке возрастания ключей по индексу.
+     *
+     * @param prefix Префикс ключа; пустой префикс — все записи
+     * @throws IllegalStateException если индекс не ведётся
+     */
+    public Iterator<Map.Entry<String, StorageEntry>> prefixIterator(String prefix) {
+        return indexed(requireIndex().withPrefix(prefix));
+    }
+
+    /**
+     * Обход записей с ключами из диапазона в порядке возрастания ключей по индексу.
+     *
+     * @param from Нижняя граница (включительно) или {@code null}
+     * @param to   Верхняя граница (не включительно) или {@code null}
+     * @throws IllegalStateException если индекс не ведётся
+     */
+    public Iterator<Map.Entry<String, StorageEntry>> rangeIterator(String from, String to) {
+        return indexed(requireIndex().range(from, to));
+    }
+
+    private KeyIndex requireIndex() {
+        if (index == null) {
+            throw new IllegalStateException("Key index is disabled.");
+        }
+        return index;
+    }
+
+    /**
+     * Слабо согласованный обход записей по ключам индекса. Ключи, для которых в шарде нет записи,
+     * пропускаются и убираются из индекса.
+     */
+    private Iterator<Map.Entry<String, StorageEntry>> indexed(NavigableSet<String> keys) {
+        Iterator<String> iterator = keys.iterator();
+        return new Iterator<>() {
+            private Map.Entry<String, StorageEntry> next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && iterator.hasNext()) {
+                    String key = iterator.next();
+                    StorageEntry entry = get(key);
+                    if (entry != null) {
+                        next = Map.entry(key, entry);
+                    } else {
+                        unindex(key);
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Map.Entry<String, StorageEntry> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Map.Entry<String, StorageEntry> result = next;
+                next = null;
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Удаление ключа из индекса после удаления записи. Если запись по ключу успели добавить заново,
+     * ключ возвращается в индекс: добавление могло отразиться в индексе раньше удаления.
+     */
+    private void unindex(String key) {
+        index.remove(key);
+        if (shards[shardOf(key)].get(key) != null) {
+            index.add(key);
+        }
+    }
+
+    @Override
+    public StorageEntry get(String key) {
+        return shards[shardOf(key)].get(key);
+    }
+
+    @Override
+    public void put(String key, StorageEntry entry) {
+        shards[shardOf(key)].put(key, entry);
+        if (index != null) {
+            index.add(key);
+        }
+    }
+
+    @Override
+    public boolean putIfNewer(String key, StorageEntry entry) {
+        if (!shards[shardOf(key)].putIfNewer(key, entry)) {
+            return false;
+        }
+        if (index != null) {
+            index.add(key);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean putIfAbsent(String key, StorageEntry entry) {
+        if (!shards[shardOf(key)].putIfAbsent(key, entry)) {
+            return false;
+        }
+        if (index != null) {
+            index.add(key);
+        }
+        return true;
+    }
+
+    @Override
+    public StorageEntry remove(String key) {
+        StorageEntry removed = shards[shardOf(key)].remove(key);
+        if (removed != null && index != null) {
+            unindex(key);
+        }
+        return removed;
+    }
+
+    @Override
+    public boolean remove(String key, StorageEntry expected) {
+        if (!shards[shardOf(key)].remove(key, expected)) {
+            return false;
+        }
+        if (index != null) {
+            unindex(key);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean replace(String key, StorageEntry expected, StorageEntry entry) {
+        return shards[shardOf(key)].replace(key, expected, entry);
+    }
+
+    @Override
+    public Footprint footprint(String key) {
+        return shards[shardOf(key)].footprint(key);
+    }
+
+    @Override
+    public Iterator<Map.Entry<String, StorageEntry>> iterator() {
+        if (shards.length == 1) {
+            return shards[0].iterator();
+        }
+        return new Iterator<>() {
+            private int next = 1;
+            private Iterator<Map.Entry<String, StorageEntry>> current = shards[0].iterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext()) {
+                    if (next == shards.length) {
+                        return false;
+                    }
+                    current = shards[next++].iterator();
+                }
+                return true;
+            }
+
+            @Override
+            public Map.Entry<String, StorageEntry> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, StorageEntry> action) {
+        for (StorageEngine shard : shards) {
+            shard.forEach(action);
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (StorageEngine shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    @Override
+    public long estimatedBytes() {
+        long bytes = 0;
+        for (StorageEngine shard : shards) {
+            bytes += shard.estimatedBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public void clear() {
+        if (index != null) {
+            index.clear();
+        }
+        for (StorageEngine shard : shards) {
+            shard.clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (StorageEngine shard : shards) {
+            shard.close();
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package org.example.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Распределитель памяти вне кучи: память выделяется сегментами (direct ByteBuffer или участки
+ * отображённого в память файла), сегменты нарезаются на блоки размером в степень двойки.
+ * Освобождённые блоки возвращаются в список свободных блоков своего класса размера и используются повторно.
+ * <p>
+ * Блок начинается с заголовка: поколение блока (int) и длина данных (int). Поколение увеличивается
+ * при каждом освобождении блока, что позволяет читателю без блокировок убедиться, что блок
+ * не был освобождён и переиспользован во время чтения.
+ */
+final class SlabAllocator implements AutoCloseable {
+
+    static final int HEADER_SIZE = 8;
+    private static final int MIN_CHUNK_SHIFT = 5;
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    private final int segmentSize;
+    private final int maxSegments;
+    private final FileChannel file;
+    private final SizeClass[] sizeClasses;
+    private final ReentrantLock segmentLock = new ReentrantLock();
+    private final LongAdder usedBytes = new LongAdder();
+
+    private volatile ByteBuffer[] segments = new ByteBuffer[0];
+    private int segmentOffset;
+
+    /**
+     * @param segmentSize Размер сегмента в байтах (округляется вверх до степени двойки)
+     * @param maxSize     Максимальный суммарный размер сегментов в байтах
+     * @param file        Файл, отображаемый в память, или {@code null} для direct ByteBuffer
+     */
+    SlabAllocator(long segmentSize, long maxSize, Path file) {
+        if (segmentSize <= HEADER_SIZE || segmentSize > (1 << 30)) {
+            throw new IllegalArgumentException("Parameter 'segmentSize' must be between 9 bytes and 1GB.");
+        }
+        this.segmentSize = Integer.highestOneBit((int) segmentSize - 1) << 1;
+        this.maxSegments = (int) Math.max(1, maxSize / this.segmentSize);
+        this.sizeClasses = new SizeClass[Integer.numberOfTrailingZeros(this.segmentSize) - MIN_CHUNK_SHIFT + 1];
+        for (int i = 0; i < sizeClasses.length; i++) {
+            sizeClasses[i] = new SizeClass();
+        }
+        try {
+            this.file = file == null ? null : FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.DELETE_ON_CLOSE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Выделяет блок и записывает в него данные.
+     *
+     * @param data Данные
+     * @return Адрес блока
+     */
+    long allocate(byte[] data) {
+        int size = HEADER_SIZE + data.length;
+        if (data.length > segmentSize - HEADER_SIZE) {
+            throw new IllegalArgumentException("Value is too large for off-heap storage: " + data.length + " bytes.");
+        }
+        int sizeClass = Math.max(0, 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_CHUNK_SHIFT);
+        long address = sizeClasses[sizeClass].pop();
+        if (address < 0) {
+            address = carve(1 << (sizeClass + MIN_CHUNK_SHIFT));
+        }
+        ByteBuffer segment = segment(address);
+        int offset = offset(address);
+        segment.putInt(offset + 4, data.length);
+        segment.put(offset + HEADER_SIZE, data);
+        usedBytes.add(1L << (sizeClass + MIN_CHUNK_SHIFT));
+        return address;
+    }
+
+    /**
+     * @param address Адрес блока
+     * @return Текущее поколение блока
+     */
+    int generation(long address) {
+        return (int) INT.getAcquire(segment(address), offset(address));
+    }
+
+    /**
+     * Читает данные блока.
+     *
+     * @param address    Адрес блока
+     * @param generation Ожидаемое поколение блока
+     * @return Данные или {@code null}, если блок был освобождён до или во время чтения
+     */
+    byte[] read(long address, int generation) {
+        ByteBuffer segment = segment(address);
+        int offset = offset(address);
+        if ((int) INT.getAcquire(segment, offset) != generation) {
+            return null;
+        }
+        int length = segment.getInt(offset + 4);
+        if (length < 0 || length > segmentSize - offset - HEADER_SIZE) {
+            return null;
+        }
+        byte[] data = new byte[length];
+        segment.get(offset + HEADER_SIZE, data);
+        VarHandle.loadLoadFence();
+        if ((int) INT.getVolatile(segment, offset) != generation) {
+            return null;
+        }
+        return data;
+    }
+
+    /**
+     * Освобождает блок. Блок должен освобождаться ровно один раз.
+     *
+     * @param address Адрес блока
+     */
+    void free(long address) {
+        ByteBuffer segment = segment(address);
+        int offset = offset(address);
+        int size = HEADER_SIZE + segment.getInt(offset + 4);
+        INT.getAndAdd(segment, offset, 1);
+        int sizeClass = Math.max(0, 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_CHUNK_SHIFT);
+        usedBytes.add(-(1L << (sizeClass + MIN_CHUNK_SHIFT)));
+        sizeClasses[sizeClass].push(address);
+    }
+
+    /**
+     * @return Суммарный размер занятых блоков в байтах
+     */
+    long usedBytes() {
+        return usedBytes.sum();
+    }
+
+    /**
+     * @return Суммарный размер выделенных сегментов в байтах
+     */
+    long reservedBytes() {
+        return (long) segments.length * segmentSize;
+    }
+
+    @Override
+    public void close() {
+        segments = new ByteBuffer[0];
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private ByteBuffer segment(long address) {
+        return segments[(int) (address >>> 32)];
+    }
+
+    private static int offset(long address) {
+        return (int) address;
+    }
+
+    /**
+     * Отрезает новый блок от текущего сегмента, при необходимости выделяя следующий сегмент.
+     */
+    private long carve(int chunkSize) {
+        segmentLock.lock();
+        try {
+            ByteBuffer[] current = segments;
+            if (current.length == 0 || segmentOffset + chunkSize > segmentSize) {
+                if (current.length == maxSegments) {
+                    throw new IllegalStateException("Off-heap storage is full.");
+                }
+                ByteBuffer[] grown = Arrays.copyOf(current, current.length + 1);
+                grown[current.length] = newSegment(current.length);
+                segments = grown;
+                segmentOffset = 0;
+                current = grown;
+            }
+            long address = ((long) (current.length - 1) << 32) | segmentOffset;
+            segmentOffset += chunkSize;
+            return address;
+        } finally {
+            segmentLock.unlock();
+        }
+    }
+
+    private ByteBuffer newSegment(int index) {
+        if (file == null) {
+            return ByteBuffer.allocateDirect(segmentSize).order(ByteOrder.nativeOrder());
+        }
+        try {
+            return file.map(FileChannel.MapMode.READ_WRITE, (long) index * segmentSize, segmentSize)
+                    .order(ByteOrder.nativeOrder());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Список свободных блоков одного класса размера.
+     */
+    private static final class SizeClass {
+        private final ReentrantLock lock = new ReentrantLock();
+        private long[] free = new long[16];
+        private int count;
+
+        long pop() {
+            lock.lock();
+            try {
+                return count == 0 ? -1 : free[--count];
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void push(long address) {
+            lock.lock();
+            try {
+                if (count == free.length) {
+                    free = Arrays.copyOf(free, count * 2);
+                }
+                free[count++] = address;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.example.storage;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Механизм хранения записей по текстовому ключу.
+ * Все операции потокобезопасны; обход записей слабо согласован, как у {@link java.util.concurrent.ConcurrentHashMap}.
+ */
+public interface StorageEngine extends AutoCloseable {
+
+    /**
+     * @param key Ключ записи
+     * @return Запись по ключу или {@code null}, если ключ не найден
+     */
+    StorageEntry get(String key);
+
+    /**
+     * Сохраняет запись по ключу, заменяя предыдущую.
+     *
+     * @param key   Ключ записи
+     * @param entry Новая запись
+     */
+    void put(String key, StorageEntry entry);
+
+    /**
+     * Сохраняет запись, если по ключу нет записи или хранимая запись сохранена раньше переданной.
+     * Используется при загрузке состояния поверх работающего хранилища: записи, изменённые
+     * после создания файла состояния, не перезаписываются.
+     *
+     * @param key   Ключ записи
+     * @param entry Новая запись
+     * @return true, если запись сохранена
+     */
+    boolean putIfNewer(String key, StorageEntry entry);
+
+    /**
+     * Сохраняет запись, только если по ключу нет записи.
+     *
+     * @param key   Ключ записи
+     * @param entry Новая запись
+     * @return true, если запись сохранена
+     */
+    boolean putIfAbsent(String key, StorageEntry entry);
+
+    /**
+     * @param key Ключ записи
+     * @return Удалённая запись или {@code null}, если ключ не найден
+     */
+    StorageEntry remove(String key);
+
+    /**
+     * Условное удаление: запись удаляется, только если по ключу хранится именно переданная запись.
+     *
+     * @param key      Ключ записи
+     * @param expected Ожидаемая запись
+     * @return true, если запись была удалена
+     */
+    boolean remove(String key, StorageEntry expected);
+
+    /**
+     * Условная замена: запись заменяется, только если по ключу хранится именно ожидаемая запись.
+     *
+     * @param key      Ключ записи
+     * @param expected Ожидаемая запись
+     * @param entry    Новая запись
+     * @return true, если запись была заменена
+     */
+    boolean replace(String key, StorageEntry expected, StorageEntry entry);
+
+    /**
+     * Версия и размер хранимой записи без восстановления значения.
+     *
+     * @param key Ключ записи
+     * @return Версия и размер записи или {@code null}, если ключ не найден
+     */
+    Footprint footprint(String key);
+
+    /**
+     * Слабо согласованный обход всех записей.
+     */
+    Iterator<Map.Entry<String, StorageEntry>> iterator();
+
+    /**
+     * Слабо согласованный обход всех записей.
+     */
+    void forEach(BiConsumer<String, StorageEntry> action);
+
+    /**
+     * @return Количество записей
+     */
+    int size();
+
+    /**
+     * @return Оценка памяти, занимаемой записями, в байтах
+     */
+    long estimatedBytes();
+
+    /**
+     * Удаляет все записи.
+     */
+    void clear();
+
+    /**
+     * Освобождает ресурсы механизма хранения.
+     */
+    @Override
+    void close();
+
+    /**
+     * Версия записи и размер её значения в том виде, в котором оно хранится механизмом хранения.
+     *
+     * @param version Версия записи
+     * @param size    Размер хранимого значения в байтах
+     */
+    record Footprint(long version, long size) {
+    }
+}
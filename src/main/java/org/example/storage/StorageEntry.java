@@ -0,0 +1,132 @@
+package org.example.storage;
+
+import org.example.tuple.Tuple3;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Запись хранилища: значение, момент истечения срока жизни, исходный TTL и версия.
+ * Все временные параметры хранятся в примитивных полях, поэтому чтение и запись не требуют упаковки чисел.
+ * Внешнее представление записи (REST/JSON) по-прежнему описывается {@link Tuple3}.
+ *
+ * @param value     Значение
+ * @param expiresAt Момент истечения срока жизни в миллисекундах
+ * @param ttl       Время жизни записи в миллисекундах
+ * @param version   Версия записи для условной замены (см. {@link #nextVersion()})
+ */
+public record StorageEntry(String value, long expiresAt, long ttl, long version) {
+
+    /**
+     * Счётчик версий. Начальное значение — текущее время, сдвинутое на 20 бит, поэтому версии после
+     * перезапуска больше выданных до него, пока в среднем выдаётся меньше миллиона версий в миллисекунду.
+     */
+    private static final AtomicLong VERSIONS = new AtomicLong(System.currentTimeMillis() << 20);
+
+    /** Момент истечения срока жизни записи без ограничения срока. */
+    public static final long NO_EXPIRY = Long.MAX_VALUE;
+
+    /**
+     * Создание записи с новой версией.
+     *
+     * @param value     Значение
+     * @param expiresAt Момент истечения срока жизни в миллисекундах
+     * @param ttl       Время жизни записи в миллисекундах
+     */
+    public StorageEntry(String value, long expiresAt, long ttl) {
+        this(value, expiresAt, ttl, nextVersion());
+    }
+
+    /**
+     * Новая версия записи. Версии возрастают при каждом вызове, поэтому любая запись, созданная позже,
+     * в том числе с тем же значением и сроком жизни, имеет другую версию: условная замена не пропустит
+     * изменения A→B→A.
+     *
+     * @return Версия больше всех выданных ранее в этом процессе
+     */
+    private static long nextVersion() {
+        return VERSIONS.incrementAndGet();
+    }
+
+    /**
+     * Создание записи по времени сохранения и TTL.
+     *
+     * @param value     Значение
+     * @param ttl       Время жизни записи в миллисекундах
+     * @param savedTime Время сохранения записи в миллисекундах
+     * @return Новая запись
+     */
+    public static StorageEntry of(String value, long ttl, long savedTime) {
+        return new StorageEntry(value, savedTime + ttl, ttl);
+    }
+
+    /**
+     * Создание записи без ограничения срока жизни. TTL такой записи — время от сохранения
+     * до {@link #NO_EXPIRY}, поэтому время сохранения вычисляется так же, как у остальных записей.
+     *
+     * @param value     Значение
+     * @param savedTime Время сохранения записи в миллисекундах
+     * @return Новая запись
+     */
+    public static StorageEntry persistent(String value, long savedTime) {
+        return new StorageEntry(value, NO_EXPIRY, NO_EXPIRY - savedTime);
+    }
+
+    /**
+     * Создание записи об удалении ключа (tombstone) для инкрементального файла состояния:
+     * запись без значения, время сохранения которой равно времени удаления.
+     *
+     * @param removedTime Время, в которое ключ отсутствовал в хранилище, в миллисекундах
+     * @return Запись об удалении
+     */
+    public static StorageEntry tombstone(long removedTime) {
+        return new StorageEntry(null, removedTime, 0);
+    }
+
+    /**
+     * @return true, если запись означает удаление ключа
+     */
+    public boolean isTombstone() {
+        return value == null;
+    }
+
+    /**
+     * Создание записи из внешнего представления.
+     *
+     * @param tuple Внешнее представление записи
+     * @return Новая запись
+     */
+    public static StorageEntry fromTuple(Tuple3<String, Long, Long> tuple) {
+        return of(tuple.value(), tuple.ttl(), tuple.savedTime());
+    }
+
+    /**
+     * @return Время сохранения записи в миллисекундах
+     */
+    public long savedTime() {
+        return expiresAt - ttl;
+    }
+
+    /**
+     * @return true, если срок жизни записи не ограничен
+     */
+    public boolean isPersistent() {
+        return expiresAt == NO_EXPIRY;
+    }
+
+    /**
+     * Метод, проверяющий, является ли запись "живой" (не просроченной).
+     *
+     * @param currentTimeMillis Текущее время в миллисекундах
+     * @return true, если запись ещё не просрочена, false в противном случае
+     */
+    public boolean isLive(long currentTimeMillis) {
+        return currentTimeMillis < expiresAt;
+    }
+
+    /**
+     * @return Внешнее представление записи
+     */
+    public Tuple3<String, Long, Long> toTuple() {
+        return new Tuple3<>(value, ttl, savedTime());
+    }
+}
@@ -0,0 +1,267 @@
+package org.example.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Компактное представление значений в куче для {@link CompactHeapStorageEngine}.
+ * <p>
+ * Значения не короче порога сжатия сжимаются Deflate и хранятся массивом байтов: заголовок из длины значения
+ * в символах и длины в UTF-8, затем сжатые данные. Если сжатие не уменьшает значение, оно хранится строкой.
+ * Одинаковые значения не короче порога дедупликации хранятся одним экземпляром: кодек ведёт таблицу
+ * хранимых значений со счётчиком ссылок, и значение удаляется из таблицы вместе с последней записью.
+ * Поэтому каждое закодированное значение освобождается методом {@link #release(Object)} ровно один раз.
+ * <p>
+ * Объекты Deflater и Inflater занимают память вне кучи, поэтому переиспользуются через ограниченный пул,
+ * а не по объекту на поток: обработка запросов в виртуальных потоках создала бы их на каждый запрос.
+ */
+public class ValueCodec {
+
+    private static final int HEADER = 2 * Integer.BYTES;
+
+    private final int compressionThreshold;
+    private final int compressionLevel;
+    private final int deduplicationThreshold;
+    private final ConcurrentHashMap<Object, Shared> shared = new ConcurrentHashMap<>();
+    private final ArrayBlockingQueue<Deflater> deflaters;
+    private final ArrayBlockingQueue<Inflater> inflaters;
+
+    private final LongAdder rawSize = new LongAdder();
+    private final LongAdder storedSize = new LongAdder();
+
+    /**
+     * @param compressionThreshold   Длина значения, начиная с которой оно сжимается ({@code 0} — без сжатия)
+     * @param compressionLevel       Уровень сжатия Deflate от 1 до 9
+     * @param deduplicationThreshold Длина значения, начиная с которой одинаковые значения хранятся
+     *                               одним экземпляром ({@code 0} — без дедупликации)
+     */
+    public ValueCodec(int compressionThreshold, int compressionLevel, int deduplicationThreshold) {
+        if (compressionLevel < Deflater.BEST_SPEED || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level must be between 1 and 9.");
+        }
+        this.compressionThreshold = compressionThreshold > 0 ? compressionThreshold : Integer.MAX_VALUE;
+        this.compressionLevel = compressionLevel;
+        this.deduplicationThreshold = deduplicationThreshold > 0 ? deduplicationThreshold : Integer.MAX_VALUE;
+        int pooled = 2 * Runtime.getRuntime().availableProcessors();
+        deflaters = new ArrayBlockingQueue<>(pooled);
+        inflaters = new ArrayBlockingQueue<>(pooled);
+    }
+
+    /**
+     * Кодирование значения для хранения. Результат нужно освободить методом {@link #release(Object)},
+     * когда запись с ним удаляется из хранилища или не сохраняется в него.
+     *
+     * @param value Значение
+     * @return Строка или массив сжатых байтов; для одинаковых значений — один и тот же объект
+     */
+    public Object encode(String value) {
+        Object stored = value.length() >= compressionThreshold ? compress(value) : value;
+        rawSize.add(value.length());
+        if (value.length() < deduplicationThreshold) {
+            storedSize.add(sizeOf(stored));
+            return stored;
+        }
+        Shared canonical = shared.compute(tableKey(stored), (key, current) -> {
+            if (current == null) {
+                current = new Shared(stored);
+                storedSize.add(sizeOf(stored));
+            }
+            current.references++;
+            return current;
+        });
+        return canonical.value;
+    }
+
+    /**
+     * @param stored Закодированное значение
+     * @return Исходное значение
+     */
+    public String decode(Object stored) {
+        return stored instanceof byte[] bytes ? decompress(bytes) : (String) stored;
+    }
+
+    /**
+     * Освобождение закодированного значения: уменьшение счётчика ссылок дедуплицированного значения.
+     *
+     * @param stored Значение, полученное из {@link #encode(String)}
+     */
+    public void release(Object stored) {
+        int length = lengthOf(stored);
+        rawSize.add(-length);
+        if (length < deduplicationThreshold) {
+            storedSize.add(-sizeOf(stored));
+            return;
+        }
+        shared.computeIfPresent(tableKey(stored), (key, current) -> {
+            if (--current.references > 0) {
+                return current;
+            }
+            storedSize.add(-sizeOf(current.value));
+            return null;
+        });
+    }
+
+    /**
+     * @return Суммарная длина хранимых значений до кодирования
+     */
+    public long rawSize() {
+        return rawSize.sum();
+    }
+
+    /**
+     * @return Суммарный размер хранимых данных значений после сжатия и дедупликации в байтах
+     */
+    public long storedSize() {
+        return storedSize.sum();
+    }
+
+    /**
+     * @return Количество различных значений в таблице дедупликации
+     */
+    public int sharedValues() {
+        return shared.size();
+    }
+
+    /**
+     * @param stored Закодированное значение
+     * @return Длина исходного значения в символах
+     */
+    static int lengthOf(Object stored) {
+        return stored instanceof byte[] bytes ? ByteBuffer.wrap(bytes).getInt(0) : ((String) stored).length();
+    }
+
+    /**
+     * Размер данных значения: строки считаются однобайтовыми (compact strings), заголовки объектов не учитываются.
+     */
+    static int sizeOf(Object stored) {
+        return stored instanceof byte[] bytes ? bytes.length : ((String) stored).length();
+    }
+
+    /**
+     * Размер данных значения в байтах для ограничения объёма хранилища: в отличие от {@link #sizeOf(Object)}
+     * строка занимает байт на символ, только если все её символы из Latin-1 (compact strings), иначе — два.
+     */
+    static int footprintOf(Object stored) {
+        if (stored instanceof byte[] bytes) {
+            return bytes.length;
+        }
+        String value = (String) stored;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) > 0xFF) {
+                return 2 * length;
+            }
+        }
+        return length;
+    }
+
+    private static Object tableKey(Object stored) {
+        return stored instanceof byte[] bytes ? new Blob(bytes) : stored;
+    }
+
+    /**
+     * Сжатие значения; если сжатые данные с заголовком не меньше значения, возвращается само значение.
+     */
+    private Object compress(String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        int limit = value.length() - HEADER;
+        if (limit <= 0) {
+            return value;
+        }
+        byte[] out = new byte[HEADER + limit];
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            deflater = new Deflater(compressionLevel, true);
+        }
+        int length;
+        boolean finished;
+        try {
+            deflater.setInput(utf8);
+            deflater.finish();
+            length = deflater.deflate(out, HEADER, limit);
+            finished = deflater.finished();
+        } finally {
+            deflater.reset();
+            if (!deflaters.offer(deflater)) {
+                deflater.end();
+            }
+        }
+        if (!finished) {
+            return value;
+        }
+        ByteBuffer.wrap(out).putInt(value.length()).putInt(utf8.length);
+        return Arrays.copyOf(out, HEADER + length);
+    }
+
+    private String decompress(byte[] bytes) {
+        byte[] utf8 = new byte[ByteBuffer.wrap(bytes).getInt(Integer.BYTES)];
+        Inflater inflater = inflaters.poll();
+        if (inflater == null) {
+            inflater = new Inflater(true);
+        }
+        try {
+            inflater.setInput(bytes, HEADER, bytes.length - HEADER);
+            int length = 0;
+            while (length < utf8.length) {
+                int inflated = inflater.inflate(utf8, length, utf8.length - length);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != utf8.length) {
+                throw new IllegalStateException("Compressed value is truncated.");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Compressed value is corrupted.", e);
+        } finally {
+            inflater.reset();
+            if (!inflaters.offer(inflater)) {
+                inflater.end();
+            }
+        }
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Значение в таблице дедупликации; счётчик ссылок изменяется только внутри compute по своему ключу.
+     */
+    private static final class Shared {
+        final Object value;
+        int references;
+
+        Shared(Object value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * Ключ таблицы дедупликации для сжатого значения: сравнение по содержимому массива.
+     */
+    private static final class Blob {
+        final byte[] bytes;
+        final int hash;
+
+        Blob(byte[] bytes) {
+            this.bytes = bytes;
+            this.hash = Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Blob blob && hash == blob.hash && Arrays.equals(bytes, blob.bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
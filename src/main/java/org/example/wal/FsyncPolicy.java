@@ -0,0 +1,13 @@
+package org.example.wal;
+
+/**
+ * Момент сброса журнала упреждающей записи на диск.
+ */
+public enum FsyncPolicy {
+    /** После каждой пачки записей; операция завершается только после сброса. */
+    ALWAYS,
+    /** Не реже одного раза за заданный интервал; при сбое теряются записи последнего интервала. */
+    INTERVAL,
+    /** Сброс остаётся на усмотрение операционной системы. */
+    OS
+}
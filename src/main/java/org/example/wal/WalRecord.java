@@ -0,0 +1,29 @@
+package org.example.wal;
+
+import org.example.storage.StorageEntry;
+
+/**
+ * Запись журнала упреждающей записи: сохранение или удаление записи хранилища.
+ *
+ * @param type  Тип операции
+ * @param key   Ключ записи
+ * @param entry Сохранённая запись или {@code null} для удаления
+ */
+public record WalRecord(Type type, String key, StorageEntry entry) {
+
+    /**
+     * Тип операции.
+     */
+    public enum Type {
+        SET,
+        DELETE
+    }
+
+    public static WalRecord set(String key, StorageEntry entry) {
+        return new WalRecord(Type.SET, key, entry);
+    }
+
+    public static WalRecord delete(String key) {
+        return new WalRecord(Type.DELETE, key, null);
+    }
+}
@@ -0,0 +1,424 @@
+package org.example.wal;
+
+import org.example.storage.StorageEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал упреждающей записи с групповой фиксацией.
+ * <p>
+ * Операции ставятся в очередь, а единственный поток записи забирает из неё всё накопившееся,
+ * записывает пачку одним обращением к файлу и при необходимости сбрасывает её на диск одним fsync.
+ * Пока идёт сброс, в очереди копится следующая пачка, поэтому стоимость fsync делится между
+ * всеми операциями пачки.
+ * <p>
+ * Журнал разбит на сегменты {@code wal-<номер>.log}. При сжатии текущий сегмент закрывается
+ * и открывается следующий; после сохранения состояния хранилища закрытые сегменты удаляются.
+ * Формат записи: длина данных, CRC32C данных и сами данные; запись, оборванная сбоем,
+ * обнаруживается по длине или контрольной сумме и при восстановлении отбрасывается.
+ */
+public class WriteAheadLog implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteAheadLog.class);
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int MAX_BATCH = 4096;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final long IDLE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Path directory;
+    private final FsyncPolicy policy;
+    private final long fsyncIntervalNanos;
+    private final long firstSegment;
+    private final LinkedBlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+    private final AtomicLong size = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    // Используются только потоком записи.
+    private FileChannel channel;
+    private long segment;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CRC32C crc = new CRC32C();
+
+    /**
+     * Открывает журнал в каталоге. Существующие сегменты не изменяются и доступны
+     * для восстановления через {@link #replay(Consumer)}, новые операции пишутся в новый сегмент.
+     *
+     * @param directory     Каталог журнала
+     * @param policy        Момент сброса на диск
+     * @param fsyncInterval Интервал сброса для {@link FsyncPolicy#INTERVAL}
+     * @throws IOException если каталог или сегмент не удалось создать
+     */
+    public WriteAheadLog(Path directory, FsyncPolicy policy, Duration fsyncInterval) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.policy = policy;
+        this.fsyncIntervalNanos = fsyncInterval.toNanos();
+        long last = 0;
+        for (Path existing : segments()) {
+            last = Math.max(last, segmentId(existing));
+            size.addAndGet(Files.size(existing));
+        }
+        firstSegment = last + 1;
+        segment = firstSegment;
+        channel = openSegment(segment);
+        writer = new Thread(this::run, "wal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Результат добавления операции в журнал.
+     */
+    public final class Append {
+        private final WalRecord record;
+        private volatile boolean done;
+        private volatile IOException error;
+
+        private Append(WalRecord record) {
+            this.record = record;
+        }
+
+        /**
+         * Ожидает сброса операции на диск, если этого требует политика сброса.
+         *
+         * @throws IOException если операцию не удалось записать
+         */
+        public void await() throws IOException {
+            if (policy == FsyncPolicy.ALWAYS && !done) {
+                lock.lock();
+                try {
+                    while (!done) {
+                        flushed.awaitUninterruptibly();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+
+    /**
+     * Добавляет операцию в очередь записи. Не блокирует вызывающий поток.
+     *
+     * @param record Операция
+     * @return Результат, через который можно дождаться сброса на диск
+     * @throws IllegalStateException если журнал закрыт или запись в него завершилась ошибкой
+     */
+    public Append append(WalRecord record) {
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log is closed.");
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Write-ahead log failed.", failure);
+        }
+        Append append = new Append(record);
+        queue.offer(append);
+        return append;
+    }
+
+    /**
+     * Закрывает текущий сегмент и начинает новый. Все операции, добавленные до вызова,
+     * находятся в сегментах с номером меньше возвращённого.
+     *
+     * @return Номер нового сегмента
+     * @throws IOException если сегмент не удалось переключить
+     */
+    public long rotate() throws IOException {
+        if (closed) {
+            throw new IOException("Write-ahead log is closed.");
+        }
+        CompletableFuture<Long> rotation = new CompletableFuture<>();
+        queue.offer(rotation);
+        try {
+            while (true) {
+                try {
+                    return rotation.get(IDLE_POLL_NANOS, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    if (!writer.isAlive()) {
+                        throw new IOException("Write-ahead log is closed.");
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while rotating write-ahead log.", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Удаляет сегменты, операции которых уже вошли в сохранённое состояние хранилища.
+     *
+     * @param segmentId Номер первого сегмента, который нужно сохранить
+     * @throws IOException если сегмент не удалось удалить
+     */
+    public void deleteSegmentsBefore(long segmentId) throws IOException {
+        for (Path existing : segments()) {
+            if (segmentId(existing) < segmentId) {
+                long length = Files.size(existing);
+                Files.delete(existing);
+                size.addAndGet(-length);
+            }
+        }
+    }
+
+    /**
+     * @return Суммарный размер сегментов журнала в байтах
+     */
+    public long size() {
+        return size.get();
+    }
+
+    /**
+     * Воспроизводит операции из сегментов, существовавших до открытия журнала, в порядке записи.
+     * Оборванная или повреждённая запись завершает чтение своего сегмента.
+     *
+     * @param action Обработчик операций
+     * @return Количество воспроизведённых операций
+     * @throws IOException если сегмент не удалось прочитать
+     */
+    public long replay(Consumer<WalRecord> action) throws IOException {
+        long replayed = 0;
+        for (Path existing : segments()) {
+            if (segmentId(existing) < firstSegment) {
+                replayed += replaySegment(existing, action);
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * Записывает накопленные операции, сбрасывает их на диск и останавливает поток записи.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Object> batch = new ArrayList<>();
+        long lastSync = System.nanoTime();
+        boolean dirty = false;
+        while (!closed || !queue.isEmpty()) {
+            try {
+                long timeout = policy == FsyncPolicy.INTERVAL && dirty
+                        ? Math.max(0, fsyncIntervalNanos - (System.nanoTime() - lastSync)) : IDLE_POLL_NANOS;
+                Object first = queue.poll(timeout, TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            IOException error = null;
+            try {
+                for (Object item : batch) {
+                    if (item instanceof Append append) {
+                        encode(append.record);
+                        dirty = true;
+                    } else {
+                        writeBuffer();
+                        channel.force(false);
+                        channel.close();
+                        channel = openSegment(++segment);
+                        dirty = false;
+                        lastSync = System.nanoTime();
+                        @SuppressWarnings("unchecked")
+                        CompletableFuture<Long> rotation = (CompletableFuture<Long>) item;
+                        rotation.complete(segment);
+                    }
+                }
+                writeBuffer();
+                long now = System.nanoTime();
+                if (dirty && (policy == FsyncPolicy.ALWAYS
+                        || (policy == FsyncPolicy.INTERVAL && now - lastSync >= fsyncIntervalNanos))) {
+                    channel.force(false);
+                    dirty = false;
+                    lastSync = now;
+                }
+            } catch (IOException e) {
+                LOGGER.error("Ошибка записи в журнал упреждающей записи", e);
+                failure = e;
+                error = e;
+            }
+            complete(batch, error);
+            batch.clear();
+        }
+        try {
+            writeBuffer();
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.error("Ошибка при закрытии журнала упреждающей записи", e);
+        }
+    }
+
+    private void complete(List<Object> batch, IOException error) {
+        boolean appended = false;
+        for (Object item : batch) {
+            if (item instanceof Append append) {
+                append.error = error;
+                append.done = true;
+                appended = true;
+            } else if (error != null) {
+                ((CompletableFuture<?>) item).completeExceptionally(error);
+            }
+        }
+        if (appended && policy == FsyncPolicy.ALWAYS) {
+            lock.lock();
+            try {
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void encode(WalRecord record) throws IOException {
+        byte[] key = record.key().getBytes(StandardCharsets.UTF_8);
+        byte[] value = record.entry() == null ? null : record.entry().value().getBytes(StandardCharsets.UTF_8);
+        int payload = 1 + 4 + key.length + (value == null ? 0 : 4 + value.length + 16);
+        int length = 8 + payload;
+        if (buffer.remaining() < length) {
+            writeBuffer();
+            if (buffer.capacity() < length) {
+                buffer = ByteBuffer.allocateDirect(length);
+            }
+        }
+        int start = buffer.position();
+        buffer.putInt(payload).putInt(0);
+        buffer.put((byte) record.type().ordinal()).putInt(key.length).put(key);
+        if (value != null) {
+            buffer.putInt(value.length).put(value).putLong(record.entry().ttl()).putLong(record.entry().savedTime());
+        }
+        crc.reset();
+        crc.update(buffer.slice(start + 8, payload));
+        buffer.putInt(start + 4, (int) crc.getValue());
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        int written = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        size.addAndGet(written);
+    }
+
+    private long replaySegment(Path file, Consumer<WalRecord> action) throws IOException {
+        long replayed = 0;
+        long fileSize = Files.size(file);
+        CRC32C checksum = new CRC32C();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return replayed;
+                }
+                byte[] payload;
+                try {
+                    int expected = in.readInt();
+                    if (length <= 0 || length > fileSize) {
+                        throw new EOFException();
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    checksum.reset();
+                    checksum.update(payload);
+                    if ((int) checksum.getValue() != expected) {
+                        throw new EOFException();
+                    }
+                } catch (EOFException e) {
+                    LOGGER.warn("Оборванная запись в сегменте журнала {} отброшена (воспроизведено операций: {})",
+                            file, replayed);
+                    return replayed;
+                }
+                action.accept(decode(ByteBuffer.wrap(payload)));
+                replayed++;
+            }
+        }
+    }
+
+    private static WalRecord decode(ByteBuffer payload) {
+        WalRecord.Type type = WalRecord.Type.values()[payload.get()];
+        String key = readString(payload);
+        if (type == WalRecord.Type.DELETE) {
+            return WalRecord.delete(key);
+        }
+        String value = readString(payload);
+        long ttl = payload.getLong();
+        long savedTime = payload.getLong();
+        return WalRecord.set(key, StorageEntry.of(value, ttl, savedTime));
+    }
+
+    private static String readString(ByteBuffer payload) {
+        int length = payload.getInt();
+        String result = new String(payload.array(), payload.position(), length, StandardCharsets.UTF_8);
+        payload.position(payload.position() + length);
+        return result;
+    }
+
+    private FileChannel openSegment(long id) throws IOException {
+        return FileChannel.open(directory.resolve(SEGMENT_PREFIX + String.format("%012d", id) + SEGMENT_SUFFIX),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long segmentId(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
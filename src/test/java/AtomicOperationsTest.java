@@ -0,0 +1,293 @@
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.config.StorageProperties;
+import org.example.controller.MemoryStorageController;
+import org.example.service.MemoryStorageService;
+import org.example.service.ReadOnlyReplicaException;
+import org.example.service.VersionedEntry;
+import org.example.snapshot.SnapshotFormat;
+import org.example.tuple.Tuple3;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AtomicOperationsTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Одновременный запуск задачи в нескольких потоках.
+     */
+    private static <T> List<T> concurrently(int threads, Callable<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка, что при одновременных SETNX значение сохраняет только один поток")
+    void testSetIfAbsent() throws Exception {
+        MemoryStorageService service = new MemoryStorageService(new StorageProperties());
+        try {
+            List<Boolean> results = concurrently(16, () -> service.setIfAbsent("lock", Thread.currentThread().getName(), 200L));
+            assertEquals(1, results.stream().filter(Boolean::booleanValue).count());
+            assertFalse(service.setIfAbsent("lock", "other", 60_000L));
+
+            Thread.sleep(300);
+            assertTrue(service.setIfAbsent("lock", "other", 60_000L));
+            assertTrue(service.get("lock").contains("other"));
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка точного счёта при одновременных INCR и DECR с сохранением TTL")
+    void testConcurrentIncrements() throws Exception {
+        MemoryStorageService service = new MemoryStorageService(new StorageProperties());
+        try {
+            service.set("counter", "100", 60_000L);
+            Tuple3<String, Long, Long> before = service.getEntry("counter");
+            concurrently(16, () -> {
+                for (int i = 0; i < 1000; i++) {
+                    service.increment("counter", 2, null);
+                    service.increment("counter", -1, null);
+                }
+                return null;
+            });
+            assertEquals(16_100L, service.increment("counter", 0, null));
+            Tuple3<String, Long, Long> after = service.getEntry("counter");
+            assertEquals(before.savedTime() + before.ttl(), after.savedTime() + after.ttl());
+            assertTrue(after.savedTime() >= before.savedTime());
+
+            assertEquals(-5L, service.increment("new", -5, 300L));
+            assertEquals(300L, service.getEntry("new").ttl());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка ошибки INCR для нечислового значения и переполнения")
+    void testIncrementRejectsInvalidValues() {
+        MemoryStorageService service = new MemoryStorageService(new StorageProperties());
+        try {
+            service.set("text", "abc", 60_000L);
+            assertThrows(IllegalArgumentException.class, () -> service.increment("text", 1, null));
+            assertTrue(service.get("text").contains("abc"));
+
+            service.set("max", Long.toString(Long.MAX_VALUE), 60_000L);
+            assertThrows(IllegalArgumentException.class, () -> service.increment("max", 1, null));
+            assertEquals(Long.MAX_VALUE - 1, service.increment("max", -1, null));
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка замены по версии: устаревшая версия отклоняется, изменение TTL меняет версию")
+    void testCompareAndSetByVersion() throws Exception {
+        MemoryStorageService service = new MemoryStorageService(new StorageProperties());
+        try {
+            assertNull(service.compareAndSet("key", 0, "value", null));
+            service.set("key", "v1", 60_000L);
+            VersionedEntry first = service.getVersioned("key");
+            assertEquals(first.version(), service.getVersioned("key").version());
+
+            VersionedEntry second = service.compareAndSet("key", first.version(), "v2", 60_000L);
+            assertNotNull(second);
+            assertEquals("v2", second.value());
+            assertNotEquals(first.version(), second.version());
+            assertNull(service.compareAndSet("key", first.version(), "v3", 60_000L));
+
+            assertTrue(service.expire("key", 120_000L));
+            assertNull(service.compareAndSet("key", second.version(), "v3", 60_000L));
+            assertTrue(service.get("key").contains("v2"));
+
+            // Изменения A→B→A и INCR с DECR возвращают прежнее содержимое, но не прежнюю версию
+            VersionedEntry before = service.getVersioned("key");
+            service.getAndSet("key", "other", 120_000L);
+            service.getAndSet("key", "v2", 120_000L);
+            assertNull(service.compareAndSet("key", before.version(), "lost", null));
+            service.set("counter", "1", 60_000L);
+            VersionedEntry counter = service.getVersioned("counter");
+            service.increment("counter", 1, null);
+            service.increment("counter", -1, null);
+            assertEquals("1", service.getVersioned("counter").value());
+            assertNull(service.compareAndSet("counter", counter.version(), "lost", null));
+            assertTrue(service.getVersioned("counter").version() > counter.version());
+
+            List<Boolean> results = concurrently(8, () ->
+                    service.compareAndSet("key", service.getVersioned("key").version(), "won", null) != null);
+            assertTrue(results.contains(true));
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка GETSET, PERSIST и TTL, в том числе после сохранения и загрузки состояния")
+    void testGetSetAndPersist() throws Exception {
+        StorageProperties properties = new StorageProperties();
+        properties.getSnapshot().setFormat(SnapshotFormat.BINARY);
+        properties.getSnapshot().setFile(tempDir.resolve("storage-state"));
+        MemoryStorageService service = new MemoryStorageService(properties);
+        try {
+            assertNull(service.getAndSet("key", "v1", 200L));
+            assertEquals("v1", service.getAndSet("key", "v2", 200L).value());
+            assertNull(service.getTtl("missing"));
+            assertFalse(service.persist("missing"));
+
+            assertTrue(service.persist("key"));
+            assertFalse(service.persist("key"));
+            assertEquals(-1L, service.getTtl("key"));
+            assertEquals(-1L, service.getVersioned("key").ttl());
+            Thread.sleep(400);
+            assertTrue(service.get("key").contains("v2"));
+            service.dump();
+
+            assertTrue(service.expire("key", 200L));
+            assertTrue(service.getTtl("key") <= 200L);
+            Thread.sleep(400);
+            assertNull(service.get("key"));
+        } finally {
+            service.shutdown();
+        }
+
+        MemoryStorageService restored = new MemoryStorageService(properties);
+        try {
+            restored.load();
+            assertEquals(-1L, restored.getTtl("key"));
+        } finally {
+            restored.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка атомарных операций при хранении вне кучи")
+    void testOffHeapEngine() throws Exception {
+        StorageProperties properties = new StorageProperties();
+        properties.setEngine(StorageProperties.Engine.OFF_HEAP);
+        MemoryStorageService service = new MemoryStorageService(properties);
+        try {
+            concurrently(8, () -> {
+                for (int i = 0; i < 500; i++) {
+                    service.increment("counter", 1, 60_000L);
+                }
+                return null;
+            });
+            assertEquals(4000L, service.increment("counter", 0, null));
+            assertTrue(service.setIfAbsent("key", "v1", 60_000L));
+            VersionedEntry entry = service.getVersioned("key");
+            assertNotNull(service.compareAndSet("key", entry.version(), "v2", 60_000L));
+            assertTrue(service.persist("key"));
+            assertEquals(-1L, service.getTtl("key"));
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка отказа атомарных операций на реплике")
+    void testReadOnlyReplica() {
+        MemoryStorageService service = new MemoryStorageService(new StorageProperties());
+        try {
+            service.set("counter", "1", 60_000L);
+            service.setReadOnly(true);
+            assertThrows(ReadOnlyReplicaException.class, () -> service.increment("counter", 1, null));
+            assertThrows(ReadOnlyReplicaException.class, () -> service.setIfAbsent("key", "value", null));
+            assertThrows(ReadOnlyReplicaException.class, () -> service.persist("counter"));
+            assertEquals(1L, Long.parseLong(service.getVersioned("counter").value()));
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка атомарных операций через REST")
+    void testRestEndpoints() throws Exception {
+        MemoryStorageService service = new MemoryStorageService(new StorageProperties());
+        try {
+            MockMvc mvc = MockMvcBuilders.standaloneSetup(new MemoryStorageController(service, new ObjectMapper())).build();
+
+            mvc.perform(post("/api/storage/_setnx").param("key", "key").param("value", "v1").param("ttl", "60000"))
+                    .andExpect(status().isCreated());
+            mvc.perform(post("/api/storage/_setnx").param("key", "key").param("value", "v2"))
+                    .andExpect(status().isPreconditionFailed());
+
+            long version = service.getVersioned("key").version();
+            mvc.perform(get("/api/storage/key/_versioned"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.value").value("v1"))
+                    .andExpect(jsonPath("$.version").value(version));
+            mvc.perform(post("/api/storage/_cas").param("key", "key").param("version", Long.toString(version))
+                            .param("value", "v2"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.value").value("v2"));
+            mvc.perform(post("/api/storage/_cas").param("key", "key").param("version", Long.toString(version))
+                            .param("value", "v3"))
+                    .andExpect(status().isPreconditionFailed());
+
+            mvc.perform(post("/api/storage/_getset").param("key", "key").param("value", "v4"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.value").value("v2"));
+
+            mvc.perform(post("/api/storage/counter/_incr").param("delta", "5"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().string("5"));
+            mvc.perform(post("/api/storage/counter/_decr"))
+                    .andExpect(content().string("4"));
+            mvc.perform(post("/api/storage/key/_incr"))
+                    .andExpect(status().isBadRequest());
+
+            mvc.perform(delete("/api/storage/counter/_ttl")).andExpect(status().isOk());
+            mvc.perform(get("/api/storage/counter/_ttl")).andExpect(content().string("-1"));
+            mvc.perform(get("/api/storage/missing/_ttl")).andExpect(status().isNotFound());
+
+            mvc.perform(post("/api/storage").param("key", "_scan").param("value", "v1"))
+                    .andExpect(status().isBadRequest());
+            mvc.perform(post("/api/storage/_setnx").param("key", "_jobs").param("value", "v1"))
+                    .andExpect(status().isBadRequest());
+            mvc.perform(post("/api/storage").param("key", "_foo").param("value", "v1"))
+                    .andExpect(status().isCreated());
+            mvc.perform(get("/api/storage/_foo")).andExpect(status().isOk());
+        } finally {
+            service.shutdown();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.config.StorageProperties;
+import org.example.controller.MemoryStorageController;
+import org.example.service.BatchEntry;
+import org.example.service.MemoryStorageService;
+import org.example.tuple.Tuple3;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class BatchOperationsTest {
+
+    private MemoryStorageService service;
+
+    @BeforeEach
+    void setUp() {
+        StorageProperties properties = new StorageProperties();
+        properties.getBatch().setParallelThreshold(100);
+        service = new MemoryStorageService(properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    @DisplayName("Проверка пакетного сохранения, чтения и удаления записей")
+    void testMultiSetGetRemove() {
+        Map<String, Boolean> stored = service.multiSet(List.of(
+                new BatchEntry("key1", "value1", 60_000L),
+                new BatchEntry("key2", "value2", null),
+                new BatchEntry("key1", "value3", 30_000L)));
+        assertEquals(Map.of("key1", true, "key2", true), stored);
+
+        Map<String, Tuple3<String, Long, Long>> found = service.multiGet(List.of("key1", "missing", "key2"));
+        assertEquals(List.of("key1", "missing", "key2"), new ArrayList<>(found.keySet()));
+        assertEquals("value3", found.get("key1").value());
+        assertEquals(30_000L, found.get("key1").ttl());
+        assertNull(found.get("missing"));
+        assertEquals(10_000L, found.get("key2").ttl());
+
+        Map<String, Tuple3<String, Long, Long>> removed = service.multiRemove(List.of("key1", "missing", "key1"));
+        assertEquals("value3", removed.get("key1").value());
+        assertNull(removed.get("missing"));
+        assertNull(service.get("key1"));
+        assertNotNull(service.get("key2"));
+    }
+
+    @Test
+    @DisplayName("Проверка, что пакет с некорректным TTL не применяется")
+    void testMultiSetRejectsInvalidTtl() {
+        assertThrows(IllegalArgumentException.class, () -> service.multiSet(List.of(
+                new BatchEntry("key1", "value1", 60_000L),
+                new BatchEntry("key2", "value2", 50L))));
+        assertNull(service.get("key1"));
+    }
+
+    @Test
+    @DisplayName("Проверка, что пакет с записью без ключа не применяется")
+    void testMultiSetRejectsMissingKey() {
+        assertThrows(IllegalArgumentException.class, () -> service.multiSet(List.of(
+                new BatchEntry("key1", "value1", 60_000L),
+                new BatchEntry(null, "value2", 60_000L))));
+        assertNull(service.get("key1"));
+    }
+
+    @Test
+    @DisplayName("Проверка, что пакет с записью без значения не применяется")
+    void testMultiSetRejectsMissingValue() {
+        assertThrows(IllegalArgumentException.class, () -> service.multiSet(List.of(
+                new BatchEntry("key1", "value1", 60_000L),
+                new BatchEntry("key2", null, 1_000L))));
+        assertNull(service.get("key1"));
+        assertNull(service.get("key2"));
+        assertTrue(service.getAll().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Проверка, что пакетные чтение и удаление с ключом null отклоняются целиком")
+    void testMultiGetAndRemoveRejectNullKey() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            service.set("key" + i, "value" + i, 60_000L);
+            keys.add("key" + i);
+        }
+        keys.add(null);
+        assertThrows(IllegalArgumentException.class, () -> service.multiGet(keys));
+        assertThrows(IllegalArgumentException.class, () -> service.multiRemove(keys));
+        assertEquals(500, service.getAll().size());
+    }
+
+    @Test
+    @DisplayName("Проверка параллельной обработки большого пакета")
+    void testLargeBatchInParallel() {
+        List<BatchEntry> entries = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            entries.add(new BatchEntry("key" + i, "value" + i, 60_000L));
+            keys.add("key" + i);
+        }
+        assertFalse(service.multiSet(entries).containsValue(false));
+
+        Map<String, Tuple3<String, Long, Long>> found = service.multiGet(keys);
+        assertEquals(keys, new ArrayList<>(found.keySet()));
+        for (int i = 0; i < 5_000; i++) {
+            assertEquals("value" + i, found.get("key" + i).value());
+        }
+        assertEquals(5_000, service.getCacheStats().hits());
+
+        assertEquals(5_000, service.multiRemove(keys).values().stream().filter(v -> v != null).count());
+        assertTrue(service.getAll().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Проверка пакетных запросов в формате JSON и NDJSON")
+    void testBatchEndpoints() throws Exception {
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(new MemoryStorageController(service, new ObjectMapper())).build();
+
+        mvc.perform(post("/api/storage/_mset").contentType("application/x-ndjson")
+                        .content("{\"key\":\"a\",\"value\":\"1\",\"ttl\":60000}\n{\"key\":\"b\",\"value\":\"2\"}\n"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.a").value(true))
+                .andExpect(jsonPath("$.b").value(true));
+
+        mvc.perform(post("/api/storage/_mget").contentType("application/json").content("[\"a\",\"b\",\"c\"]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.a.value").value("1"))
+                .andExpect(jsonPath("$.b.ttl").value(10_000))
+                .andExpect(jsonPath("$.c").isEmpty());
+
+        mvc.perform(post("/api/storage/_mdel").contentType("application/x-ndjson").content("\"a\"\n\"c\"\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.a.value").value("1"))
+                .andExpect(jsonPath("$.c").isEmpty());
+
+        mvc.perform(post("/api/storage/_mset").contentType("application/json")
+                        .content("[{\"key\":\"x\",\"value\":\"1\",\"ttl\":5}]"))
+                .andExpect(status().isBadRequest());
+
+        mvc.perform(post("/api/storage/_mset").contentType("application/json")
+                        .content("[{\"key\":\"k\",\"ttl\":1000}]"))
+                .andExpect(status().isBadRequest());
+
+        mvc.perform(post("/api/storage/_mset").contentType("application/x-ndjson")
+                        .content("{\"value\":\"1\"}\n"))
+                .andExpect(status().isBadRequest());
+
+        mvc.perform(post("/api/storage/_mget").contentType("application/json").content("[\"b\",null]"))
+                .andExpect(status().isBadRequest());
+
+        mvc.perform(post("/api/storage/_mdel").contentType("application/x-ndjson").content("\"b\"\nnull\n"))
+                .andExpect(status().isBadRequest());
+    }
+}
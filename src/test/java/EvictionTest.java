@@ -0,0 +1,268 @@
+import org.example.config.StorageProperties;
+import org.example.service.CacheStats;
+import org.example.service.MemoryStorageService;
+import org.example.service.eviction.EvictionPolicy;
+import org.example.service.eviction.Evictor;
+import org.example.service.eviction.LfuPolicy;
+import org.example.service.eviction.LruPolicy;
+import org.example.service.eviction.WindowTinyLfuPolicy;
+import org.example.storage.CompactHeapStorageEngine;
+import org.example.storage.HeapStorageEngine;
+import org.example.storage.OffHeapStorageEngine;
+import org.example.storage.StorageEntry;
+import org.example.storage.ValueCodec;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvictionTest {
+
+    @Test
+    @DisplayName("Проверка вытеснения давно не использовавшейся записи (LRU)")
+    void testLruEvictsLeastRecentlyUsed() {
+        EvictionPolicy policy = new LruPolicy();
+        policy.onWrite("a", 1, 1);
+        policy.onWrite("b", 1, 1);
+        policy.onWrite("c", 1, 1);
+        policy.onAccess("a");
+
+        assertEquals("b", policy.evict().key());
+        assertEquals("c", policy.evict().key());
+        assertEquals("a", policy.evict().key());
+        assertNull(policy.evict());
+    }
+
+    @Test
+    @DisplayName("Проверка вытеснения наименее часто используемой записи (LFU)")
+    void testLfuEvictsLeastFrequentlyUsed() {
+        EvictionPolicy policy = new LfuPolicy();
+        policy.onWrite("a", 1, 1);
+        policy.onWrite("b", 1, 1);
+        policy.onWrite("c", 1, 1);
+        policy.onAccess("a");
+        policy.onAccess("a");
+        policy.onAccess("c");
+
+        assertEquals("b", policy.evict().key());
+        assertEquals("c", policy.evict().key());
+        assertEquals("a", policy.evict().key());
+        assertEquals(0, policy.weight());
+    }
+
+    @Test
+    @DisplayName("Проверка, что W-TinyLFU не вытесняет популярные записи однократными обращениями")
+    void testWindowTinyLfuProtectsFrequentEntries() {
+        EvictionPolicy policy = new WindowTinyLfuPolicy();
+        for (int i = 0; i < 100; i++) {
+            policy.onWrite("hot" + i, 1, 1);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 100; i++) {
+                policy.onAccess("hot" + i);
+            }
+        }
+        for (int i = 0; i < 1000; i++) {
+            policy.onWrite("cold" + i, 1, 1);
+            while (policy.size() > 100) {
+                policy.evict();
+            }
+        }
+        int hotLeft = 0;
+        while (policy.size() > 0) {
+            if (policy.evict().key().startsWith("hot")) {
+                hotLeft++;
+            }
+        }
+        assertTrue(hotLeft >= 90, "Осталось популярных записей: " + hotLeft);
+    }
+
+    @Test
+    @DisplayName("Проверка соблюдения ограничений на количество и суммарный размер записей")
+    void testEvictorRespectsLimits() {
+        HeapStorageEngine storage = new HeapStorageEngine();
+        Evictor byCount = new Evictor(new LruPolicy(), 100, 0, victim -> remove(storage, victim), storage::footprint);
+        for (int i = 0; i < 1000; i++) {
+            storage.put("key" + i, entry("value"));
+            byCount.recordChange("key" + i);
+        }
+        byCount.maintenance();
+        assertEquals(100, storage.size());
+        assertEquals(900, byCount.evictions());
+
+        storage.clear();
+        Evictor byWeight = new Evictor(new LruPolicy(), 0, 1000, victim -> remove(storage, victim), storage::footprint);
+        for (int i = 0; i < 1000; i++) {
+            storage.put("key" + i, entry("x".repeat(100)));
+            byWeight.recordChange("key" + i);
+        }
+        byWeight.maintenance();
+        assertEquals(10, storage.size());
+        assertEquals(1000, byWeight.weight());
+    }
+
+    @Test
+    @DisplayName("Проверка учёта записи при событиях записи и удаления в обратном порядке")
+    void testEvictorReconcilesReorderedEvents() {
+        HeapStorageEngine storage = new HeapStorageEngine();
+        Evictor evictor = new Evictor(new LruPolicy(), 2, 0, victim -> remove(storage, victim), storage::footprint);
+
+        // Поток A удалил ключ, поток B сразу записал его снова, но событие B попало в очередь раньше события A
+        storage.put("key", entry("value"));
+        evictor.recordChange("key");
+        evictor.maintenance();
+        storage.remove("key");
+        storage.put("key", entry("value2"));
+        evictor.recordChange("key");
+        evictor.recordChange("key");
+        evictor.maintenance();
+        assertEquals(6, evictor.weight());
+
+        // Ключ по-прежнему учитывается политикой и вытесняется при превышении ограничения
+        for (int i = 0; i < 2; i++) {
+            storage.put("other" + i, entry("value"));
+            evictor.recordChange("other" + i);
+        }
+        evictor.maintenance();
+        assertNull(storage.get("key"));
+        assertEquals(2, storage.size());
+        assertEquals(1, evictor.evictions());
+
+        // Событие записи уже удалённого ключа не возвращает его в политику
+        evictor.recordChange("missing");
+        evictor.maintenance();
+        assertEquals(10, evictor.weight());
+    }
+
+    @Test
+    @DisplayName("Проверка, что перезапись ключа после его учёта политикой не вытесняется")
+    void testEvictorKeepsConcurrentlyRewrittenEntry() {
+        HeapStorageEngine storage = new HeapStorageEngine();
+        Evictor evictor = new Evictor(new LruPolicy(), 2, 0, victim -> remove(storage, victim), storage::footprint);
+        storage.put("key", entry("value"));
+        evictor.recordChange("key");
+        evictor.maintenance();
+
+        // Ключ перезаписан, но событие перезаписи ещё не применено, когда политика выбирает его для вытеснения
+        StorageEntry rewritten = entry("rewritten");
+        storage.put("key", rewritten);
+        for (int i = 0; i < 2; i++) {
+            storage.put("other" + i, entry("value"));
+            evictor.recordChange("other" + i);
+        }
+        evictor.maintenance();
+        assertSame(rewritten, storage.get("key"));
+        assertEquals(0, evictor.evictions());
+
+        // Отложенное событие возвращает ключ в политику с новой версией
+        evictor.recordChange("key");
+        evictor.maintenance();
+        assertEquals(2, storage.size());
+        assertEquals(1, evictor.evictions());
+    }
+
+    @Test
+    @DisplayName("Проверка веса записи в байтах хранимого значения")
+    void testFootprintInBytes() {
+        String latin = "x".repeat(100);
+        String cyrillic = "ж".repeat(100);
+        String compressible = "abc".repeat(1000);
+
+        HeapStorageEngine heap = new HeapStorageEngine();
+        heap.put("latin", entry(latin));
+        heap.put("cyrillic", entry(cyrillic));
+        assertEquals(100, heap.footprint("latin").size());
+        assertEquals(200, heap.footprint("cyrillic").size());
+        assertEquals(heap.get("latin").version(), heap.footprint("latin").version());
+        assertNull(heap.footprint("missing"));
+
+        try (OffHeapStorageEngine offHeap = new OffHeapStorageEngine(1 << 20, 1 << 20, null)) {
+            StorageEntry entry = entry(cyrillic);
+            offHeap.put("cyrillic", entry);
+            assertEquals(200, offHeap.footprint("cyrillic").size());
+            assertEquals(entry.version(), offHeap.footprint("cyrillic").version());
+        }
+
+        CompactHeapStorageEngine compact = new CompactHeapStorageEngine(new ValueCodec(256, 6, 0));
+        compact.put("compressible", entry(compressible));
+        long size = compact.footprint("compressible").size();
+        assertTrue(size > 0 && size < compressible.length(), "Размер сжатого значения: " + size);
+    }
+
+    private static StorageEntry entry(String value) {
+        return new StorageEntry(value, StorageEntry.NO_EXPIRY, 0);
+    }
+
+    private static boolean remove(HeapStorageEngine storage, EvictionPolicy.Victim victim) {
+        StorageEntry entry = storage.get(victim.key());
+        return entry != null && entry.version() == victim.version() && storage.remove(victim.key(), entry);
+    }
+
+    @Test
+    @DisplayName("Проверка ограничения размера хранилища и счётчиков попаданий, промахов и вытеснений")
+    void testServiceEvictionAndStats() {
+        StorageProperties properties = new StorageProperties();
+        properties.getEviction().setMaxEntries(10);
+        properties.getEviction().setMaxBytes(DataSize.ofKilobytes(1));
+        MemoryStorageService service = new MemoryStorageService(properties);
+        try {
+            for (int i = 0; i < 100; i++) {
+                service.set("key" + i, "value" + i, 60_000L);
+            }
+            int found = 0;
+            for (int i = 0; i < 100; i++) {
+                if (service.get("key" + i) != null) {
+                    found++;
+                }
+            }
+
+            CacheStats stats = service.getCacheStats();
+            assertTrue(found <= 10, "Найдено записей: " + found);
+            assertEquals(found, stats.hits());
+            assertEquals(100 - found, stats.misses());
+            assertEquals(90, stats.evictions());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка, что колесо таймеров не удерживает перезаписанные и вытесненные значения")
+    void testExpiryWheelDoesNotRetainValues() throws InterruptedException {
+        StorageProperties properties = new StorageProperties();
+        properties.getEviction().setMaxEntries(10);
+        properties.getExpiry().setTick(Duration.ofMillis(20));
+        MemoryStorageService service = new MemoryStorageService(properties);
+        try {
+            List<WeakReference<String>> values = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                String value = new String("value" + i);
+                values.add(new WeakReference<>(value));
+                service.set("key" + (i % 20), value, 3_600_000L);
+            }
+            Thread.sleep(100);
+            for (int attempt = 0; attempt < 10 && values.get(0).get() != null; attempt++) {
+                System.gc();
+                Thread.sleep(20);
+            }
+            assertNull(values.get(0).get());
+            long retained = values.stream().filter(reference -> reference.get() != null).count();
+            assertTrue(retained <= 10, "Удерживается значений: " + retained);
+
+            service.set("short", "value", 150L);
+            service.set("renewed", "value", 150L);
+            service.set("renewed", "value", 60_000L);
+            Thread.sleep(400);
+            assertNull(service.get("short"));
+            assertNotNull(service.get("renewed"));
+        } finally {
+            service.shutdown();
+        }
+    }
+}
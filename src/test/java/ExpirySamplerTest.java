@@ -0,0 +1,62 @@
+import org.example.service.expiry.ExpirySampler;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpirySamplerTest {
+
+    private static final long NOW = 1_000_000L;
+
+    @Test
+    @DisplayName("Проверка повторения выборки, пока доля истёкших ключей выше порога")
+    void testSamplingContinuesWhileExpiredShareIsHigh() {
+        ConcurrentHashMap<String, Long> storage = new ConcurrentHashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            storage.put("expired" + i, NOW - 1);
+        }
+        for (int i = 0; i < 10; i++) {
+            storage.put("live" + i, NOW + 60_000L);
+        }
+        ExpirySampler<String, Long> sampler = new ExpirySampler<>(20, 0.1, TimeUnit.SECONDS.toNanos(10), deadline -> deadline);
+
+        long removed = sampler.run(storage, NOW);
+
+        assertEquals(10_000, removed);
+        assertEquals(10, storage.size());
+    }
+
+    @Test
+    @DisplayName("Проверка остановки выборки, если истёкших ключей почти нет")
+    void testSamplingStopsWhenExpiredShareIsLow() {
+        ConcurrentHashMap<String, Long> storage = new ConcurrentHashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            storage.put("live" + i, NOW + 60_000L);
+        }
+        storage.put("expired", NOW - 1);
+        ExpirySampler<String, Long> sampler = new ExpirySampler<>(20, 0.1, TimeUnit.SECONDS.toNanos(10), deadline -> deadline);
+
+        long removed = sampler.run(storage, NOW);
+
+        assertTrue(removed <= 1);
+        assertTrue(storage.size() >= 10_000);
+    }
+
+    @Test
+    @DisplayName("Проверка ограничения времени одного цикла выборки")
+    void testSamplingRespectsCycleBudget() {
+        ConcurrentHashMap<String, Long> storage = new ConcurrentHashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            storage.put("expired" + i, NOW - 1);
+        }
+        ExpirySampler<String, Long> sampler = new ExpirySampler<>(20, 0.1, 0L, deadline -> deadline);
+
+        long removed = sampler.run(storage, NOW);
+
+        assertEquals(20, removed);
+        assertEquals(100_000 - 20, storage.size());
+    }
+}
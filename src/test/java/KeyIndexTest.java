@@ -0,0 +1,202 @@
+import org.example.config.StorageProperties;
+import org.example.service.MemoryStorageService;
+import org.example.storage.HeapStorageEngine;
+import org.example.storage.ShardedStorageEngine;
+import org.example.storage.StorageEntry;
+import org.example.tuple.Tuple3;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyIndexTest {
+
+    private static StorageProperties properties(StorageProperties.Engine engine, boolean indexed) {
+        StorageProperties properties = new StorageProperties();
+        properties.setEngine(engine);
+        properties.setShards(4);
+        properties.getIndex().setEnabled(indexed);
+        return properties;
+    }
+
+    private static void fill(MemoryStorageService service) {
+        for (int tenant = 0; tenant < 3; tenant++) {
+            for (int user = 0; user < 20; user++) {
+                service.set("tenant" + tenant + ":user" + user, "value" + tenant + "-" + user, 60_000L);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageProperties.Engine.class)
+    @DisplayName("Проверка запросов по префиксу и диапазону с индексом и без него")
+    void testPrefixAndRange(StorageProperties.Engine engine) {
+        MemoryStorageService indexed = new MemoryStorageService(properties(engine, true));
+        MemoryStorageService scanned = new MemoryStorageService(properties(engine, false));
+        try {
+            fill(indexed);
+            fill(scanned);
+            for (MemoryStorageService service : List.of(indexed, scanned)) {
+                Map<String, Tuple3<String, Long, Long>> users = service.getByPrefix("tenant1:user1", 100);
+                assertEquals(List.of("tenant1:user1", "tenant1:user10", "tenant1:user11", "tenant1:user12",
+                                "tenant1:user13", "tenant1:user14", "tenant1:user15", "tenant1:user16",
+                                "tenant1:user17", "tenant1:user18", "tenant1:user19"),
+                        new ArrayList<>(users.keySet()));
+                assertEquals("value1-10", users.get("tenant1:user10").value());
+                assertEquals(List.of("tenant2:user0", "tenant2:user1", "tenant2:user10"),
+                        new ArrayList<>(service.getByPrefix("tenant2:", 3).keySet()));
+                assertTrue(service.getByPrefix("tenant9:", 100).isEmpty());
+
+                assertEquals(List.of("tenant0:user8", "tenant0:user9", "tenant1:user0"),
+                        new ArrayList<>(service.getRange("tenant0:user8", "tenant1:user1", 100).keySet()));
+                assertEquals(List.of("tenant0:user0", "tenant0:user1"),
+                        new ArrayList<>(service.getRange(null, "tenant0:user10", 100).keySet()));
+                assertEquals(20, service.getRange("tenant2:", null, 100).size());
+                assertEquals(60, service.getRange(null, null, 100).size());
+
+                assertThrows(IllegalArgumentException.class, () -> service.getRange("b", "a", 10));
+                assertThrows(IllegalArgumentException.class, () -> service.getByPrefix("tenant1:", 0));
+            }
+        } finally {
+            indexed.shutdown();
+            scanned.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка согласованности индекса с удалением, истечением TTL и вытеснением")
+    void testIndexFollowsRemovals() throws InterruptedException {
+        StorageProperties properties = properties(StorageProperties.Engine.HEAP, true);
+        properties.getExpiry().setTick(Duration.ofMillis(20));
+        properties.getEviction().setMaxEntries(100);
+        MemoryStorageService service = new MemoryStorageService(properties);
+        try {
+            fill(service);
+            service.remove("tenant0:user5");
+            service.set("short:1", "value", 150L);
+            service.set("short:2", "value", 150L);
+            service.set("tenant0:user5", "again", null);
+            assertEquals(2, service.getByPrefix("short:", 10).size());
+            assertEquals("again", service.getByPrefix("tenant0:user5", 10).get("tenant0:user5").value());
+
+            Thread.sleep(400);
+            assertTrue(service.getByPrefix("short:", 10).isEmpty());
+
+            for (int i = 0; i < 200; i++) {
+                service.set("bulk:" + i, "value", 60_000L);
+            }
+            Thread.sleep(300);
+            int bulk = service.getByPrefix("bulk:", 1000).size();
+            int total = service.getRange(null, null, 1000).size();
+            assertTrue(total <= 100, "entries after eviction: " + total);
+            assertTrue(bulk < 200);
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка удаления записей по префиксу")
+    void testRemoveByPrefix() {
+        for (boolean indexed : new boolean[]{true, false}) {
+            MemoryStorageService service = new MemoryStorageService(properties(StorageProperties.Engine.HEAP, indexed));
+            try {
+                fill(service);
+                assertEquals(20, service.removeByPrefix("tenant1:"));
+                assertTrue(service.getByPrefix("tenant1:", 100).isEmpty());
+                assertNull(service.get("tenant1:user3"));
+                assertEquals(40, service.getRange(null, null, 100).size());
+                assertEquals(0, service.removeByPrefix("tenant1:"));
+
+                service.set("tenant1:user3", "back", 60_000L);
+                assertEquals(List.of("tenant1:user3"), new ArrayList<>(service.getByPrefix("tenant1:", 100).keySet()));
+                assertThrows(IllegalArgumentException.class, () -> service.removeByPrefix(""));
+            } finally {
+                service.shutdown();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка удаления по префиксу большего числа записей, чем помещается в одну порцию")
+    void testRemoveByPrefixInChunks() {
+        for (boolean indexed : new boolean[]{true, false}) {
+            MemoryStorageService service = new MemoryStorageService(properties(StorageProperties.Engine.HEAP, indexed));
+            try {
+                for (int i = 0; i < 5_000; i++) {
+                    service.set("big:" + i, "value", 60_000L);
+                }
+                fill(service);
+                assertEquals(5_000, service.removeByPrefix("big:"));
+                assertTrue(service.getByPrefix("big:", 100).isEmpty());
+                assertEquals(60, service.getRange(null, null, 1000).size());
+            } finally {
+                service.shutdown();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка, что индекс не теряет ключи при параллельных записи и удалении")
+    void testConcurrentPutAndRemove() throws Exception {
+        ShardedStorageEngine engine = new ShardedStorageEngine(4, shard -> new HeapStorageEngine(), true);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                tasks.add(executor.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long now = System.currentTimeMillis();
+                    for (int i = 0; i < 50_000; i++) {
+                        String key = "key" + random.nextInt(64);
+                        switch (random.nextInt(4)) {
+                            case 0 -> engine.put(key, StorageEntry.of("value", 60_000L, now));
+                            case 1 -> engine.putIfAbsent(key, StorageEntry.of("value", 60_000L, now));
+                            case 2 -> engine.remove(key);
+                            default -> {
+                                StorageEntry entry = engine.get(key);
+                                if (entry != null) {
+                                    engine.remove(key, entry);
+                                }
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+
+            int live = 0;
+            for (Iterator<Map.Entry<String, StorageEntry>> it = engine.prefixIterator(""); it.hasNext(); it.next()) {
+                live++;
+            }
+            assertEquals(engine.size(), live);
+            assertEquals(engine.size(), engine.keyIndex().size());
+
+            engine.clear();
+            assertEquals(0, engine.keyIndex().size());
+            assertFalse(engine.rangeIterator(null, null).hasNext());
+        } finally {
+            executor.shutdownNow();
+            engine.close();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+import org.example.config.StorageProperties;
+import org.example.service.MemoryStorageService;
+import org.example.service.loader.CacheLoader;
+import org.example.service.loader.WriteBehindSink;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoaderTest {
+
+    /**
+     * Источник значений в памяти процесса с искусственной задержкой и счётчиком вызовов.
+     */
+    static class FakeBackend implements CacheLoader {
+        final Map<String, String> values = new ConcurrentHashMap<>();
+        final AtomicInteger calls = new AtomicInteger();
+        final long latency;
+        volatile boolean failing;
+
+        FakeBackend(long latency) {
+            this.latency = latency;
+        }
+
+        @Override
+        public String load(String key) throws Exception {
+            calls.incrementAndGet();
+            Thread.sleep(latency);
+            if (failing) {
+                throw new IllegalStateException("Backend is unavailable.");
+            }
+            return values.get(key);
+        }
+    }
+
+    private static StorageProperties properties() {
+        StorageProperties properties = new StorageProperties();
+        properties.getLoader().setTtl(Duration.ofSeconds(60));
+        return properties;
+    }
+
+    @Test
+    @DisplayName("Проверка одного вызова источника на ключ при одновременных промахах")
+    void testStampedeIsCoalesced() throws Exception {
+        FakeBackend backend = new FakeBackend(200);
+        for (int i = 0; i < 4; i++) {
+            backend.values.put("key" + i, "value" + i);
+        }
+        MemoryStorageService service = new MemoryStorageService(properties(), null, backend, null);
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 256; i++) {
+                String key = "key" + (i % 4);
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return service.get(key);
+                }));
+            }
+            start.countDown();
+            for (int i = 0; i < results.size(); i++) {
+                assertTrue(results.get(i).get().contains("value" + (i % 4)));
+            }
+            assertEquals(4, backend.calls.get());
+
+            assertTrue(service.getEntry("key1").value().equals("value1"));
+            assertEquals(4, backend.calls.get());
+        } finally {
+            executor.shutdownNow();
+            service.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка промаха, если значения нет в источнике, и ошибки источника у всех ожидающих")
+    void testMissingValueAndBackendFailure() throws Exception {
+        FakeBackend backend = new FakeBackend(300);
+        MemoryStorageService service = new MemoryStorageService(properties(), null, backend, null);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            assertNull(service.get("absent"));
+            assertNull(service.get("absent"));
+            assertEquals(2, backend.calls.get());
+
+            backend.failing = true;
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return service.get("key");
+                }));
+            }
+            start.countDown();
+            for (Future<String> result : results) {
+                Exception e = assertThrows(Exception.class, result::get);
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+            assertEquals(3, backend.calls.get());
+
+            backend.failing = false;
+            backend.values.put("key", "value");
+            assertTrue(service.get("key").contains("value"));
+        } finally {
+            executor.shutdownNow();
+            service.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка, что значение, записанное во время загрузки, не перезаписывается загруженным")
+    void testSetDuringLoadWins() throws Exception {
+        FakeBackend backend = new FakeBackend(300);
+        backend.values.put("key", "backend");
+        MemoryStorageService service = new MemoryStorageService(properties(), null, backend, null);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> loading = executor.submit(() -> service.get("key"));
+            Thread.sleep(100);
+            service.set("key", "client", 60_000L);
+            assertTrue(loading.get().contains("client"));
+            assertTrue(service.get("key").contains("client"));
+        } finally {
+            executor.shutdownNow();
+            service.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка фоновой перезагрузки читаемой записи до истечения TTL")
+    void testRefreshAhead() throws Exception {
+        FakeBackend backend = new FakeBackend(10);
+        backend.values.put("key", "v1");
+        StorageProperties properties = properties();
+        properties.getLoader().setTtl(Duration.ofMillis(1000));
+        properties.getLoader().setRefreshAhead(0.5);
+        MemoryStorageService service = new MemoryStorageService(properties, null, backend, null);
+        try {
+            assertTrue(service.get("key").contains("v1"));
+            backend.values.put("key", "v2");
+            assertTrue(service.get("key").contains("v1"));
+            assertEquals(1, backend.calls.get());
+
+            Thread.sleep(600);
+            assertTrue(service.get("key").contains("v1"));
+            long deadline = System.currentTimeMillis() + 300;
+            while (!service.get("key").contains("v2") && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(service.get("key").contains("v2"));
+            assertEquals(2, backend.calls.get());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка пакетной отложенной записи последних значений и повтора после ошибки")
+    void testWriteBehindBatches() throws Exception {
+        List<Map<String, String>> batches = new CopyOnWriteArrayList<>();
+        AtomicBoolean failOnce = new AtomicBoolean(true);
+        WriteBehindSink sink = batch -> {
+            if (failOnce.compareAndSet(true, false)) {
+                throw new IllegalStateException("Backend is unavailable.");
+            }
+            batches.add(new HashMap<>(batch));
+        };
+        StorageProperties properties = properties();
+        properties.getWriteBehind().setBatchSize(10);
+        properties.getWriteBehind().setInterval(Duration.ofMillis(50));
+        MemoryStorageService service = new MemoryStorageService(properties, null, null, sink);
+        try {
+            for (int i = 0; i < 100; i++) {
+                service.set("key" + (i % 25), "value" + i, 60_000L);
+            }
+            Map<String, String> expected = new HashMap<>();
+            for (int i = 75; i < 100; i++) {
+                expected.put("key" + (i % 25), "value" + i);
+            }
+            long deadline = System.currentTimeMillis() + 2_000;
+            while (!written(batches).equals(expected) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(expected, written(batches));
+            assertTrue(batches.stream().allMatch(batch -> batch.size() <= 10));
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка передачи оставшихся значений при остановке хранилища")
+    void testWriteBehindFlushesOnShutdown() {
+        Map<String, String> written = new ConcurrentHashMap<>();
+        StorageProperties properties = properties();
+        properties.getWriteBehind().setInterval(Duration.ofHours(1));
+        MemoryStorageService service = new MemoryStorageService(properties, null, null, written::putAll);
+        for (int i = 0; i < 5; i++) {
+            service.set("key" + i, "value" + i, 60_000L);
+        }
+        assertTrue(written.isEmpty());
+        service.shutdown();
+        assertEquals(5, written.size());
+    }
+
+    private static Map<String, String> written(List<Map<String, String>> batches) {
+        Map<String, String> written = new HashMap<>();
+        batches.forEach(written::putAll);
+        return written;
+    }
+}
@@ -1,4 +1,6 @@
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.config.StorageProperties;
+import org.example.service.BatchEntry;
 import org.example.service.MemoryStorageService;
 import org.example.tuple.Tuple3;
 import org.junit.jupiter.api.DisplayName;
@@ -9,6 +11,8 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 
 import java.io.File;
+import java.time.Duration;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 import static org.junit.jupiter.api.Assertions.*;
@@ -193,4 +197,47 @@ class MemoryStorageServiceTest {
         assertEquals(value1, memoryStorageService.get(key1).split("\n")[0].split(": ")[1]);
         assertEquals(value2, memoryStorageService.get(key2).split("\n")[0].split(": ")[1]);
     }
+
+    @Test
+    @DisplayName("Проверка удаления записи с истёкшим TTL при чтении")
+    void testGetRemovesExpiredEntry() throws InterruptedException {
+        StorageProperties properties = new StorageProperties();
+        properties.getExpiry().setStrategy(StorageProperties.Expiry.Strategy.SAMPLING);
+        properties.getExpiry().setTick(Duration.ofHours(1));
+        MemoryStorageService service = new MemoryStorageService(properties);
+        try {
+            service.set("key", "value", 200L);
+            Thread.sleep(300L);
+
+            assertNull(service.get("key"));
+            assertTrue(service.getAll().isEmpty());
+            assertEquals(1, service.getExpiryStats().expiredOnRead());
+            assertEquals(0, service.getExpiryStats().expiredBySampling());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка отказа в записи по ключам, совпадающим со служебными маршрутами")
+    void testReservedKeys() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> memoryStorageService.set("_scan", "value", 60_000L))
+                .withMessage("Key '_scan' is reserved for a storage operation route.");
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> memoryStorageService.setIfAbsent("_prefix", "value", 60_000L));
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> memoryStorageService.getAndSet("_range", "value", 60_000L));
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> memoryStorageService.increment("_jobs", 1, null));
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> memoryStorageService.multiSet(List.of(
+                        new BatchEntry("key-ok", "value", 60_000L), new BatchEntry("_stream", "value", 60_000L))));
+        assertNull(memoryStorageService.get("_scan"));
+        assertNull(memoryStorageService.get("key-ok"));
+
+        assertTrue(memoryStorageService.set("_foo", "value", 60_000L));
+        assertTrue(memoryStorageService.set("_mset", "value", 60_000L));
+        assertNotNull(memoryStorageService.get("_foo"));
+    }
 }
@@ -0,0 +1,127 @@
+import org.example.storage.OffHeapStorageEngine;
+import org.example.storage.StorageEntry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapStorageEngineTest {
+
+    private static final long SEGMENT_SIZE = 1 << 20;
+    private static final long MAX_SIZE = 16 << 20;
+
+    @Test
+    @DisplayName("Проверка сохранения, чтения и удаления значений вне кучи")
+    void testPutGetRemove() {
+        try (OffHeapStorageEngine engine = new OffHeapStorageEngine(SEGMENT_SIZE, MAX_SIZE, null)) {
+            engine.put("key1", StorageEntry.of("значение", 10_000L, 1_000L));
+            engine.put("key2", StorageEntry.of("x".repeat(100_000), 20_000L, 1_000L));
+
+            assertEquals(StorageEntry.of("значение", 10_000L, 1_000L).toTuple(), engine.get("key1").toTuple());
+            assertEquals(100_000, engine.get("key2").value().length());
+            assertEquals(2, engine.size());
+
+            StorageEntry removed = engine.remove("key1");
+            assertEquals("значение", removed.value());
+            assertNull(engine.get("key1"));
+
+            Map<String, StorageEntry> all = new HashMap<>();
+            engine.forEach(all::put);
+            assertEquals(Map.of("key2", engine.get("key2")), all);
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка повторного использования памяти удалённых записей")
+    void testFreedChunksAreReused() {
+        try (OffHeapStorageEngine engine = new OffHeapStorageEngine(SEGMENT_SIZE, SEGMENT_SIZE, null)) {
+            String value = "v".repeat(1000);
+            for (int i = 0; i < 100_000; i++) {
+                engine.put("key" + (i % 100), StorageEntry.of(value + i, 10_000L, i));
+            }
+            assertEquals(100, engine.size());
+            assertEquals(100 * 1024, engine.usedBytes());
+            assertEquals(SEGMENT_SIZE, engine.reservedBytes());
+            assertEquals(value + 99_999, engine.get("key99").value());
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка условного удаления по версии записи")
+    void testConditionalRemove() {
+        try (OffHeapStorageEngine engine = new OffHeapStorageEngine(SEGMENT_SIZE, MAX_SIZE, null)) {
+            StorageEntry first = StorageEntry.of("value1", 10_000L, 1_000L);
+            StorageEntry second = StorageEntry.of("value2", 10_000L, 2_000L);
+            engine.put("key", first);
+            engine.put("key", second);
+
+            assertFalse(engine.remove("key", first));
+            assertEquals(second, engine.get("key"));
+            // Та же запись с другой версией (например, после записи того же значения) не удаляется
+            assertFalse(engine.remove("key", new StorageEntry(second.value(), second.expiresAt(), second.ttl())));
+            assertTrue(engine.remove("key", second));
+            assertNull(engine.get("key"));
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка хранения значений в файле, отображённом в память")
+    void testMemoryMappedFile(@TempDir Path dir) {
+        try (OffHeapStorageEngine engine = new OffHeapStorageEngine(SEGMENT_SIZE, MAX_SIZE, dir.resolve("slab"))) {
+            for (int i = 0; i < 10_000; i++) {
+                engine.put("key" + i, StorageEntry.of("value" + i, 10_000L, i));
+            }
+            for (int i = 0; i < 10_000; i++) {
+                assertEquals("value" + i, engine.get("key" + i).value());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка, что параллельные читатели не видят данных переиспользованных блоков")
+    void testConcurrentReadersSeeConsistentValues() throws Exception {
+        try (OffHeapStorageEngine engine = new OffHeapStorageEngine(SEGMENT_SIZE, MAX_SIZE, null)) {
+            for (int i = 0; i < 16; i++) {
+                engine.put("key" + i, StorageEntry.of("key" + i + ":0", 10_000L, 0L));
+            }
+            AtomicBoolean running = new AtomicBoolean(true);
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                Future<?> writer = executor.submit(() -> {
+                    for (int n = 1; running.get(); n++) {
+                        String key = "key" + (n % 16);
+                        engine.put(key, StorageEntry.of(key + ":" + n, 10_000L, n));
+                    }
+                });
+                Future<?>[] readers = new Future<?>[3];
+                for (int r = 0; r < readers.length; r++) {
+                    readers[r] = executor.submit(() -> {
+                        for (int n = 0; n < 200_000; n++) {
+                            String key = "key" + (n % 16);
+                            StorageEntry entry = engine.get(key);
+                            assertTrue(entry.value().startsWith(key + ":"), entry.value());
+                        }
+                    });
+                }
+                for (Future<?> reader : readers) {
+                    reader.get(30, TimeUnit.SECONDS);
+                }
+                running.set(false);
+                writer.get(30, TimeUnit.SECONDS);
+            } finally {
+                running.set(false);
+                executor.shutdownNow();
+            }
+        }
+    }
+}
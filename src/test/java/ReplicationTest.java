@@ -0,0 +1,274 @@
+import org.example.config.StorageProperties;
+import org.example.replication.ReplicationFollower;
+import org.example.replication.ReplicationLeader;
+import org.example.service.MemoryStorageService;
+import org.example.service.ReadOnlyReplicaException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicationTest {
+
+    private final List<AutoCloseable> resources = new ArrayList<>();
+
+    /**
+     * Посредник TCP между репликой и ведущим узлом, позволяющий оборвать соединения.
+     */
+    static class Proxy implements AutoCloseable {
+        final ServerSocket server;
+        final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+        volatile boolean refusing;
+
+        Proxy(int target) throws IOException {
+            server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            Thread acceptor = new Thread(() -> {
+                while (!server.isClosed()) {
+                    try {
+                        Socket client = server.accept();
+                        if (refusing) {
+                            client.close();
+                            continue;
+                        }
+                        Socket upstream = new Socket(InetAddress.getLoopbackAddress(), target);
+                        sockets.add(client);
+                        sockets.add(upstream);
+                        pipe(client, upstream);
+                        pipe(upstream, client);
+                    } catch (IOException e) {
+                        // Посредник остановлен
+                    }
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        private void pipe(Socket from, Socket to) {
+            Thread thread = new Thread(() -> {
+                try (InputStream in = from.getInputStream(); OutputStream out = to.getOutputStream()) {
+                    in.transferTo(out);
+                } catch (IOException e) {
+                    // Соединение оборвано
+                }
+                cut();
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void cut() {
+            for (Socket socket : sockets) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // Соединение уже закрыто
+                }
+            }
+            sockets.clear();
+        }
+
+        InetSocketAddress address() {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort());
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+            cut();
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (int i = resources.size() - 1; i >= 0; i--) {
+            resources.get(i).close();
+        }
+    }
+
+    private MemoryStorageService node() {
+        MemoryStorageService service = new MemoryStorageService(new StorageProperties());
+        resources.add(service::shutdown);
+        return service;
+    }
+
+    private ReplicationLeader leader(MemoryStorageService service, long backlogSize) throws IOException {
+        ReplicationLeader leader = new ReplicationLeader(service,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 100, 5, backlogSize);
+        leader.start();
+        resources.add(leader);
+        return leader;
+    }
+
+    private ReplicationFollower follower(MemoryStorageService service, InetSocketAddress leader) {
+        ReplicationFollower follower = new ReplicationFollower(service, leader, 50);
+        follower.start();
+        resources.add(follower);
+        return follower;
+    }
+
+    private static InetSocketAddress local(int port) {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition was not met in 5 s");
+            Thread.sleep(5);
+        }
+    }
+
+    private static boolean has(MemoryStorageService service, String key, String value) {
+        String result = service.get(key);
+        return result != null && result.contains(value);
+    }
+
+    @Test
+    @DisplayName("Проверка передачи записи, удаления, изменения TTL и истечения срока на реплики")
+    void testChangesArePropagated() throws Exception {
+        MemoryStorageService leaderNode = node();
+        ReplicationLeader leader = leader(leaderNode, 1 << 20);
+        MemoryStorageService first = node();
+        MemoryStorageService second = node();
+        follower(first, local(leader.getPort()));
+        follower(second, local(leader.getPort()));
+        await(() -> leader.followers() == 2);
+
+        for (int i = 0; i < 1000; i++) {
+            leaderNode.set("key" + i, "value" + i, 60_000L);
+        }
+        leaderNode.set("short", "value", 300L);
+        leaderNode.remove("key1");
+        leaderNode.expire("key2", 120_000L);
+        for (MemoryStorageService replica : List.of(first, second)) {
+            await(() -> has(replica, "key999", "value999") && replica.get("key1") == null
+                    && replica.getEntry("key2") != null && replica.getEntry("key2").ttl() == 120_000L
+                    && has(replica, "short", "value") && replica.getAll().size() == 1000);
+            assertEquals(leaderNode.getEntry("key2").savedTime(), replica.getEntry("key2").savedTime());
+        }
+
+        await(() -> leaderNode.get("short") == null);
+        await(() -> first.getAll().size() == 999 && second.getAll().size() == 999);
+    }
+
+    @Test
+    @DisplayName("Проверка отказа реплики в записи и возврата записи после её остановки")
+    void testFollowerRejectsWrites() throws Exception {
+        MemoryStorageService leaderNode = node();
+        ReplicationLeader leader = leader(leaderNode, 1 << 20);
+        MemoryStorageService replica = node();
+        ReplicationFollower follower = follower(replica, local(leader.getPort()));
+
+        assertThrows(ReadOnlyReplicaException.class, () -> replica.set("key", "value", 60_000L));
+        assertThrows(ReadOnlyReplicaException.class, () -> replica.remove("key"));
+        assertThrows(ReadOnlyReplicaException.class, () -> replica.expire("key", 60_000L));
+        leaderNode.set("key", "value", 60_000L);
+        await(() -> has(replica, "key", "value"));
+
+        follower.close();
+        assertFalse(replica.isReadOnly());
+        assertTrue(replica.set("key", "local", 60_000L));
+        assertTrue(has(replica, "key", "local"));
+    }
+
+    @Test
+    @DisplayName("Проверка начальной загрузки новой реплики: полное состояние и изменения во время передачи")
+    void testLateFollowerBootstrapsFromSnapshot() throws Exception {
+        MemoryStorageService leaderNode = node();
+        ReplicationLeader leader = leader(leaderNode, 1 << 20);
+        for (int i = 0; i < 20_000; i++) {
+            leaderNode.set("key" + i, "value" + i, 60_000L);
+        }
+        await(() -> leader.lastSequence() > 0 && leader.shippedRecords() == 20_000);
+
+        MemoryStorageService replica = node();
+        replica.set("stale", "value", 60_000L);
+        ReplicationFollower follower = follower(replica, local(leader.getPort()));
+        for (int i = 0; i < 20_000; i += 2) {
+            leaderNode.set("key" + i, "updated" + i, 60_000L);
+        }
+        leaderNode.set("last", "value", 60_000L);
+
+        await(() -> has(replica, "last", "value"));
+        await(() -> follower.appliedSequence() == leader.lastSequence());
+        assertEquals(1, follower.fullSyncs());
+        assertNull(replica.get("stale"));
+        assertEquals(20_001, replica.getAll().size());
+        for (int i = 0; i < 20_000; i++) {
+            assertTrue(has(replica, "key" + i, (i % 2 == 0 ? "updated" : "value") + i));
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка продолжения после обрыва без полной передачи, пока ведущий узел хранит пропущенные пакеты")
+    void testReconnectContinuesFromBacklog() throws Exception {
+        MemoryStorageService leaderNode = node();
+        ReplicationLeader leader = leader(leaderNode, 1 << 20);
+        Proxy proxy = new Proxy(leader.getPort());
+        resources.add(proxy);
+        MemoryStorageService replica = node();
+        ReplicationFollower follower = follower(replica, proxy.address());
+
+        leaderNode.set("before", "value", 60_000L);
+        await(() -> has(replica, "before", "value"));
+
+        proxy.refusing = true;
+        proxy.cut();
+        await(() -> !follower.isConnected());
+        for (int i = 0; i < 100; i++) {
+            leaderNode.set("key" + i, "value" + i, 60_000L);
+            Thread.sleep(1);
+        }
+        leaderNode.remove("before");
+        await(() -> leader.shippedRecords() == 102);
+        assertNull(replica.get("key0"));
+
+        proxy.refusing = false;
+        await(() -> has(replica, "key99", "value99") && replica.get("before") == null);
+        assertEquals(1, follower.fullSyncs());
+        assertEquals(leader.lastSequence(), follower.appliedSequence());
+    }
+
+    @Test
+    @DisplayName("Проверка полной передачи состояния реплике, отставшей больше, чем хранит очередь пакетов")
+    void testReconnectFallsBackToFullSync() throws Exception {
+        MemoryStorageService leaderNode = node();
+        ReplicationLeader leader = leader(leaderNode, 1);
+        Proxy proxy = new Proxy(leader.getPort());
+        resources.add(proxy);
+        MemoryStorageService replica = node();
+        ReplicationFollower follower = follower(replica, proxy.address());
+
+        leaderNode.set("before", "value", 60_000L);
+        await(() -> has(replica, "before", "value"));
+
+        proxy.refusing = true;
+        proxy.cut();
+        await(() -> !follower.isConnected());
+        leaderNode.remove("before");
+        await(() -> leader.shippedRecords() == 2);
+        leaderNode.set("after", "value", 60_000L);
+        await(() -> leader.shippedRecords() == 3);
+
+        proxy.refusing = false;
+        await(() -> follower.fullSyncs() == 2);
+        await(() -> has(replica, "after", "value"));
+        assertNull(replica.get("before"));
+        assertEquals(1, replica.getAll().size());
+    }
+}
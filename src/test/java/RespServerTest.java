@@ -0,0 +1,286 @@
+import org.example.config.StorageProperties;
+import org.example.resp.RespServer;
+import org.example.service.MemoryStorageService;
+import org.example.service.loader.CacheLoader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RespServerTest {
+
+    private MemoryStorageService service;
+    private RespServer server;
+    private Socket socket;
+    private InputStream in;
+    private OutputStream out;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        service = new MemoryStorageService(new StorageProperties());
+        server = new RespServer(service, new InetSocketAddress("127.0.0.1", 0), 2);
+        int port = server.start();
+        socket = new Socket("127.0.0.1", port);
+        socket.setSoTimeout(10_000);
+        in = new BufferedInputStream(socket.getInputStream());
+        out = socket.getOutputStream();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        socket.close();
+        server.close();
+        service.shutdown();
+    }
+
+    @Test
+    @DisplayName("Проверка команд GET, SET, DEL, MGET, PEXPIRE и PTTL")
+    void testCommands() throws IOException {
+        assertEquals("OK", call("SET", "key1", "значение", "PX", "60000"));
+        assertEquals("OK", call("SET", "key2", "value2"));
+        assertEquals("значение", call("GET", "key1"));
+        assertNull(call("GET", "missing"));
+        List<?> mget = (List<?>) call("MGET", "key1", "missing", "key2");
+        assertEquals("значение", mget.get(0));
+        assertNull(mget.get(1));
+        assertEquals("value2", mget.get(2));
+
+        long ttl = (Long) call("PTTL", "key1");
+        assertTrue(ttl > 59_000 && ttl <= 60_000, "ttl " + ttl);
+        assertEquals(1L, call("PEXPIRE", "key1", "300000"));
+        assertTrue((Long) call("PTTL", "key1") > 299_000);
+        assertEquals("значение", service.getEntry("key1").value());
+        assertEquals(0L, call("PEXPIRE", "missing", "300000"));
+        assertEquals(-2L, call("PTTL", "missing"));
+
+        assertEquals(2L, call("DEL", "key1", "key2", "missing"));
+        assertEquals(0L, call("DEL", "key1"));
+        assertEquals("PONG", call("PING"));
+    }
+
+    @Test
+    @DisplayName("Проверка конвейера команд и значений больше буфера соединения")
+    void testPipelining() throws IOException {
+        ByteArrayOutputStream pipeline = new ByteArrayOutputStream();
+        for (int i = 0; i < 2_000; i++) {
+            pipeline.write(command("SET", "key" + i, "value" + i, "PX", "60000"));
+        }
+        for (int i = 0; i < 2_000; i++) {
+            pipeline.write(command("GET", "key" + i));
+        }
+        out.write(pipeline.toByteArray());
+        out.flush();
+        for (int i = 0; i < 2_000; i++) {
+            assertEquals("OK", read());
+        }
+        for (int i = 0; i < 2_000; i++) {
+            assertEquals("value" + i, read());
+        }
+
+        String large = "x".repeat(3 * 1024 * 1024);
+        assertEquals("OK", call("SET", "large", large));
+        assertEquals(large, call("GET", "large"));
+        assertEquals("PONG", call("PING"));
+    }
+
+    @Test
+    @DisplayName("Проверка обхода ключей командой SCAN с MATCH и COUNT")
+    void testScan() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            service.set("user:" + i, "value", 60_000L);
+            service.set("order:" + i, "value", 60_000L);
+        }
+        Set<String> keys = new HashSet<>();
+        String cursor = "0";
+        do {
+            List<?> reply = (List<?>) call("SCAN", cursor, "MATCH", "user:*", "COUNT", "7");
+            cursor = (String) reply.get(0);
+            keys.addAll(toStrings(reply.get(1)));
+        } while (!cursor.equals("0"));
+        assertEquals(100, keys.size());
+        assertTrue(keys.stream().allMatch(key -> key.startsWith("user:")));
+    }
+
+    @Test
+    @DisplayName("Проверка атомарных команд SETNX, GETSET, INCR, DECR, INCRBY, DECRBY и PERSIST")
+    void testAtomicCommands() throws IOException {
+        assertEquals(1L, call("SETNX", "lock", "owner1"));
+        assertEquals(0L, call("SETNX", "lock", "owner2"));
+        assertEquals("owner1", call("GETSET", "lock", "owner2"));
+        assertNull(call("GETSET", "missing", "value"));
+
+        assertEquals(1L, call("INCR", "counter"));
+        assertEquals(11L, call("INCRBY", "counter", "10"));
+        assertEquals(10L, call("DECR", "counter"));
+        assertEquals(7L, call("DECRBY", "counter", "3"));
+        assertTrue(((String) call("INCR", "lock")).startsWith("ERR Value of key 'lock' is not an integer"));
+
+        assertEquals(1L, call("PERSIST", "counter"));
+        assertEquals(0L, call("PERSIST", "counter"));
+        assertEquals(-1L, call("PTTL", "counter"));
+        assertEquals("7", call("GET", "counter"));
+    }
+
+    @Test
+    @DisplayName("Проверка ответов с ошибкой и закрытия соединения при нарушении протокола")
+    void testErrors() throws IOException {
+        assertTrue(((String) call("FLUSHALL")).startsWith("ERR unknown command"));
+        assertTrue(((String) call("GET")).startsWith("ERR wrong number of arguments"));
+        assertTrue(((String) call("SET", "key", "value", "PX", "50")).startsWith("ERR Parameter 'ttl'"));
+        assertTrue(((String) call("SET", "key", "value", "PX", "abc")).startsWith("ERR value is not an integer"));
+        assertTrue(((String) call("SCAN", "unknown")).startsWith("ERR Unknown or expired scan cursor"));
+
+        out.write("PING\r\n".getBytes(StandardCharsets.US_ASCII));
+        assertEquals("PONG", read());
+
+        out.write("*1\r\n+GET\r\n".getBytes(StandardCharsets.US_ASCII));
+        assertTrue(((String) read()).startsWith("ERR Protocol error"));
+        assertEquals(-1, in.read());
+    }
+
+    @Test
+    @DisplayName("Проверка отклонения команды с длиной аргумента больше допустимого размера команды")
+    void testOversizedBulkHeader() throws IOException {
+        out.write("*1\r\n$536870000\r\n".getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        assertTrue(((String) read()).startsWith("ERR Protocol error: request is larger than"));
+        assertEquals(-1, in.read());
+
+        try (Socket client = new Socket("127.0.0.1", server.getPort())) {
+            client.setSoTimeout(10_000);
+            OutputStream clientOut = client.getOutputStream();
+            InputStream clientIn = client.getInputStream();
+            clientOut.write("*2\r\n$3\r\nGET\r\n$1000000\r\nabc".getBytes(StandardCharsets.US_ASCII));
+            clientOut.write("*1\r\n$4\r\nPING\r\n".getBytes(StandardCharsets.US_ASCII));
+            clientOut.flush();
+            client.shutdownOutput();
+            assertEquals(-1, clientIn.read());
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка, что загрузка из медленного источника не задерживает другие соединения потока ввода-вывода")
+    void testSlowLoaderDoesNotBlockEventLoop() throws Exception {
+        StorageProperties properties = new StorageProperties();
+        properties.getLoader().setTtl(Duration.ofSeconds(60));
+        CacheLoader loader = key -> {
+            Thread.sleep(1_000);
+            return "loaded-" + key;
+        };
+        MemoryStorageService slowService = new MemoryStorageService(properties, null, loader, null);
+        RespServer slowServer = new RespServer(slowService, new InetSocketAddress("127.0.0.1", 0), 1);
+        try (Socket first = new Socket("127.0.0.1", slowServer.start());
+             Socket second = new Socket("127.0.0.1", slowServer.getPort())) {
+            first.setSoTimeout(10_000);
+            second.setSoTimeout(10_000);
+            InputStream firstIn = new BufferedInputStream(first.getInputStream());
+            InputStream secondIn = new BufferedInputStream(second.getInputStream());
+
+            ByteArrayOutputStream pipeline = new ByteArrayOutputStream();
+            pipeline.write(command("GET", "slow"));
+            pipeline.write(command("PING"));
+            long start = System.nanoTime();
+            first.getOutputStream().write(pipeline.toByteArray());
+            first.getOutputStream().flush();
+
+            Thread.sleep(100);
+            second.getOutputStream().write(command("PING"));
+            second.getOutputStream().flush();
+            assertEquals("PONG", read(secondIn));
+            assertTrue(System.nanoTime() - start < 800_000_000L, "PING waited for the loader");
+
+            assertEquals("loaded-slow", read(firstIn));
+            assertEquals("PONG", read(firstIn));
+            assertTrue(System.nanoTime() - start >= 1_000_000_000L);
+        } finally {
+            slowServer.close();
+            slowService.shutdown();
+        }
+    }
+
+    private Object call(String... args) throws IOException {
+        out.write(command(args));
+        out.flush();
+        return read();
+    }
+
+    private static byte[] command(String... args) {
+        StringBuilder command = new StringBuilder("*").append(args.length).append("\r\n");
+        for (String arg : args) {
+            command.append('$').append(arg.getBytes(StandardCharsets.UTF_8).length).append("\r\n").append(arg).append("\r\n");
+        }
+        return command.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Чтение одного ответа: простые строки и ошибки возвращаются строкой, числа — Long,
+     * bulk-строки — строкой или {@code null}, массивы — списком.
+     */
+    private Object read() throws IOException {
+        return read(in);
+    }
+
+    private static Object read(InputStream in) throws IOException {
+        int type = in.read();
+        String line = readLine(in);
+        switch (type) {
+            case '+', '-' -> {
+                return line;
+            }
+            case ':' -> {
+                return Long.parseLong(line);
+            }
+            case '$' -> {
+                int length = Integer.parseInt(line);
+                if (length < 0) {
+                    return null;
+                }
+                byte[] bytes = in.readNBytes(length + 2);
+                return new String(bytes, 0, length, StandardCharsets.UTF_8);
+            }
+            case '*' -> {
+                int size = Integer.parseInt(line);
+                List<Object> items = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    items.add(read(in));
+                }
+                return items;
+            }
+            default -> throw new IOException("Unexpected reply type: " + type);
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\r') {
+            line.write(b);
+        }
+        in.read();
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> toStrings(Object reply) {
+        List<String> strings = new ArrayList<>();
+        for (Object item : (List<?>) reply) {
+            strings.add((String) item);
+        }
+        return strings;
+    }
+}
@@ -0,0 +1,139 @@
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.config.StorageProperties;
+import org.example.controller.MemoryStorageController;
+import org.example.service.MemoryStorageService;
+import org.example.service.ScanPage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class ScanTest {
+
+    private MemoryStorageService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new MemoryStorageService(new StorageProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    @DisplayName("Проверка, что постраничный обход возвращает каждую запись ровно один раз")
+    void testScanReturnsEveryEntryOnce() {
+        for (int i = 0; i < 1_000; i++) {
+            service.set("key" + i, "value" + i, 60_000L);
+        }
+        List<String> keys = new ArrayList<>();
+        String cursor = "0";
+        int pages = 0;
+        do {
+            ScanPage page = service.scan(cursor, 64, null, null);
+            assertTrue(page.entries().size() <= 64);
+            keys.addAll(page.entries().keySet());
+            cursor = page.cursor();
+            pages++;
+        } while (!cursor.equals("0"));
+
+        assertEquals(1_000, keys.size());
+        assertEquals(1_000, new HashSet<>(keys).size());
+        assertTrue(pages >= 16);
+    }
+
+    @Test
+    @DisplayName("Проверка фильтрации по префиксу и шаблону")
+    void testScanFilters() {
+        service.set("user:1:name", "Anna", 60_000L);
+        service.set("user:2:name", "Oleg", 60_000L);
+        service.set("user:2:mail", "oleg@example.org", 60_000L);
+        service.set("user:10:name", "Ivan", 60_000L);
+        service.set("order:1", "book", 60_000L);
+
+        assertEquals(Set.of("user:1:name", "user:2:name", "user:2:mail", "user:10:name"), scanAll("user:", null));
+        assertEquals(Set.of("user:1:name", "user:2:name", "user:10:name"), scanAll(null, "user:*:name"));
+        assertEquals(Set.of("user:1:name", "user:2:name"), scanAll(null, "user:?:name"));
+        assertEquals(Set.of("user:2:name", "user:2:mail"), scanAll("user:", "*:[2-3]:*"));
+        assertEquals(Set.of("user:1:name", "user:10:name"), scanAll(null, "user:1*name"));
+        assertEquals(Set.of("order:1"), scanAll(null, "order:1"));
+        assertThrows(IllegalArgumentException.class, () -> service.scan("0", 10, null, "user:[1"));
+    }
+
+    @Test
+    @DisplayName("Проверка пропуска записей с истёкшим TTL и проверки курсора и размера страницы")
+    void testScanSkipsExpiredAndValidates() throws InterruptedException {
+        service.set("short", "value", 150L);
+        service.set("long", "value", 60_000L);
+        Thread.sleep(300);
+
+        assertEquals(Set.of("long"), scanAll(null, null));
+        List<String> streamed = new ArrayList<>();
+        service.liveEntries(null, null).forEachRemaining(entry -> streamed.add(entry.getKey()));
+        assertEquals(List.of("long"), streamed);
+        assertThrows(IllegalArgumentException.class, () -> service.scan("unknown", 10, null, null));
+        assertThrows(IllegalArgumentException.class, () -> service.scan("0", 0, null, null));
+        assertThrows(IllegalArgumentException.class, () -> service.scan("0", 10_001, null, null));
+    }
+
+    @Test
+    @DisplayName("Проверка запросов постраничного обхода и потоковой выгрузки в NDJSON")
+    void testScanAndStreamEndpoints() throws Exception {
+        service.set("a:1", "1", 60_000L);
+        service.set("a:2", "2", 60_000L);
+        service.set("b:1", "3", 60_000L);
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(new MemoryStorageController(service, new ObjectMapper())).build();
+
+        mvc.perform(get("/api/storage/_scan").param("count", "10").param("prefix", "a:"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cursor").value("0"))
+                .andExpect(jsonPath("$.entries.['a:1'].value").value("1"))
+                .andExpect(jsonPath("$.entries.['b:1']").doesNotExist());
+
+        mvc.perform(get("/api/storage/_scan").param("cursor", "missing"))
+                .andExpect(status().isBadRequest());
+
+        MvcResult result = mvc.perform(get("/api/storage/_stream").param("match", "a:*"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+        List<String> lines = body.lines().toList();
+        assertEquals(2, lines.size());
+        Set<String> keys = new HashSet<>();
+        ObjectMapper mapper = new ObjectMapper();
+        for (String line : lines) {
+            keys.add(mapper.readTree(line).get("key").asText());
+            assertEquals(60_000L, mapper.readTree(line).get("ttl").asLong());
+        }
+        assertEquals(Set.of("a:1", "a:2"), keys);
+    }
+
+    private Set<String> scanAll(String prefix, String match) {
+        Set<String> keys = new HashSet<>();
+        String cursor = "0";
+        do {
+            ScanPage page = service.scan(cursor, 2, prefix, match);
+            keys.addAll(page.entries().keySet());
+            cursor = page.cursor();
+        } while (!cursor.equals("0"));
+        return keys;
+    }
+}
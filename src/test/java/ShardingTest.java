@@ -0,0 +1,146 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.config.StorageProperties;
+import org.example.service.MemoryStorageService;
+import org.example.service.expiry.ExpiryStats;
+import org.example.snapshot.SnapshotFormat;
+import org.example.snapshot.SnapshotReader;
+import org.example.snapshot.SnapshotWriter;
+import org.example.storage.HeapStorageEngine;
+import org.example.storage.ShardedStorageEngine;
+import org.example.storage.StorageEntry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardingTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Проверка распределения ключей по шардам и обхода всех шардов")
+    void testShardedEngine() {
+        ShardedStorageEngine engine = new ShardedStorageEngine(8, shard -> new HeapStorageEngine());
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 10_000; i++) {
+            engine.put("key" + i, StorageEntry.of("value" + i, 60_000L, now));
+        }
+
+        assertEquals(10_000, engine.size());
+        for (int i = 0; i < engine.shardCount(); i++) {
+            assertTrue(engine.shard(i).size() > 1_000, "shard " + i + " holds " + engine.shard(i).size());
+        }
+        String key = "key42";
+        assertNotNull(engine.shard(engine.shardOf(key)).get(key));
+        assertEquals("value42", engine.remove(key).value());
+        assertNull(engine.get(key));
+
+        Set<String> keys = new HashSet<>();
+        for (Iterator<Map.Entry<String, StorageEntry>> it = engine.iterator(); it.hasNext(); ) {
+            keys.add(it.next().getKey());
+        }
+        assertEquals(9_999, keys.size());
+        engine.close();
+        assertEquals(0, engine.size());
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageProperties.Expiry.Strategy.class)
+    @DisplayName("Проверка удаления записей с истёкшим TTL во всех шардах")
+    void testExpiryInEveryShard(StorageProperties.Expiry.Strategy strategy) throws InterruptedException {
+        StorageProperties properties = new StorageProperties();
+        properties.setShards(8);
+        properties.setMaintenanceParallelism(4);
+        properties.getExpiry().setStrategy(strategy);
+        properties.getExpiry().setTick(Duration.ofMillis(20));
+        MemoryStorageService service = new MemoryStorageService(properties);
+        try {
+            for (int i = 0; i < 2_000; i++) {
+                service.set("short" + i, "value", 150L);
+            }
+            service.set("long", "value", 60_000L);
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (background(service.getExpiryStats()) < 2_000) {
+                assertTrue(System.currentTimeMillis() < deadline, "entries were not expired in time");
+                Thread.sleep(20);
+            }
+            assertEquals(Set.of("long"), service.getAll().keySet());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(SnapshotFormat.class)
+    @DisplayName("Проверка параллельного сохранения шардов в один файл")
+    void testParallelDump(SnapshotFormat format) throws IOException {
+        ShardedStorageEngine engine = new ShardedStorageEngine(16, shard -> new HeapStorageEngine());
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 5_000; i++) {
+            engine.put("key" + i, StorageEntry.of("значение " + i, 60_000L, now));
+        }
+        engine.put("expired", StorageEntry.of("old", 1_000L, now - 5_000L));
+        engine.put("large", StorageEntry.of("x".repeat(10_000), 60_000L, now));
+
+        Path file = tempDir.resolve("state");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            long written = new SnapshotWriter(format, 4096).write(file, engine.shardIterators(), now, pool);
+            assertEquals(5_001, written);
+        } finally {
+            pool.shutdown();
+        }
+
+        Map<String, StorageEntry> loaded = new HashMap<>();
+        assertEquals(5_001, new SnapshotReader().read(file, loaded::put));
+        assertEquals(engine.get("key42").toTuple(), loaded.get("key42").toTuple());
+        assertEquals(engine.get("large").toTuple(), loaded.get("large").toTuple());
+        assertNull(loaded.get("expired"));
+        if (format == SnapshotFormat.JSON) {
+            JsonNode root = new ObjectMapper().readTree(file.toFile());
+            assertEquals(5_001, root.size());
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка сохранения и загрузки хранилищ с разным количеством шардов")
+    void testDumpAndLoadAcrossShardCounts() {
+        StorageProperties properties = new StorageProperties();
+        properties.setShards(16);
+        properties.getSnapshot().setFile(tempDir.resolve("storage-state.json"));
+        MemoryStorageService source = new MemoryStorageService(properties);
+        properties.setShards(3);
+        MemoryStorageService target = new MemoryStorageService(properties);
+        try {
+            source.set("a", "1", 60_000L);
+            source.set("b", "2", 60_000L);
+            assertNotNull(source.dump());
+            target.load();
+            assertEquals(Set.of("a", "b"), target.getAll().keySet());
+            assertEquals(List.of("1", "2"), List.of(target.getAll().get("a").value(), target.getAll().get("b").value()));
+        } finally {
+            source.shutdown();
+            target.shutdown();
+        }
+    }
+
+    private static long background(ExpiryStats stats) {
+        return stats.expiredBySampling() + stats.expiredByTimer();
+    }
+}
@@ -0,0 +1,166 @@
+import org.example.config.StorageProperties;
+import org.example.service.MemoryStorageService;
+import org.example.service.SnapshotJob;
+import org.example.snapshot.SnapshotChain;
+import org.example.snapshot.SnapshotFormat;
+import org.example.snapshot.SnapshotReader;
+import org.example.snapshot.SnapshotWriter;
+import org.example.storage.StorageEntry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotJobTest {
+
+    @TempDir
+    Path tempDir;
+
+    private StorageProperties properties(SnapshotFormat format) {
+        StorageProperties properties = new StorageProperties();
+        properties.getSnapshot().setFormat(format);
+        properties.getSnapshot().setFile(tempDir.resolve("storage-state"));
+        return properties;
+    }
+
+    @ParameterizedTest
+    @EnumSource(SnapshotFormat.class)
+    @DisplayName("Проверка инкрементального сохранения только изменённых ключей и восстановления по цепочке файлов")
+    void testIncrementalDumpRestoresState(SnapshotFormat format) throws IOException, InterruptedException {
+        MemoryStorageService service = new MemoryStorageService(properties(format));
+        try {
+            for (int i = 0; i < 1000; i++) {
+                service.set("key" + i, "value" + i, 60_000L);
+            }
+            SnapshotJob full = service.startDump(true).await();
+            assertEquals(SnapshotJob.Status.COMPLETED, full.getStatus());
+            assertFalse(full.isIncremental());
+            assertEquals(1000, full.getEntries());
+
+            Thread.sleep(5);
+            service.set("key1", "updated", 60_000L);
+            service.remove("key2");
+            service.set("new", "value", 60_000L);
+            SnapshotJob delta = service.startDump(true).await();
+            assertEquals(SnapshotJob.Status.COMPLETED, delta.getStatus());
+            assertTrue(delta.isIncremental());
+            assertEquals(3, delta.getEntries());
+            assertEquals(3, delta.getProcessed());
+
+            Map<String, StorageEntry> written = new HashMap<>();
+            new SnapshotReader().read(Path.of(delta.getFile()), written::put);
+            assertEquals(3, written.size());
+            assertTrue(written.get("key2").isTombstone());
+            assertEquals("updated", written.get("key1").value());
+
+            service.remove("new");
+            assertTrue(service.startDump(true).await().isIncremental());
+            assertEquals(2, new SnapshotChain(tempDir.resolve("storage-state")).deltas().size());
+        } finally {
+            service.shutdown();
+        }
+
+        MemoryStorageService restored = new MemoryStorageService(properties(format));
+        try {
+            restored.load();
+            assertEquals(999, restored.getAll().size());
+            assertTrue(restored.get("key1").contains("updated"));
+            assertNull(restored.get("key2"));
+            assertNull(restored.get("new"));
+            assertTrue(restored.get("key999").contains("value999"));
+        } finally {
+            restored.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка удаления инкрементальных файлов после полного сохранения")
+    void testFullDumpReplacesDeltas() throws IOException, InterruptedException {
+        MemoryStorageService service = new MemoryStorageService(properties(SnapshotFormat.BINARY));
+        try {
+            service.set("key", "value", 60_000L);
+            assertNotNull(service.dump());
+            Thread.sleep(5);
+            service.set("key", "updated", 60_000L);
+            service.startDump(true).await();
+            SnapshotChain chain = new SnapshotChain(tempDir.resolve("storage-state"));
+            assertEquals(1, chain.deltas().size());
+
+            assertNotNull(service.dump());
+            assertTrue(chain.deltas().isEmpty());
+            assertEquals(0, service.startDump(true).await().getEntries());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка, что запись с истёкшим TTL в инкрементальном файле заменяет прежнюю запись по ключу")
+    void testExpiredDeltaEntryHidesOlderEntry() throws IOException, InterruptedException {
+        long now = System.currentTimeMillis();
+        SnapshotChain chain = new SnapshotChain(tempDir.resolve("storage-state"));
+        SnapshotWriter writer = new SnapshotWriter(SnapshotFormat.JSON);
+        writer.write(chain.base(), Map.of("key", StorageEntry.of("old", 60_000L, now - 1_000L)).entrySet().iterator(), now);
+        writer.write(chain.nextDelta(), Map.of("key", StorageEntry.of("short", 200L, now)).entrySet().iterator(), now);
+        Thread.sleep(250);
+
+        MemoryStorageService service = new MemoryStorageService(properties(SnapshotFormat.JSON));
+        try {
+            service.load();
+            assertNull(service.get("key"));
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка выполнения одновременных заданий по одному и опроса их состояния")
+    void testConcurrentJobsAreSerialized() {
+        MemoryStorageService service = new MemoryStorageService(properties(SnapshotFormat.BINARY));
+        try {
+            for (int i = 0; i < 10_000; i++) {
+                service.set("key" + i, "value" + i, 60_000L);
+            }
+            List<SnapshotJob> jobs = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                jobs.add(service.startDump(i % 2 == 1));
+            }
+            jobs.add(service.startLoad());
+            for (SnapshotJob job : jobs) {
+                assertSame(job, service.getSnapshotJob(job.getId()));
+                assertEquals(SnapshotJob.Status.COMPLETED, job.await().getStatus(), job.getError());
+                assertTrue(job.getFinishedAt() >= job.getStartedAt());
+            }
+            assertEquals(10_000, jobs.get(0).getProcessed());
+            assertEquals(10_000, jobs.get(0).getTotal());
+            assertFalse(Files.exists(tempDir.resolve("storage-state.tmp")));
+            assertNull(service.getSnapshotJob("unknown"));
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка завершения задания с ошибкой, если файла состояния нет")
+    void testLoadWithoutFileFails() {
+        MemoryStorageService service = new MemoryStorageService(properties(SnapshotFormat.JSON));
+        try {
+            SnapshotJob job = service.startLoad().await();
+            assertEquals(SnapshotJob.Status.FAILED, job.getStatus());
+            assertNotNull(job.getError());
+        } finally {
+            service.shutdown();
+        }
+    }
+}
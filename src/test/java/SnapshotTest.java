@@ -0,0 +1,180 @@
+import org.example.config.StorageProperties;
+import org.example.service.MemoryStorageService;
+import org.example.snapshot.SnapshotFormat;
+import org.example.snapshot.SnapshotLoader;
+import org.example.snapshot.SnapshotReader;
+import org.example.snapshot.SnapshotWriter;
+import org.example.storage.StorageEntry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    @ParameterizedTest
+    @EnumSource(SnapshotFormat.class)
+    @DisplayName("Проверка сохранения и загрузки записей без записей с истёкшим TTL")
+    void testRoundTripSkipsExpired(SnapshotFormat format) throws IOException {
+        long now = System.currentTimeMillis();
+        Map<String, StorageEntry> source = new LinkedHashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            source.put("key" + i, StorageEntry.of("значение " + i, 60_000L, now));
+        }
+        source.put("expired", StorageEntry.of("old", 1_000L, now - 5_000L));
+        source.put("large", StorageEntry.of("x".repeat(10_000), 60_000L, now));
+        source.put("ключ-\uD83D\uDE00", StorageEntry.of("\uD83D\uDE00 €", 60_000L, now));
+
+        Path file = tempDir.resolve("state");
+        long written = new SnapshotWriter(format, 4096).write(file, source.entrySet().iterator(), now);
+
+        Map<String, StorageEntry> loaded = new HashMap<>();
+        long read = new SnapshotReader().read(file, loaded::put);
+
+        assertEquals(format, SnapshotReader.formatOf(file));
+        assertEquals(1002, written);
+        assertEquals(written, read);
+        assertNull(loaded.get("expired"));
+        assertEquals(source.get("key42").toTuple(), loaded.get("key42").toTuple());
+        assertEquals(source.get("large").toTuple(), loaded.get("large").toTuple());
+        assertEquals(source.get("ключ-\uD83D\uDE00").toTuple(), loaded.get("ключ-\uD83D\uDE00").toTuple());
+    }
+
+    @Test
+    @DisplayName("Проверка, что сбой во время сохранения не повреждает предыдущий файл")
+    void testFailedDumpKeepsPreviousFile() throws IOException {
+        long now = System.currentTimeMillis();
+        Path file = tempDir.resolve("state.bin");
+        SnapshotWriter writer = new SnapshotWriter(SnapshotFormat.BINARY);
+        writer.write(file, Map.of("key", StorageEntry.of("value", 60_000L, now)).entrySet().iterator(), now);
+        byte[] previous = Files.readAllBytes(file);
+
+        Iterator<Map.Entry<String, StorageEntry>> failing = new Iterator<>() {
+            private int count;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Map.Entry<String, StorageEntry> next() {
+                if (++count > 100) {
+                    throw new IllegalStateException("crash");
+                }
+                return Map.entry("key" + count, StorageEntry.of("value", 60_000L, now));
+            }
+        };
+        assertThrows(IllegalStateException.class, () -> writer.write(file, failing, now));
+
+        assertArrayEquals(previous, Files.readAllBytes(file));
+        assertFalse(Files.exists(tempDir.resolve("state.bin.tmp")));
+    }
+
+    @Test
+    @DisplayName("Проверка обнаружения повреждённого блока по контрольной сумме")
+    void testCorruptedBlockIsDetected() throws IOException {
+        long now = System.currentTimeMillis();
+        Map<String, StorageEntry> source = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            source.put("key" + i, StorageEntry.of("value" + i, 60_000L, now));
+        }
+        Path file = tempDir.resolve("state.bin");
+        new SnapshotWriter(SnapshotFormat.BINARY).write(file, source.entrySet().iterator(), now);
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x5A;
+        Files.write(file, bytes);
+
+        IOException error = assertThrows(IOException.class, () -> new SnapshotReader().read(file, (key, entry) -> { }));
+        assertTrue(error.getMessage().contains("checksum"), error.getMessage());
+    }
+
+    @ParameterizedTest
+    @EnumSource(SnapshotFormat.class)
+    @DisplayName("Проверка параллельной загрузки без записей с истёкшим TTL")
+    void testLoaderSkipsExpired(SnapshotFormat format) throws IOException {
+        long now = System.currentTimeMillis();
+        Map<String, StorageEntry> source = new LinkedHashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            long savedTime = i % 10 == 0 ? now - 120_000L : now;
+            source.put("key" + i, StorageEntry.of("value" + i, 60_000L, savedTime));
+        }
+        Path file = tempDir.resolve("state");
+        // Запись без пропуска истёкших записей: файл создан «в прошлом».
+        new SnapshotWriter(format, 4096).write(file, source.entrySet().iterator(), now - 120_000L);
+
+        Map<String, StorageEntry> loaded = new ConcurrentHashMap<>();
+        SnapshotLoader.Result result = new SnapshotLoader(4).load(file, now, (key, entry) -> loaded.put(key, entry) == null);
+
+        assertEquals(9_000, result.loaded());
+        assertEquals(1_000, result.expired());
+        assertEquals(9_000, loaded.size());
+        assertNull(loaded.get("key10"));
+        assertEquals(source.get("key11").toTuple(), loaded.get("key11").toTuple());
+    }
+
+    @Test
+    @DisplayName("Проверка обнаружения повреждённого блока при параллельной загрузке")
+    void testLoaderDetectsCorruptedBlock() throws IOException {
+        long now = System.currentTimeMillis();
+        Map<String, StorageEntry> source = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            source.put("key" + i, StorageEntry.of("value" + i, 60_000L, now));
+        }
+        Path file = tempDir.resolve("state.bin");
+        new SnapshotWriter(SnapshotFormat.BINARY, 1024).write(file, source.entrySet().iterator(), now);
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x5A;
+        Files.write(file, bytes);
+
+        assertThrows(IOException.class, () -> new SnapshotLoader(4).load(file, now, (key, entry) -> true));
+    }
+
+    @Test
+    @DisplayName("Проверка добавления загруженных записей в работающее хранилище без потери новых записей")
+    void testServiceMergesSnapshot() throws IOException, InterruptedException {
+        StorageProperties properties = new StorageProperties();
+        properties.getSnapshot().setFormat(SnapshotFormat.BINARY);
+        properties.getSnapshot().setFile(tempDir.resolve("storage-state.bin"));
+        MemoryStorageService service = new MemoryStorageService(properties);
+        try {
+            service.set("key1", "value1", 60_000L);
+            service.set("key2", "old", 60_000L);
+            File dumped = service.dump();
+            assertNotNull(dumped);
+
+            service.remove("key1");
+            Thread.sleep(5);
+            service.set("key2", "new", 60_000L);
+            service.set("key3", "value3", 60_000L);
+            service.load();
+            assertTrue(service.get("key1").contains("value1"));
+            assertTrue(service.get("key2").contains("new"));
+            assertNotNull(service.get("key3"));
+
+            Files.write(dumped.toPath(), new byte[]{'J', 'S', 'N', 'P', 0, 0, 0, 1, 1, 2, 3});
+            service.load();
+            assertNotNull(service.get("key3"));
+        } finally {
+            service.shutdown();
+        }
+    }
+}
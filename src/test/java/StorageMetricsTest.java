@@ -0,0 +1,105 @@
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.Main;
+import org.example.config.StorageProperties;
+import org.example.service.MemoryStorageService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = Main.class, properties = "storage.snapshot.file=target/metrics-test-state.json")
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class StorageMetricsTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private MemoryStorageService storageService;
+
+    @Test
+    @DisplayName("Проверка счётчиков, датчиков и гистограмм операций хранилища")
+    void testServiceMetrics() {
+        StorageProperties properties = new StorageProperties();
+        properties.getSnapshot().setFile(Path.of("target", "metrics-test-dump.json"));
+        properties.getMetrics().setLatencySampling(1);
+        MeterRegistry registry = new SimpleMeterRegistry();
+        MemoryStorageService service = new MemoryStorageService(properties, registry);
+        try {
+            service.set("key1", "value1", 60_000L);
+            service.set("key2", "value2", 60_000L);
+            service.get("key1");
+            service.get("missing");
+            service.multiGet(List.of("key1", "key2"));
+            service.remove("key2");
+            service.dump();
+            service.load();
+
+            assertEquals(3, registry.get("storage.gets").tag("result", "hit").functionCounter().count());
+            assertEquals(1, registry.get("storage.gets").tag("result", "miss").functionCounter().count());
+            assertEquals(2, registry.get("storage.sets").functionCounter().count());
+            assertEquals(1, registry.get("storage.removes").functionCounter().count());
+            assertEquals(1, registry.get("storage.entries").gauge().value());
+            assertTrue(registry.get("storage.estimated.size").gauge().value() > 0);
+
+            Timer get = registry.get("storage.operation").tag("operation", "get").timer();
+            assertEquals(2, get.count());
+            assertEquals(1, registry.get("storage.operation").tag("operation", "multi-get").timer().count());
+            assertEquals(1, registry.get("storage.snapshot").tag("operation", "dump").timer().count());
+            assertEquals(1, registry.get("storage.snapshot").tag("operation", "load").timer().count());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка выборочного измерения задержки при точных счётчиках операций")
+    void testLatencySampling() {
+        StorageProperties properties = new StorageProperties();
+        properties.getMetrics().setLatencySampling(16);
+        MeterRegistry registry = new SimpleMeterRegistry();
+        MemoryStorageService service = new MemoryStorageService(properties, registry);
+        try {
+            service.set("key", "value", 60_000L);
+            for (int i = 0; i < 16_000; i++) {
+                service.get("key");
+            }
+            assertEquals(16_000, registry.get("storage.gets").tag("result", "hit").functionCounter().count());
+            long sampled = registry.get("storage.operation").tag("operation", "get").timer().count();
+            assertTrue(sampled > 500 && sampled < 1500, "sampled: " + sampled);
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка публикации метрик хранилища и HTTP-запросов в формате Prometheus")
+    void testPrometheusEndpoint() throws Exception {
+        mvc.perform(get("/api/storage/missing")).andExpect(status().isNotFound());
+        storageService.set("key", "value", 60_000L);
+        storageService.get("key");
+
+        mvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("storage_gets_total{result=\"hit\",}")))
+                .andExpect(content().string(containsString("storage_entries")))
+                .andExpect(content().string(containsString("storage_operation_seconds_bucket{operation=\"get\"")))
+                .andExpect(content().string(containsString("http_server_requests_seconds_bucket")));
+    }
+}
@@ -0,0 +1,93 @@
+import org.example.service.expiry.TimingWheel;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    private static final long TICK = 100L;
+
+    @Test
+    @DisplayName("Проверка удаления только тех записей, срок которых наступил")
+    void testAdvanceExpiresOnlyDueEntries() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 0L);
+        wheel.schedule("short", 1, 500L);
+        wheel.schedule("medium", 2, 10_000L);
+        wheel.schedule("long", 3, 3_600_000L);
+
+        List<String> expired = new ArrayList<>();
+        wheel.advance(400L, (key, stamp) -> expired.add(key));
+        assertTrue(expired.isEmpty());
+
+        wheel.advance(500L, (key, stamp) -> expired.add(key));
+        assertEquals(List.of("short"), expired);
+
+        wheel.advance(9_999L, (key, stamp) -> expired.add(key));
+        assertEquals(List.of("short"), expired);
+
+        wheel.advance(10_000L, (key, stamp) -> expired.add(key));
+        assertEquals(List.of("short", "medium"), expired);
+
+        wheel.advance(3_600_000L, (key, stamp) -> expired.add(key));
+        assertEquals(List.of("short", "medium", "long"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Проверка, что стоимость очистки зависит от числа истекающих записей, а не от размера хранилища")
+    void testSweepCostDoesNotDependOnStoreSize() {
+        TimingWheel<String> small = new TimingWheel<>(TICK, 0L);
+        TimingWheel<String> large = new TimingWheel<>(TICK, 0L);
+        for (int i = 0; i < 100; i++) {
+            small.schedule("live" + i, 1, 3_600_000L);
+        }
+        for (int i = 0; i < 1_000_000; i++) {
+            large.schedule("live" + i, 1, 3_600_000L);
+        }
+        for (int i = 0; i < 10; i++) {
+            small.schedule("expiring" + i, 1, 1_000L + i * TICK);
+            large.schedule("expiring" + i, 1, 1_000L + i * TICK);
+        }
+        // Первое продвижение раскладывает новые задания по слотам.
+        small.advance(0L, (key, stamp) -> fail("Запись не должна истечь: " + key));
+        large.advance(0L, (key, stamp) -> fail("Запись не должна истечь: " + key));
+
+        int[] expiredSmall = new int[1];
+        int[] expiredLarge = new int[1];
+        long touchedSmall = 0;
+        long touchedLarge = 0;
+        for (long now = TICK; now <= 5_000L; now += TICK) {
+            touchedSmall += small.advance(now, (key, stamp) -> expiredSmall[0]++);
+            touchedLarge += large.advance(now, (key, stamp) -> expiredLarge[0]++);
+        }
+
+        assertEquals(10, expiredSmall[0]);
+        assertEquals(10, expiredLarge[0]);
+        assertEquals(touchedSmall, touchedLarge);
+        assertTrue(touchedLarge <= 20, "Затронуто заданий: " + touchedLarge);
+    }
+
+    @Test
+    @DisplayName("Проверка, что истечение старой записи не удаляет новую запись по тому же ключу")
+    void testExpiryDoesNotRemoveRewrittenEntry() {
+        ConcurrentHashMap<String, Long> storage = new ConcurrentHashMap<>();
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 0L);
+
+        storage.put("key", 1L);
+        wheel.schedule("key", 1, 1_000L);
+
+        storage.put("key", 2L);
+        wheel.schedule("key", 2, 5_000L);
+
+        wheel.advance(1_000L, (key, stamp) -> storage.remove(key, stamp));
+        assertEquals(Long.valueOf(2), storage.get("key"));
+
+        wheel.advance(5_000L, (key, stamp) -> storage.remove(key, stamp));
+        assertNull(storage.get("key"));
+    }
+}
@@ -0,0 +1,166 @@
+import org.example.config.StorageProperties;
+import org.example.service.CodecStats;
+import org.example.service.MemoryStorageService;
+import org.example.snapshot.SnapshotFormat;
+import org.example.storage.ValueCodec;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ValueCodecTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static String json(int id) {
+        StringBuilder sb = new StringBuilder("{\"id\":").append(id).append(",\"items\":[");
+        for (int i = 0; i < 20; i++) {
+            sb.append(i == 0 ? "" : ",").append("{\"sku\":\"SKU-").append(i)
+                    .append("\",\"name\":\"Товар\",\"quantity\":").append(i % 3 + 1).append(",\"currency\":\"RUB\"}");
+        }
+        return sb.append("]}").toString();
+    }
+
+    private static StorageProperties properties(boolean compression, boolean deduplication) {
+        StorageProperties properties = new StorageProperties();
+        properties.getCodec().setCompression(compression
+                ? StorageProperties.Codec.Compression.DEFLATE : StorageProperties.Codec.Compression.NONE);
+        properties.getCodec().setDeduplication(deduplication);
+        return properties;
+    }
+
+    @Test
+    @DisplayName("Проверка сжатия больших значений и их прозрачного чтения")
+    void testCompressedValuesAreReadTransparently() {
+        MemoryStorageService service = new MemoryStorageService(properties(true, false));
+        try {
+            long rawSize = "значение".length();
+            for (int i = 0; i < 1000; i++) {
+                service.set("key" + i, json(i), 60_000L);
+                rawSize += json(i).length();
+            }
+            service.set("small", "значение", 60_000L);
+            for (int i = 0; i < 1000; i++) {
+                assertTrue(service.get("key" + i).contains(json(i)));
+            }
+            assertTrue(service.get("small").contains("значение"));
+            assertEquals(json(7), service.getAll().get("key7").value());
+
+            CodecStats stats = service.getCodecStats();
+            assertEquals(rawSize, stats.rawSize());
+            assertTrue(stats.savedRatio() > 0.5, "saved " + stats.savedRatio());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка хранения одинаковых значений одним экземпляром")
+    void testIdenticalValuesAreShared() {
+        ValueCodec codec = new ValueCodec(512, 1, 64);
+        String value = json(1);
+        Object first = codec.encode(value);
+        Object second = codec.encode(new String(value.toCharArray()));
+        assertSame(first, second);
+        assertTrue(first instanceof byte[]);
+        assertEquals(1, codec.sharedValues());
+        assertEquals(2L * value.length(), codec.rawSize());
+        assertEquals(value, codec.decode(second));
+
+        codec.release(first);
+        assertEquals(1, codec.sharedValues());
+        codec.release(second);
+        assertEquals(0, codec.sharedValues());
+        assertEquals(0, codec.rawSize());
+        assertEquals(0, codec.storedSize());
+    }
+
+    @Test
+    @DisplayName("Проверка учёта общих значений при перезаписи и удалении ключей")
+    void testDeduplicationFollowsOverwritesAndRemovals() {
+        MemoryStorageService service = new MemoryStorageService(properties(false, true));
+        try {
+            String value = "v".repeat(100);
+            for (int i = 0; i < 1000; i++) {
+                service.set("key" + i, value, 60_000L);
+            }
+            CodecStats stats = service.getCodecStats();
+            assertEquals(1, stats.sharedValues());
+            assertEquals(100, stats.storedSize());
+            assertEquals(100_000, stats.rawSize());
+
+            service.set("key0", "другое значение", 60_000L);
+            for (int i = 1; i < 1000; i++) {
+                service.remove("key" + i);
+            }
+            stats = service.getCodecStats();
+            assertEquals(0, stats.sharedValues());
+            assertEquals("другое значение".length(), stats.storedSize());
+            assertTrue(service.get("key0").contains("другое значение"));
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка хранения несжимаемых значений строкой")
+    void testIncompressibleValuesAreStoredAsIs() {
+        ValueCodec codec = new ValueCodec(16, 9, 0);
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append((char) random.nextInt(256));
+        }
+        String value = sb.toString();
+        Object stored = codec.encode(value);
+        assertSame(value, stored);
+        assertEquals(codec.rawSize(), codec.storedSize());
+        assertEquals(0, codec.sharedValues());
+    }
+
+    @Test
+    @DisplayName("Проверка удаления по TTL, изменения TTL и сохранения состояния при сжатых значениях")
+    void testExpiryAndSnapshotWithCodec() throws IOException, InterruptedException {
+        StorageProperties properties = properties(true, true);
+        properties.getSnapshot().setFormat(SnapshotFormat.BINARY);
+        properties.getSnapshot().setFile(tempDir.resolve("storage-state"));
+        MemoryStorageService service = new MemoryStorageService(properties);
+        try {
+            service.set("short", json(1), 200L);
+            service.set("long", json(2), 60_000L);
+            service.set("copy", json(2), 60_000L);
+            assertTrue(service.expire("long", 120_000L));
+            service.dump();
+            Thread.sleep(500);
+            assertNull(service.get("short"));
+            assertEquals(2, service.getAll().size());
+            assertEquals(1, service.getCodecStats().sharedValues());
+        } finally {
+            service.shutdown();
+        }
+
+        MemoryStorageService restored = new MemoryStorageService(properties);
+        try {
+            restored.load();
+            assertTrue(restored.get("long").contains(json(2)));
+            assertTrue(restored.get("copy").contains(json(2)));
+            assertEquals(1, restored.getCodecStats().sharedValues());
+        } finally {
+            restored.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка, что кодек значений доступен только для хранения в куче")
+    void testCodecRequiresHeapEngine() {
+        StorageProperties properties = properties(true, false);
+        properties.setEngine(StorageProperties.Engine.OFF_HEAP);
+        assertThrows(IllegalStateException.class, () -> new MemoryStorageService(properties));
+    }
+}
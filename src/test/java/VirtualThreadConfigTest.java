@@ -0,0 +1,48 @@
+import org.example.config.VirtualThreadConfig;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VirtualThreadConfigTest {
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withUserConfiguration(VirtualThreadConfig.class);
+
+    @Test
+    @DisplayName("Проверка, что виртуальные потоки по умолчанию выключены")
+    void testDisabledByDefault() {
+        runner.run(context -> assertThat(context).doesNotHaveBean(TomcatProtocolHandlerCustomizer.class));
+    }
+
+    @Test
+    @DisplayName("Проверка включения виртуальных потоков или понятной ошибки на Java без них")
+    void testEnabled() {
+        runner.withPropertyValues("storage.virtual-threads=true").run(context -> {
+            if (virtualThreadsAvailable()) {
+                assertThat(context).hasSingleBean(TomcatProtocolHandlerCustomizer.class);
+            } else {
+                assertThat(context).hasFailed();
+                assertThat(context.getStartupFailure()).hasStackTraceContaining("Virtual threads require");
+            }
+        });
+    }
+
+    /**
+     * Та же проверка, что и в конфигурации: доступность {@code Executors.newVirtualThreadPerTaskExecutor}
+     * зависит не только от версии Java, но и от {@code --enable-preview} на Java 19 и 20.
+     */
+    private static boolean virtualThreadsAvailable() {
+        try {
+            ((ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null)).shutdown();
+            return true;
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+}
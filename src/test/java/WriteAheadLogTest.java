@@ -0,0 +1,142 @@
+import org.example.config.StorageProperties;
+import org.example.service.MemoryStorageService;
+import org.example.snapshot.SnapshotFormat;
+import org.example.storage.StorageEntry;
+import org.example.wal.FsyncPolicy;
+import org.example.wal.WalRecord;
+import org.example.wal.WriteAheadLog;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path tempDir;
+
+    private StorageProperties properties(FsyncPolicy fsync) {
+        StorageProperties properties = new StorageProperties();
+        properties.getSnapshot().setFormat(SnapshotFormat.BINARY);
+        properties.getSnapshot().setFile(tempDir.resolve("storage-state.bin"));
+        properties.getWal().setEnabled(true);
+        properties.getWal().setDir(tempDir.resolve("wal"));
+        properties.getWal().setFsync(fsync);
+        return properties;
+    }
+
+    @Test
+    @DisplayName("Проверка восстановления записей и удалений из журнала после перезапуска")
+    void testRecoveryFromLog() {
+        MemoryStorageService service = new MemoryStorageService(properties(FsyncPolicy.ALWAYS));
+        for (int i = 0; i < 100; i++) {
+            service.set("key" + i, "value" + i, 60_000L);
+        }
+        service.set("key1", "updated", 60_000L);
+        service.remove("key2");
+        service.shutdown();
+
+        MemoryStorageService restarted = new MemoryStorageService(properties(FsyncPolicy.ALWAYS));
+        try {
+            assertTrue(restarted.get("key0").contains("value0"));
+            assertTrue(restarted.get("key1").contains("updated"));
+            assertNull(restarted.get("key2"));
+            assertEquals(99, restarted.getAll().size());
+        } finally {
+            restarted.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка, что вытесненные записи не восстанавливаются из журнала")
+    void testEvictionIsLogged() {
+        StorageProperties limited = properties(FsyncPolicy.ALWAYS);
+        limited.getEviction().setMaxEntries(10);
+        MemoryStorageService service = new MemoryStorageService(limited);
+        for (int i = 0; i < 100; i++) {
+            service.set("key" + i, "value" + i, 60_000L);
+        }
+        Set<String> kept = Set.copyOf(service.getAll().keySet());
+        assertEquals(10, kept.size());
+        service.shutdown();
+
+        MemoryStorageService restarted = new MemoryStorageService(properties(FsyncPolicy.ALWAYS));
+        try {
+            assertEquals(kept, restarted.getAll().keySet());
+        } finally {
+            restarted.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Проверка отбрасывания оборванной записи в конце журнала")
+    void testTornTailIsDiscarded() throws IOException {
+        Path dir = tempDir.resolve("wal");
+        long now = System.currentTimeMillis();
+        try (WriteAheadLog wal = new WriteAheadLog(dir, FsyncPolicy.OS, Duration.ofMillis(100))) {
+            for (int i = 0; i < 10; i++) {
+                wal.append(WalRecord.set("key" + i, StorageEntry.of("value" + i, 60_000L, now)));
+            }
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        Files.write(segment, new byte[]{0, 0, 0, 40, 1, 2, 3, 4, 0, 0}, StandardOpenOption.APPEND);
+
+        List<WalRecord> replayed = new ArrayList<>();
+        try (WriteAheadLog wal = new WriteAheadLog(dir, FsyncPolicy.OS, Duration.ofMillis(100))) {
+            assertEquals(10, wal.replay(replayed::add));
+        }
+        assertEquals("key9", replayed.get(9).key());
+        assertEquals(StorageEntry.of("value9", 60_000L, now).toTuple(), replayed.get(9).entry().toTuple());
+    }
+
+    @Test
+    @DisplayName("Проверка сжатия журнала в файл состояния и восстановления после него")
+    void testCompaction() throws InterruptedException, IOException {
+        StorageProperties properties = properties(FsyncPolicy.INTERVAL);
+        properties.getWal().setCompactionThreshold(DataSize.ofKilobytes(16));
+        properties.getExpiry().setTick(Duration.ofMillis(20));
+        MemoryStorageService service = new MemoryStorageService(properties);
+        for (int i = 0; i < 2_000; i++) {
+            service.set("key" + i, "value" + i, 60_000L);
+        }
+        long deadline = System.currentTimeMillis() + 5_000;
+        // Журнал может быть ещё мал, пока фоновый поток не записал очередь, поэтому ждём и файл состояния
+        while ((logSize() > 16 * 1024 || !Files.exists(tempDir.resolve("storage-state.bin")))
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(logSize() <= 16 * 1024, "Размер журнала: " + logSize());
+        assertTrue(Files.exists(tempDir.resolve("storage-state.bin")));
+        service.set("after", "compaction", 60_000L);
+        service.shutdown();
+
+        MemoryStorageService restarted = new MemoryStorageService(properties);
+        try {
+            assertEquals(2_001, restarted.getAll().size());
+            assertTrue(restarted.get("after").contains("compaction"));
+        } finally {
+            restarted.shutdown();
+        }
+    }
+
+    private long logSize() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir.resolve("wal"))) {
+            return files.mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+}